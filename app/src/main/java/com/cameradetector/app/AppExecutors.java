@@ -0,0 +1,327 @@
+package com.cameradetector.app;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 应用共用的线程池 - 按任务类型分池，队列都有上限：
+ * scan 执行扫描探测（按 {@link HostPriority} 分数取任务），cpu 执行解析解码等计算任务，io 执行其他阻塞网络和文件操作。
+ * 池在进程内常驻，使用方通过 {@link TaskGroup} 提交任务，页面销毁或扫描停止时取消自己的那一组，
+ * 不再为取消任务重建线程池。每个池统计队列长度、活动线程数和任务等待/执行耗时。
+ */
+public final class AppExecutors {
+
+    private static final int SCAN_THREADS = 20;
+    // 每个接口最多 /24 共254个主机，留足多接口和IPv6发现的余量
+    private static final int SCAN_QUEUE_CAPACITY = 4096;
+    private static final int CPU_QUEUE_CAPACITY = 64;
+    private static final int IO_THREADS = 16;
+    private static final int IO_QUEUE_CAPACITY = 128;
+    // 空闲线程保留时间，扫描结束后线程逐渐退出
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile AppExecutors instance;
+
+    private final Pool scan;
+    private final Pool cpu;
+    private final Pool io;
+
+    public static AppExecutors getInstance() {
+        if (instance == null) {
+            synchronized (AppExecutors.class) {
+                if (instance == null) {
+                    instance = new AppExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private AppExecutors() {
+        int cores = Math.max(1, Runtime.getRuntime().availableProcessors());
+        // 扫描任务由界面线程批量提交，队列满时拒绝而不是在提交线程执行
+        scan = new Pool("scan", SCAN_THREADS, new BoundedPriorityQueue(SCAN_QUEUE_CAPACITY),
+                new ThreadPoolExecutor.AbortPolicy());
+        // 计算任务由读流线程提交，队列满时在提交线程执行，读流随之放慢
+        cpu = new Pool("cpu", cores, new ArrayBlockingQueue<Runnable>(CPU_QUEUE_CAPACITY),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        io = new Pool("io", IO_THREADS, new ArrayBlockingQueue<Runnable>(IO_QUEUE_CAPACITY),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /** 扫描探测池，只能提交 {@link HostPriority#task} 创建的任务 */
+    public Pool scan() {
+        return scan;
+    }
+
+    /** 计算池（解析、解码），线程数等于CPU核数 */
+    public Pool cpu() {
+        return cpu;
+    }
+
+    /** 阻塞I/O池（HTTP请求、文件读写） */
+    public Pool io() {
+        return io;
+    }
+
+    /**
+     * 新建一个可整体取消的任务组，name用于日志
+     */
+    public TaskGroup newGroup(String name) {
+        return new TaskGroup(name);
+    }
+
+    public String getSummary() {
+        return scan.getStats() + "\n" + cpu.getStats() + "\n" + io.getStats();
+    }
+
+    /**
+     * 带统计的线程池，线程按 "池名-序号" 命名
+     */
+    public static final class Pool extends ThreadPoolExecutor {
+        private final String name;
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+
+        Pool(String name, int threads, BlockingQueue<Runnable> queue, RejectedExecutionHandler rejection) {
+            super(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, queue, new NamedThreadFactory(name));
+            this.name = name;
+            allowCoreThreadTimeOut(true);
+            setRejectedExecutionHandler((task, executor) -> {
+                rejected.incrementAndGet();
+                rejection.rejectedExecution(task, executor);
+            });
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 提交不属于任何任务组的任务；队列已满且池的策略是拒绝时抛出 RejectedExecutionException
+         */
+        @Override
+        public void execute(Runnable command) {
+            super.execute(command instanceof Timed ? command : new Timed(this, null, command));
+        }
+
+        public Stats getStats() {
+            long done = completed.get();
+            return new Stats(name, getPoolSize(), getActiveCount(), getQueue().size(), done,
+                    rejected.get(), cancelled.get(),
+                    done > 0 ? totalWaitNanos.get() / done : 0, maxWaitNanos.get(),
+                    done > 0 ? totalRunNanos.get() / done : 0);
+        }
+
+        void record(long waitNanos, long runNanos) {
+            completed.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            totalRunNanos.addAndGet(runNanos);
+            long max;
+            while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+                // 其他线程同时更新，重新比较
+            }
+        }
+    }
+
+    /**
+     * 线程池统计快照，耗时单位为纳秒
+     */
+    public static final class Stats {
+        public final String name;
+        public final int threads;
+        public final int activeThreads;
+        public final int queueDepth;
+        public final long completed;
+        // 队列已满的任务：拒绝策略下被丢弃，cpu 池在提交线程执行
+        public final long rejected;
+        // 所属任务组已取消、出队后直接丢弃的任务
+        public final long cancelled;
+        public final long averageWaitNanos;
+        public final long maxWaitNanos;
+        public final long averageRunNanos;
+
+        Stats(String name, int threads, int activeThreads, int queueDepth, long completed, long rejected,
+              long cancelled, long averageWaitNanos, long maxWaitNanos, long averageRunNanos) {
+            this.name = name;
+            this.threads = threads;
+            this.activeThreads = activeThreads;
+            this.queueDepth = queueDepth;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.cancelled = cancelled;
+            this.averageWaitNanos = averageWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.averageRunNanos = averageRunNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: 线程 %d（活动 %d），排队 %d，完成 %d，拒绝 %d，取消 %d，等待 平均%.1fms/最长%.1fms，执行 平均%.1fms",
+                    name, threads, activeThreads, queueDepth, completed, rejected, cancelled,
+                    averageWaitNanos / 1e6, maxWaitNanos / 1e6, averageRunNanos / 1e6);
+        }
+    }
+
+    /**
+     * 任务组 - 一个页面或一轮扫描提交的任务。cancel 之后新提交的任务直接丢弃，
+     * 队列中的任务出队时跳过，正在执行的任务收到中断；回调界面前可用 isCancelled 判断页面是否已销毁
+     */
+    public static final class TaskGroup {
+        private final String name;
+        private volatile boolean cancelled = false;
+        // 正在执行本组任务的线程
+        private final Set<Thread> running = new HashSet<>();
+
+        TaskGroup(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 提交任务，任务组已取消或队列已满被拒绝时返回false（任务不会执行）
+         */
+        public boolean execute(Pool pool, Runnable task) {
+            if (cancelled) {
+                return false;
+            }
+            try {
+                pool.execute(new Timed(pool, this, task));
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        public boolean cpu(Runnable task) {
+            return execute(getInstance().cpu, task);
+        }
+
+        public boolean io(Runnable task) {
+            return execute(getInstance().io, task);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                for (Thread thread : running) {
+                    thread.interrupt();
+                }
+            }
+        }
+
+        // 取消后返回false，任务不再执行
+        synchronized boolean begin(Thread thread) {
+            if (cancelled) {
+                return false;
+            }
+            running.add(thread);
+            return true;
+        }
+
+        // 与 cancel 互斥：线程离开本组后不会再被本组中断（残留的中断标记由线程池在下个任务前清除）
+        synchronized void end(Thread thread) {
+            running.remove(thread);
+        }
+    }
+
+    /**
+     * 记录入队时间的任务包装；被包装的任务可比较时（优先级任务）按其顺序比较
+     */
+    private static final class Timed implements Runnable, Comparable<Timed> {
+        private final Pool pool;
+        private final TaskGroup group;
+        private final Runnable task;
+        private final long enqueuedNanos = System.nanoTime();
+
+        Timed(Pool pool, TaskGroup group, Runnable task) {
+            this.pool = pool;
+            this.group = group;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+            if (group != null && !group.begin(thread)) {
+                pool.cancelled.incrementAndGet();
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                if (group != null) {
+                    group.end(thread);
+                }
+                pool.record(start - enqueuedNanos, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compareTo(Timed other) {
+            if (task instanceof Comparable && other.task instanceof Comparable) {
+                return ((Comparable<Object>) task).compareTo(other.task);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * 有容量上限的优先队列；上限按 size() 判断，并发提交时可能略微超出
+     */
+    private static final class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+        private final int capacity;
+
+        BoundedPriorityQueue(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(Runnable task) {
+            return size() < capacity && super.offer(task);
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, capacity - size());
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, name + "-" + count.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.cameradetector.app;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * BLE广播分类 - 解析广播包中的AD结构，根据服务UUID、厂商自定义数据（公司ID）和设备名判断是否像摄像头。
+ * 每条命中的规则给出一个置信度，多条证据按 1-Π(1-p) 合并（与 FingerprintEngine 相同），
+ * 厂商取单条置信度最高的厂商规则。不依赖Android，可直接用录制的广播包在JVM上验证
+ */
+public final class BleCameraClassifier {
+
+    // 达到该置信度才作为摄像头上报
+    public static final float CAMERA_THRESHOLD = 0.5f;
+
+    private static final int AD_FLAGS = 0x01;
+    private static final int AD_UUID16_PARTIAL = 0x02;
+    private static final int AD_UUID16_COMPLETE = 0x03;
+    private static final int AD_UUID32_PARTIAL = 0x04;
+    private static final int AD_UUID32_COMPLETE = 0x05;
+    private static final int AD_UUID128_PARTIAL = 0x06;
+    private static final int AD_UUID128_COMPLETE = 0x07;
+    private static final int AD_NAME_SHORT = 0x08;
+    private static final int AD_NAME_COMPLETE = 0x09;
+    private static final int AD_SERVICE_DATA16 = 0x16;
+    private static final int AD_MANUFACTURER_DATA = 0xFF;
+
+    private static final int SONY_COMPANY_ID = 0x012D;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * 解析后的广播内容
+     */
+    public static class Advertisement {
+        public int flags = -1;
+        public String name;
+        // 16位服务UUID（含服务数据中的UUID）；32位和128位UUID只保留其16位别名（蓝牙基础UUID时）
+        public final List<Integer> serviceUuids = new ArrayList<>();
+        // 厂商自定义数据的公司ID，-1表示没有
+        public int companyId = -1;
+        public byte[] manufacturerData = new byte[0];
+    }
+
+    /**
+     * 分类结果
+     */
+    public static class Result {
+        public final String vendor;
+        public final float confidence;
+        public final List<String> evidence;
+
+        Result(String vendor, float confidence, List<String> evidence) {
+            this.vendor = vendor;
+            this.confidence = confidence;
+            this.evidence = evidence;
+        }
+
+        public boolean isCamera() {
+            return confidence >= CAMERA_THRESHOLD;
+        }
+    }
+
+    static final Result NONE = new Result(null, 0f, Collections.<String>emptyList());
+
+    /**
+     * 一条分类规则：按数值（服务UUID、公司ID）或名称关键词匹配，vendor为null表示只说明是摄像头、不确定厂商
+     */
+    private static class Rule {
+        final int id;
+        final String keyword;
+        final String vendor;
+        final float confidence;
+
+        Rule(int id, String keyword, String vendor, float confidence) {
+            this.id = id;
+            this.keyword = keyword;
+            this.vendor = vendor;
+            this.confidence = confidence;
+        }
+    }
+
+    // 16位服务UUID规则
+    private static final Rule[] SERVICE_RULES = {
+        new Rule(0xFEA6, null, "GoPro", 0.9f),
+        // 涂鸦、小米的配网服务也用于插座灯泡等，只作为弱证据
+        new Rule(0xFD50, null, "Tuya", 0.3f),
+        new Rule(0xFE95, null, "Xiaomi", 0.2f),
+    };
+
+    // 公司ID规则（蓝牙SIG分配的Company Identifier）
+    private static final Rule[] COMPANY_RULES = {
+        new Rule(0x02F2, null, "GoPro", 0.9f),
+        new Rule(0x01A9, null, "Canon", 0.6f),
+        new Rule(0x0399, null, "Nikon", 0.8f),
+        new Rule(0x04D8, null, "Fujifilm", 0.6f),
+        new Rule(0x08AA, null, "DJI", 0.6f),
+        // 索尼的耳机电视也用这个ID，只有相机类型字段为0x0003时才是强证据（见 classify）
+        new Rule(SONY_COMPANY_ID, null, "Sony", 0.2f),
+    };
+
+    // 设备名关键词规则，按小写子串匹配
+    private static final Rule[] NAME_RULES = {
+        new Rule(0, "gopro", "GoPro", 0.9f),
+        new Rule(0, "insta360", "Insta360", 0.9f),
+        new Rule(0, "osmo", "DJI", 0.7f),
+        new Rule(0, "ilce-", "Sony", 0.8f),
+        new Rule(0, "nikon", "Nikon", 0.8f),
+        new Rule(0, "dashcam", null, 0.7f),
+        new Rule(0, "camera", null, 0.6f),
+        new Rule(0, "cam", null, 0.4f),
+        new Rule(0, "ipc", null, 0.4f),
+        new Rule(0, "dvr", null, 0.4f),
+    };
+
+    private static final float SONY_CAMERA_CONFIDENCE = 0.9f;
+
+    private BleCameraClassifier() {
+    }
+
+    /**
+     * 解析原始广播包（广播数据加扫描响应），截断或格式错误的部分忽略
+     */
+    public static Advertisement parse(byte[] record) {
+        Advertisement ad = new Advertisement();
+        if (record == null) {
+            return ad;
+        }
+        int offset = 0;
+        while (offset < record.length) {
+            int length = record[offset] & 0xff;
+            // 长度为0表示有效数据结束，后面是填充
+            if (length == 0 || offset + 1 + length > record.length) {
+                break;
+            }
+            int type = record[offset + 1] & 0xff;
+            int start = offset + 2;
+            int dataLength = length - 1;
+            switch (type) {
+                case AD_FLAGS:
+                    if (dataLength > 0) {
+                        ad.flags = record[start] & 0xff;
+                    }
+                    break;
+                case AD_UUID16_PARTIAL:
+                case AD_UUID16_COMPLETE:
+                    for (int i = 0; i + 1 < dataLength; i += 2) {
+                        ad.serviceUuids.add(uint16(record, start + i));
+                    }
+                    break;
+                case AD_UUID32_PARTIAL:
+                case AD_UUID32_COMPLETE:
+                    for (int i = 0; i + 3 < dataLength; i += 4) {
+                        if (uint16(record, start + i + 2) == 0) {
+                            ad.serviceUuids.add(uint16(record, start + i));
+                        }
+                    }
+                    break;
+                case AD_UUID128_PARTIAL:
+                case AD_UUID128_COMPLETE:
+                    for (int i = 0; i + 15 < dataLength; i += 16) {
+                        int alias = baseUuidAlias(record, start + i);
+                        if (alias >= 0) {
+                            ad.serviceUuids.add(alias);
+                        }
+                    }
+                    break;
+                case AD_NAME_SHORT:
+                case AD_NAME_COMPLETE:
+                    if (ad.name == null || type == AD_NAME_COMPLETE) {
+                        ad.name = new String(record, start, dataLength, UTF_8).trim();
+                    }
+                    break;
+                case AD_SERVICE_DATA16:
+                    if (dataLength >= 2) {
+                        ad.serviceUuids.add(uint16(record, start));
+                    }
+                    break;
+                case AD_MANUFACTURER_DATA:
+                    if (dataLength >= 2) {
+                        ad.companyId = uint16(record, start);
+                        ad.manufacturerData = new byte[dataLength - 2];
+                        System.arraycopy(record, start + 2, ad.manufacturerData, 0, dataLength - 2);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            offset += 1 + length;
+        }
+        return ad;
+    }
+
+    /**
+     * 判断广播是否来自摄像头类设备
+     * @param deviceName 系统缓存的设备名，可以为null；广播包中有名称时优先使用广播包中的
+     */
+    public static Result classify(Advertisement ad, String deviceName) {
+        Evidence evidence = new Evidence();
+        for (Rule rule : SERVICE_RULES) {
+            if (ad.serviceUuids.contains(rule.id)) {
+                evidence.add(rule, rule.confidence, String.format(Locale.US, "服务0x%04X", rule.id));
+            }
+        }
+        for (Rule rule : COMPANY_RULES) {
+            if (ad.companyId == rule.id) {
+                float confidence = rule.confidence;
+                if (rule.id == SONY_COMPANY_ID && ad.manufacturerData.length >= 2
+                        && ad.manufacturerData[0] == 0x03 && ad.manufacturerData[1] == 0x00) {
+                    confidence = SONY_CAMERA_CONFIDENCE;
+                }
+                evidence.add(rule, confidence, String.format(Locale.US, "厂商ID 0x%04X", rule.id));
+            }
+        }
+        String name = ad.name != null && !ad.name.isEmpty() ? ad.name : deviceName;
+        if (name != null) {
+            String lower = name.toLowerCase(Locale.US);
+            for (Rule rule : NAME_RULES) {
+                if (lower.contains(rule.keyword)) {
+                    evidence.add(rule, rule.confidence, "名称含" + rule.keyword);
+                }
+            }
+        }
+        return evidence.reasons.isEmpty() ? NONE : new Result(evidence.vendor, 1f - evidence.miss, evidence.reasons);
+    }
+
+    private static class Evidence {
+        final List<String> reasons = new ArrayList<>();
+        float miss = 1f;
+        String vendor;
+        float vendorConfidence = 0f;
+
+        void add(Rule rule, float confidence, String reason) {
+            miss *= 1f - confidence;
+            reasons.add(reason);
+            if (rule.vendor != null && confidence > vendorConfidence) {
+                vendor = rule.vendor;
+                vendorConfidence = confidence;
+            }
+        }
+    }
+
+    private static int uint16(byte[] data, int offset) {
+        return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8;
+    }
+
+    // 128位UUID（小端）符合蓝牙基础UUID 0000xxxx-0000-1000-8000-00805F9B34FB 时返回16位别名，否则返回-1
+    private static int baseUuidAlias(byte[] data, int offset) {
+        final int[] base = {0xFB, 0x34, 0x9B, 0x5F, 0x80, 0x00, 0x00, 0x80, 0x00, 0x10, 0x00, 0x00};
+        for (int i = 0; i < base.length; i++) {
+            if ((data[offset + i] & 0xff) != base[i]) {
+                return -1;
+            }
+        }
+        if (data[offset + 14] != 0 || data[offset + 15] != 0) {
+            return -1;
+        }
+        return uint16(data, offset + 12);
+    }
+}
@@ -0,0 +1,225 @@
+package com.cameradetector.app;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BLE摄像头发现 - 用批量上报的 ScanSettings 扫描（控制器支持时由蓝牙芯片缓存结果，一批唤醒一次），
+ * 结果在后台线程交给 {@link BleDeviceTable} 去重、分类和平滑信号，
+ * 像摄像头的设备以 BLUETOOTH 类型合并到 {@link DeviceRepository}。
+ * 显示内容在扫描线程算好，合并和修改仓库中的 CameraInfo 都在主线程进行
+ */
+public class BleCameraScanner {
+
+    private static final String TAG = "BleCameraScanner";
+
+    // 批量上报间隔，不支持批量时每个结果单独回调
+    private static final long REPORT_DELAY_MS = 1000;
+
+    // 停止后等待控制器中缓存的结果送达的时间，flushPendingScanResults 的结果异步回调
+    private static final long FLUSH_GRACE_MS = 500;
+
+    private final Context context;
+    private BluetoothLeScanner scanner;
+    private Session session;
+
+    public BleCameraScanner(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * 开始扫描，蓝牙未开启或没有扫描权限时返回false
+     */
+    public boolean start() {
+        if (scanner != null) {
+            return true;
+        }
+        BluetoothAdapter adapter = BluetoothAdapter.getDefaultAdapter();
+        if (adapter == null || !adapter.isEnabled() || !hasScanPermission()) {
+            return false;
+        }
+        BluetoothLeScanner leScanner = adapter.getBluetoothLeScanner();
+        if (leScanner == null) {
+            return false;
+        }
+
+        Session current = new Session();
+        ScanSettings.Builder settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_BALANCED);
+        if (adapter.isOffloadedScanBatchingSupported()) {
+            settings.setReportDelay(REPORT_DELAY_MS);
+        }
+        try {
+            leScanner.startScan(null, settings.build(), current);
+        } catch (SecurityException e) {
+            Log.e(TAG, "没有BLE扫描权限: " + e.getMessage());
+            current.handler.getLooper().quitSafely();
+            return false;
+        }
+        scanner = leScanner;
+        session = current;
+        return true;
+    }
+
+    /**
+     * 停止扫描，控制器中缓存的结果先取出处理
+     */
+    public void stop() {
+        if (scanner == null) {
+            return;
+        }
+        Session current = session;
+        try {
+            current.flushing = true;
+            scanner.flushPendingScanResults(current);
+            scanner.stopScan(current);
+        } catch (SecurityException | IllegalStateException e) {
+            // 蓝牙已关闭或权限被撤销，扫描已经随之停止
+            Log.w(TAG, "停止BLE扫描: " + e.getMessage());
+        }
+        scanner = null;
+        session = null;
+        current.finish();
+    }
+
+    /**
+     * 一轮扫描：自己的线程、设备表和回调。回调只投递到本轮的线程，
+     * 停止后迟到的结果不会进入下一轮的设备表
+     */
+    private static class Session extends ScanCallback {
+        private final Handler handler;
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private final BleDeviceTable table = new BleDeviceTable();
+        // 已上报的摄像头地址；仅在扫描线程访问
+        private final Set<String> reported = new HashSet<>();
+        // 已加入设备仓库的摄像头记录，按地址索引；与仓库共享，仅在主线程访问
+        private final Map<String, CameraInfo> published = new HashMap<>();
+        private int resultCount = 0;
+        private boolean finished = false;
+        // 已请求取出缓存的结果，收到这一批后即可结束
+        private volatile boolean flushing = false;
+
+        Session() {
+            HandlerThread thread = new HandlerThread("BleScan");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+
+        @Override
+        public void onScanResult(int callbackType, ScanResult result) {
+            handler.post(() -> handle(Collections.singletonList(result)));
+        }
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            handler.post(() -> handle(results));
+            if (flushing) {
+                // 取出的缓存结果已送达，不必等满 FLUSH_GRACE_MS
+                handler.post(this::quit);
+            }
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            Log.e(TAG, "BLE扫描失败: " + errorCode);
+        }
+
+        // 给缓存结果留出送达时间后结束线程；先送达时由 onBatchScanResults 提前结束
+        void finish() {
+            handler.postDelayed(this::quit, FLUSH_GRACE_MS);
+        }
+
+        // 在扫描线程执行，可能被调用两次
+        private void quit() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            Log.d(TAG, String.format(Locale.US, "BLE扫描结束：%d 条结果，%d 个设备，解析 %d 次，摄像头 %d 个",
+                    resultCount, table.size(), table.getClassifications(), reported.size()));
+            handler.getLooper().quitSafely();
+        }
+
+        // 在扫描线程执行
+        private void handle(List<ScanResult> results) {
+            for (ScanResult result : results) {
+                resultCount++;
+                String address = result.getDevice().getAddress();
+                byte[] record = result.getScanRecord() != null ? result.getScanRecord().getBytes() : null;
+                BleDeviceTable.Device device = table.update(address, deviceName(result),
+                        result.getRssi(), result.getTimestampNanos(), record);
+                if (device != null && table.shouldReport(device)) {
+                    publish(device);
+                }
+            }
+        }
+
+        // 在扫描线程取值，交给主线程合并
+        private void publish(BleDeviceTable.Device device) {
+            BleCameraClassifier.Result classification = device.getClassification();
+            String address = device.getAddress();
+            String name = device.getName() != null ? device.getName() : "BLE设备 " + address;
+            String vendor = classification.vendor;
+            float confidence = classification.confidence;
+            String description = String.format(Locale.US, "信号 %.0f dBm，依据: %s",
+                    device.getSmoothedRssi(), android.text.TextUtils.join("、", classification.evidence));
+            reported.add(address);
+            mainHandler.post(() -> {
+                CameraInfo camera = published.get(address);
+                boolean added = camera == null;
+                if (added) {
+                    camera = new CameraInfo();
+                    camera.setId(address);
+                    camera.setType(CameraInfo.CameraType.BLUETOOTH);
+                    camera.setMacAddress(address);
+                }
+                camera.setName(name);
+                camera.setManufacturer(vendor);
+                camera.setConfidence(confidence);
+                camera.setDescription(description);
+                if (added) {
+                    published.put(address, DeviceRepository.getInstance().merge(camera));
+                } else {
+                    DeviceRepository.getInstance().notifyChanged(camera);
+                }
+            });
+        }
+    }
+
+    // 优先使用广播包中的名称，没有时取系统缓存的设备名
+    private static String deviceName(ScanResult result) {
+        if (result.getScanRecord() != null && result.getScanRecord().getDeviceName() != null) {
+            return result.getScanRecord().getDeviceName();
+        }
+        try {
+            return result.getDevice().getName();
+        } catch (SecurityException e) {
+            return null;
+        }
+    }
+
+    // targetSdk 28 的应用在 Android 12+ 上仍按旧模型授权：BLE扫描只需要定位权限（扫描前已申请）
+    private boolean hasScanPermission() {
+        return ContextCompat.checkSelfPermission(context, android.Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+}
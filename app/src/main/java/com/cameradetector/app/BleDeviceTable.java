@@ -0,0 +1,152 @@
+package com.cameradetector.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BLE扫描到的设备表 - 按蓝牙地址去重（地址转成long作为 {@link LongIntMap} 的键），
+ * 广播内容不变时复用上次的分类结果，信号强度用随时间衰减的指数滤波平滑。
+ * 不依赖Android，非线程安全，由扫描线程独占使用
+ */
+public class BleDeviceTable {
+
+    // 平滑时间常数：约2秒前的读数权重衰减到1/e
+    static final long RSSI_TIME_CONSTANT_MS = 2000;
+    // 时间戳相同或乱序的批量结果仍按该权重参与平滑
+    private static final double MIN_ALPHA = 0.1;
+    // 平滑后的信号变化超过该值才重新上报，避免界面随每个广播刷新
+    static final float RSSI_REPORT_STEP = 3f;
+
+    /**
+     * 一个BLE设备的当前状态
+     */
+    public static class Device {
+        private final String address;
+        private String name;
+        private int lastRssi;
+        private float smoothedRssi;
+        private long lastSeenNanos;
+        private int reports = 0;
+        private int recordHash;
+        private BleCameraClassifier.Result classification = BleCameraClassifier.NONE;
+        // 上次上报时的状态，NaN表示尚未上报
+        private float reportedRssi = Float.NaN;
+        private BleCameraClassifier.Result reportedClassification;
+
+        Device(String address) {
+            this.address = address;
+        }
+
+        public String getAddress() { return address; }
+        public String getName() { return name; }
+        public int getLastRssi() { return lastRssi; }
+        public float getSmoothedRssi() { return smoothedRssi; }
+        public long getLastSeenNanos() { return lastSeenNanos; }
+        public int getReports() { return reports; }
+        public BleCameraClassifier.Result getClassification() { return classification; }
+        public boolean isCamera() { return classification.isCamera(); }
+    }
+
+    private final LongIntMap index = new LongIntMap(64);
+    private final List<Device> devices = new ArrayList<>();
+    private int classifications = 0;
+
+    /**
+     * 记录一条扫描结果，返回对应的设备；地址格式不正确时返回null
+     * @param record 原始广播包，可以为null
+     * @param timestampNanos 扫描结果的时间戳（批量上报时每条各自的接收时间）
+     */
+    public Device update(String address, String name, int rssi, long timestampNanos, byte[] record) {
+        long key = addressKey(address);
+        if (key == 0) {
+            return null;
+        }
+        int position = index.get(key);
+        Device device;
+        if (position < 0) {
+            device = new Device(address);
+            device.smoothedRssi = rssi;
+            index.put(key, devices.size());
+            devices.add(device);
+        } else {
+            device = devices.get(position);
+            double dtMs = (timestampNanos - device.lastSeenNanos) / 1e6;
+            double alpha = Math.max(MIN_ALPHA, 1 - Math.exp(-dtMs / RSSI_TIME_CONSTANT_MS));
+            device.smoothedRssi += (float) (alpha * (rssi - device.smoothedRssi));
+        }
+        device.lastRssi = rssi;
+        device.lastSeenNanos = Math.max(device.lastSeenNanos, timestampNanos);
+        device.reports++;
+
+        // 同一设备的广播内容通常不变，只有内容或名称变化时才重新解析分类
+        int hash = Arrays.hashCode(record) * 31 + (name != null ? name.hashCode() : 0);
+        if (device.reports == 1 || hash != device.recordHash) {
+            device.recordHash = hash;
+            BleCameraClassifier.Advertisement ad = BleCameraClassifier.parse(record);
+            device.classification = BleCameraClassifier.classify(ad, name);
+            device.name = ad.name != null && !ad.name.isEmpty() ? ad.name : name;
+            classifications++;
+        }
+        return device;
+    }
+
+    /**
+     * 摄像头类设备是否需要（重新）上报：第一次识别、分类变化或平滑后的信号变化超过 RSSI_REPORT_STEP。
+     * 返回true时记为已上报
+     */
+    public boolean shouldReport(Device device) {
+        if (!device.isCamera()) {
+            return false;
+        }
+        boolean report = Float.isNaN(device.reportedRssi)
+                || device.classification != device.reportedClassification
+                || Math.abs(device.smoothedRssi - device.reportedRssi) >= RSSI_REPORT_STEP;
+        if (report) {
+            device.reportedRssi = device.smoothedRssi;
+            device.reportedClassification = device.classification;
+        }
+        return report;
+    }
+
+    public int size() {
+        return devices.size();
+    }
+
+    /** 实际解析分类的次数，远小于扫描结果数时说明缓存有效 */
+    public int getClassifications() {
+        return classifications;
+    }
+
+    public void clear() {
+        index.clear();
+        devices.clear();
+        classifications = 0;
+    }
+
+    /**
+     * 把 "AA:BB:CC:DD:EE:FF" 形式的地址转成非零的long键，格式不正确时返回0
+     */
+    static long addressKey(String address) {
+        if (address == null || address.length() != 17) {
+            return 0;
+        }
+        long key = 0;
+        for (int i = 0; i < 17; i++) {
+            char c = address.charAt(i);
+            if (i % 3 == 2) {
+                if (c != ':') {
+                    return 0;
+                }
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                return 0;
+            }
+            key = key << 4 | digit;
+        }
+        // 第49位置1，全零地址也不会与空槽标记冲突
+        return key | 1L << 48;
+    }
+}
@@ -0,0 +1,163 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 按网络缓存的扫描结果 - {@link NetworkResultCache} 的快照保存在应用私有目录，
+ * 读取和查找都不在主线程进行；结果通过回调回到主线程。
+ * 扫描要等查找结果才开始，所以查找在自己的线程执行，不排在io线程池的其他任务之后；
+ * 预读和保存提交到io线程池，被拒绝时跳过（查找时再读取，下一轮扫描再保存）
+ */
+public final class CachedScanResults {
+
+    private static final String TAG = "CachedScanResults";
+
+    private static final String FILE_NAME = "network_cache.bin";
+
+    private static volatile CachedScanResults instance;
+
+    /**
+     * 查找结果回调，在主线程执行
+     */
+    public interface Callback {
+        /**
+         * @param key 当前网络，无法识别时为null
+         * @param snapshot 该网络的缓存结果，没有时为null
+         */
+        void onResult(NetworkResultCache.Key key, NetworkResultCache.Snapshot snapshot);
+    }
+
+    private final Context context;
+    private final File file;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Handler lookupHandler;
+    private final AppExecutors.TaskGroup tasks = AppExecutors.getInstance().newGroup("CachedScanResults");
+    // 由 this 保护，首次访问时从快照读取
+    private NetworkResultCache cache;
+
+    public static CachedScanResults getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CachedScanResults.class) {
+                if (instance == null) {
+                    instance = new CachedScanResults(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private CachedScanResults(Context context) {
+        this.context = context;
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        HandlerThread thread = new HandlerThread("ScanCacheLookup");
+        thread.start();
+        lookupHandler = new Handler(thread.getLooper());
+        // 应用启动时提前读取快照
+        if (!tasks.io(this::getCache)) {
+            Log.w(TAG, "io线程池繁忙，结果缓存改为首次查找时读取");
+        }
+    }
+
+    /**
+     * 识别当前网络并查找它的缓存结果
+     */
+    public void lookup(Callback callback) {
+        lookupHandler.post(() -> {
+            NetworkResultCache.Key key = currentKey(context);
+            NetworkResultCache.Snapshot snapshot = key != null
+                    ? getCache().get(key, System.currentTimeMillis()) : null;
+            mainHandler.post(() -> callback.onResult(key, snapshot));
+        });
+    }
+
+    /**
+     * 用一轮扫描的结果替换该网络的缓存并写入快照；cameras 在调用线程复制
+     */
+    public void save(NetworkResultCache.Key key, List<CameraInfo> cameras) {
+        if (key == null) {
+            return;
+        }
+        NetworkResultCache.Snapshot snapshot = NetworkResultCache.capture(key, cameras, System.currentTimeMillis());
+        boolean submitted = tasks.io(() -> {
+            NetworkResultCache current = getCache();
+            current.put(snapshot);
+            write(current);
+        });
+        if (!submitted) {
+            Log.w(TAG, "io线程池繁忙，本轮结果未缓存: " + key);
+        }
+    }
+
+    /**
+     * 当前Wi-Fi的网络标识；没有连接Wi-Fi或找不到对应的网络接口时返回null。在后台线程调用
+     */
+    static NetworkResultCache.Key currentKey(Context context) {
+        WifiManager wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        WifiInfo wifiInfo = wifiManager != null ? wifiManager.getConnectionInfo() : null;
+        if (wifiInfo == null || wifiInfo.getNetworkId() == -1) {
+            return null;
+        }
+        // WifiInfo 中的IP为小端序
+        int ip = wifiInfo.getIpAddress();
+        String address = (ip & 0xff) + "." + ((ip >> 8) & 0xff) + "." + ((ip >> 16) & 0xff) + "." + ((ip >> 24) & 0xff);
+        String subnet = null;
+        for (ScanInterface scanInterface : ScanInterface.enumerate()) {
+            if (scanInterface.getLocalAddress().getHostAddress().equals(address)) {
+                subnet = scanInterface.getSubnet();
+                break;
+            }
+        }
+        NetworkResultCache.Key key = new NetworkResultCache.Key(MonitorJobService.currentSsid(context),
+                wifiInfo.getBSSID(), subnet);
+        return key.isValid() ? key : null;
+    }
+
+    private synchronized NetworkResultCache getCache() {
+        if (cache == null) {
+            cache = read();
+        }
+        return cache;
+    }
+
+    private NetworkResultCache read() {
+        if (!file.exists()) {
+            return new NetworkResultCache();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return NetworkResultCache.read(in);
+        } catch (IOException e) {
+            Log.e(TAG, "读取结果缓存失败: " + e.getMessage());
+            return new NetworkResultCache();
+        }
+    }
+
+    // 先写临时文件再替换，写到一半被杀也不会损坏上次的快照
+    private synchronized void write(NetworkResultCache cache) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            cache.write(out);
+        } catch (IOException e) {
+            Log.e(TAG, "保存结果缓存失败: " + e.getMessage());
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "保存结果缓存失败: 无法替换 " + file);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.cameradetector.app;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.view.MotionEvent;
 import android.view.View;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
@@ -20,6 +21,8 @@ public class CameraControlActivity extends AppCompatActivity {
     
     private TextView tvCameraInfo;
     private WebView webViewCamera;
+    private MjpegView mjpegView;
+    private RtspView rtspView;
     private EditText etUsername;
     private EditText etPassword;
     private Button btnConnect;
@@ -30,21 +33,34 @@ public class CameraControlActivity extends AppCompatActivity {
     private Button btnZoomIn;
     private Button btnZoomOut;
     private Button btnSnapshot;
+    private TextView tvPtzLatency;
     private LinearLayout controlPanel;
     private ProgressBar progressLoading;
     
     private CameraInfo selectedCamera;
     private CameraController cameraController;
+    // 云台命令通道，第一次按下控制按钮时按当前凭据打开
+    private PtzChannel ptzChannel;
     private String streamUrl;
     private boolean controlMode;
+    // 正在原生播放的MJPEG/RTSP地址，返回前台时重新连接
+    private String playingMjpegUrl;
+    private String playingRtspUrl;
+    // 本页面提交的后台任务，销毁时取消
+    private final AppExecutors.TaskGroup tasks = AppExecutors.getInstance().newGroup("CameraControl");
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_camera_control);
         
-        // 获取传递的摄像头信息
-        selectedCamera = getIntent().getParcelableExtra("camera_info");
+        // 按id从设备仓库取摄像头记录，批量控制时取第一个
+        DeviceRepository repository = DeviceRepository.getInstance();
+        selectedCamera = repository.get(getIntent().getStringExtra("camera_id"));
+        java.util.ArrayList<String> cameraIds = getIntent().getStringArrayListExtra("camera_ids");
+        if (selectedCamera == null && cameraIds != null && !cameraIds.isEmpty()) {
+            selectedCamera = repository.get(cameraIds.get(0));
+        }
         streamUrl = getIntent().getStringExtra("stream_url");
         controlMode = getIntent().getBooleanExtra("control_mode", false);
         
@@ -61,6 +77,8 @@ public class CameraControlActivity extends AppCompatActivity {
     private void initViews() {
         tvCameraInfo = findViewById(R.id.tv_camera_info);
         webViewCamera = findViewById(R.id.webview_camera);
+        mjpegView = findViewById(R.id.mjpeg_view);
+        rtspView = findViewById(R.id.rtsp_view);
         etUsername = findViewById(R.id.et_username);
         etPassword = findViewById(R.id.et_password);
         btnConnect = findViewById(R.id.btn_connect);
@@ -70,6 +88,7 @@ public class CameraControlActivity extends AppCompatActivity {
         btnTiltDown = findViewById(R.id.btn_tilt_down);
         btnZoomIn = findViewById(R.id.btn_zoom_in);
         btnZoomOut = findViewById(R.id.btn_zoom_out);
+        tvPtzLatency = findViewById(R.id.tv_ptz_latency);
         btnSnapshot = findViewById(R.id.btn_snapshot);
         controlPanel = findViewById(R.id.layout_control_panel);
         progressLoading = findViewById(R.id.progress_loading);
@@ -89,44 +108,56 @@ public class CameraControlActivity extends AppCompatActivity {
             }
         });
         
-        // 设置按钮点击事件
-        btnConnect.setOnClickListener(v -> connectToCamera());
-        
-        btnPanLeft.setOnClickListener(v -> {
-            if (cameraController != null) {
-                cameraController.sendCameraCommand(selectedCamera, "ptz_left");
+        mjpegView.setListener(new MjpegView.Listener() {
+            @Override
+            public void onStreamStarted() {
+                progressLoading.setVisibility(View.GONE);
             }
-        });
-        
-        btnPanRight.setOnClickListener(v -> {
-            if (cameraController != null) {
-                cameraController.sendCameraCommand(selectedCamera, "ptz_right");
+
+            @Override
+            public void onNotMjpeg(String url) {
+                // 网页形式的预览页仍交给WebView
+                playingMjpegUrl = null;
+                mjpegView.stop();
+                showWebView(url);
             }
-        });
-        
-        btnTiltUp.setOnClickListener(v -> {
-            if (cameraController != null) {
-                cameraController.sendCameraCommand(selectedCamera, "ptz_up");
+
+            @Override
+            public void onStreamError(String message) {
+                playingMjpegUrl = null;
+                mjpegView.stop();
+                progressLoading.setVisibility(View.GONE);
+                Toast.makeText(CameraControlActivity.this, "视频流中断: " + message, Toast.LENGTH_SHORT).show();
             }
         });
         
-        btnTiltDown.setOnClickListener(v -> {
-            if (cameraController != null) {
-                cameraController.sendCameraCommand(selectedCamera, "ptz_down");
+        rtspView.setListener(new RtspView.Listener() {
+            @Override
+            public void onStreamStarted() {
+                progressLoading.setVisibility(View.GONE);
             }
-        });
-        
-        btnZoomIn.setOnClickListener(v -> {
-            if (cameraController != null) {
-                cameraController.sendCameraCommand(selectedCamera, "zoom_in");
+
+            @Override
+            public void onStreamError(String message) {
+                // 无法在应用内播放时仍可交给外部播放器
+                String url = playingRtspUrl;
+                playingRtspUrl = null;
+                rtspView.stop();
+                rtspView.setVisibility(View.GONE);
+                showRtspStreamDialog(url, message);
             }
         });
         
-        btnZoomOut.setOnClickListener(v -> {
-            if (cameraController != null) {
-                cameraController.sendCameraCommand(selectedCamera, "zoom_out");
-            }
-        });
+        // 设置按钮点击事件
+        btnConnect.setOnClickListener(v -> connectToCamera());
+        
+        // 按住移动、松开停止，命令由通道在后台发送，不阻塞主线程
+        bindPtzButton(btnPanLeft, "ptz_left");
+        bindPtzButton(btnPanRight, "ptz_right");
+        bindPtzButton(btnTiltUp, "ptz_up");
+        bindPtzButton(btnTiltDown, "ptz_down");
+        bindPtzButton(btnZoomIn, "zoom_in");
+        bindPtzButton(btnZoomOut, "zoom_out");
         
         btnSnapshot.setOnClickListener(v -> {
             if (cameraController != null) {
@@ -135,6 +166,59 @@ public class CameraControlActivity extends AppCompatActivity {
         });
     }
     
+    private void bindPtzButton(Button button, String command) {
+        button.setOnTouchListener((v, event) -> {
+            switch (event.getAction()) {
+                case MotionEvent.ACTION_DOWN:
+                    PtzChannel channel = getPtzChannel();
+                    if (channel == null || !channel.move(command)) {
+                        Toast.makeText(this, "该摄像头不支持此操作", Toast.LENGTH_SHORT).show();
+                    }
+                    v.setPressed(true);
+                    return true;
+                case MotionEvent.ACTION_UP:
+                case MotionEvent.ACTION_CANCEL:
+                    if (ptzChannel != null) {
+                        ptzChannel.stop();
+                    }
+                    v.setPressed(false);
+                    return true;
+                default:
+                    return true;
+            }
+        });
+    }
+    
+    private PtzChannel getPtzChannel() {
+        if (ptzChannel == null && cameraController != null) {
+            PtzChannel channel = cameraController.openPtzChannel(selectedCamera);
+            if (channel != null) {
+                channel.setListener(new PtzChannel.Listener() {
+                    @Override
+                    public void onCommandSent(String command, int status, long latencyMs) {
+                        String summary = command + " → HTTP " + status + "  " + channel.getLatencySummary();
+                        runOnUiThread(() -> tvPtzLatency.setText(summary));
+                    }
+                    
+                    @Override
+                    public void onCommandFailed(String command, java.io.IOException error) {
+                        runOnUiThread(() -> tvPtzLatency.setText(command + " 发送失败: " + error.getMessage()));
+                    }
+                });
+            }
+            ptzChannel = channel;
+        }
+        return ptzChannel;
+    }
+    
+    /** 凭据变化后关闭旧通道，下次按下按钮时重新打开 */
+    private void closePtzChannel() {
+        if (ptzChannel != null) {
+            ptzChannel.close();
+            ptzChannel = null;
+        }
+    }
+    
     private void setupCamera(String streamUrl, boolean controlMode) {
         // 显示摄像头信息
         String cameraInfo = selectedCamera.getName() + " (" + selectedCamera.getTypeString() + ")";
@@ -172,17 +256,22 @@ public class CameraControlActivity extends AppCompatActivity {
         
         progressLoading.setVisibility(View.VISIBLE);
         
-        if (selectedCamera.getType() == CameraInfo.CameraType.NETWORK) {
+        if (selectedCamera.hasNetworkAddress()) {
+            // 设置凭据（设备记录与列表共享，在主线程修改）
+            selectedCamera.setUsername(finalUsername);
+            selectedCamera.setPassword(finalPassword);
+            DeviceRepository.getInstance().notifyChanged(selectedCamera);
+            
             // 尝试连接网络摄像头
-            new Thread(() -> {
-                // 设置凭据
-                selectedCamera.setUsername(finalUsername);
-                selectedCamera.setPassword(finalPassword);
-                
+            boolean submitted = tasks.io(() -> {
                 // 尝试获取流地址
                 String detectedStreamUrl = detectStreamUrl(selectedCamera);
                 
                 runOnUiThread(() -> {
+                    if (tasks.isCancelled()) {
+                        return;
+                    }
+                    closePtzChannel();
                     if (detectedStreamUrl != null) {
                         loadCameraStream(detectedStreamUrl);
                     } else {
@@ -190,7 +279,11 @@ public class CameraControlActivity extends AppCompatActivity {
                         Toast.makeText(this, "无法获取摄像头流地址，请检查凭据或网络连接", Toast.LENGTH_SHORT).show();
                     }
                 });
-            }).start();
+            });
+            if (!submitted && !tasks.isCancelled()) {
+                progressLoading.setVisibility(View.GONE);
+                Toast.makeText(this, "后台任务繁忙，请稍后重试", Toast.LENGTH_SHORT).show();
+            }
         } else {
             progressLoading.setVisibility(View.GONE);
             Toast.makeText(this, "不支持的摄像头类型", Toast.LENGTH_SHORT).show();
@@ -239,16 +332,22 @@ public class CameraControlActivity extends AppCompatActivity {
             };
             
             for (String path : rtspPaths) {
-                String url = "rtsp://" + ipAddress + ":" + port + path;
-                // 注意：RTSP流无法在WebView中直接播放，需要使用专用播放器
-                // 这里只是检测URL是否有效
-                return url;  // 返回第一个RTSP URL，实际应用中应该检测有效性
+                String url = "rtsp://" + CameraInfo.formatUrlHost(ipAddress) + ":" + port + path;
+                // DESCRIBE 成功且包含可解码的视频流才算有效路径
+                try (RtspClient client = new RtspClient(url, camera.getUsername(), camera.getPassword())) {
+                    client.connect(2000);
+                    if (client.describe().getVideo() != null) {
+                        return url;
+                    }
+                } catch (java.io.IOException e) {
+                    // 继续尝试下一个路径
+                }
             }
         }
         
         // 尝试HTTP流
         for (String path : commonStreamPaths) {
-            String url = "http://" + ipAddress + ":" + port + path;
+            String url = "http://" + CameraInfo.formatUrlHost(ipAddress) + ":" + port + path;
             try {
                 java.net.HttpURLConnection connection = (java.net.HttpURLConnection) new java.net.URL(url).openConnection();
                 
@@ -286,21 +385,81 @@ public class CameraControlActivity extends AppCompatActivity {
     
     private void loadCameraStream(String url) {
         if (url.startsWith("rtsp://")) {
-            // RTSP流需要特殊处理
-            showRtspStreamDialog(url);
+            playRtsp(url);
         } else {
-            // HTTP流可以直接在WebView中加载
-            webViewCamera.loadUrl(url);
-            progressLoading.setVisibility(View.GONE);
+            // HTTP流先用原生MJPEG播放，不是MJPEG时再退回WebView
+            playMjpeg(url);
+        }
+    }
+    
+    private void playRtsp(String url) {
+        playingRtspUrl = url;
+        playingMjpegUrl = null;
+        mjpegView.stop();
+        mjpegView.setVisibility(View.GONE);
+        webViewCamera.stopLoading();
+        webViewCamera.setVisibility(View.GONE);
+        rtspView.setVisibility(View.VISIBLE);
+        progressLoading.setVisibility(View.VISIBLE);
+        rtspView.start(url, selectedCamera.getUsername(), selectedCamera.getPassword());
+    }
+    
+    private void playMjpeg(String url) {
+        playingMjpegUrl = url;
+        playingRtspUrl = null;
+        rtspView.stop();
+        rtspView.setVisibility(View.GONE);
+        webViewCamera.stopLoading();
+        webViewCamera.setVisibility(View.GONE);
+        mjpegView.setVisibility(View.VISIBLE);
+        progressLoading.setVisibility(View.VISIBLE);
+        mjpegView.start(url, selectedCamera.getUsername(), selectedCamera.getPassword());
+    }
+    
+    private void showWebView(String url) {
+        mjpegView.setVisibility(View.GONE);
+        webViewCamera.setVisibility(View.VISIBLE);
+        webViewCamera.loadUrl(url);
+        progressLoading.setVisibility(View.GONE);
+    }
+    
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (playingMjpegUrl != null && !mjpegView.isPlaying()) {
+            playMjpeg(playingMjpegUrl);
+        } else if (playingRtspUrl != null && !rtspView.isPlaying()) {
+            playRtsp(playingRtspUrl);
+        }
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // 不在前台时不再占用网络和解码，云台也要停下
+        mjpegView.stop();
+        rtspView.stop();
+        if (ptzChannel != null) {
+            ptzChannel.stop();
         }
     }
     
-    private void showRtspStreamDialog(String rtspUrl) {
+    @Override
+    protected void onDestroy() {
+        tasks.cancel();
+        closePtzChannel();
+        mjpegView.stop();
+        rtspView.stop();
+        webViewCamera.destroy();
+        super.onDestroy();
+    }
+    
+    private void showRtspStreamDialog(String rtspUrl, String reason) {
         progressLoading.setVisibility(View.GONE);
         
         new AlertDialog.Builder(this)
             .setTitle("RTSP流")
-            .setMessage("检测到RTSP流地址：\n" + rtspUrl + "\n\nRTSP流需要使用专用播放器播放。")
+            .setMessage("无法在应用内播放RTSP流：\n" + rtspUrl + "\n\n" + (reason != null ? reason + "\n\n" : "") + "可以尝试使用外部播放器播放。")
             .setPositiveButton("使用外部播放器", (dialog, which) -> {
                 try {
                     Intent intent = new Intent(Intent.ACTION_VIEW);
@@ -322,16 +481,19 @@ public class CameraControlActivity extends AppCompatActivity {
         
         Toast.makeText(this, "正在获取快照...", Toast.LENGTH_SHORT).show();
         
-        new Thread(() -> {
+        tasks.io(() -> {
             boolean success = cameraController.sendCameraCommand(selectedCamera, "snapshot");
             
             runOnUiThread(() -> {
+                if (tasks.isCancelled()) {
+                    return;
+                }
                 if (success) {
                     Toast.makeText(this, "快照已保存", Toast.LENGTH_SHORT).show();
                 } else {
                     Toast.makeText(this, "获取快照失败", Toast.LENGTH_SHORT).show();
                 }
             });
-        }).start();
+        });
     }
 }
\ No newline at end of file
@@ -5,25 +5,52 @@ import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.hardware.camera2.CameraAccessException;
-import android.hardware.camera2.CameraManager;
 import android.net.Uri;
 import android.provider.Settings;
 import android.util.Log;
 import androidx.core.content.ContextCompat;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 摄像头控制 - 除 openPtzChannel 外的方法都是阻塞的网络请求，
+ * 在扫描池或 {@link AppExecutors#io()} 中调用，不能在界面线程调用
+ */
 public class CameraController {
     
     private static final String TAG = "CameraController";
     private Context context;
-    private CameraManager cameraManager;
     private BluetoothAdapter bluetoothAdapter;
     
+    // 云台命令的超时较短，摄像头无响应时尽快报错而不是让后续命令排队
+    private static final int PTZ_CONNECT_TIMEOUT = 1500;
+    private static final int PTZ_READ_TIMEOUT = 1500;
+    
+    // 按摄像头id缓存的品牌判断结果，避免每条命令都重新匹配指纹规则；制造商变化（如重新识别）后重新判断
+    private static final java.util.Map<String, BrandEntry> BRAND_CACHE = new ConcurrentHashMap<>();
+    
+    /**
+     * 品牌判断结果及判断时的制造商
+     */
+    private static final class BrandEntry {
+        final String manufacturer;
+        final String brand;
+        
+        BrandEntry(String manufacturer, String brand) {
+            this.manufacturer = manufacturer;
+            this.brand = brand;
+        }
+        
+        boolean matches(String manufacturer) {
+            return this.manufacturer != null ? this.manufacturer.equals(manufacturer) : manufacturer == null;
+        }
+    }
+    
     // 常见摄像头控制命令映射
     private static final java.util.Map<String, java.util.Map<String, String>> CAMERA_CONTROL_COMMANDS = new java.util.HashMap<String, java.util.Map<String, String>>() {{
         // 海康威视摄像头控制命令
@@ -81,7 +108,6 @@ public class CameraController {
     
     public CameraController(Context context) {
         this.context = context;
-        this.cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
         this.bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
     }
     
@@ -111,6 +137,7 @@ public class CameraController {
             boolean hasPermission = requestCameraPermission(cameraInfo);
             cameraInfo.setHasPermission(hasPermission);
         }
+        DeviceRepository.getInstance().notifyChanged(cameraInfo);
         
         return hasAccess;
     }
@@ -132,25 +159,21 @@ public class CameraController {
     }
     
     private boolean testLocalCameraAccess(CameraInfo cameraInfo) {
-        try {
-            // Try to get camera characteristics to test access
-            cameraManager.getCameraCharacteristics(cameraInfo.getId());
-            
-            // Check if we have camera permission
-            boolean hasCameraPermission = ContextCompat.checkSelfPermission(context, 
-                android.Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED;
-                
-            // Update permission status
-            cameraInfo.setHasPermission(hasCameraPermission);
-            
-            return true;
-        } catch (CameraAccessException e) {
-            Log.e("CameraController", "Camera access exception: " + e.getMessage());
-            return false;
-        } catch (Exception e) {
-            Log.e("CameraController", "Error testing local camera: " + e.getMessage());
+        // 摄像头参数已由本机摄像头清单缓存，只需查表
+        LocalCameraInventory.LocalCamera camera = LocalCameraInventory.getInstance(context).get(cameraInfo.getId());
+        if (camera == null) {
+            Log.e(TAG, "未知的本机摄像头: " + cameraInfo.getId());
             return false;
         }
+        
+        // Check if we have camera permission
+        boolean hasCameraPermission = ContextCompat.checkSelfPermission(context, 
+            android.Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED;
+            
+        // Update permission status
+        cameraInfo.setHasPermission(hasCameraPermission);
+        
+        return true;
     }
     
     private boolean requestLocalCameraPermission() {
@@ -172,7 +195,7 @@ public class CameraController {
         }
         
         try {
-            String urlString = "http://" + cameraInfo.getIpAddress() + ":" + cameraInfo.getPort();
+            String urlString = "http://" + cameraInfo.getUrlHost() + ":" + cameraInfo.getPort();
             URL url = new URL(urlString);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
             connection.setConnectTimeout(3000);
@@ -218,7 +241,7 @@ public class CameraController {
         // This would typically show a dialog to enter username/password
         // For now, we'll just check if we already have access
         try {
-            String urlString = "http://" + cameraInfo.getIpAddress() + ":" + cameraInfo.getPort();
+            String urlString = "http://" + cameraInfo.getUrlHost() + ":" + cameraInfo.getPort();
             URL url = new URL(urlString);
             
             // Try with default credentials (many cameras use admin/admin)
@@ -339,7 +362,7 @@ public class CameraController {
         try {
             // 尝试发送关闭命令到网络摄像头
             // 这里只是示例，实际需要根据具体摄像头的API来实现
-            String urlString = "http://" + cameraInfo.getIpAddress() + ":" + cameraInfo.getPort() + "/api/stop";
+            String urlString = "http://" + cameraInfo.getUrlHost() + ":" + cameraInfo.getPort() + "/api/stop";
             URL url = new URL(urlString);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
             connection.setRequestMethod("POST");
@@ -362,7 +385,7 @@ public class CameraController {
     public boolean unblockNetworkCamera(CameraInfo cameraInfo) {
         try {
             // 尝试发送启动命令到网络摄像头
-            String urlString = "http://" + cameraInfo.getIpAddress() + ":" + cameraInfo.getPort() + "/api/start";
+            String urlString = "http://" + cameraInfo.getUrlHost() + ":" + cameraInfo.getPort() + "/api/start";
             URL url = new URL(urlString);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
             connection.setRequestMethod("POST");
@@ -489,17 +512,8 @@ public class CameraController {
             return false;
         }
         
-        // 获取摄像头品牌
-        String brand = detectCameraBrand(camera);
-        
-        // 获取对应品牌的命令映射
-        java.util.Map<String, String> commands = CAMERA_CONTROL_COMMANDS.get(brand);
-        if (commands == null) {
-            commands = CAMERA_CONTROL_COMMANDS.get("generic");
-        }
-        
-        // 获取具体命令路径
-        String commandPath = commands.get(command);
+        // 获取对应品牌的命令映射和具体命令路径
+        String commandPath = commandsFor(camera).get(command);
         if (commandPath == null) {
             Log.e(TAG, "未找到命令: " + command);
             return false;
@@ -507,7 +521,7 @@ public class CameraController {
         
         try {
             // 构建完整URL
-            String urlString = "http://" + camera.getIpAddress() + ":" + camera.getPort() + commandPath;
+            String urlString = "http://" + camera.getUrlHost() + ":" + camera.getPort() + commandPath;
             URL url = new URL(urlString);
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
             
@@ -533,34 +547,90 @@ public class CameraController {
         }
     }
     
+    /**
+     * 打开摄像头的云台命令通道，命令在后台线程发送，非网络摄像头返回null。
+     * 认证头只计算一次；每次请求读完响应后只关闭流不断开连接，
+     * 由系统的keep-alive连接池复用同一个TCP连接
+     */
+    public PtzChannel openPtzChannel(CameraInfo camera) {
+        if (camera == null || camera.getType() != CameraInfo.CameraType.NETWORK ||
+            camera.getIpAddress() == null || camera.getIpAddress().isEmpty()) {
+            return null;
+        }
+        
+        String baseUrl = "http://" + camera.getUrlHost() + ":" + camera.getPort();
+        String authHeader = null;
+        if (camera.getUsername() != null && !camera.getUsername().isEmpty()) {
+            String auth = camera.getUsername() + ":" + camera.getPassword();
+            authHeader = "Basic " + android.util.Base64.encodeToString(auth.getBytes(), android.util.Base64.NO_WRAP);
+        }
+        final String finalAuthHeader = authHeader;
+        
+        return new PtzChannel(camera.getIpAddress(), commandsFor(camera), path -> {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            if (finalAuthHeader != null) {
+                connection.setRequestProperty("Authorization", finalAuthHeader);
+            }
+            connection.setConnectTimeout(PTZ_CONNECT_TIMEOUT);
+            connection.setReadTimeout(PTZ_READ_TIMEOUT);
+            connection.setUseCaches(false);
+            
+            int responseCode = connection.getResponseCode();
+            // 响应体必须读完，连接才能放回连接池
+            InputStream in = responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in != null) {
+                try {
+                    byte[] buffer = new byte[1024];
+                    while (in.read(buffer) != -1) {
+                        // 丢弃响应内容
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+            return responseCode;
+        });
+    }
+    
+    /**
+     * 摄像头品牌对应的命令映射，未识别的品牌使用通用命令
+     */
+    private java.util.Map<String, String> commandsFor(CameraInfo camera) {
+        String key = camera.getId();
+        String manufacturer = camera.getManufacturer();
+        BrandEntry entry = key != null ? BRAND_CACHE.get(key) : null;
+        String brand;
+        if (entry != null && entry.matches(manufacturer)) {
+            brand = entry.brand;
+        } else {
+            brand = detectCameraBrand(camera);
+            if (key != null) {
+                BRAND_CACHE.put(key, new BrandEntry(manufacturer, brand));
+            }
+        }
+        java.util.Map<String, String> commands = CAMERA_CONTROL_COMMANDS.get(brand);
+        return commands != null ? commands : CAMERA_CONTROL_COMMANDS.get("generic");
+    }
+    
     /**
      * 检测摄像头品牌
      */
     private String detectCameraBrand(CameraInfo camera) {
-        if (camera.getManufacturer() != null && !camera.getManufacturer().isEmpty()) {
-            String manufacturer = camera.getManufacturer().toLowerCase();
-            
-            if (manufacturer.contains("hikvision") || manufacturer.contains("海康")) {
-                return "hikvision";
-            } else if (manufacturer.contains("dahua") || manufacturer.contains("大华")) {
-                return "dahua";
-            } else if (manufacturer.contains("axis")) {
-                return "onvif";
+        FingerprintEngine engine = FingerprintEngine.getInstance(context);
+        
+        // 依次根据制造商、名称和描述判断，厂商关键词与扫描时的指纹规则共用同一份配置
+        String[] candidates = {camera.getManufacturer(), camera.getName(), camera.getDescription()};
+        for (String text : candidates) {
+            String commandSet = engine.commandSetFor(text);
+            if (commandSet != null && CAMERA_CONTROL_COMMANDS.containsKey(commandSet)) {
+                return commandSet;
             }
         }
         
-        // 尝试从名称和描述中判断
+        // onvif 不是厂商名，单独判断
         String name = camera.getName() != null ? camera.getName().toLowerCase() : "";
         String description = camera.getDescription() != null ? camera.getDescription().toLowerCase() : "";
-        
-        if (name.contains("hikvision") || name.contains("海康") || 
-            description.contains("hikvision") || description.contains("海康")) {
-            return "hikvision";
-        } else if (name.contains("dahua") || name.contains("大华") || 
-                  description.contains("dahua") || description.contains("大华")) {
-            return "dahua";
-        } else if (name.contains("axis") || description.contains("axis") || 
-                  name.contains("onvif") || description.contains("onvif")) {
+        if (name.contains("onvif") || description.contains("onvif")) {
             return "onvif";
         }
         
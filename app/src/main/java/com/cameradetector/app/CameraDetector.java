@@ -1,6 +1,9 @@
 package com.cameradetector.app;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
 import android.os.Handler;
@@ -9,17 +12,19 @@ import android.util.Log;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.InetAddress;
+import java.net.NetworkInterface;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -27,53 +32,37 @@ public class CameraDetector {
     private static final String TAG = "CameraDetector";
     private Context context;
     private OnCameraDetectedListener listener;
-    private ExecutorService executorService;
-    private boolean isScanning = false;
+    private final AppExecutors executors = AppExecutors.getInstance();
+    // 本轮扫描提交的任务，停止扫描时整组取消
+    private volatile AppExecutors.TaskGroup scanTasks;
+    private volatile boolean isScanning = false;
     private Handler mainHandler;
     private AtomicInteger scannedIps = new AtomicInteger(0);
-    private int totalIpsToScan = 0;
-    
-    // 常见的摄像头端口
-    private static final int[] COMMON_CAMERA_PORTS = {
-            80, 81, 82, 83, 88, 
-            554, 555, 8000, 8080, 8081, 
-            8082, 8083, 8084, 8085, 8086, 
-            8554, 8555, 9000, 9001, 9002, 
-            10554, 37777, 37778, 49152
-    };
-    
-    // 常见的摄像头URL路径
-    private static final String[] COMMON_CAMERA_PATHS = {
-            "/", "/index.html", "/view.html", "/viewer/live.html", "/live.html", 
-            "/live/index.html", "/video.cgi", "/mjpg/video.mjpg", 
-            "/cgi-bin/viewer/video.jpg", "/snapshot.cgi", "/axis-cgi/mjpg/video.cgi", 
-            "/control/faststream.jpg", "/videostream.cgi", "/GetData.cgi", 
-            "/live/av0", "/cam/realmonitor", "/webcam.jpg", "/camera.cgi",
-            "/video/mjpg.cgi", "/cgi-bin/camera", "/image.jpg", "/video.mjpg",
-            "/cgi-bin/mjpg/video.cgi", "/live/main", "/live/ch1/main"
-    };
-    
-    // 常见的摄像头制造商特征
-    private static final Map<String, String> CAMERA_MANUFACTURERS = new HashMap<String, String>() {{
-        put("hikvision", "海康威视");
-        put("dahua", "大华");
-        put("axis", "安讯士");
-        put("sony", "索尼");
-        put("panasonic", "松下");
-        put("samsung", "三星");
-        put("bosch", "博世");
-        put("vivotek", "威联通");
-        put("tplink", "TP-Link");
-        put("dlink", "D-Link");
-        put("foscam", "福斯康姆");
-        put("wanscam", "万视达");
-        put("uniview", "宇视");
-        put("tiandy", "天地伟业");
-        put("kedacom", "科达");
-        put("yushi", "宇视");
-        put("infinova", "英飞拓");
-    }};
-
+    private final AtomicInteger totalIpsToScan = new AtomicInteger(0);
+    // 本轮扫描中完成探测的主机（不含被预算或队列跳过的）
+    private final Set<String> probedHosts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile ScanTracer tracer;
+    private final NeighborTable neighborTable = new NeighborTable();
+    private final Ipv6Discovery ipv6Discovery = new Ipv6Discovery();
+    private final ScanStream.Hub resultHub = new ScanStream.Hub();
+    private final HostPriority hostPriority = new HostPriority();
+    private final WifiApScanner wifiApScanner;
+    private BroadcastReceiver scanResultsReceiver;
+    private volatile ScanProfile profile = ScanProfile.STANDARD;
+    private volatile ScanBudget budget = new ScanBudget(ScanProfile.STANDARD);
+    
+    // 枚举接口、规划扫描目标的任务，与主机一样计入进度
+    private static final String PLAN_TARGET = "枚举网络接口";
+    
+    // 指纹匹配置信度低于该值时不采用（例如仅凭端口号的弱规则）
+    private static final float MIN_VENDOR_CONFIDENCE = 0.5f;
+    
+    // favicon 一般只有几KB，超过该大小的不参与哈希识别
+    private static final int MAX_FAVICON_BYTES = 64 * 1024;
+    
+    // 每个扫描线程复用一个 favicon 缓冲区，不再按端点分配
+    private final ThreadLocal<byte[]> faviconBuffer = new ThreadLocal<>();
+    
     public interface OnCameraDetectedListener {
         void onCameraDetected(CameraInfo cameraInfo);
         void onScanComplete();
@@ -83,42 +72,199 @@ public class CameraDetector {
 
     public CameraDetector(Context context) {
         this.context = context;
-        this.executorService = Executors.newFixedThreadPool(20);
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.wifiApScanner = new WifiApScanner(context);
+        
+        // 提前在后台编译指纹规则，避免第一次识别时等待
+        executors.cpu().execute(() -> FingerprintEngine.getInstance(context));
     }
     
     public void startComprehensiveScan(OnCameraDetectedListener listener) {
+        startComprehensiveScan(listener, 0);
+    }
+    
+    /**
+     * 在截止时间内扫描，主机按先验可能性排序，到时停止并报告覆盖率（见 getBudget()）
+     * @param deadlineMs 截止时间（毫秒），0表示只受扫描档位的时间预算限制
+     */
+    public void startComprehensiveScan(OnCameraDetectedListener listener, long deadlineMs) {
         if (isScanning) {
             return;
         }
         
         this.listener = listener;
         isScanning = true;
+        scanTasks = executors.newGroup("scan");
         scannedIps.set(0);
+        probedHosts.clear();
+        ScanBudget activeBudget = new ScanBudget(profile, deadlineMs);
+        budget = activeBudget;
+        
+        // 没有探测在进行时也要按时结束
+        mainHandler.postDelayed(() -> {
+            if (budget == activeBudget && activeBudget.checkDeadline()) {
+                endOnBudget();
+            }
+        }, activeBudget.getTimeLimitMs());
+        
+        // 扫描期间系统送来的新Wi-Fi扫描结果（包括其他应用触发的）都用于发现摄像头热点
+        wifiApScanner.reset();
+        scanResultsReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (isScanning) {
+                    submit(HostPriority.SYSTEM, null, CameraDetector.this::publishWifiAccessPoints);
+                }
+            }
+        };
+        context.registerReceiver(scanResultsReceiver, new IntentFilter(WifiManager.SCAN_RESULTS_AVAILABLE_ACTION));
         
         // 开始扫描网络摄像头
         detectNetworkCameras();
     }
     
+    /**
+     * 之前确认过的摄像头地址（例如定期监控保存的状态），扫描时优先探测
+     */
+    public void addKnownCamera(String ipAddress) {
+        hostPriority.recordCamera(ipAddress);
+    }
+    
+    /**
+     * 该主机在本轮（或最近一轮）扫描中是否完成了探测；扫描因预算用尽提前结束时，未探测的主机不能判定为离线
+     */
+    public boolean wasProbed(String ipAddress) {
+        return ipAddress != null && probedHosts.contains(ipAddress);
+    }
+    
+    /**
+     * 设置扫描档位，下一次startComprehensiveScan时生效
+     */
+    public void setProfile(ScanProfile profile) {
+        this.profile = profile;
+    }
+    
+    public ScanProfile getProfile() {
+        return profile;
+    }
+    
+    /**
+     * 当前（或最近一轮）扫描的预算使用情况，可据此判断扫描是否因预算用尽而结束
+     */
+    public ScanBudget getBudget() {
+        return budget;
+    }
+    
+    /**
+     * 开启扫描时间线追踪，传入null关闭；需在startComprehensiveScan之前设置
+     */
+    public void setTracer(ScanTracer tracer) {
+        this.tracer = tracer;
+    }
+    
+    public ScanTracer getTracer() {
+        return tracer;
+    }
+    
+    /**
+     * 订阅扫描结果流，应在startComprehensiveScan之前订阅；
+     * 与OnCameraDetectedListener相互独立，listener可以为null
+     */
+    public ScanStream<CameraInfo> results() {
+        return ScanStream.of(resultHub, mainHandler::post);
+    }
+    
     public void stopScan() {
         isScanning = false;
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdownNow();
-            executorService = Executors.newFixedThreadPool(20);
+        unregisterScanResultsReceiver();
+        resultHub.complete();
+        AppExecutors.TaskGroup tasks = scanTasks;
+        if (tasks != null) {
+            tasks.cancel();
         }
     }
     
     public void destroy() {
         stopScan();
-        if (executorService != null) {
-            executorService.shutdownNow();
-            executorService = null;
-        }
     }
 
     private void detectNetworkCameras() {
         updateProgress("开始扫描局域网摄像头...", 0, 100);
         
+        ScanTracer activeTracer = tracer;
+        if (activeTracer != null) {
+            activeTracer.reset();
+        }
+        
+        // 枚举接口、读取邻居表和OUI表都有I/O，作为最先执行的扫描任务在后台进行；
+        // 先只计入这一项，枚举出的目标在它完成前加入总数，扫描不会被提前判定为结束
+        totalIpsToScan.set(1);
+        submit(HostPriority.SYSTEM, PLAN_TARGET, () -> {
+            planHosts(activeTracer);
+            markScanned(PLAN_TARGET);
+        });
+    }
+    
+    // 在扫描线程执行
+    private void planHosts(ScanTracer activeTracer) {
+        // 枚举Wi-Fi、以太网、热点等所有可扫描的接口，每个接口一组目标
+        List<ScanInterface> interfaces = ScanInterface.enumerate();
+        List<List<String>> hostsPerInterface = new ArrayList<>();
+        int total = 0;
+        for (ScanInterface scanInterface : interfaces) {
+            List<String> hosts = scanInterface.getHosts();
+            hostsPerInterface.add(hosts);
+            total += hosts.size();
+            Log.d(TAG, "扫描接口 " + scanInterface + ", " + hosts.size() + " 个地址");
+        }
+        
+        // 无法枚举接口时退回到当前WiFi网络
+        if (total == 0) {
+            interfaces.clear();
+            hostsPerInterface.clear();
+            interfaces.add(null);
+            hostsPerInterface.add(getWifiHosts());
+            total = hostsPerInterface.get(0).size();
+        }
+        
+        // IPv6无法按地址枚举，每个接口做一次组播发现，发现的主机数在发现后再加入总数
+        List<NetworkInterface> ipv6Interfaces = ScanInterface.enumerateIpv6();
+        
+        // 计算总扫描IP数量，另加一项Wi-Fi热点分析
+        totalIpsToScan.addAndGet(total + ipv6Interfaces.size() + 1);
+        
+        // 自己开热点的摄像头不在局域网内，分析系统已有的Wi-Fi扫描结果
+        submit(HostPriority.SYSTEM, "Wi-Fi热点", () -> {
+            publishWifiAccessPoints();
+            markScanned("Wi-Fi热点");
+        });
+        
+        // 组播发现只需一个往返，以最高优先级执行
+        for (NetworkInterface networkInterface : ipv6Interfaces) {
+            submitIpv6Discovery(networkInterface, activeTracer);
+        }
+        
+        // 所有接口的主机共用同一个线程池，按先验分数排序；分数相同时交错提交使各接口并发推进。
+        // 邻居表只在这里读取一次，打分时查快照
+        OuiDatabase ouiDatabase = OuiDatabase.getInstance(context);
+        Map<String, String> neighbors = neighborTable.reload();
+        int maxHosts = 0;
+        for (List<String> hosts : hostsPerInterface) {
+            maxHosts = Math.max(maxHosts, hosts.size());
+        }
+        for (int i = 0; i < maxHosts && isScanning; i++) {
+            for (int n = 0; n < interfaces.size(); n++) {
+                List<String> hosts = hostsPerInterface.get(n);
+                if (i < hosts.size()) {
+                    String targetIp = hosts.get(i);
+                    int priority = hostPriority.score(targetIp, neighbors.get(targetIp), false, ouiDatabase);
+                    submitHost(targetIp, interfaces.get(n), priority, activeTracer);
+                }
+            }
+        }
+    }
+    
+    private List<String> getWifiHosts() {
         // 获取当前WiFi网络的IP地址
         WifiManager wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
         WifiInfo wifiInfo = wifiManager.getConnectionInfo();
@@ -135,83 +281,367 @@ public class CameraDetector {
         // 提取网络前缀
         String prefix = myIp.substring(0, myIp.lastIndexOf(".") + 1);
         
-        // 计算总扫描IP数量
-        totalIpsToScan = 254;
-        
-        // 扫描局域网中的所有IP
+        List<String> hosts = new ArrayList<>(254);
         for (int i = 1; i <= 254; i++) {
+            hosts.add(prefix + i);
+        }
+        return hosts;
+    }
+    
+    private void submitHost(String targetIp, ScanInterface scanInterface, int priority, ScanTracer activeTracer) {
+        submit(priority, targetIp, () -> {
             if (!isScanning) {
-                break;
+                return;
             }
+            if (activeTracer != null) {
+                activeTracer.begin(ScanTracer.EVENT_HOST, targetIp, 0, null);
+            }
+            if (isReachable(targetIp, scanInterface)) {
+                // ping之后邻居表中已有该主机，先按MAC厂商识别，再做端口探测
+                probeHost(targetIp, neighborTable.getMacAddress(targetIp), scanInterface);
+            }
+            if (activeTracer != null) {
+                activeTracer.end(ScanTracer.EVENT_HOST, targetIp, 0, null);
+            }
+            markProbed(targetIp);
+            markScanned(targetIp);
+        });
+    }
+    
+    private void submitIpv6Discovery(NetworkInterface networkInterface, ScanTracer activeTracer) {
+        submit(HostPriority.SYSTEM, "IPv6 " + networkInterface.getName(), () -> {
+            if (!acquireProbe()) {
+                return;
+            }
+            List<Ipv6Discovery.Host> hosts = ipv6Discovery.discover(networkInterface);
             
-            final String targetIp = prefix + i;
-            final int ipIndex = i;
-            
-            executorService.submit(() -> {
-                if (isReachable(targetIp)) {
-                    scanPorts(targetIp);
-                }
-                
-                int scanned = scannedIps.incrementAndGet();
-                updateProgress("扫描IP: " + targetIp, scanned, totalIpsToScan);
-                
-                if (scanned >= totalIpsToScan) {
-                    scanComplete();
+            // 先计入总数再提交，保证发现任务完成前扫描不会被判定为结束
+            totalIpsToScan.addAndGet(hosts.size());
+            OuiDatabase ouiDatabase = OuiDatabase.getInstance(context);
+            for (Ipv6Discovery.Host host : hosts) {
+                if (!isScanning) {
+                    break;
                 }
-            });
+                // 已经应答过组播ping，无需再次检测可达性
+                int priority = hostPriority.score(host.address, host.macAddress, true, ouiDatabase);
+                submit(priority, host.address, () -> {
+                    if (activeTracer != null) {
+                        activeTracer.begin(ScanTracer.EVENT_HOST, host.address, 0, null);
+                    }
+                    probeHost(host.address, host.macAddress, null);
+                    if (activeTracer != null) {
+                        activeTracer.end(ScanTracer.EVENT_HOST, host.address, 0, null);
+                    }
+                    markProbed(host.address);
+                    markScanned(host.address);
+                });
+            }
+            markScanned("IPv6 " + networkInterface.getName());
+        });
+    }
+    
+    /**
+     * 按优先级提交到扫描池；队列已满被拒绝时把目标直接计为已扫描，保证扫描能够结束
+     * @param target 任务完成时会 markScanned 的目标，不计数的任务为null
+     */
+    private void submit(int priority, String target, Runnable task) {
+        AppExecutors.TaskGroup tasks = scanTasks;
+        if (!tasks.execute(executors.scan(), HostPriority.task(priority, task)) && target != null && !tasks.isCancelled()) {
+            Log.w(TAG, "扫描队列已满，跳过 " + target);
+            markScanned(target);
+        }
+    }
+    
+    private void probeHost(String targetIp, String macAddress, ScanInterface scanInterface) {
+        if (macAddress != null && OuiDatabase.getInstance(context).isCameraVendor(macAddress)) {
+            CameraInfo candidate = createOuiCandidate(targetIp, macAddress);
+            candidate.setNetworkInterface(interfaceName(targetIp, scanInterface));
+            publish(candidate);
+        }
+        scanPorts(targetIp, macAddress, scanInterface);
+    }
+    
+    private void publishWifiAccessPoints() {
+        for (CameraInfo camera : wifiApScanner.poll()) {
+            publish(camera);
+        }
+    }
+    
+    private void unregisterScanResultsReceiver() {
+        if (scanResultsReceiver != null) {
+            try {
+                context.unregisterReceiver(scanResultsReceiver);
+            } catch (IllegalArgumentException e) {
+                // 已经注销
+            }
+            scanResultsReceiver = null;
+        }
+    }
+    
+    // 探测中途扫描已结束（预算用尽、取消）时结果不完整，不计为已探测
+    private void markProbed(String host) {
+        if (isScanning) {
+            probedHosts.add(host);
+        }
+    }
+    
+    private void markScanned(String target) {
+        int scanned = scannedIps.incrementAndGet();
+        int total = totalIpsToScan.get();
+        updateProgress("扫描IP: " + target, scanned, total);
+        
+        if (scanned == total) {
+            scanComplete();
         }
     }
     
-    private boolean isReachable(String ipAddress) {
+    // IPv6链路本地地址的作用域即为接口名
+    private static String interfaceName(String ipAddress, ScanInterface scanInterface) {
+        if (scanInterface != null) {
+            return scanInterface.getName();
+        }
+        int percent = ipAddress.indexOf('%');
+        return percent >= 0 ? ipAddress.substring(percent + 1) : null;
+    }
+    
+    private boolean isReachable(String ipAddress, ScanInterface scanInterface) {
+        if (!acquireProbe()) {
+            return false;
+        }
+        ScanTracer activeTracer = tracer;
+        if (activeTracer != null) {
+            activeTracer.begin(ScanTracer.EVENT_REACHABLE, ipAddress, 0, null);
+        }
         try {
             InetAddress address = InetAddress.getByName(ipAddress);
-            return address.isReachable(500);  // 500ms超时
+            if (scanInterface != null) {
+                // 从指定接口发出探测
+                return address.isReachable(scanInterface.getNetworkInterface(), 0, profile.reachTimeoutMs);
+            }
+            return address.isReachable(profile.reachTimeoutMs);
         } catch (UnknownHostException e) {
             return false;
         } catch (IOException e) {
             return false;
+        } finally {
+            if (activeTracer != null) {
+                activeTracer.end(ScanTracer.EVENT_REACHABLE, ipAddress, 0, null);
+            }
         }
     }
     
-    private void scanPorts(String ipAddress) {
-        for (int port : COMMON_CAMERA_PORTS) {
+    private void scanPorts(String ipAddress, String macAddress, ScanInterface scanInterface) {
+        ScanProfile activeProfile = profile;
+        for (int port : activeProfile.ports) {
             if (!isScanning) {
                 return;
             }
             
-            if (isPortOpen(ipAddress, port)) {
-                for (String path : COMMON_CAMERA_PATHS) {
-                    if (!isScanning) {
-                        return;
-                    }
-                    
-                    if (isCameraUrl(ipAddress, port, path)) {
-                        CameraInfo camera = createCameraInfo(ipAddress, port, path);
-                        if (listener != null) {
-                            mainHandler.post(() -> listener.onCameraDetected(camera));
+            if (isPortOpen(ipAddress, port, scanInterface)) {
+                if (port == 554) {
+                    hostPriority.recordRtspOpen(ipAddress);
+                }
+                CameraInfo camera = null;
+                if (activeProfile.isRtspPort(port)) {
+                    camera = probeRtsp(ipAddress, port, macAddress, scanInterface);
+                } else if (activeProfile.isTlsPort(port)) {
+                    camera = probeTls(ipAddress, port, macAddress, scanInterface);
+                } else {
+                    for (String path : activeProfile.paths) {
+                        if (!isScanning) {
+                            return;
+                        }
+                        
+                        if (isCameraUrl(ipAddress, port, path)) {
+                            camera = createCameraInfo(ipAddress, port, path, macAddress);
+                            break;  // 找到一个有效路径后就不再继续检查其他路径
                         }
-                        break;  // 找到一个有效路径后就不再继续检查其他路径
                     }
                 }
+                if (camera != null) {
+                    hostPriority.recordCamera(ipAddress);
+                    camera.setNetworkInterface(interfaceName(ipAddress, scanInterface));
+                    publish(camera);
+                }
             }
         }
     }
     
-    private boolean isPortOpen(String ipAddress, int port) {
+    private boolean isPortOpen(String ipAddress, int port, ScanInterface scanInterface) {
+        if (!acquireProbe()) {
+            return false;
+        }
+        ScanTracer activeTracer = tracer;
+        if (activeTracer != null) {
+            activeTracer.begin(ScanTracer.EVENT_PORT, ipAddress, port, null);
+        }
         try {
-            java.net.Socket socket = new java.net.Socket();
-            socket.connect(new java.net.InetSocketAddress(ipAddress, port), 300);  // 300ms超时
+            java.net.Socket socket = connect(ipAddress, port, scanInterface);
             socket.close();
             return true;
         } catch (IOException e) {
             return false;
+        } finally {
+            if (activeTracer != null) {
+                activeTracer.end(ScanTracer.EVENT_PORT, ipAddress, port, null);
+            }
+        }
+    }
+    
+    private java.net.Socket connect(String ipAddress, int port, ScanInterface scanInterface) throws IOException {
+        java.net.Socket socket = new java.net.Socket();
+        try {
+            if (scanInterface != null) {
+                // 绑定到接口的本机地址，保证探测从目标所在的接口发出
+                socket.bind(new java.net.InetSocketAddress(scanInterface.getLocalAddress(), 0));
+            }
+            socket.connect(new java.net.InetSocketAddress(ipAddress, port), profile.connectTimeoutMs);
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * 发送 RTSP OPTIONS 请求，收到RTSP响应即认为是视频流服务；Server头交给指纹规则识别厂商
+     */
+    private CameraInfo probeRtsp(String ipAddress, int port, String macAddress, ScanInterface scanInterface) {
+        if (!acquireProbe()) {
+            return null;
+        }
+        ScanTracer activeTracer = tracer;
+        if (activeTracer != null) {
+            activeTracer.begin(ScanTracer.EVENT_RTSP, ipAddress, port, null);
+        }
+        try (java.net.Socket socket = connect(ipAddress, port, scanInterface)) {
+            socket.setSoTimeout(500);
+            String request = "OPTIONS rtsp://" + CameraInfo.formatUrlHost(ipAddress) + ":" + port + "/ RTSP/1.0\r\n"
+                    + "CSeq: 1\r\n\r\n";
+            socket.getOutputStream().write(request.getBytes("US-ASCII"));
+            
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+            String statusLine = reader.readLine();
+            if (statusLine == null || !statusLine.startsWith("RTSP/")) {
+                return null;
+            }
+            long bytes = statusLine.length() + 2;
+            List<String> server = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                bytes += line.length() + 2;
+                if (line.regionMatches(true, 0, "Server:", 0, 7)) {
+                    server.add(line.substring(7).trim());
+                }
+            }
+            budget.addBytes(bytes);
+            
+            CameraInfo camera = createServiceCameraInfo(ipAddress, port, "/", macAddress);
+            camera.setDescription("RTSP服务" + (server.isEmpty() ? "" : ": " + server.get(0)));
+            
+            FingerprintEngine.Probe probe = new FingerprintEngine.Probe();
+            probe.port = port;
+            probe.headers = new java.util.HashMap<>();
+            probe.headers.put("Server", server);
+            applyFingerprint(camera, FingerprintEngine.getInstance(context).match(probe));
+            return camera;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (activeTracer != null) {
+                activeTracer.end(ScanTracer.EVENT_RTSP, ipAddress, port, null);
+            }
+        }
+    }
+    
+    /**
+     * 读取HTTPS端口的服务器证书，按证书主题识别厂商；证书在校验阶段即被拒绝，握手不会完成，不发送任何应用数据
+     */
+    private CameraInfo probeTls(String ipAddress, int port, String macAddress, ScanInterface scanInterface) {
+        if (!acquireProbe()) {
+            return null;
+        }
+        ScanTracer activeTracer = tracer;
+        if (activeTracer != null) {
+            activeTracer.begin(ScanTracer.EVENT_TLS, ipAddress, port, null);
+        }
+        CertificateCapture capture = new CertificateCapture();
+        try (java.net.Socket socket = connect(ipAddress, port, scanInterface)) {
+            socket.setSoTimeout(1000);
+            javax.net.ssl.SSLContext sslContext = javax.net.ssl.SSLContext.getInstance("TLS");
+            sslContext.init(null, new javax.net.ssl.TrustManager[]{capture}, null);
+            try (javax.net.ssl.SSLSocket sslSocket = (javax.net.ssl.SSLSocket) sslContext.getSocketFactory()
+                    .createSocket(socket, ipAddress, port, false)) {
+                sslSocket.startHandshake();
+            } catch (IOException expected) {
+                // 证书被 CertificateCapture 拒绝
+            }
+        } catch (IOException | java.security.GeneralSecurityException e) {
+            return null;
+        } finally {
+            if (activeTracer != null) {
+                activeTracer.end(ScanTracer.EVENT_TLS, ipAddress, port, null);
+            }
+        }
+        
+        if (capture.subject == null) {
+            return null;
+        }
+        budget.addBytes(capture.encodedLength);
+        
+        FingerprintEngine.Probe probe = new FingerprintEngine.Probe();
+        probe.port = port;
+        probe.body = capture.subject;
+        FingerprintEngine.Result result = FingerprintEngine.getInstance(context).match(probe);
+        if (result == null || result.confidence < MIN_VENDOR_CONFIDENCE) {
+            return null;
+        }
+        CameraInfo camera = createServiceCameraInfo(ipAddress, port, "/", macAddress);
+        camera.setDescription("HTTPS证书: " + capture.subject);
+        applyFingerprint(camera, result);
+        return camera;
+    }
+    
+    /**
+     * 只记录服务器证书并拒绝信任，用于TLS探测
+     */
+    private static class CertificateCapture implements javax.net.ssl.X509TrustManager {
+        volatile String subject;
+        volatile int encodedLength;
+        
+        @Override
+        public void checkServerTrusted(java.security.cert.X509Certificate[] chain, String authType)
+                throws java.security.cert.CertificateException {
+            if (chain != null && chain.length > 0) {
+                subject = chain[0].getSubjectX500Principal().getName();
+                encodedLength = chain[0].getEncoded().length;
+            }
+            throw new java.security.cert.CertificateException("仅用于识别");
+        }
+        
+        @Override
+        public void checkClientTrusted(java.security.cert.X509Certificate[] chain, String authType)
+                throws java.security.cert.CertificateException {
+            throw new java.security.cert.CertificateException("仅用于识别");
+        }
+        
+        @Override
+        public java.security.cert.X509Certificate[] getAcceptedIssuers() {
+            return new java.security.cert.X509Certificate[0];
         }
     }
     
     private boolean isCameraUrl(String ipAddress, int port, String path) {
+        if (!acquireProbe()) {
+            return false;
+        }
+        ScanTracer activeTracer = tracer;
+        if (activeTracer != null) {
+            activeTracer.begin(ScanTracer.EVENT_URL, ipAddress, port, path);
+        }
         HttpURLConnection connection = null;
         try {
-            URL url = new URL("http://" + ipAddress + ":" + port + path);
+            URL url = new URL("http://" + CameraInfo.formatUrlHost(ipAddress) + ":" + port + path);
             connection = (HttpURLConnection) url.openConnection();
             connection.setConnectTimeout(500);
             connection.setReadTimeout(500);
@@ -239,6 +669,7 @@ public class CameraDetector {
                     linesRead++;
                 }
                 reader.close();
+                budget.addBytes(response.length() + linesRead);
                 
                 String html = response.toString();
                 return html.contains("camera") || html.contains("video") || 
@@ -254,34 +685,76 @@ public class CameraDetector {
             if (connection != null) {
                 connection.disconnect();
             }
+            if (activeTracer != null) {
+                activeTracer.end(ScanTracer.EVENT_URL, ipAddress, port, path);
+            }
         }
     }
     
-    private CameraInfo createCameraInfo(String ipAddress, int port, String path) {
+    private CameraInfo createCameraInfo(String ipAddress, int port, String path, String macAddress) {
+        CameraInfo camera = createServiceCameraInfo(ipAddress, port, path, macAddress);
+        
+        // 尝试检测摄像头制造商
+        detectCameraManufacturer(camera);
+        
+        // HTTP特征未识别出厂商时，使用MAC地址的OUI厂商
+        if (macAddress != null && camera.getManufacturer() == null) {
+            OuiDatabase ouiDatabase = OuiDatabase.getInstance(context);
+            camera.setManufacturer(ouiDatabase.getDisplayVendor(macAddress));
+            if (ouiDatabase.isCameraVendor(macAddress)) {
+                camera.setName(camera.getManufacturer() + " 摄像头");
+            }
+        }
+        
+        return camera;
+    }
+    
+    private CameraInfo createServiceCameraInfo(String ipAddress, int port, String path, String macAddress) {
         CameraInfo camera = new CameraInfo();
         camera.setType(CameraInfo.CameraType.NETWORK);
         camera.setIpAddress(ipAddress);
         camera.setPort(port);
         camera.setStreamPath(path);
+        camera.addService(port, path);
         camera.setAccessible(true);
-        camera.setId(ipAddress + ":" + port);
+        camera.setId(CameraInfo.formatUrlHost(ipAddress) + ":" + port);
         
         // 设置名称
-        String name = "网络摄像头 (" + ipAddress + ":" + port + ")";
+        String name = "网络摄像头 (" + CameraInfo.formatUrlHost(ipAddress) + ":" + port + ")";
         camera.setName(name);
-        
-        // 尝试检测摄像头制造商
-        detectCameraManufacturer(camera);
-        
+        camera.setMacAddress(macAddress);
+        return camera;
+    }
+    
+    /**
+     * 根据MAC厂商生成的候选摄像头，在端口探测之前即可显示
+     */
+    private CameraInfo createOuiCandidate(String ipAddress, String macAddress) {
+        String vendor = OuiDatabase.getInstance(context).getDisplayVendor(macAddress);
+        CameraInfo camera = new CameraInfo();
+        camera.setType(CameraInfo.CameraType.NETWORK);
+        camera.setIpAddress(ipAddress);
+        camera.setMacAddress(macAddress);
+        camera.setManufacturer(vendor);
+        camera.setId(ipAddress);
+        camera.setName(vendor + " 摄像头 (" + ipAddress + ")");
+        camera.setDescription("MAC地址属于摄像头厂商，正在确认服务");
         return camera;
     }
     
     private void detectCameraManufacturer(CameraInfo camera) {
+        if (!acquireProbe()) {
+            return;
+        }
         String ipAddress = camera.getIpAddress();
         int port = camera.getPort();
+        ScanTracer activeTracer = tracer;
+        if (activeTracer != null) {
+            activeTracer.begin(ScanTracer.EVENT_MANUFACTURER, ipAddress, port, null);
+        }
         
         try {
-            URL url = new URL("http://" + ipAddress + ":" + port + "/");
+            URL url = new URL("http://" + CameraInfo.formatUrlHost(ipAddress) + ":" + port + "/");
             HttpURLConnection connection = (HttpURLConnection) url.openConnection();
             connection.setConnectTimeout(500);
             connection.setReadTimeout(500);
@@ -290,49 +763,132 @@ public class CameraDetector {
             if (responseCode == HttpURLConnection.HTTP_OK || 
                 responseCode == HttpURLConnection.HTTP_UNAUTHORIZED) {
                 
-                // 检查服务器头信息
-                String server = connection.getHeaderField("Server");
-                if (server != null) {
-                    server = server.toLowerCase();
-                    for (Map.Entry<String, String> entry : CAMERA_MANUFACTURERS.entrySet()) {
-                        if (server.contains(entry.getKey())) {
-                            camera.setManufacturer(entry.getValue());
-                            camera.setName(entry.getValue() + " 摄像头");
-                            break;
-                        }
-                    }
-                }
+                // 响应头、认证realm、页面内容、路径和端口一起交给指纹规则匹配
+                FingerprintEngine.Probe probe = new FingerprintEngine.Probe();
+                probe.port = port;
+                probe.path = camera.getStreamPath();
+                probe.headers = connection.getHeaderFields();
                 
-                // 如果没有从服务器头信息中检测到制造商，尝试从HTML内容中检测
-                if (camera.getManufacturer() == null && responseCode == HttpURLConnection.HTTP_OK) {
+                if (responseCode == HttpURLConnection.HTTP_OK) {
                     BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
                     StringBuilder response = new StringBuilder();
                     String line;
                     int linesRead = 0;
                     while ((line = reader.readLine()) != null && linesRead < 50) {  // 只读取前50行
-                        response.append(line.toLowerCase());
+                        response.append(line);
                         linesRead++;
                     }
                     reader.close();
-                    
-                    String html = response.toString();
-                    for (Map.Entry<String, String> entry : CAMERA_MANUFACTURERS.entrySet()) {
-                        if (html.contains(entry.getKey())) {
-                            camera.setManufacturer(entry.getValue());
-                            camera.setName(entry.getValue() + " 摄像头");
-                            break;
-                        }
-                    }
+                    budget.addBytes(response.length() + linesRead);
+                    probe.body = response.toString();
                 }
+                
+                applyFingerprint(camera, FingerprintEngine.getInstance(context).match(probe));
+                
+                detectCameraModel(camera);
             }
             
             connection.disconnect();
             
         } catch (IOException e) {
             // 忽略异常
+        } finally {
+            if (activeTracer != null) {
+                activeTracer.end(ScanTracer.EVENT_MANUFACTURER, ipAddress, port, null);
+            }
+        }
+    }
+    
+    private void applyFingerprint(CameraInfo camera, FingerprintEngine.Result result) {
+        if (result != null && result.confidence >= MIN_VENDOR_CONFIDENCE) {
+            camera.setManufacturer(result.vendor);
+            camera.setName(result.vendor + " 摄像头");
+            camera.setConfidence(result.confidence);
+            if (result.family != null) {
+                camera.setModel(result.family);
+            }
+        }
+    }
+    
+    /**
+     * 通过favicon的哈希值识别具体型号，索引为空时不发起请求
+     */
+    private void detectCameraModel(CameraInfo camera) {
+        PageHashIndex index = PageHashIndex.getInstance(context);
+        if (index.size() == 0) {
+            return;
+        }
+        
+        byte[] favicon = faviconBuffer.get();
+        if (favicon == null) {
+            favicon = new byte[MAX_FAVICON_BYTES];
+            faviconBuffer.set(favicon);
+        }
+        int length = fetchFavicon(camera.getIpAddress(), camera.getPort(), favicon);
+        PageHashIndex.Entry entry = length > 0 ? index.findByFavicon(favicon, length) : null;
+        
+        if (entry != null) {
+            camera.setModel(entry.model);
+            if (camera.getManufacturer() == null && entry.vendor != null) {
+                camera.setManufacturer(entry.vendor);
+                camera.setName(entry.vendor + " 摄像头");
+            }
         }
     }
     
+    /**
+     * 读取 /favicon.ico 到缓冲区
+     * @return 读取的字节数，失败或超出缓冲区大小时返回-1
+     */
+    private int fetchFavicon(String ipAddress, int port, byte[] buffer) {
+        if (!acquireProbe()) {
+            return -1;
+        }
+        ScanTracer activeTracer = tracer;
+        if (activeTracer != null) {
+            activeTracer.begin(ScanTracer.EVENT_FAVICON, ipAddress, port, null);
+        }
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL("http://" + CameraInfo.formatUrlHost(ipAddress) + ":" + port + "/favicon.ico");
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(500);
+            connection.setReadTimeout(500);
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return -1;
+            }
+            
+            InputStream in = connection.getInputStream();
+            int length = 0;
+            int read;
+            while ((read = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+                if (length == buffer.length) {
+                    return -1;
+                }
+            }
+            in.close();
+            budget.addBytes(length);
+            return length;
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            if (activeTracer != null) {
+                activeTracer.end(ScanTracer.EVENT_FAVICON, ipAddress, port, null);
+            }
+        }
+    }
+    
+    private void publish(CameraInfo camera) {
+        if (listener != null) {
+            mainHandler.post(() -> listener.onCameraDetected(camera));
+        }
+        resultHub.publish(camera);
+    }
+    
     private void updateProgress(String status, int current, int total) {
         if (listener != null) {
             mainHandler.post(() -> {
@@ -342,12 +898,34 @@ public class CameraDetector {
         }
     }
     
-    private void scanComplete() {
-        if (isScanning) {
-            isScanning = false;
-            if (listener != null) {
-                mainHandler.post(() -> listener.onScanComplete());
-            }
+    private boolean acquireProbe() {
+        if (budget.tryProbe()) {
+            return true;
+        }
+        endOnBudget();
+        return false;
+    }
+    
+    private void endOnBudget() {
+        if (isScanning && budget.isExhausted() && scanComplete()) {
+            Log.d(TAG, budget.getSummary());
+            // 丢弃队列中尚未开始的主机
+            scanTasks.cancel();
+        }
+    }
+    
+    private synchronized boolean scanComplete() {
+        if (!isScanning) {
+            return false;
+        }
+        isScanning = false;
+        mainHandler.post(this::unregisterScanResultsReceiver);
+        budget.finish(scannedIps.get(), totalIpsToScan.get());
+        Log.d(TAG, executors.scan().getStats().toString());
+        if (listener != null) {
+            mainHandler.post(() -> listener.onScanComplete());
         }
+        resultHub.complete();
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package com.cameradetector.app;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 多画面网格 - 同时查看最多16个网络摄像头。所有画面共享解码线程池和帧缓冲，
+ * 帧率上限按画面大小和可见画面数分配，滚出屏幕的画面断开连接
+ */
+public class CameraGridActivity extends AppCompatActivity implements GridTile.Callback {
+
+    private static final int MAX_TILES = 16;
+    private static final long STATS_INTERVAL_MS = 1000;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<GridTile> tiles = new ArrayList<>();
+    // 当前挂在窗口上的画面及其视图
+    private final Map<GridTile, CameraTileView> attachedTiles = new HashMap<>();
+
+    private GridDecoder decoder;
+    private TextView tvGridSummary;
+    private boolean resumed = false;
+
+    private final Runnable statsTicker = new Runnable() {
+        @Override
+        public void run() {
+            long now = SystemClock.elapsedRealtime();
+            for (Map.Entry<GridTile, CameraTileView> entry : attachedTiles.entrySet()) {
+                entry.getKey().getStats().roll(now);
+                entry.getValue().invalidate();
+            }
+            updateSummary();
+            mainHandler.postDelayed(this, STATS_INTERVAL_MS);
+        }
+    };
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_camera_grid);
+
+        decoder = new GridDecoder();
+        DeviceRepository repository = DeviceRepository.getInstance();
+        ArrayList<String> cameraIds = getIntent().getStringArrayListExtra("camera_ids");
+        if (cameraIds != null) {
+            for (CameraInfo camera : repository.getAll(cameraIds)) {
+                if (camera.hasNetworkAddress() && tiles.size() < MAX_TILES) {
+                    tiles.add(new GridTile(camera, decoder, this));
+                }
+            }
+        }
+        if (tiles.isEmpty()) {
+            Toast.makeText(this, "没有可显示的网络摄像头", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+
+        tvGridSummary = findViewById(R.id.tv_grid_summary);
+        RecyclerView rvCameraGrid = findViewById(R.id.rv_camera_grid);
+        int spanCount = tiles.size() <= 4 ? 2 : tiles.size() <= 9 ? 3 : 4;
+        rvCameraGrid.setLayoutManager(new GridLayoutManager(this, spanCount));
+        rvCameraGrid.setHasFixedSize(true);
+        rvCameraGrid.setAdapter(new TileAdapter());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        resumed = true;
+        updateFrameRates();
+        mainHandler.post(statsTicker);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        resumed = false;
+        mainHandler.removeCallbacks(statsTicker);
+        for (GridTile tile : tiles) {
+            tile.setFpsCap(0);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        for (GridTile tile : tiles) {
+            tile.setFpsCap(0);
+            tile.releaseFrame();
+        }
+        if (decoder != null) {
+            decoder.shutdown();
+        }
+    }
+
+    @Override
+    public void onTileUpdated(GridTile tile) {
+        CameraTileView view = attachedTiles.get(tile);
+        if (view != null) {
+            view.invalidate();
+        }
+    }
+
+    /**
+     * 按画面大小和可见画面数重新分配帧率上限，不可见的画面上限为0即暂停
+     */
+    private void updateFrameRates() {
+        int visible = attachedTiles.size();
+        for (GridTile tile : tiles) {
+            CameraTileView view = attachedTiles.get(tile);
+            int cap = resumed && view != null
+                    ? TileFrameRate.cap(view.getWidth(), view.getHeight(), true, visible, decoder.getThreadCount())
+                    : 0;
+            tile.setFpsCap(cap);
+        }
+    }
+
+    private void updateSummary() {
+        float fps = 0;
+        long dropped = 0;
+        for (GridTile tile : tiles) {
+            fps += tile.getStats().getFps();
+            dropped += tile.getStats().getDroppedFrames();
+        }
+        tvGridSummary.setText(String.format(Locale.US, "%d 路画面（可见 %d）  解码线程 %d  排队 %d  合计 %.1f fps  丢帧 %d  缓冲分配 %d",
+                tiles.size(), attachedTiles.size(), decoder.getThreadCount(), decoder.getQueueDepth(), fps, dropped,
+                decoder.getBuffers().getAllocations()));
+    }
+
+    private class TileAdapter extends RecyclerView.Adapter<TileHolder> {
+
+        @NonNull
+        @Override
+        public TileHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            CameraTileView view = new CameraTileView(CameraGridActivity.this);
+            // 画面尺寸确定后才能计算帧率上限
+            view.setSizeListener(tileView -> updateFrameRates());
+            return new TileHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull TileHolder holder, int position) {
+            holder.tileView.setTile(tiles.get(position));
+        }
+
+        @Override
+        public int getItemCount() {
+            return tiles.size();
+        }
+
+        @Override
+        public void onViewAttachedToWindow(@NonNull TileHolder holder) {
+            GridTile tile = holder.tileView.getTile();
+            if (tile != null) {
+                attachedTiles.put(tile, holder.tileView);
+                updateFrameRates();
+            }
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(@NonNull TileHolder holder) {
+            GridTile tile = holder.tileView.getTile();
+            if (tile != null) {
+                attachedTiles.remove(tile);
+                updateFrameRates();
+                tile.releaseFrame();
+            }
+        }
+    }
+
+    private static class TileHolder extends RecyclerView.ViewHolder {
+        final CameraTileView tileView;
+
+        TileHolder(CameraTileView tileView) {
+            super(tileView);
+            this.tileView = tileView;
+        }
+    }
+}
@@ -3,6 +3,10 @@ package com.cameradetector.app;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class CameraInfo implements Parcelable {
     
     private String username;
@@ -25,6 +29,32 @@ public class CameraInfo implements Parcelable {
     private String manufacturer;
     private String model;
     private String description;
+    // 厂商识别置信度 (0~1)
+    private float confidence;
+    // 发现该设备的本机网络接口（如 wlan0、eth0、ap0）
+    private String networkInterface;
+    // 来自该网络上次扫描的缓存，等待本次扫描确认
+    private boolean unverified;
+    // 同一物理设备上发现的全部服务端点（如Web 80、SDK 8000、RTSP 554）
+    private final List<Service> services = new ArrayList<>();
+    
+    /**
+     * 设备上的一个服务端点
+     */
+    public static class Service {
+        public final int port;
+        public final String path;
+        
+        public Service(int port, String path) {
+            this.port = port;
+            this.path = path;
+        }
+        
+        @Override
+        public String toString() {
+            return path != null ? port + path : String.valueOf(port);
+        }
+    }
     
     public CameraInfo() {
         this.accessible = false;
@@ -45,6 +75,14 @@ public class CameraInfo implements Parcelable {
         username = in.readString();
         password = in.readString();
         streamPath = in.readString();
+        macAddress = in.readString();
+        confidence = in.readFloat();
+        networkInterface = in.readString();
+        unverified = in.readByte() != 0;
+        int serviceCount = in.readInt();
+        for (int i = 0; i < serviceCount; i++) {
+            services.add(new Service(in.readInt(), in.readString()));
+        }
     }
     
     public static final Creator<CameraInfo> CREATOR = new Creator<CameraInfo>() {
@@ -79,6 +117,15 @@ public class CameraInfo implements Parcelable {
         dest.writeString(username);
         dest.writeString(password);
         dest.writeString(streamPath);
+        dest.writeString(macAddress);
+        dest.writeFloat(confidence);
+        dest.writeString(networkInterface);
+        dest.writeByte((byte) (unverified ? 1 : 0));
+        dest.writeInt(services.size());
+        for (Service service : services) {
+            dest.writeInt(service.port);
+            dest.writeString(service.path);
+        }
     }
     
     // Getters and Setters
@@ -109,6 +156,22 @@ public class CameraInfo implements Parcelable {
     public String getModel() { return model; }
     public void setModel(String model) { this.model = model; }
     
+    public float getConfidence() { return confidence; }
+    public void setConfidence(float confidence) { this.confidence = confidence; }
+    
+    public String getNetworkInterface() { return networkInterface; }
+    public void setNetworkInterface(String networkInterface) { this.networkInterface = networkInterface; }
+    
+    /**
+     * 是否为可以直接连接的网络摄像头；只通过Wi-Fi热点发现、尚未接入局域网的设备没有IP
+     */
+    public boolean hasNetworkAddress() {
+        return type == CameraType.NETWORK && ipAddress != null;
+    }
+    
+    public boolean isUnverified() { return unverified; }
+    public void setUnverified(boolean unverified) { this.unverified = unverified; }
+    
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
     
@@ -121,19 +184,49 @@ public class CameraInfo implements Parcelable {
     public String getStreamPath() { return streamPath; }
     public void setStreamPath(String streamPath) { this.streamPath = streamPath; }
     
+    public List<Service> getServices() { return Collections.unmodifiableList(services); }
+    
+    /**
+     * 添加服务端点，同一端口只记录一次
+     * @return 是否为新端口
+     */
+    public boolean addService(int port, String path) {
+        for (Service service : services) {
+            if (service.port == port) {
+                return false;
+            }
+        }
+        services.add(new Service(port, path));
+        return true;
+    }
+    
+    /**
+     * URL中的主机部分，IPv6地址加方括号，如 [fe80::1%wlan0]
+     */
+    public String getUrlHost() {
+        return formatUrlHost(ipAddress);
+    }
+    
+    public static String formatUrlHost(String address) {
+        if (address != null && address.indexOf(':') >= 0 && !address.startsWith("[")) {
+            return "[" + address + "]";
+        }
+        return address;
+    }
+    
     // 获取完整的流URL
     public String getFullStreamUrl() {
         if (streamPath != null && !streamPath.isEmpty()) {
             if (streamPath.startsWith("rtsp://") || streamPath.startsWith("http://")) {
                 return streamPath;
             } else if (ipAddress != null && !ipAddress.isEmpty() && port > 0) {
-                return "rtsp://" + ipAddress + ":" + port + streamPath;
+                return "rtsp://" + getUrlHost() + ":" + port + streamPath;
             }
         }
         
         // 尝试构建默认的RTSP URL
         if (ipAddress != null && !ipAddress.isEmpty() && port > 0) {
-            return "rtsp://" + ipAddress + ":" + port + "/";
+            return "rtsp://" + getUrlHost() + ":" + port + "/";
         }
         
         return null;
@@ -159,7 +252,9 @@ public class CameraInfo implements Parcelable {
     }
     
     public String getStatusString() {
-        if (accessible && hasPermission) {
+        if (unverified) {
+            return "待确认";
+        } else if (accessible && hasPermission) {
             return "可控制";
         } else if (accessible) {
             return "可访问";
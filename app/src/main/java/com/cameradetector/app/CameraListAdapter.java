@@ -2,156 +2,132 @@ package com.cameradetector.app;
 
 import android.content.Context;
 import android.content.Intent;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
 import java.util.List;
 
-public class CameraListAdapter extends BaseAdapter {
+/**
+ * 摄像头列表适配器 - 列表项是 CameraInfo 的不可变快照（Row），差异在后台线程计算，
+ * 只有状态变化的行以局部payload重新绑定；行id由摄像头id生成，点击事件在ViewHolder创建时绑定一次
+ */
+public class CameraListAdapter extends ListAdapter<CameraListAdapter.Row, CameraListAdapter.ViewHolder> {
+    
+    // 只有状态（可访问/权限）变化时的局部刷新
+    private static final Object PAYLOAD_STATUS = new Object();
+    
+    public interface OnCameraClickListener {
+        void onCameraClick(CameraInfo camera);
+    }
     
     private Context context;
-    private List<CameraInfo> cameraList;
     private CameraExploiter cameraExploiter;
+    private OnCameraClickListener clickListener;
     
-    public CameraListAdapter(Context context, List<CameraInfo> cameraList) {
+    public CameraListAdapter(Context context, OnCameraClickListener clickListener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.cameraList = cameraList;
+        this.clickListener = clickListener;
         this.cameraExploiter = new CameraExploiter();
+        setHasStableIds(true);
     }
     
-    @Override
-    public int getCount() {
-        return cameraList.size();
+    /**
+     * 提交当前的设备列表，在主线程调用；快照在这里生成，差异计算在后台完成
+     */
+    public void submitCameras(List<CameraInfo> cameras) {
+        List<Row> rows = new ArrayList<>(cameras.size());
+        for (CameraInfo camera : cameras) {
+            rows.add(new Row(camera));
+        }
+        submitList(rows);
     }
     
     @Override
-    public Object getItem(int position) {
-        return cameraList.get(position);
+    public long getItemId(int position) {
+        return getItem(position).stableId;
     }
     
+    @NonNull
     @Override
-    public long getItemId(int position) {
-        return position;
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.item_camera, parent, false);
+        return new ViewHolder(view);
     }
     
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        ViewHolder holder;
-        LayoutInflater inflater = LayoutInflater.from(context);
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Row row = getItem(position);
         
-        if (convertView == null) {
-            convertView = inflater.inflate(R.layout.item_camera, parent, false);
-            holder = new ViewHolder();
-            holder.ivCameraIcon = convertView.findViewById(R.id.iv_camera_icon);
-            holder.tvCameraName = convertView.findViewById(R.id.tv_camera_name);
-            holder.tvCameraType = convertView.findViewById(R.id.tv_camera_type);
-            holder.tvCameraStatus = convertView.findViewById(R.id.tv_camera_status);
-            holder.tvCameraId = convertView.findViewById(R.id.tv_camera_id);
-            holder.btnExploit = convertView.findViewById(R.id.btn_exploit);
-            holder.btnView = convertView.findViewById(R.id.btn_view);
-            holder.btnControl = convertView.findViewById(R.id.btn_control);
-            holder.layoutCameraDetails = convertView.findViewById(R.id.layout_camera_details);
-            convertView.setTag(holder);
-        } else {
-            holder = (ViewHolder) convertView.getTag();
-        }
+        holder.ivCameraIcon.setImageResource(row.iconRes);
         
-        CameraInfo camera = cameraList.get(position);
+        // 设置摄像头信息
+        holder.tvCameraName.setText(row.name);
+        holder.tvCameraType.setText(row.typeString);
+        holder.tvCameraId.setText(row.idText);
+        bindStatus(holder, row);
         
-        // 设置摄像头图标
-        switch (camera.getType()) {
-            case LOCAL:
-                holder.ivCameraIcon.setImageResource(R.drawable.ic_camera_network);
-                break;
-            case NETWORK:
-                // 根据制造商设置不同的图标
-                if (camera.getManufacturer() != null) {
-                    String manufacturer = camera.getManufacturer().toLowerCase();
-                    if (manufacturer.contains("hikvision") || manufacturer.contains("海康")) {
-                        holder.ivCameraIcon.setImageResource(R.drawable.ic_camera_hikvision);
-                    } else if (manufacturer.contains("dahua") || manufacturer.contains("大华")) {
-                        holder.ivCameraIcon.setImageResource(R.drawable.ic_camera_dahua);
-                    } else if (manufacturer.contains("axis")) {
-                        holder.ivCameraIcon.setImageResource(R.drawable.ic_camera_axis);
-                    } else {
-                        holder.ivCameraIcon.setImageResource(R.drawable.ic_camera_network);
-                    }
-                } else {
-                    holder.ivCameraIcon.setImageResource(R.drawable.ic_camera_network);
-                }
-                break;
-            case BLUETOOTH:
-                holder.ivCameraIcon.setImageResource(R.drawable.ic_camera_bluetooth);
-                break;
-            default:
-                holder.ivCameraIcon.setImageResource(R.drawable.ic_camera_unknown);
-                break;
+        // 有IP的网络摄像头才显示操作按钮，摄像头热点无法直接连接
+        int actionVisibility = row.connectable ? View.VISIBLE : View.GONE;
+        holder.btnExploit.setVisibility(actionVisibility);
+        holder.btnView.setVisibility(actionVisibility);
+        holder.btnControl.setVisibility(actionVisibility);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.size() == 1 && payloads.get(0) == PAYLOAD_STATUS) {
+            bindStatus(holder, getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
         }
+    }
+    
+    private void bindStatus(ViewHolder holder, Row row) {
+        holder.tvCameraStatus.setText(row.statusString);
         
-        // 设置摄像头信息
-        holder.tvCameraName.setText(camera.getName());
-        holder.tvCameraType.setText(camera.getTypeString());
-        holder.tvCameraStatus.setText(camera.getStatusString());
-        holder.tvCameraId.setText("ID: " + camera.getId());
-        
-        // 根据状态设置文字颜色
-        if (camera.isAccessible() && camera.hasPermission()) {
+        // 根据状态设置文字颜色，缓存中等待确认的设备为灰色
+        if (row.unverified) {
+            holder.tvCameraStatus.setTextColor(context.getResources().getColor(android.R.color.darker_gray));
+        } else if (row.accessible && row.hasPermission) {
             holder.tvCameraStatus.setTextColor(context.getResources().getColor(android.R.color.holo_green_dark));
-        } else if (camera.isAccessible()) {
+        } else if (row.accessible) {
             holder.tvCameraStatus.setTextColor(context.getResources().getColor(android.R.color.holo_orange_dark));
         } else {
             holder.tvCameraStatus.setTextColor(context.getResources().getColor(android.R.color.holo_red_dark));
         }
-        
-        // 设置漏洞利用按钮
-        if (camera.getType() == CameraInfo.CameraType.NETWORK) {
-            holder.btnExploit.setVisibility(View.VISIBLE);
-            holder.btnExploit.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    exploitCamera(camera);
-                }
-            });
-            
-            // 设置查看按钮
-            holder.btnView.setVisibility(View.VISIBLE);
-            holder.btnView.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    viewCameraStream(camera);
-                }
-            });
-            
-            // 设置控制按钮
-            holder.btnControl.setVisibility(View.VISIBLE);
-            holder.btnControl.setOnClickListener(new View.OnClickListener() {
-                @Override
-                public void onClick(View v) {
-                    controlCamera(camera);
-                }
-            });
-        } else {
-            holder.btnExploit.setVisibility(View.GONE);
-            holder.btnView.setVisibility(View.GONE);
-            holder.btnControl.setVisibility(View.GONE);
+    }
+    
+    private void onItemAction(View view, int position) {
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        CameraInfo camera = getItem(position).camera;
+        int id = view.getId();
+        if (id == R.id.btn_exploit) {
+            exploitCamera(camera);
+        } else if (id == R.id.btn_view) {
+            viewCameraStream(camera);
+        } else if (id == R.id.btn_control) {
+            controlCamera(camera);
+        } else if (id == R.id.layout_camera_details) {
+            showCameraDetails(camera);
+        } else if (clickListener != null) {
+            clickListener.onCameraClick(camera);
         }
-        
-        // 设置详情区域点击事件
-        holder.layoutCameraDetails.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                showCameraDetails(camera);
-            }
-        });
-        
-        return convertView;
     }
     
     /**
@@ -177,9 +153,9 @@ public class CameraListAdapter extends BaseAdapter {
                     @Override
                     public void run() {
                         Toast.makeText(context, "✅ " + method + " 成功!\n" + result, Toast.LENGTH_LONG).show();
-                        // 更新摄像头权限状态
+                        // 更新摄像头权限状态，列表由仓库观察者刷新
                         camera.setHasPermission(true);
-                        notifyDataSetChanged();
+                        DeviceRepository.getInstance().notifyChanged(camera);
                     }
                 });
             }
@@ -222,7 +198,7 @@ public class CameraListAdapter extends BaseAdapter {
         
         // 启动摄像头控制活动，仅查看模式
         Intent intent = new Intent(context, CameraControlActivity.class);
-        intent.putExtra("camera_info", camera);
+        intent.putExtra("camera_id", camera.getId());
         intent.putExtra("stream_url", camera.getFullStreamUrl());
         intent.putExtra("control_mode", false);
         context.startActivity(intent);
@@ -239,7 +215,7 @@ public class CameraListAdapter extends BaseAdapter {
         
         // 启动摄像头控制活动，控制模式
         Intent intent = new Intent(context, CameraControlActivity.class);
-        intent.putExtra("camera_info", camera);
+        intent.putExtra("camera_id", camera.getId());
         intent.putExtra("stream_url", camera.getFullStreamUrl());
         intent.putExtra("control_mode", true);
         context.startActivity(intent);
@@ -255,8 +231,24 @@ public class CameraListAdapter extends BaseAdapter {
         details.append("状态: ").append(camera.getStatusString()).append("\n");
         
         if (camera.getType() == CameraInfo.CameraType.NETWORK) {
-            details.append("IP地址: ").append(camera.getIpAddress()).append("\n");
-            details.append("端口: ").append(camera.getPort()).append("\n");
+            if (camera.getIpAddress() != null) {
+                details.append("IP地址: ").append(camera.getIpAddress()).append("\n");
+                details.append("端口: ").append(camera.getPort()).append("\n");
+            } else if (camera.getDescription() != null) {
+                // 只通过Wi-Fi热点发现、尚未接入局域网的设备
+                details.append("热点: ").append(camera.getDescription()).append("\n");
+            }
+            
+            if (camera.getServices().size() > 1) {
+                details.append("服务: ");
+                for (int i = 0; i < camera.getServices().size(); i++) {
+                    if (i > 0) {
+                        details.append(", ");
+                    }
+                    details.append(camera.getServices().get(i));
+                }
+                details.append("\n");
+            }
             
             if (camera.getManufacturer() != null && !camera.getManufacturer().isEmpty()) {
                 details.append("制造商: ").append(camera.getManufacturer()).append("\n");
@@ -269,6 +261,12 @@ public class CameraListAdapter extends BaseAdapter {
             if (camera.getMacAddress() != null && !camera.getMacAddress().isEmpty()) {
                 details.append("MAC地址: ").append(camera.getMacAddress()).append("\n");
             }
+            
+            if (camera.getNetworkInterface() != null) {
+                details.append("网络接口: ").append(camera.getNetworkInterface()).append("\n");
+            }
+        } else if (camera.getType() == CameraInfo.CameraType.LOCAL && camera.getDescription() != null) {
+            details.append("参数: ").append(camera.getDescription()).append("\n");
         }
         
         new androidx.appcompat.app.AlertDialog.Builder(context)
@@ -278,15 +276,144 @@ public class CameraListAdapter extends BaseAdapter {
             .show();
     }
     
-    private static class ViewHolder {
-        ImageView ivCameraIcon;
-        TextView tvCameraName;
-        TextView tvCameraType;
-        TextView tvCameraStatus;
-        TextView tvCameraId;
-        Button btnExploit;
-        Button btnView;
-        Button btnControl;
-        LinearLayout layoutCameraDetails;
+    /**
+     * 列表行快照，字段在主线程生成后不再改变，可以安全地在后台线程比较
+     */
+    static final class Row {
+        final CameraInfo camera;
+        final long stableId;
+        final String name;
+        final String typeString;
+        final String idText;
+        final String statusString;
+        final CameraInfo.CameraType type;
+        final int iconRes;
+        final boolean accessible;
+        final boolean hasPermission;
+        final boolean unverified;
+        final boolean connectable;
+        
+        Row(CameraInfo camera) {
+            this.camera = camera;
+            this.stableId = stableId(camera.getId());
+            this.name = camera.getName();
+            this.typeString = camera.getTypeString();
+            this.idText = "ID: " + camera.getId();
+            this.statusString = camera.getStatusString();
+            this.type = camera.getType();
+            this.iconRes = iconFor(camera);
+            this.accessible = camera.isAccessible();
+            this.hasPermission = camera.hasPermission();
+            this.unverified = camera.isUnverified();
+            this.connectable = camera.hasNetworkAddress();
+        }
+        
+        boolean sameDetailsAs(Row other) {
+            return type == other.type
+                    && connectable == other.connectable
+                    && iconRes == other.iconRes
+                    && TextUtils.equals(name, other.name)
+                    && TextUtils.equals(typeString, other.typeString)
+                    && TextUtils.equals(idText, other.idText);
+        }
+        
+        boolean sameStatusAs(Row other) {
+            return accessible == other.accessible
+                    && hasPermission == other.hasPermission
+                    && unverified == other.unverified
+                    && TextUtils.equals(statusString, other.statusString);
+        }
+    }
+    
+    private static final DiffUtil.ItemCallback<Row> DIFF_CALLBACK = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.stableId == newRow.stableId;
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.sameDetailsAs(newRow) && oldRow.sameStatusAs(newRow);
+        }
+        
+        @Override
+        public Object getChangePayload(@NonNull Row oldRow, @NonNull Row newRow) {
+            // 除状态外其余内容都相同时只刷新状态标签
+            return oldRow.sameDetailsAs(newRow) ? PAYLOAD_STATUS : null;
+        }
+    };
+    
+    // 摄像头id的64位FNV-1a哈希，作为RecyclerView的稳定id
+    private static long stableId(String id) {
+        if (id == null) {
+            return RecyclerView.NO_ID;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+    
+    // 根据类型和制造商选择图标
+    private static int iconFor(CameraInfo camera) {
+        switch (camera.getType()) {
+            case LOCAL:
+                return R.drawable.ic_camera_network;
+            case NETWORK:
+                if (camera.getManufacturer() != null) {
+                    String manufacturer = camera.getManufacturer().toLowerCase();
+                    if (manufacturer.contains("hikvision") || manufacturer.contains("海康")) {
+                        return R.drawable.ic_camera_hikvision;
+                    } else if (manufacturer.contains("dahua") || manufacturer.contains("大华")) {
+                        return R.drawable.ic_camera_dahua;
+                    } else if (manufacturer.contains("axis")) {
+                        return R.drawable.ic_camera_axis;
+                    }
+                }
+                return R.drawable.ic_camera_network;
+            case BLUETOOTH:
+                return R.drawable.ic_camera_bluetooth;
+            default:
+                return R.drawable.ic_camera_unknown;
+        }
+    }
+    
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        final ImageView ivCameraIcon;
+        final TextView tvCameraName;
+        final TextView tvCameraType;
+        final TextView tvCameraStatus;
+        final TextView tvCameraId;
+        final Button btnExploit;
+        final Button btnView;
+        final Button btnControl;
+        final LinearLayout layoutCameraDetails;
+        
+        ViewHolder(View itemView) {
+            super(itemView);
+            ivCameraIcon = itemView.findViewById(R.id.iv_camera_icon);
+            tvCameraName = itemView.findViewById(R.id.tv_camera_name);
+            tvCameraType = itemView.findViewById(R.id.tv_camera_type);
+            tvCameraStatus = itemView.findViewById(R.id.tv_camera_status);
+            tvCameraId = itemView.findViewById(R.id.tv_camera_id);
+            btnExploit = itemView.findViewById(R.id.btn_exploit);
+            btnView = itemView.findViewById(R.id.btn_view);
+            btnControl = itemView.findViewById(R.id.btn_control);
+            layoutCameraDetails = itemView.findViewById(R.id.layout_camera_details);
+            
+            // 监听器只在创建时设置一次，点击时按当前位置取数据
+            itemView.setOnClickListener(this);
+            btnExploit.setOnClickListener(this);
+            btnView.setOnClickListener(this);
+            btnControl.setOnClickListener(this);
+            layoutCameraDetails.setOnClickListener(this);
+        }
+        
+        @Override
+        public void onClick(View view) {
+            onItemAction(view, getAdapterPosition());
+        }
     }
-}
\ No newline at end of file
+}
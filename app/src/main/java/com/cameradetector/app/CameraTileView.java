@@ -0,0 +1,95 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.view.View;
+
+/**
+ * 网格中的画面视图 - 按4:3显示 GridTile 的当前帧，左上角叠加名称、帧率、丢帧和解码耗时
+ */
+public class CameraTileView extends View {
+
+    public interface SizeListener {
+        void onTileSizeChanged(CameraTileView view);
+    }
+
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect destRect = new Rect();
+    private final float textSize;
+
+    private GridTile tile;
+    private SizeListener sizeListener;
+
+    public CameraTileView(Context context) {
+        super(context);
+        textSize = 12 * context.getResources().getDisplayMetrics().density;
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(textSize);
+    }
+
+    public void setTile(GridTile tile) {
+        this.tile = tile;
+        if (tile != null) {
+            tile.setTargetSize(getWidth(), getHeight());
+        }
+        invalidate();
+    }
+
+    public GridTile getTile() {
+        return tile;
+    }
+
+    public void setSizeListener(SizeListener sizeListener) {
+        this.sizeListener = sizeListener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        setMeasuredDimension(width, width * 3 / 4);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (tile != null) {
+            tile.setTargetSize(w, h);
+        }
+        if (sizeListener != null) {
+            sizeListener.onTileSizeChanged(this);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        canvas.drawColor(Color.BLACK);
+        if (tile == null) {
+            return;
+        }
+        Bitmap bitmap = tile.getFrontBitmap();
+        if (bitmap != null && !bitmap.isRecycled()) {
+            float scale = Math.min((float) getWidth() / bitmap.getWidth(), (float) getHeight() / bitmap.getHeight());
+            int drawWidth = Math.round(bitmap.getWidth() * scale);
+            int drawHeight = Math.round(bitmap.getHeight() * scale);
+            int left = (getWidth() - drawWidth) / 2;
+            int top = (getHeight() - drawHeight) / 2;
+            destRect.set(left, top, left + drawWidth, top + drawHeight);
+            canvas.drawBitmap(bitmap, null, destRect, bitmapPaint);
+        }
+
+        float y = textSize * 1.2f;
+        canvas.drawText(tile.getCamera().getName(), textSize / 2, y, textPaint);
+        y += textSize * 1.2f;
+        canvas.drawText(tile.getStats().getSummary(tile.getFpsCap()), textSize / 2, y, textPaint);
+        String status = tile.getStatus();
+        if (status != null) {
+            y += textSize * 1.2f;
+            canvas.drawText(status, textSize / 2, y, textPaint);
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.cameradetector.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 设备筛选索引 - 为设备列表维护厂商、端口、类型、状态的二级索引和按IP排序的有序集合，
+ * 每次检测结果到达时增量更新；查询时先取最小的索引集合，再用预先计算的字段逐个检查，
+ * 不必在每次输入时重新遍历整个列表。
+ * 非线程安全，需在主线程中调用
+ */
+public class DeviceFilterIndex {
+
+    public enum Sort {
+        IP, VENDOR, CONFIDENCE
+    }
+
+    /**
+     * 筛选条件，字段为null（端口为0）表示不限
+     */
+    public static class Query {
+        String vendor;
+        int port;
+        CameraInfo.CameraType type;
+        String status;
+        String text;
+        Sort sort = Sort.IP;
+
+        public boolean isEmpty() {
+            return vendor == null && port == 0 && type == null && status == null && text == null;
+        }
+
+        /**
+         * 解析搜索框内容，支持 vendor:/厂商: port:/端口: type:/类型: status:/状态: 前缀，其余为自由文本
+         */
+        public static Query parse(String input, Sort sort) {
+            Query query = new Query();
+            query.sort = sort;
+            StringBuilder text = new StringBuilder();
+            for (String token : input.trim().split("\\s+")) {
+                int colon = token.indexOf(':');
+                if (colon < 0) {
+                    colon = token.indexOf('：');
+                }
+                String key = colon > 0 ? token.substring(0, colon).toLowerCase(Locale.US) : "";
+                String value = colon > 0 ? token.substring(colon + 1) : token;
+                if (value.isEmpty()) {
+                    continue;
+                }
+                if ("vendor".equals(key) || "厂商".equals(key)) {
+                    query.vendor = value.toLowerCase(Locale.US);
+                } else if ("port".equals(key) || "端口".equals(key)) {
+                    try {
+                        query.port = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        // 忽略无效端口
+                    }
+                } else if ("type".equals(key) || "类型".equals(key)) {
+                    query.type = parseType(value);
+                } else if ("status".equals(key) || "状态".equals(key)) {
+                    query.status = value;
+                } else {
+                    if (text.length() > 0) {
+                        text.append(' ');
+                    }
+                    text.append(value.toLowerCase(Locale.US));
+                }
+            }
+            query.text = text.length() > 0 ? text.toString() : null;
+            return query;
+        }
+
+        private static CameraInfo.CameraType parseType(String value) {
+            String lower = value.toLowerCase(Locale.US);
+            if (lower.startsWith("local") || value.startsWith("本地")) {
+                return CameraInfo.CameraType.LOCAL;
+            } else if (lower.startsWith("net") || value.startsWith("网络")) {
+                return CameraInfo.CameraType.NETWORK;
+            } else if (lower.startsWith("blue") || value.startsWith("蓝牙")) {
+                return CameraInfo.CameraType.BLUETOOTH;
+            }
+            return null;
+        }
+
+        // 除自由文本外的条件是否相同，且文本是在上一次基础上追加输入
+        boolean refines(Query previous) {
+            return previous != null
+                    && equal(vendor, previous.vendor) && port == previous.port
+                    && type == previous.type && equal(status, previous.status) && sort == previous.sort
+                    && (previous.text == null || (text != null && text.startsWith(previous.text)));
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * 设备的索引键快照，更新时按旧快照从索引中移除
+     */
+    private static class Entry {
+        final CameraInfo camera;
+        final String vendorKey;
+        final int[] ports;
+        final CameraInfo.CameraType type;
+        final String status;
+        final int ipFamily;
+        final long ipValue;
+        final String ipText;
+        final float confidence;
+        final String searchText;
+        final long order;
+
+        Entry(CameraInfo camera, long order) {
+            this.camera = camera;
+            this.order = order;
+            String manufacturer = camera.getManufacturer();
+            this.vendorKey = manufacturer != null ? manufacturer.toLowerCase(Locale.US) : "";
+            List<CameraInfo.Service> services = camera.getServices();
+            if (services.isEmpty() && camera.getPort() > 0) {
+                this.ports = new int[]{camera.getPort()};
+            } else {
+                this.ports = new int[services.size()];
+                for (int i = 0; i < ports.length; i++) {
+                    ports[i] = services.get(i).port;
+                }
+            }
+            this.type = camera.getType();
+            this.status = camera.getStatusString();
+            this.ipText = camera.getIpAddress();
+            long ipv4 = parseIpv4(ipText);
+            this.ipFamily = ipText == null ? 2 : ipv4 >= 0 ? 0 : 1;
+            this.ipValue = ipv4;
+            this.confidence = camera.getConfidence();
+            this.searchText = buildSearchText(camera);
+        }
+    }
+
+    private static final Comparator<Entry> IP_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            if (a.ipFamily != b.ipFamily) {
+                return a.ipFamily < b.ipFamily ? -1 : 1;
+            }
+            int result = a.ipFamily == 0 ? Long.compare(a.ipValue, b.ipValue)
+                    : a.ipFamily == 1 ? a.ipText.compareTo(b.ipText) : 0;
+            return result != 0 ? result : Long.compare(a.order, b.order);
+        }
+    };
+
+    private static final Comparator<Entry> VENDOR_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            // 未知厂商排在最后
+            if (a.vendorKey.isEmpty() != b.vendorKey.isEmpty()) {
+                return a.vendorKey.isEmpty() ? 1 : -1;
+            }
+            int result = a.vendorKey.compareTo(b.vendorKey);
+            return result != 0 ? result : IP_ORDER.compare(a, b);
+        }
+    };
+
+    private static final Comparator<Entry> CONFIDENCE_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int result = Float.compare(b.confidence, a.confidence);
+            return result != 0 ? result : IP_ORDER.compare(a, b);
+        }
+    };
+
+    private final Map<CameraInfo, Entry> entries = new IdentityHashMap<>();
+    private final Map<String, Set<Entry>> byVendor = new HashMap<>();
+    private final Map<Integer, Set<Entry>> byPort = new HashMap<>();
+    private final Map<CameraInfo.CameraType, Set<Entry>> byType = new EnumMap<>(CameraInfo.CameraType.class);
+    private final Map<String, Set<Entry>> byStatus = new HashMap<>();
+    private final TreeSet<Entry> ipOrder = new TreeSet<>(IP_ORDER);
+
+    private long nextOrder = 0;
+    private long version = 0;
+
+    // 上一次查询的结果，输入在此基础上追加时只在这些结果中继续筛选
+    private Query lastQuery;
+    private long lastVersion = -1;
+    private List<Entry> lastResult;
+
+    /**
+     * 新增或更新一台设备的索引
+     */
+    public void update(CameraInfo camera) {
+        Entry old = entries.remove(camera);
+        if (old != null) {
+            unindex(old);
+        }
+        Entry entry = new Entry(camera, old != null ? old.order : nextOrder++);
+        entries.put(camera, entry);
+        add(byVendor, entry.vendorKey, entry);
+        for (int port : entry.ports) {
+            add(byPort, port, entry);
+        }
+        add(byType, entry.type, entry);
+        add(byStatus, entry.status, entry);
+        ipOrder.add(entry);
+        version++;
+    }
+
+    public void remove(CameraInfo camera) {
+        Entry old = entries.remove(camera);
+        if (old != null) {
+            unindex(old);
+            version++;
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        byVendor.clear();
+        byPort.clear();
+        byType.clear();
+        byStatus.clear();
+        ipOrder.clear();
+        version++;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 按条件筛选并排序
+     */
+    public List<CameraInfo> query(Query query) {
+        List<Entry> result;
+        if (query.refines(lastQuery) && lastVersion == version && query.text != null) {
+            result = new ArrayList<>(lastResult.size());
+            for (Entry entry : lastResult) {
+                if (entry.searchText.contains(query.text)) {
+                    result.add(entry);
+                }
+            }
+        } else {
+            result = evaluate(query);
+        }
+        lastQuery = query;
+        lastVersion = version;
+        lastResult = result;
+
+        List<CameraInfo> cameras = new ArrayList<>(result.size());
+        for (Entry entry : result) {
+            cameras.add(entry.camera);
+        }
+        return cameras;
+    }
+
+    private List<Entry> evaluate(Query query) {
+        // 取最小的候选集合
+        Set<Entry> candidates = null;
+        if (query.port > 0) {
+            candidates = smaller(candidates, get(byPort, query.port));
+        }
+        if (query.type != null) {
+            candidates = smaller(candidates, get(byType, query.type));
+        }
+        if (query.status != null) {
+            candidates = smaller(candidates, get(byStatus, query.status));
+        }
+        if (query.vendor != null) {
+            candidates = smaller(candidates, vendorMatches(query.vendor));
+        }
+
+        List<Entry> result = new ArrayList<>();
+        if (query.sort == Sort.IP && (candidates == null || candidates.size() * 8 >= entries.size())) {
+            // 候选较多时直接按IP有序集合遍历，免去排序
+            for (Entry entry : ipOrder) {
+                if ((candidates == null || candidates.contains(entry)) && matches(entry, query)) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+
+        for (Entry entry : candidates != null ? candidates : entries.values()) {
+            if (matches(entry, query)) {
+                result.add(entry);
+            }
+        }
+        Collections.sort(result, query.sort == Sort.VENDOR ? VENDOR_ORDER
+                : query.sort == Sort.CONFIDENCE ? CONFIDENCE_ORDER : IP_ORDER);
+        return result;
+    }
+
+    private boolean matches(Entry entry, Query query) {
+        if (query.port > 0 && !contains(entry.ports, query.port)) {
+            return false;
+        }
+        if (query.type != null && entry.type != query.type) {
+            return false;
+        }
+        if (query.status != null && !query.status.equals(entry.status)) {
+            return false;
+        }
+        if (query.vendor != null && !entry.vendorKey.contains(query.vendor)) {
+            return false;
+        }
+        return query.text == null || entry.searchText.contains(query.text);
+    }
+
+    // 厂商按包含匹配，合并所有匹配的厂商集合（厂商种类很少）
+    private Set<Entry> vendorMatches(String vendor) {
+        Set<Entry> union = null;
+        boolean copied = false;
+        for (Map.Entry<String, Set<Entry>> item : byVendor.entrySet()) {
+            if (!item.getKey().contains(vendor)) {
+                continue;
+            }
+            if (union == null) {
+                union = item.getValue();
+            } else {
+                // 合并到新集合，不修改索引本身
+                if (!copied) {
+                    union = new HashSet<>(union);
+                    copied = true;
+                }
+                union.addAll(item.getValue());
+            }
+        }
+        return union != null ? union : Collections.<Entry>emptySet();
+    }
+
+    private void unindex(Entry entry) {
+        remove(byVendor, entry.vendorKey, entry);
+        for (int port : entry.ports) {
+            remove(byPort, port, entry);
+        }
+        remove(byType, entry.type, entry);
+        remove(byStatus, entry.status, entry);
+        ipOrder.remove(entry);
+    }
+
+    private static <K> void add(Map<K, Set<Entry>> index, K key, Entry entry) {
+        Set<Entry> set = index.get(key);
+        if (set == null) {
+            set = new HashSet<>();
+            index.put(key, set);
+        }
+        set.add(entry);
+    }
+
+    private static <K> void remove(Map<K, Set<Entry>> index, K key, Entry entry) {
+        Set<Entry> set = index.get(key);
+        if (set != null) {
+            set.remove(entry);
+            if (set.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static <K> Set<Entry> get(Map<K, Set<Entry>> index, K key) {
+        Set<Entry> set = index.get(key);
+        return set != null ? set : Collections.<Entry>emptySet();
+    }
+
+    private static Set<Entry> smaller(Set<Entry> a, Set<Entry> b) {
+        return a == null || b.size() < a.size() ? b : a;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String buildSearchText(CameraInfo camera) {
+        StringBuilder text = new StringBuilder();
+        append(text, camera.getName());
+        append(text, camera.getIpAddress());
+        append(text, camera.getManufacturer());
+        append(text, camera.getModel());
+        append(text, camera.getMacAddress());
+        append(text, camera.getDescription());
+        return text.toString().toLowerCase(Locale.US);
+    }
+
+    private static void append(StringBuilder text, String value) {
+        if (value != null) {
+            text.append(value).append('\n');
+        }
+    }
+
+    // IPv4地址转为无符号整数，不是IPv4时返回-1
+    private static long parseIpv4(String ip) {
+        if (ip == null) {
+            return -1;
+        }
+        long value = 0;
+        int octet = 0;
+        int dots = 0;
+        int digits = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                value = (value << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        return dots == 3 && digits > 0 ? (value << 8) | octet : -1;
+    }
+}
@@ -0,0 +1,160 @@
+package com.cameradetector.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 设备索引 - 把同一物理设备的多个端点合并为一条设备记录
+ * 优先按MAC地址归并，没有MAC时按IP归并，两者都没有的（如本地摄像头）按id归并；
+ * 每次检测结果到达时增量合并，查找为O(1)
+ * 非线程安全，跨线程使用时由 {@link DeviceRepository} 加锁
+ */
+public class DeviceIndex {
+
+    private final Map<String, CameraInfo> devicesByMac = new HashMap<>();
+    private final Map<String, CameraInfo> devicesByIp = new HashMap<>();
+    private final Map<String, CameraInfo> devicesById = new HashMap<>();
+    private final List<CameraInfo> devices = new ArrayList<>();
+
+    /**
+     * 合并一个新检测到的端点
+     * @return 如果是新设备返回true（调用方应新增一行），否则端点已合并到已有设备记录
+     */
+    public boolean merge(CameraInfo endpoint) {
+        String mac = normalizeMac(endpoint.getMacAddress());
+        String ip = endpoint.getIpAddress();
+
+        CameraInfo device = null;
+        if (mac != null) {
+            device = devicesByMac.get(mac);
+        }
+        if (device == null && ip != null) {
+            device = devicesByIp.get(ip);
+        }
+        if (device == null && mac == null && ip == null && endpoint.getId() != null) {
+            device = devicesById.get(endpoint.getId());
+        }
+
+        if (device == null) {
+            if (endpoint.getServices().isEmpty() && endpoint.getPort() > 0) {
+                endpoint.addService(endpoint.getPort(), endpoint.getStreamPath());
+            }
+            if (ip != null && endpoint.getType() == CameraInfo.CameraType.NETWORK) {
+                endpoint.setId(ip);
+            }
+            index(endpoint, mac, ip);
+            if (mac == null && ip == null && endpoint.getId() != null) {
+                devicesById.put(endpoint.getId(), endpoint);
+            }
+            devices.add(endpoint);
+            return true;
+        }
+
+        mergeInto(device, endpoint);
+        index(device, mac, ip);
+        return false;
+    }
+
+    /**
+     * 按MAC或IP查找设备记录
+     */
+    public CameraInfo find(String macOrIp) {
+        String mac = normalizeMac(macOrIp);
+        CameraInfo device = mac != null ? devicesByMac.get(mac) : null;
+        return device != null ? device : devicesByIp.get(macOrIp);
+    }
+
+    /**
+     * 按id查找没有MAC和IP的设备记录
+     */
+    public CameraInfo findById(String id) {
+        return devicesById.get(id);
+    }
+
+    /**
+     * 移除一条设备记录（例如验证扫描没有再发现的缓存设备）
+     * @return 记录存在并已移除时返回true
+     */
+    public boolean remove(CameraInfo device) {
+        if (!devices.remove(device)) {
+            return false;
+        }
+        devicesByMac.values().removeAll(Collections.singleton(device));
+        devicesByIp.values().removeAll(Collections.singleton(device));
+        devicesById.values().removeAll(Collections.singleton(device));
+        return true;
+    }
+
+    public List<CameraInfo> getDevices() {
+        return devices;
+    }
+
+    public int size() {
+        return devices.size();
+    }
+
+    public void clear() {
+        devicesByMac.clear();
+        devicesByIp.clear();
+        devicesById.clear();
+        devices.clear();
+    }
+
+    private void index(CameraInfo device, String mac, String ip) {
+        if (mac != null) {
+            devicesByMac.put(mac, device);
+        }
+        if (ip != null) {
+            devicesByIp.put(ip, device);
+        }
+    }
+
+    private void mergeInto(CameraInfo device, CameraInfo endpoint) {
+        // 缓存中的设备被本次扫描再次发现，确认仍然存在
+        if (device.isUnverified() && !endpoint.isUnverified()) {
+            device.setUnverified(false);
+        }
+        // 仅凭MAC厂商提前显示的设备，收到第一个确认的端点后以它作为主端点
+        if (device.getPort() <= 0 && endpoint.getPort() > 0) {
+            device.setPort(endpoint.getPort());
+            device.setStreamPath(endpoint.getStreamPath());
+            device.setName(endpoint.getName());
+            device.setDescription(endpoint.getDescription());
+        }
+        if (endpoint.getServices().isEmpty() && endpoint.getPort() > 0) {
+            device.addService(endpoint.getPort(), endpoint.getStreamPath());
+        } else {
+            for (CameraInfo.Service service : endpoint.getServices()) {
+                device.addService(service.port, service.path);
+            }
+        }
+
+        if (device.getMacAddress() == null && endpoint.getMacAddress() != null) {
+            device.setMacAddress(endpoint.getMacAddress());
+        }
+        if (device.getManufacturer() == null && endpoint.getManufacturer() != null) {
+            device.setManufacturer(endpoint.getManufacturer());
+            device.setName(endpoint.getName());
+        }
+        if (device.getNetworkInterface() == null && endpoint.getNetworkInterface() != null) {
+            device.setNetworkInterface(endpoint.getNetworkInterface());
+        }
+        if (device.getModel() == null && endpoint.getModel() != null) {
+            device.setModel(endpoint.getModel());
+        }
+        device.setAccessible(device.isAccessible() || endpoint.isAccessible());
+        device.setHasPermission(device.hasPermission() || endpoint.hasPermission());
+    }
+
+    private static String normalizeMac(String mac) {
+        if (mac == null || mac.length() != 17 || mac.charAt(2) != ':' || mac.charAt(14) != ':'
+                || "00:00:00:00:00:00".equals(mac)) {
+            return null;
+        }
+        return mac.toLowerCase(Locale.US);
+    }
+}
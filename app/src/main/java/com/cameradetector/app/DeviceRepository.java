@@ -0,0 +1,168 @@
+package com.cameradetector.app;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内设备仓库 - 保存每台设备唯一的 CameraInfo 记录，按id查找
+ * 扫描结果、访问测试和控制会话都修改同一个对象，Activity之间只传递设备id，不再序列化整条记录。
+ * 线程安全；观察者回调总在主线程执行
+ */
+public final class DeviceRepository {
+
+    /**
+     * 设备变化观察者
+     */
+    public interface Observer {
+        void onDeviceAdded(CameraInfo camera);
+        void onDeviceChanged(CameraInfo camera);
+        void onDeviceRemoved(CameraInfo camera);
+        void onDevicesCleared();
+    }
+
+    private static final DeviceRepository instance = new DeviceRepository();
+
+    private final DeviceIndex index = new DeviceIndex();
+    private final Map<String, CameraInfo> devicesById = new HashMap<>();
+    private final CopyOnWriteArrayList<Observer> observers = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private DeviceRepository() {
+    }
+
+    public static DeviceRepository getInstance() {
+        return instance;
+    }
+
+    /**
+     * 合并一个检测到的端点，返回该设备的唯一记录
+     */
+    public CameraInfo merge(CameraInfo endpoint) {
+        CameraInfo device;
+        boolean added;
+        synchronized (this) {
+            added = index.merge(endpoint);
+            device = added ? endpoint : index.find(endpoint.getMacAddress());
+            if (device == null) {
+                device = index.find(endpoint.getIpAddress());
+            }
+            if (device == null) {
+                device = index.findById(endpoint.getId());
+            }
+            if (device.getId() != null) {
+                devicesById.put(device.getId(), device);
+            }
+        }
+        if (added) {
+            dispatchAdded(device);
+        } else {
+            notifyChanged(device);
+        }
+        return device;
+    }
+
+    /**
+     * 按id获取设备记录，不存在时返回null
+     */
+    public synchronized CameraInfo get(String id) {
+        return id != null ? devicesById.get(id) : null;
+    }
+
+    /**
+     * 按id批量获取，忽略已不存在的id
+     */
+    public synchronized List<CameraInfo> getAll(List<String> ids) {
+        List<CameraInfo> devices = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            CameraInfo device = devicesById.get(id);
+            if (device != null) {
+                devices.add(device);
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * 当前全部设备的快照
+     */
+    public synchronized List<CameraInfo> getDevices() {
+        return new ArrayList<>(index.getDevices());
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * 移除一台设备（例如验证扫描没有再发现的缓存设备）
+     */
+    public void remove(CameraInfo device) {
+        synchronized (this) {
+            if (!index.remove(device)) {
+                return;
+            }
+            if (device.getId() != null && devicesById.get(device.getId()) == device) {
+                devicesById.remove(device.getId());
+            }
+        }
+        dispatch(() -> {
+            for (Observer observer : observers) {
+                observer.onDeviceRemoved(device);
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (this) {
+            index.clear();
+            devicesById.clear();
+        }
+        dispatch(() -> {
+            for (Observer observer : observers) {
+                observer.onDevicesCleared();
+            }
+        });
+    }
+
+    /**
+     * 直接修改了某条记录（凭据、权限、访问状态等）后调用，通知观察者刷新
+     */
+    public void notifyChanged(CameraInfo camera) {
+        dispatch(() -> {
+            for (Observer observer : observers) {
+                observer.onDeviceChanged(camera);
+            }
+        });
+    }
+
+    public void addObserver(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    private void dispatchAdded(CameraInfo camera) {
+        dispatch(() -> {
+            for (Observer observer : observers) {
+                observer.onDeviceAdded(camera);
+            }
+        });
+    }
+
+    // 已在主线程时直接回调，保证调用方返回时界面已经更新
+    private void dispatch(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            mainHandler.post(runnable);
+        }
+    }
+}
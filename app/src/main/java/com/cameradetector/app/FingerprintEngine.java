@@ -0,0 +1,507 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 指纹规则引擎 - 根据HTTP响应头、页面内容、认证realm、路径和端口识别摄像头厂商
+ * 规则来自 assets/fingerprints.json，加载时按检查的字段分组编译：
+ * 文本字段的所有关键词合并为一个多模式匹配自动机，路径和端口使用哈希索引，
+ * 因此每次探测的匹配开销只与响应内容长度有关，与规则数量无关
+ */
+public final class FingerprintEngine {
+
+    private static final String TAG = "FingerprintEngine";
+    private static final String ASSET_NAME = "fingerprints.json";
+
+    // 厂商关键词自动生成的规则置信度
+    private static final float KEYWORD_SERVER_CONFIDENCE = 0.8f;
+    private static final float KEYWORD_BODY_CONFIDENCE = 0.6f;
+
+    private static final String FIELD_BODY = "body";
+    private static final String FIELD_REALM = "realm";
+
+    private static volatile FingerprintEngine instance;
+
+    private final List<CompiledRule> rules = new ArrayList<>();
+    private final Map<String, KeywordMatcher> textMatchers = new HashMap<>();
+    private final Map<String, List<Integer>> pathIndex = new HashMap<>();
+    private final Map<Integer, List<Integer>> portIndex = new HashMap<>();
+    private final KeywordMatcher vendorMatcher = new KeywordMatcher();
+    private final List<VendorSpec> vendors = new ArrayList<>();
+    // 每个扫描线程复用一份命中计数，match 不再按规则数分配数组
+    private final ThreadLocal<Hits> scratch = new ThreadLocal<>();
+
+    /**
+     * 规则文件结构（Gson映射）
+     */
+    static class RuleFile {
+        List<VendorSpec> vendors;
+        List<RuleSpec> rules;
+    }
+
+    static class VendorSpec {
+        String name;
+        List<String> keywords;
+        String commandSet;
+    }
+
+    static class RuleSpec {
+        String vendor;
+        String family;
+        float confidence;
+        Map<String, String> headers;
+        List<String> body;
+        String realm;
+        String path;
+        Integer port;
+    }
+
+    /**
+     * 一次探测获得的待匹配数据
+     */
+    public static class Probe {
+        public int port;
+        public String path;
+        public Map<String, List<String>> headers;
+        public String body;
+    }
+
+    /**
+     * 匹配结果
+     */
+    public static class Result {
+        public final String vendor;
+        public final String family;
+        public final float confidence;
+
+        Result(String vendor, String family, float confidence) {
+            this.vendor = vendor;
+            this.family = family;
+            this.confidence = confidence;
+        }
+    }
+
+    private static class CompiledRule {
+        final String vendor;
+        final String family;
+        final float confidence;
+        final int conditionCount;
+
+        CompiledRule(String vendor, String family, float confidence, int conditionCount) {
+            this.vendor = vendor;
+            this.family = family;
+            this.confidence = confidence;
+            this.conditionCount = conditionCount;
+        }
+    }
+
+    private FingerprintEngine(RuleFile file) {
+        if (file.vendors != null) {
+            for (VendorSpec vendor : file.vendors) {
+                compileVendor(vendor);
+            }
+        }
+        if (file.rules != null) {
+            for (RuleSpec rule : file.rules) {
+                compileRule(rule);
+            }
+        }
+        for (KeywordMatcher matcher : textMatchers.values()) {
+            matcher.build();
+        }
+        vendorMatcher.build();
+    }
+
+    /**
+     * 获取引擎实例，首次调用时加载并编译规则；加载失败时返回不含规则的引擎
+     */
+    public static FingerprintEngine getInstance(Context context) {
+        FingerprintEngine engine = instance;
+        if (engine == null) {
+            synchronized (FingerprintEngine.class) {
+                engine = instance;
+                if (engine == null) {
+                    engine = load(context.getApplicationContext());
+                    instance = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    private static FingerprintEngine load(Context context) {
+        long start = System.nanoTime();
+        try (Reader reader = new InputStreamReader(context.getAssets().open(ASSET_NAME), Charset.forName("UTF-8"))) {
+            FingerprintEngine engine = fromReader(reader);
+            Log.d(TAG, "编译指纹规则: " + engine.rules.size() + " 条, 耗时 "
+                    + (System.nanoTime() - start) / 1000 + "us");
+            return engine;
+        } catch (IOException | JsonParseException e) {
+            Log.e(TAG, "加载指纹规则失败: " + e.getMessage());
+            return new FingerprintEngine(new RuleFile());
+        }
+    }
+
+    static FingerprintEngine fromReader(Reader reader) {
+        RuleFile file = new Gson().fromJson(reader, RuleFile.class);
+        return new FingerprintEngine(file != null ? file : new RuleFile());
+    }
+
+    private void compileVendor(VendorSpec vendor) {
+        if (vendor.name == null || vendor.keywords == null) {
+            return;
+        }
+        int vendorIndex = vendors.size();
+        vendors.add(vendor);
+        vendorMatcher.add(vendor.name, vendorIndex);
+        for (String keyword : vendor.keywords) {
+            vendorMatcher.add(keyword, vendorIndex);
+            // 厂商关键词同时作为Server头和页面内容规则
+            addTextCondition("header:server", keyword, addRule(vendor.name, null, KEYWORD_SERVER_CONFIDENCE, 1));
+            addTextCondition(FIELD_BODY, keyword, addRule(vendor.name, null, KEYWORD_BODY_CONFIDENCE, 1));
+        }
+    }
+
+    private void compileRule(RuleSpec spec) {
+        if (spec.vendor == null) {
+            return;
+        }
+        int conditions = (spec.headers != null ? spec.headers.size() : 0)
+                + (spec.body != null ? spec.body.size() : 0)
+                + (spec.realm != null ? 1 : 0)
+                + (spec.path != null ? 1 : 0)
+                + (spec.port != null ? 1 : 0);
+        if (conditions == 0) {
+            Log.w(TAG, "忽略没有匹配条件的规则: " + spec.vendor);
+            return;
+        }
+        int ruleId = addRule(spec.vendor, spec.family, spec.confidence, conditions);
+        if (spec.headers != null) {
+            for (Map.Entry<String, String> header : spec.headers.entrySet()) {
+                addTextCondition("header:" + header.getKey().toLowerCase(Locale.US), header.getValue(), ruleId);
+            }
+        }
+        if (spec.body != null) {
+            for (String pattern : spec.body) {
+                addTextCondition(FIELD_BODY, pattern, ruleId);
+            }
+        }
+        if (spec.realm != null) {
+            addTextCondition(FIELD_REALM, spec.realm, ruleId);
+        }
+        if (spec.path != null) {
+            index(pathIndex, spec.path, ruleId);
+        }
+        if (spec.port != null) {
+            index(portIndex, spec.port, ruleId);
+        }
+    }
+
+    private int addRule(String vendor, String family, float confidence, int conditionCount) {
+        rules.add(new CompiledRule(vendor, family, Math.max(0f, Math.min(1f, confidence)), conditionCount));
+        return rules.size() - 1;
+    }
+
+    private void addTextCondition(String field, String pattern, int ruleId) {
+        KeywordMatcher matcher = textMatchers.get(field);
+        if (matcher == null) {
+            matcher = new KeywordMatcher();
+            textMatchers.put(field, matcher);
+        }
+        matcher.add(pattern, ruleId);
+    }
+
+    private static <K> void index(Map<K, List<Integer>> index, K key, int ruleId) {
+        List<Integer> ids = index.get(key);
+        if (ids == null) {
+            ids = new ArrayList<>(1);
+            index.put(key, ids);
+        }
+        ids.add(ruleId);
+    }
+
+    /**
+     * 对一次探测结果执行全部规则
+     * @return 置信度最高的厂商，未匹配时返回null
+     */
+    public Result match(Probe probe) {
+        Hits hits = scratch.get();
+        if (hits == null || hits.size() < rules.size()) {
+            hits = new Hits(rules.size());
+            scratch.set(hits);
+        }
+        try {
+            return match(probe, hits);
+        } finally {
+            hits.reset();
+        }
+    }
+
+    private Result match(Probe probe, Hits hits) {
+
+        if (probe.headers != null) {
+            for (Map.Entry<String, List<String>> header : probe.headers.entrySet()) {
+                if (header.getKey() == null || header.getValue() == null) {
+                    continue;
+                }
+                String name = header.getKey().toLowerCase(Locale.US);
+                KeywordMatcher matcher = textMatchers.get("header:" + name);
+                for (String value : header.getValue()) {
+                    if (matcher != null) {
+                        matcher.match(value, hits);
+                    }
+                    if ("www-authenticate".equals(name)) {
+                        String realm = extractRealm(value);
+                        KeywordMatcher realmMatcher = textMatchers.get(FIELD_REALM);
+                        if (realm != null && realmMatcher != null) {
+                            realmMatcher.match(realm, hits);
+                        }
+                    }
+                }
+            }
+        }
+        KeywordMatcher bodyMatcher = textMatchers.get(FIELD_BODY);
+        if (probe.body != null && bodyMatcher != null) {
+            bodyMatcher.match(probe.body, hits);
+        }
+        if (probe.path != null) {
+            count(pathIndex.get(probe.path), hits);
+        }
+        if (probe.port > 0) {
+            count(portIndex.get(probe.port), hits);
+        }
+
+        return bestResult(hits);
+    }
+
+    private static void count(List<Integer> ids, Hits hits) {
+        if (ids != null) {
+            for (int id : ids) {
+                hits.add(id);
+            }
+        }
+    }
+
+    // 同一厂商的多条命中规则按独立证据合并置信度: 1 - Π(1 - c)；只看有命中的规则
+    private Result bestResult(Hits hits) {
+        if (hits.touchedCount == 0) {
+            return null;
+        }
+        // 按规则顺序处理，置信度相同时的选择与规则文件中的顺序一致
+        Arrays.sort(hits.touched, 0, hits.touchedCount);
+        Map<String, float[]> missByVendor = new HashMap<>();
+        Map<String, CompiledRule> familyByVendor = new HashMap<>();
+        for (int t = 0; t < hits.touchedCount; t++) {
+            int i = hits.touched[t];
+            CompiledRule rule = rules.get(i);
+            if (hits.counts[i] < rule.conditionCount) {
+                continue;
+            }
+            float[] miss = missByVendor.get(rule.vendor);
+            if (miss == null) {
+                miss = new float[]{1f};
+                missByVendor.put(rule.vendor, miss);
+            }
+            miss[0] *= 1f - rule.confidence;
+            CompiledRule best = familyByVendor.get(rule.vendor);
+            if (rule.family != null && (best == null || rule.confidence > best.confidence)) {
+                familyByVendor.put(rule.vendor, rule);
+            }
+        }
+
+        Result result = null;
+        for (Map.Entry<String, float[]> entry : missByVendor.entrySet()) {
+            float confidence = 1f - entry.getValue()[0];
+            if (result == null || confidence > result.confidence) {
+                CompiledRule family = familyByVendor.get(entry.getKey());
+                result = new Result(entry.getKey(), family != null ? family.family : null, confidence);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 根据厂商名称等文本返回对应的控制命令集（如 hikvision、dahua、onvif），无法识别时返回null
+     */
+    public String commandSetFor(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        Hits hits = new Hits(vendors.size());
+        vendorMatcher.match(text, hits);
+        for (int i = 0; i < vendors.size(); i++) {
+            if (hits.count(i) > 0) {
+                return vendors.get(i).commandSet;
+            }
+        }
+        return null;
+    }
+
+    private static String extractRealm(String header) {
+        int start = header.toLowerCase(Locale.US).indexOf("realm=\"");
+        if (start < 0) {
+            return null;
+        }
+        start += 7;
+        int end = header.indexOf('"', start);
+        return end > start ? header.substring(start, end) : header.substring(start);
+    }
+
+    /**
+     * 按规则id的命中计数，同时记下被命中过的id，reset 只清理这些位置
+     */
+    static final class Hits {
+        final int[] counts;
+        final int[] touched;
+        int touchedCount = 0;
+
+        Hits(int size) {
+            counts = new int[size];
+            touched = new int[size];
+        }
+
+        int size() {
+            return counts.length;
+        }
+
+        void add(int id) {
+            if (id >= counts.length) {
+                return;
+            }
+            if (counts[id]++ == 0) {
+                touched[touchedCount++] = id;
+            }
+        }
+
+        int count(int id) {
+            return id < counts.length ? counts[id] : 0;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                counts[touched[i]] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+
+    /**
+     * 大小写不敏感的多关键词匹配器（Aho-Corasick自动机），一次扫描文本即可找出所有命中的关键词
+     */
+    static class KeywordMatcher {
+        private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+        private final List<int[]> outputs = new ArrayList<>();
+        private final List<Integer> keywordIds = new ArrayList<>();
+        private int[] failure = new int[0];
+
+        KeywordMatcher() {
+            newState();
+        }
+
+        private int newState() {
+            transitions.add(new HashMap<>());
+            outputs.add(new int[0]);
+            return transitions.size() - 1;
+        }
+
+        void add(String keyword, int id) {
+            if (keyword == null || keyword.isEmpty()) {
+                return;
+            }
+            String lower = keyword.toLowerCase(Locale.US);
+            int state = 0;
+            for (int i = 0; i < lower.length(); i++) {
+                Character c = lower.charAt(i);
+                Integer next = transitions.get(state).get(c);
+                if (next == null) {
+                    next = newState();
+                    transitions.get(state).put(c, next);
+                }
+                state = next;
+            }
+            outputs.set(state, append(outputs.get(state), keywordIds.size()));
+            keywordIds.add(id);
+        }
+
+        void build() {
+            failure = new int[transitions.size()];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child : transitions.get(0).values()) {
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                    int child = edge.getValue();
+                    int fallback = failure[state];
+                    while (fallback > 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                        fallback = failure[fallback];
+                    }
+                    Integer target = transitions.get(fallback).get(edge.getKey());
+                    failure[child] = target != null && target != child ? target : 0;
+                    for (int id : outputs.get(failure[child])) {
+                        outputs.set(child, append(outputs.get(child), id));
+                    }
+                    queue.add(child);
+                }
+            }
+        }
+
+        /**
+         * 扫描文本，每个命中的关键词使对应id的计数加一（同一关键词多次出现只计一次）
+         */
+        void match(String text, Hits hits) {
+            boolean[] seen = null;
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                Character c = Character.toLowerCase(text.charAt(i));
+                while (state > 0 && !transitions.get(state).containsKey(c)) {
+                    state = failure[state];
+                }
+                Integer next = transitions.get(state).get(c);
+                state = next != null ? next : 0;
+                int[] ids = outputs.get(state);
+                if (ids.length == 0) {
+                    continue;
+                }
+                if (seen == null) {
+                    seen = new boolean[keywordIds.size()];
+                }
+                for (int keyword : ids) {
+                    if (!seen[keyword]) {
+                        seen[keyword] = true;
+                        hits.add(keywordIds.get(keyword));
+                    }
+                }
+            }
+        }
+
+        private static int[] append(int[] ids, int id) {
+            for (int existing : ids) {
+                if (existing == id) {
+                    return ids;
+                }
+            }
+            int[] result = new int[ids.length + 1];
+            System.arraycopy(ids, 0, result, 0, ids.length);
+            result[ids.length] = id;
+            return result;
+        }
+    }
+}
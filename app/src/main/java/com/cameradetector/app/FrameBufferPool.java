@@ -0,0 +1,65 @@
+package com.cameradetector.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 所有网格画面共享的帧缓冲池 - 压缩帧从读流线程交给解码线程池时使用，解码后归还，
+ * 稳定运行后不再分配新数组。缓冲按64KB取整，取出时选能放下的最小一个。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public class FrameBufferPool {
+
+    private static final int GRANULARITY = 64 * 1024;
+
+    private final int maxPooledBytes;
+    private final List<byte[]> free = new ArrayList<>();
+    private int pooledBytes = 0;
+    private long allocations = 0;
+
+    public FrameBufferPool(int maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    public synchronized byte[] acquire(int minLength) {
+        int best = -1;
+        for (int i = 0; i < free.size(); i++) {
+            int length = free.get(i).length;
+            if (length >= minLength && (best < 0 || length < free.get(best).length)) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            byte[] buffer = free.remove(best);
+            pooledBytes -= buffer.length;
+            return buffer;
+        }
+        allocations++;
+        return new byte[(minLength + GRANULARITY - 1) / GRANULARITY * GRANULARITY];
+    }
+
+    /** 归还缓冲，池满时丢弃最小的缓冲给新缓冲让位 */
+    public synchronized void release(byte[] buffer) {
+        while (pooledBytes + buffer.length > maxPooledBytes && !free.isEmpty()) {
+            int smallest = 0;
+            for (int i = 1; i < free.size(); i++) {
+                if (free.get(i).length < free.get(smallest).length) {
+                    smallest = i;
+                }
+            }
+            if (free.get(smallest).length >= buffer.length) {
+                return;
+            }
+            pooledBytes -= free.remove(smallest).length;
+        }
+        if (pooledBytes + buffer.length <= maxPooledBytes) {
+            free.add(buffer);
+            pooledBytes += buffer.length;
+        }
+    }
+
+    /** 新分配的缓冲数，用于观察池是否够用 */
+    public synchronized long getAllocations() {
+        return allocations;
+    }
+}
@@ -0,0 +1,134 @@
+package com.cameradetector.app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网格模式共享的解码器 - 所有画面的JPEG解码都提交到 {@link AppExecutors#cpu()}（线程数等于CPU核数），
+ * 压缩帧缓冲和解码用的Bitmap都来自共享池，画面之间互相复用
+ */
+public class GridDecoder {
+
+    private static final String TAG = "GridDecoder";
+
+    private static final int MAX_POOLED_BUFFER_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_POOLED_BITMAP_BYTES = 32 * 1024 * 1024;
+
+    // 本网格提交的解码任务，关闭网格时取消
+    private final AppExecutors.TaskGroup tasks = AppExecutors.getInstance().newGroup("GridDecoder");
+    private final FrameBufferPool buffers = new FrameBufferPool(MAX_POOLED_BUFFER_BYTES);
+    private final BitmapPool bitmaps = new BitmapPool(MAX_POOLED_BITMAP_BYTES);
+
+    public int getThreadCount() {
+        return AppExecutors.getInstance().cpu().getMaximumPoolSize();
+    }
+
+    /** 解码池的排队任务数 */
+    public int getQueueDepth() {
+        return AppExecutors.getInstance().cpu().getQueue().size();
+    }
+
+    public FrameBufferPool getBuffers() {
+        return buffers;
+    }
+
+    public void execute(Runnable task) {
+        tasks.cpu(task);
+    }
+
+    /**
+     * 解码一帧并按目标尺寸降采样，优先复用池中的Bitmap；在解码线程调用，失败返回null
+     */
+    public Bitmap decode(byte[] data, int length, int targetWidth, int targetHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = MjpegView.sampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+
+        // 降采样后的尺寸向上取整估算，RGB_565 每像素2字节
+        int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+        options.inBitmap = bitmaps.acquire(width * height * 2);
+        try {
+            return BitmapFactory.decodeByteArray(data, 0, length, options);
+        } catch (IllegalArgumentException e) {
+            // 复用的Bitmap不满足解码要求，改为新分配
+            if (options.inBitmap != null) {
+                options.inBitmap.recycle();
+                options.inBitmap = null;
+            }
+            return BitmapFactory.decodeByteArray(data, 0, length, options);
+        }
+    }
+
+    /** 画面不再显示的Bitmap归还到池中 */
+    public void recycle(Bitmap bitmap) {
+        bitmaps.release(bitmap);
+    }
+
+    public void shutdown() {
+        tasks.cancel();
+        bitmaps.clear();
+    }
+
+    /**
+     * 可变Bitmap池，按字节数取能放下的最小一个；超过上限时回收最早放入的
+     */
+    static class BitmapPool {
+        private final int maxBytes;
+        private final List<Bitmap> free = new ArrayList<>();
+        private int pooledBytes = 0;
+
+        BitmapPool(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized Bitmap acquire(int minBytes) {
+            int best = -1;
+            for (int i = 0; i < free.size(); i++) {
+                int bytes = free.get(i).getAllocationByteCount();
+                if (bytes >= minBytes && (best < 0 || bytes < free.get(best).getAllocationByteCount())) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                return null;
+            }
+            Bitmap bitmap = free.remove(best);
+            pooledBytes -= bitmap.getAllocationByteCount();
+            return bitmap;
+        }
+
+        synchronized void release(Bitmap bitmap) {
+            if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+                return;
+            }
+            free.add(bitmap);
+            pooledBytes += bitmap.getAllocationByteCount();
+            while (pooledBytes > maxBytes && !free.isEmpty()) {
+                Bitmap evicted = free.remove(0);
+                pooledBytes -= evicted.getAllocationByteCount();
+                evicted.recycle();
+            }
+        }
+
+        synchronized void clear() {
+            for (Bitmap bitmap : free) {
+                bitmap.recycle();
+            }
+            Log.d(TAG, "释放 " + free.size() + " 个缓存Bitmap");
+            free.clear();
+            pooledBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.cameradetector.app;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 网格中的一个摄像头画面 - 读流线程按帧率上限挑帧交给共享解码器，解码未完成时只保留最新一帧；
+ * 不可见时断开连接。支持MJPEG流和单张JPEG快照地址（按帧率上限轮询）
+ */
+public class GridTile {
+
+    private static final String TAG = "GridTile";
+
+    private static final int CONNECT_TIMEOUT = 3000;
+    private static final int READ_TIMEOUT = 5000;
+    private static final int MAX_FRAME_SIZE = 4 * 1024 * 1024;
+    private static final long RETRY_DELAY_MS = 3000;
+
+    // 扫描结果中没有可用的HTTP路径时依次尝试
+    private static final String[] FALLBACK_PATHS = {
+        "/video.mjpg",
+        "/mjpg/video.mjpg",
+        "/cgi-bin/mjpg/video.cgi",
+        "/videostream.cgi",
+        "/snapshot.cgi",
+        "/image.jpg"
+    };
+
+    public interface Callback {
+        /** 主线程调用，画面内容或状态变化 */
+        void onTileUpdated(GridTile tile);
+    }
+
+    private final CameraInfo camera;
+    private final GridDecoder decoder;
+    private final Callback callback;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TileStats stats = new TileStats();
+
+    private volatile int fpsCap = 0;
+    private volatile int targetWidth;
+    private volatile int targetHeight;
+    private volatile String status = "等待连接";
+
+    private volatile boolean running = false;
+    private volatile HttpURLConnection connection;
+    private volatile Thread readerThread;
+    // 第一个能出画面的地址，重连时直接使用
+    private volatile String workingUrl;
+
+    // 解码交接：decoding 表示已有解码任务在线程池中，期间到达的帧只保留最新一个
+    private boolean decoding = false;
+    private byte[] pendingData;
+    private int pendingLength;
+
+    // 仅在主线程访问
+    private Bitmap frontBitmap;
+
+    public GridTile(CameraInfo camera, GridDecoder decoder, Callback callback) {
+        this.camera = camera;
+        this.decoder = decoder;
+        this.callback = callback;
+    }
+
+    public CameraInfo getCamera() {
+        return camera;
+    }
+
+    public TileStats getStats() {
+        return stats;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getFpsCap() {
+        return fpsCap;
+    }
+
+    /** 当前显示的帧，主线程调用 */
+    public Bitmap getFrontBitmap() {
+        return frontBitmap;
+    }
+
+    public void setTargetSize(int width, int height) {
+        targetWidth = width;
+        targetHeight = height;
+    }
+
+    /**
+     * 设置帧率上限，0表示不可见：断开连接；大于0时确保在播放
+     */
+    public void setFpsCap(int cap) {
+        fpsCap = cap;
+        if (cap > 0) {
+            resume();
+        } else {
+            pause();
+        }
+    }
+
+    public synchronized void resume() {
+        if (running) {
+            return;
+        }
+        running = true;
+        readerThread = new Thread(this::readLoop, "GridTile-" + camera.getIpAddress());
+        readerThread.start();
+    }
+
+    public synchronized void pause() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        readerThread.interrupt();
+        HttpURLConnection current = connection;
+        if (current != null) {
+            current.disconnect();
+        }
+        status = "已暂停";
+    }
+
+    /** 画面移出网格或退出时释放当前帧，主线程调用 */
+    public void releaseFrame() {
+        if (frontBitmap != null) {
+            decoder.recycle(frontBitmap);
+            frontBitmap = null;
+        }
+    }
+
+    // 暂停后马上恢复时旧的读流线程可能还没退出，只有当前线程继续读
+    private boolean active() {
+        return running && readerThread == Thread.currentThread();
+    }
+
+    private void readLoop() {
+        while (active()) {
+            List<String> urls = new ArrayList<>();
+            if (workingUrl != null) {
+                urls.add(workingUrl);
+            } else {
+                urls.addAll(candidateUrls());
+            }
+            boolean played = false;
+            for (String url : urls) {
+                if (!active()) {
+                    return;
+                }
+                try {
+                    if (play(url)) {
+                        played = true;
+                        break;
+                    }
+                } catch (IOException e) {
+                    if (active() && url.equals(workingUrl)) {
+                        Log.w(TAG, camera.getIpAddress() + " 连接中断: " + e.getMessage());
+                        played = true;
+                        break;
+                    }
+                }
+            }
+            if (!played) {
+                updateStatus("没有可用的MJPEG/JPEG地址");
+                return;
+            }
+            if (active()) {
+                updateStatus("重新连接...");
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 播放一个地址直到断开或暂停，地址不是MJPEG/JPEG时返回false
+     */
+    private boolean play(String url) throws IOException {
+        HttpURLConnection current = open(url);
+        try {
+            String contentType = current.getContentType();
+            String type = contentType != null ? contentType.toLowerCase(Locale.US) : "";
+            if (current.getResponseCode() != HttpURLConnection.HTTP_OK
+                    || (!type.startsWith("multipart/") && !type.startsWith("image/jpeg"))) {
+                return workingUrl != null && url.equals(workingUrl);
+            }
+            workingUrl = url;
+            updateStatus(null);
+            if (type.startsWith("multipart/")) {
+                readStream(current, MjpegParser.boundaryOf(contentType));
+            } else {
+                pollSnapshots(url, current);
+            }
+            return true;
+        } finally {
+            current.disconnect();
+        }
+    }
+
+    private void readStream(HttpURLConnection current, String boundary) throws IOException {
+        long lastSubmit = 0;
+        try (InputStream in = current.getInputStream()) {
+            MjpegParser parser = new MjpegParser(in, boundary, MAX_FRAME_SIZE);
+            int length;
+            while (active() && (length = parser.nextFrame()) > 0) {
+                // 流的帧率由摄像头决定，超过上限的帧读出后直接丢弃
+                long now = SystemClock.elapsedRealtime();
+                if (now - lastSubmit < TileFrameRate.intervalMs(fpsCap)) {
+                    stats.recordDropped();
+                    continue;
+                }
+                lastSubmit = now;
+                submit(parser.getBuffer(), parser.getFrameOffset(), length);
+            }
+        }
+    }
+
+    private void pollSnapshots(String url, HttpURLConnection first) throws IOException {
+        HttpURLConnection current = first;
+        while (active()) {
+            long start = SystemClock.elapsedRealtime();
+            try (InputStream in = current.getInputStream()) {
+                MjpegParser parser = new MjpegParser(in, null, MAX_FRAME_SIZE);
+                int length = parser.nextFrame();
+                if (length > 0) {
+                    submit(parser.getBuffer(), parser.getFrameOffset(), length);
+                }
+            } finally {
+                if (current != first) {
+                    current.disconnect();
+                }
+            }
+            long wait = TileFrameRate.intervalMs(fpsCap) - (SystemClock.elapsedRealtime() - start);
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            if (active()) {
+                current = open(url);
+            }
+        }
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection current = (HttpURLConnection) new URL(url).openConnection();
+        String username = camera.getUsername();
+        if (username != null && !username.isEmpty()) {
+            String auth = username + ":" + camera.getPassword();
+            String encodedAuth = android.util.Base64.encodeToString(auth.getBytes(), android.util.Base64.NO_WRAP);
+            current.setRequestProperty("Authorization", "Basic " + encodedAuth);
+        }
+        current.setConnectTimeout(CONNECT_TIMEOUT);
+        current.setReadTimeout(READ_TIMEOUT);
+        connection = current;
+        return current;
+    }
+
+    private List<String> candidateUrls() {
+        List<String> urls = new ArrayList<>();
+        String host = camera.getUrlHost();
+        for (CameraInfo.Service service : camera.getServices()) {
+            if (service.path != null && !service.path.isEmpty() && !"/".equals(service.path)) {
+                urls.add("http://" + host + ":" + service.port + service.path);
+            }
+        }
+        int port = camera.getPort() > 0 ? camera.getPort() : 80;
+        for (String path : FALLBACK_PATHS) {
+            String url = "http://" + host + ":" + port + path;
+            if (!urls.contains(url)) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * 复制一帧交给共享解码器；上一帧还在解码时替换等待中的帧，被替换的计为丢帧
+     */
+    private void submit(byte[] data, int offset, int length) {
+        FrameBufferPool buffers = decoder.getBuffers();
+        byte[] copy = buffers.acquire(length);
+        System.arraycopy(data, offset, copy, 0, length);
+        synchronized (this) {
+            if (decoding) {
+                if (pendingData != null) {
+                    buffers.release(pendingData);
+                    stats.recordDropped();
+                }
+                pendingData = copy;
+                pendingLength = length;
+                return;
+            }
+            decoding = true;
+        }
+        decoder.execute(() -> decodeFrame(copy, length));
+    }
+
+    // 在解码线程池中执行，完成后若有等待的帧重新排队，让其他画面的帧可以插入
+    private void decodeFrame(byte[] data, int length) {
+        long start = System.nanoTime();
+        Bitmap bitmap = running ? decoder.decode(data, length, targetWidth, targetHeight) : null;
+        long decodeNanos = System.nanoTime() - start;
+        decoder.getBuffers().release(data);
+        if (bitmap != null) {
+            mainHandler.post(() -> showFrame(bitmap, decodeNanos));
+        }
+
+        byte[] next;
+        int nextLength;
+        synchronized (this) {
+            if (pendingData == null) {
+                decoding = false;
+                return;
+            }
+            next = pendingData;
+            nextLength = pendingLength;
+            pendingData = null;
+        }
+        decoder.execute(() -> decodeFrame(next, nextLength));
+    }
+
+    private void showFrame(Bitmap bitmap, long decodeNanos) {
+        if (!running) {
+            decoder.recycle(bitmap);
+            return;
+        }
+        Bitmap previous = frontBitmap;
+        frontBitmap = bitmap;
+        if (previous != null && previous != bitmap) {
+            decoder.recycle(previous);
+        }
+        stats.recordFrame(SystemClock.elapsedRealtime(), decodeNanos);
+        callback.onTileUpdated(this);
+    }
+
+    private void updateStatus(String message) {
+        status = message;
+        mainHandler.post(() -> callback.onTileUpdated(this));
+    }
+}
@@ -0,0 +1,612 @@
+package com.cameradetector.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 扫描历史的表结构和读写 - 记录网络、每次扫描、设备（按网络+设备键唯一）、设备上的端点（端口+路径）
+ * 以及每次扫描中对设备的观测（IP、厂商、端口、置信度）。
+ * 写入分两步：record 只在内存中合并本次扫描的观测（扫描线程调用，不碰数据库），
+ * flush 把上次flush以来有变化的设备在一个事务中写入（由唯一的写线程定期调用）。
+ * 语句在构造时编译一次，之后只重新绑定参数；设备id在进程内缓存，已知设备每次只需一条UPDATE。
+ * 只依赖下面的 {@link Database} 接口，Android上由 {@link ScanHistory} 适配 SQLiteDatabase，
+ * JVM上可以接任意SQLite驱动验证
+ */
+public class HistoryStore {
+
+    public static final int VERSION = 1;
+
+    /**
+     * 数据库的最小接口，对应 SQLiteDatabase 中用到的部分
+     */
+    public interface Database {
+        void execute(String sql);
+
+        Statement prepare(String sql);
+
+        Rows query(String sql, String... args);
+
+        void beginTransaction();
+
+        void setTransactionSuccessful();
+
+        void endTransaction();
+    }
+
+    /**
+     * 预编译语句，对应 SQLiteStatement；参数下标从1开始
+     */
+    public interface Statement {
+        void bindString(int index, String value);
+
+        void bindLong(int index, long value);
+
+        void bindDouble(int index, double value);
+
+        void bindNull(int index);
+
+        /** 返回新行的rowid，被 OR IGNORE 忽略时返回-1 */
+        long executeInsert();
+
+        int executeUpdateDelete();
+
+        void clearBindings();
+    }
+
+    /**
+     * 查询结果游标，对应 Cursor；列下标从0开始
+     */
+    public interface Rows extends Closeable {
+        boolean next();
+
+        String getString(int column);
+
+        long getLong(int column);
+
+        double getDouble(int column);
+
+        boolean isNull(int column);
+
+        @Override
+        void close();
+    }
+
+    static final String[] SCHEMA = {
+            "CREATE TABLE networks ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "name TEXT NOT NULL UNIQUE)",
+            "CREATE TABLE scans ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "network_id INTEGER NOT NULL REFERENCES networks(id), "
+                    + "profile TEXT, "
+                    + "started_at INTEGER NOT NULL, "
+                    + "finished_at INTEGER, "
+                    + "probes INTEGER, "
+                    + "bytes INTEGER)",
+            "CREATE TABLE devices ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "network_id INTEGER NOT NULL REFERENCES networks(id), "
+                    + "device_key TEXT NOT NULL, "
+                    + "ip TEXT, mac TEXT, type TEXT, name TEXT, vendor TEXT, model TEXT, confidence REAL, "
+                    + "first_seen INTEGER NOT NULL, "
+                    + "last_seen INTEGER NOT NULL, "
+                    + "UNIQUE (network_id, device_key))",
+            "CREATE TABLE endpoints ("
+                    + "device_id INTEGER NOT NULL REFERENCES devices(id), "
+                    + "port INTEGER NOT NULL, "
+                    + "path TEXT NOT NULL DEFAULT '', "
+                    + "first_seen INTEGER NOT NULL, "
+                    + "last_seen INTEGER NOT NULL, "
+                    + "PRIMARY KEY (device_id, port, path)) WITHOUT ROWID",
+            "CREATE TABLE observations ("
+                    + "scan_id INTEGER NOT NULL REFERENCES scans(id), "
+                    + "device_id INTEGER NOT NULL REFERENCES devices(id), "
+                    + "seen_at INTEGER NOT NULL, "
+                    + "ip TEXT, vendor TEXT, ports TEXT, confidence REAL, "
+                    + "PRIMARY KEY (scan_id, device_id)) WITHOUT ROWID",
+            "CREATE INDEX observations_by_device ON observations (device_id, seen_at)",
+            "CREATE INDEX scans_by_network ON scans (network_id, started_at)",
+    };
+
+    private static final String INSERT_NETWORK = "INSERT OR IGNORE INTO networks (name) VALUES (?)";
+    private static final String SELECT_NETWORK = "SELECT id FROM networks WHERE name = ?";
+    private static final String INSERT_SCAN = "INSERT INTO scans (network_id, profile, started_at) VALUES (?, ?, ?)";
+    private static final String UPDATE_SCAN = "UPDATE scans SET finished_at = ?, probes = ?, bytes = ? WHERE id = ?";
+    private static final String INSERT_DEVICE = "INSERT OR IGNORE INTO devices (network_id, device_key, first_seen, last_seen) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_DEVICE = "SELECT id FROM devices WHERE network_id = ? AND device_key = ?";
+    // 本次没有的字段保留原值
+    private static final String UPDATE_DEVICE = "UPDATE devices SET "
+            + "ip = coalesce(?, ip), mac = coalesce(?, mac), type = coalesce(?, type), name = coalesce(?, name), "
+            + "vendor = coalesce(?, vendor), model = coalesce(?, model), confidence = ?, last_seen = max(last_seen, ?) "
+            + "WHERE id = ?";
+    private static final String INSERT_ENDPOINT = "INSERT OR IGNORE INTO endpoints (device_id, port, path, first_seen, last_seen) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_ENDPOINT = "UPDATE endpoints SET last_seen = max(last_seen, ?) WHERE device_id = ? AND port = ? AND path = ?";
+    private static final String REPLACE_OBSERVATION = "INSERT OR REPLACE INTO observations (scan_id, device_id, seen_at, ip, vendor, ports, confidence) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    static final String QUERY_OBSERVATIONS = "SELECT o.seen_at, d.device_key, d.name, d.type, o.ip, d.mac, o.vendor, d.model, o.confidence, o.ports "
+            + "FROM scans s JOIN observations o ON o.scan_id = s.id JOIN devices d ON d.id = o.device_id "
+            + "WHERE s.network_id = (SELECT id FROM networks WHERE name = ?) "
+            + "ORDER BY s.started_at, o.seen_at";
+
+    /**
+     * 设备上的一个端点
+     */
+    public static final class Endpoint {
+        public final int port;
+        public final String path;
+
+        public Endpoint(int port, String path) {
+            this.port = port;
+            this.path = path != null ? path : "";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Endpoint && ((Endpoint) o).port == port && ((Endpoint) o).path.equals(path);
+        }
+
+        @Override
+        public int hashCode() {
+            return port * 31 + path.hashCode();
+        }
+    }
+
+    /**
+     * 一次扫描中对一个设备的观测，同一设备的多次上报按键合并
+     */
+    public static class Observation {
+        public final String key;
+        String ipAddress;
+        String macAddress;
+        String type;
+        String name;
+        String vendor;
+        String model;
+        float confidence;
+        long seenAt;
+        final Set<Endpoint> endpoints = new LinkedHashSet<>();
+
+        public Observation(String key) {
+            this.key = key;
+        }
+
+        /**
+         * 按设备的当前状态创建观测，设备没有MAC也没有IP时返回null
+         */
+        public static Observation of(CameraInfo camera, long seenAt) {
+            String key = deviceKey(camera);
+            if (key == null) {
+                return null;
+            }
+            Observation observation = new Observation(key);
+            observation.ipAddress = camera.getIpAddress();
+            observation.macAddress = camera.getMacAddress();
+            observation.type = camera.getType() != null ? camera.getType().name() : null;
+            observation.name = camera.getName();
+            observation.vendor = camera.getManufacturer();
+            observation.model = camera.getModel();
+            observation.confidence = camera.getConfidence();
+            observation.seenAt = seenAt;
+            if (camera.getPort() > 0) {
+                observation.endpoints.add(new Endpoint(camera.getPort(), null));
+            }
+            for (CameraInfo.Service service : camera.getServices()) {
+                observation.endpoints.add(new Endpoint(service.port, service.path));
+            }
+            return observation;
+        }
+
+        // 与 MonitorState 相同：优先按MAC，其次IP，本机摄像头按id
+        static String deviceKey(CameraInfo camera) {
+            if (camera.getMacAddress() != null) {
+                return camera.getMacAddress().toUpperCase(Locale.US);
+            }
+            return camera.getIpAddress() != null ? camera.getIpAddress() : camera.getId();
+        }
+
+        void merge(Observation other) {
+            if (other.ipAddress != null) ipAddress = other.ipAddress;
+            if (other.macAddress != null) macAddress = other.macAddress;
+            if (other.type != null) type = other.type;
+            if (other.name != null) name = other.name;
+            if (other.vendor != null) vendor = other.vendor;
+            if (other.model != null) model = other.model;
+            confidence = Math.max(confidence, other.confidence);
+            seenAt = Math.max(seenAt, other.seenAt);
+            endpoints.addAll(other.endpoints);
+        }
+
+        Observation copy() {
+            Observation copy = new Observation(key);
+            copy.merge(this);
+            return copy;
+        }
+
+        // 去重后按升序排列的端口，逗号分隔
+        String ports() {
+            int[] ports = new int[endpoints.size()];
+            int n = 0;
+            for (Endpoint endpoint : endpoints) {
+                ports[n++] = endpoint.port;
+            }
+            Arrays.sort(ports);
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || ports[i] != ports[i - 1]) {
+                    if (builder.length() > 0) {
+                        builder.append(',');
+                    }
+                    builder.append(ports[i]);
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    // 一次扫描在内存中的状态；id 和 written 只由写线程访问
+    private static class ScanState {
+        final String network;
+        final String profile;
+        final long startedAt;
+        long finishedAt;
+        int probes;
+        long bytes;
+        boolean metaDirty = true;
+        final Map<String, Observation> observations = new HashMap<>();
+        final Set<String> dirty = new LinkedHashSet<>();
+        long id = 0;
+
+        ScanState(String network, String profile, long startedAt) {
+            this.network = network;
+            this.profile = profile;
+            this.startedAt = startedAt;
+        }
+    }
+
+    // flush 时从 ScanState 取出的一批待写数据
+    private static class Batch {
+        final ScanState scan;
+        final boolean writeMeta;
+        final long finishedAt;
+        final int probes;
+        final long bytes;
+        final List<Observation> observations;
+
+        Batch(ScanState scan, List<Observation> observations) {
+            this.scan = scan;
+            this.writeMeta = scan.metaDirty;
+            this.finishedAt = scan.finishedAt;
+            this.probes = scan.probes;
+            this.bytes = scan.bytes;
+            this.observations = observations;
+        }
+    }
+
+    private final Database db;
+    private final Statement insertNetwork;
+    private final Statement insertScan;
+    private final Statement updateScan;
+    private final Statement insertDevice;
+    private final Statement updateDevice;
+    private final Statement insertEndpoint;
+    private final Statement updateEndpoint;
+    private final Statement replaceObservation;
+
+    // 以下缓存只由写线程访问
+    private final Map<String, Long> networkIds = new HashMap<>();
+    private final Map<String, Long> deviceIds = new HashMap<>();
+
+    // 以下由 this 保护
+    private ScanState current;
+    // 已被新扫描替换、还有数据没写完的扫描
+    private final List<ScanState> closing = new ArrayList<>();
+
+    private int flushes = 0;
+    private long writtenObservations = 0;
+
+    /**
+     * @param db 已建好表结构（见 createSchema）的数据库
+     */
+    public HistoryStore(Database db) {
+        this.db = db;
+        insertNetwork = db.prepare(INSERT_NETWORK);
+        insertScan = db.prepare(INSERT_SCAN);
+        updateScan = db.prepare(UPDATE_SCAN);
+        insertDevice = db.prepare(INSERT_DEVICE);
+        updateDevice = db.prepare(UPDATE_DEVICE);
+        insertEndpoint = db.prepare(INSERT_ENDPOINT);
+        updateEndpoint = db.prepare(UPDATE_ENDPOINT);
+        replaceObservation = db.prepare(REPLACE_OBSERVATION);
+    }
+
+    public static void createSchema(Database db) {
+        for (String sql : SCHEMA) {
+            db.execute(sql);
+        }
+    }
+
+    /**
+     * 开始记录一次扫描；上一次扫描未写完的数据在下次flush时照常写入
+     */
+    public synchronized void startScan(String network, String profile, long startedAt) {
+        if (current != null) {
+            closing.add(current);
+        }
+        current = new ScanState(network, profile, startedAt);
+    }
+
+    /**
+     * 记录一次观测（合并到本次扫描中同一设备的观测），没有正在记录的扫描时忽略并返回false
+     */
+    public synchronized boolean record(Observation observation) {
+        if (current == null || observation == null) {
+            return false;
+        }
+        Observation existing = current.observations.get(observation.key);
+        if (existing == null) {
+            current.observations.put(observation.key, observation.copy());
+        } else {
+            existing.merge(observation);
+        }
+        current.dirty.add(observation.key);
+        return true;
+    }
+
+    /**
+     * 记录本次扫描结束时间和开销；之后到达的观测（例如BLE信号更新）仍归入本次扫描
+     */
+    public synchronized void finishScan(long finishedAt, int probes, long bytes) {
+        if (current == null) {
+            return;
+        }
+        current.finishedAt = finishedAt;
+        current.probes = probes;
+        current.bytes = bytes;
+        current.metaDirty = true;
+    }
+
+    /**
+     * 在一个事务中写入上次flush以来的变化，返回写入的观测数；只能由同一个写线程调用
+     */
+    public int flush() {
+        List<Batch> batches = drain();
+        if (batches.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        db.beginTransaction();
+        try {
+            for (Batch batch : batches) {
+                ScanState scan = batch.scan;
+                long networkId = networkId(scan.network);
+                if (scan.id == 0) {
+                    insertScan.clearBindings();
+                    insertScan.bindLong(1, networkId);
+                    bindNullable(insertScan, 2, scan.profile);
+                    insertScan.bindLong(3, scan.startedAt);
+                    scan.id = insertScan.executeInsert();
+                }
+                if (batch.writeMeta && batch.finishedAt > 0) {
+                    updateScan.bindLong(1, batch.finishedAt);
+                    updateScan.bindLong(2, batch.probes);
+                    updateScan.bindLong(3, batch.bytes);
+                    updateScan.bindLong(4, scan.id);
+                    updateScan.executeUpdateDelete();
+                }
+                for (Observation observation : batch.observations) {
+                    writeObservation(networkId, scan.id, observation);
+                    count++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        flushes++;
+        writtenObservations += count;
+        return count;
+    }
+
+    /** 执行过的flush（事务）次数 */
+    public int getFlushes() {
+        return flushes;
+    }
+
+    public long getWrittenObservations() {
+        return writtenObservations;
+    }
+
+    /**
+     * 按时间顺序逐条导出某个网络的全部观测：每次观测一条设备记录，接着每个端口一条探测记录。
+     * 直接读游标，不把历史载入内存；游标在第一次读取时打开，由 close 关闭（ScanExporter.export 结束时调用）
+     */
+    public ScanExporter.Source exportSource(String network) {
+        return new ScanExporter.Source() {
+            private Rows rows;
+            private boolean closed = false;
+            private String[] ports = new String[0];
+            private int portIndex = 0;
+
+            @Override
+            public boolean next(ScanExporter.Record record) throws IOException {
+                if (portIndex < ports.length) {
+                    record.setProbe(parsePort(ports[portIndex++]), null);
+                    return true;
+                }
+                if (closed) {
+                    return false;
+                }
+                if (rows == null) {
+                    rows = db.query(QUERY_OBSERVATIONS, network);
+                }
+                if (!rows.next()) {
+                    close();
+                    return false;
+                }
+                record.clear();
+                record.kind = ScanExporter.Record.Kind.DEVICE;
+                record.time = rows.getLong(0);
+                record.deviceId = rows.getString(1);
+                record.name = rows.getString(2);
+                record.type = parseType(rows.getString(3));
+                record.ipAddress = rows.getString(4);
+                record.macAddress = rows.getString(5);
+                record.vendor = rows.getString(6);
+                record.model = rows.getString(7);
+                record.confidence = (float) rows.getDouble(8);
+                String list = rows.isNull(9) ? "" : rows.getString(9);
+                ports = list.isEmpty() ? new String[0] : list.split(",");
+                portIndex = 0;
+                return true;
+            }
+
+            @Override
+            public long size() {
+                return -1;
+            }
+
+            @Override
+            public void close() {
+                closed = true;
+                if (rows != null) {
+                    rows.close();
+                    rows = null;
+                }
+            }
+        };
+    }
+
+    private synchronized List<Batch> drain() {
+        List<Batch> batches = new ArrayList<>();
+        for (ScanState scan : closing) {
+            batches.add(drain(scan));
+        }
+        closing.clear();
+        if (current != null && (current.metaDirty || !current.dirty.isEmpty())) {
+            batches.add(drain(current));
+        }
+        return batches;
+    }
+
+    // 复制有变化的观测，写入期间扫描线程可以继续合并新的观测
+    private static Batch drain(ScanState scan) {
+        List<Observation> observations = new ArrayList<>(scan.dirty.size());
+        for (String key : scan.dirty) {
+            observations.add(scan.observations.get(key).copy());
+        }
+        Batch batch = new Batch(scan, observations);
+        scan.dirty.clear();
+        scan.metaDirty = false;
+        return batch;
+    }
+
+    private void writeObservation(long networkId, long scanId, Observation observation) {
+        long deviceId = deviceId(networkId, observation);
+        updateDevice.clearBindings();
+        bindNullable(updateDevice, 1, observation.ipAddress);
+        bindNullable(updateDevice, 2, observation.macAddress);
+        bindNullable(updateDevice, 3, observation.type);
+        bindNullable(updateDevice, 4, observation.name);
+        bindNullable(updateDevice, 5, observation.vendor);
+        bindNullable(updateDevice, 6, observation.model);
+        updateDevice.bindDouble(7, observation.confidence);
+        updateDevice.bindLong(8, observation.seenAt);
+        updateDevice.bindLong(9, deviceId);
+        updateDevice.executeUpdateDelete();
+
+        for (Endpoint endpoint : observation.endpoints) {
+            updateEndpoint.bindLong(1, observation.seenAt);
+            updateEndpoint.bindLong(2, deviceId);
+            updateEndpoint.bindLong(3, endpoint.port);
+            updateEndpoint.bindString(4, endpoint.path);
+            if (updateEndpoint.executeUpdateDelete() == 0) {
+                insertEndpoint.bindLong(1, deviceId);
+                insertEndpoint.bindLong(2, endpoint.port);
+                insertEndpoint.bindString(3, endpoint.path);
+                insertEndpoint.bindLong(4, observation.seenAt);
+                insertEndpoint.bindLong(5, observation.seenAt);
+                insertEndpoint.executeInsert();
+            }
+        }
+
+        replaceObservation.clearBindings();
+        replaceObservation.bindLong(1, scanId);
+        replaceObservation.bindLong(2, deviceId);
+        replaceObservation.bindLong(3, observation.seenAt);
+        bindNullable(replaceObservation, 4, observation.ipAddress);
+        bindNullable(replaceObservation, 5, observation.vendor);
+        replaceObservation.bindString(6, observation.ports());
+        replaceObservation.bindDouble(7, observation.confidence);
+        replaceObservation.executeInsert();
+    }
+
+    private long networkId(String network) {
+        Long id = networkIds.get(network);
+        if (id == null) {
+            insertNetwork.bindString(1, network);
+            long inserted = insertNetwork.executeInsert();
+            id = inserted != -1 ? inserted : queryId(SELECT_NETWORK, network);
+            networkIds.put(network, id);
+        }
+        return id;
+    }
+
+    private long deviceId(long networkId, Observation observation) {
+        String cacheKey = networkId + "/" + observation.key;
+        Long id = deviceIds.get(cacheKey);
+        if (id == null) {
+            insertDevice.bindLong(1, networkId);
+            insertDevice.bindString(2, observation.key);
+            insertDevice.bindLong(3, observation.seenAt);
+            insertDevice.bindLong(4, observation.seenAt);
+            long inserted = insertDevice.executeInsert();
+            id = inserted != -1 ? inserted : queryId(SELECT_DEVICE, Long.toString(networkId), observation.key);
+            deviceIds.put(cacheKey, id);
+        }
+        return id;
+    }
+
+    private long queryId(String sql, String... args) {
+        try (Rows rows = db.query(sql, args)) {
+            if (!rows.next()) {
+                throw new IllegalStateException("记录不存在: " + sql);
+            }
+            return rows.getLong(0);
+        }
+    }
+
+    private static void bindNullable(Statement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static int parsePort(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static CameraInfo.CameraType parseType(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return CameraInfo.CameraType.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.cameradetector.app;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 主机优先级 - 按先验可能性给扫描目标打分，线程池按分数从高到低取任务，
+ * 有截止时间的扫描因此先确认最可能是摄像头的主机。
+ * 先验来自：之前扫描中确认过的摄像头、之前开放过554端口的主机、MAC属于摄像头厂商、
+ * 发现协议（IPv6组播）应答、扫描开始时已在邻居表中
+ */
+public class HostPriority {
+
+    // 发现任务等非主机任务最先执行
+    public static final int SYSTEM = Integer.MAX_VALUE;
+
+    public static final int PREVIOUS_CAMERA = 100;
+    public static final int RTSP_OPEN = 60;
+    public static final int CAMERA_OUI = 50;
+    public static final int DISCOVERY_HIT = 30;
+    public static final int NEIGHBOR = 10;
+
+    private static final AtomicLong sequence = new AtomicLong(0);
+
+    // 跨多轮扫描保留，进程内有效
+    private final Set<String> cameraHosts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> rtspHosts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * 计算主机的先验分数
+     * @param macAddress 扫描开始时邻居表中的MAC，没有时为null
+     * @param discovered 是否由发现协议得到
+     */
+    public int score(String ipAddress, String macAddress, boolean discovered, OuiDatabase ouiDatabase) {
+        int score = 0;
+        if (cameraHosts.contains(ipAddress)) {
+            score += PREVIOUS_CAMERA;
+        }
+        if (rtspHosts.contains(ipAddress)) {
+            score += RTSP_OPEN;
+        }
+        if (macAddress != null) {
+            score += NEIGHBOR;
+            if (ouiDatabase.isCameraVendor(macAddress)) {
+                score += CAMERA_OUI;
+            }
+        }
+        if (discovered) {
+            score += DISCOVERY_HIT;
+        }
+        return score;
+    }
+
+    public void recordCamera(String ipAddress) {
+        cameraHosts.add(ipAddress);
+    }
+
+    public void recordRtspOpen(String ipAddress) {
+        rtspHosts.add(ipAddress);
+    }
+
+    /**
+     * 创建按分数排序的任务，提交到 {@link AppExecutors#scan()} 后分数高的先执行
+     */
+    public static Runnable task(int priority, Runnable runnable) {
+        return new Task(priority, sequence.getAndIncrement(), runnable);
+    }
+
+    // 分数相同时按提交顺序执行
+    private static class Task implements Runnable, Comparable<Task> {
+        private final int priority;
+        private final long order;
+        private final Runnable runnable;
+
+        Task(int priority, long order, Runnable runnable) {
+            this.priority = priority;
+            this.order = order;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+}
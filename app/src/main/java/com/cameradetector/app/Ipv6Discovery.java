@@ -0,0 +1,147 @@
+package com.cameradetector.app;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * IPv6链路本地发现 - IPv6子网无法逐个地址枚举，改为向全节点组播地址 ff02::1 发一次 ping，
+ * 链路上的每台主机都会应答；应答前主机会对本机发邻居请求，使其出现在本机的IPv6邻居表中。
+ * 应答地址和邻居表合并后即为链路上的全部主机，只需一个往返
+ */
+public class Ipv6Discovery {
+
+    private static final String TAG = "Ipv6Discovery";
+
+    private static final String ALL_NODES = "ff02::1";
+
+    // 等待组播应答的时间（秒）
+    private static final String PING_DEADLINE = "1";
+
+    /**
+     * 链路上发现的一台IPv6主机
+     */
+    public static class Host {
+        // 带接口作用域的地址，如 fe80::1%wlan0
+        public final String address;
+        public final String macAddress;
+
+        Host(String address, String macAddress) {
+            this.address = address;
+            this.macAddress = macAddress;
+        }
+    }
+
+    /**
+     * 在指定接口上发现IPv6主机，不包括本机地址；应在后台线程调用
+     */
+    public List<Host> discover(NetworkInterface networkInterface) {
+        String name = networkInterface.getName();
+        Set<String> ownAddresses = new HashSet<>();
+        for (InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+            if (address instanceof Inet6Address) {
+                ownAddresses.add(stripScope(address.getHostAddress()));
+            }
+        }
+
+        Map<String, String> macByAddress = new LinkedHashMap<>();
+        if (!pingAllNodes("ping6", new String[]{"ping6", "-w", PING_DEADLINE, "-I", name, ALL_NODES}, macByAddress)) {
+            pingAllNodes("ping", new String[]{"ping", "-6", "-w", PING_DEADLINE, "-I", name, ALL_NODES}, macByAddress);
+        }
+        readNeighbors(name, macByAddress);
+
+        List<Host> hosts = new ArrayList<>(macByAddress.size());
+        for (Map.Entry<String, String> entry : macByAddress.entrySet()) {
+            if (!ownAddresses.contains(entry.getKey())) {
+                hosts.add(new Host(scoped(entry.getKey(), name), entry.getValue()));
+            }
+        }
+        Log.d(TAG, name + " 上发现 " + hosts.size() + " 个IPv6主机");
+        return hosts;
+    }
+
+    // 64 bytes from fe80::2a57:beff:fe12:3456%wlan0: icmp_seq=1 ttl=64 time=1.2 ms (DUP!)
+    private boolean pingAllNodes(String tool, String[] command, Map<String, String> macByAddress) {
+        Process process = null;
+        try {
+            process = Runtime.getRuntime().exec(command);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int start = line.indexOf(" from ");
+                    int end = start >= 0 ? line.indexOf(": ", start) : -1;
+                    if (end > 0) {
+                        String address = stripScope(line.substring(start + 6, end));
+                        if (!macByAddress.containsKey(address)) {
+                            macByAddress.put(address, null);
+                        }
+                    }
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, tool + " 不可用: " + e.getMessage());
+            return false;
+        } finally {
+            if (process != null) {
+                process.destroy();
+            }
+        }
+    }
+
+    private void readNeighbors(String interfaceName, Map<String, String> macByAddress) {
+        Process process = null;
+        try {
+            process = Runtime.getRuntime().exec(new String[]{"ip", "-6", "neigh", "show", "dev", interfaceName});
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                // fe80::2a57:beff:fe12:3456 lladdr 28:57:be:12:34:56 STALE
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.trim().split("\\s+");
+                    if (fields.length < 3 || "FAILED".equals(fields[fields.length - 1])) {
+                        continue;
+                    }
+                    String mac = null;
+                    for (int i = 1; i < fields.length - 1; i++) {
+                        if ("lladdr".equals(fields[i])) {
+                            mac = fields[i + 1].toLowerCase(Locale.US);
+                            break;
+                        }
+                    }
+                    if (mac != null && mac.length() == 17) {
+                        macByAddress.put(stripScope(fields[0]), mac);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "无法读取IPv6邻居表: " + e.getMessage());
+        } finally {
+            if (process != null) {
+                process.destroy();
+            }
+        }
+    }
+
+    // 链路本地地址必须带作用域才能连接，全局地址不需要
+    private static String scoped(String address, String interfaceName) {
+        return address.toLowerCase(Locale.US).startsWith("fe80:") ? address + "%" + interfaceName : address;
+    }
+
+    private static String stripScope(String address) {
+        int percent = address.indexOf('%');
+        return percent >= 0 ? address.substring(0, percent) : address;
+    }
+}
@@ -0,0 +1,93 @@
+package com.cameradetector.app;
+
+/**
+ * 只保留最新一帧的交接槽 - 读流线程写入，渲染线程取走；渲染跟不上时新帧直接覆盖未取走的旧帧，
+ * 卡顿不会积压延迟。槽内最多两块帧缓冲（待取的一帧 + 渲染线程手里的一帧），两者交替复用。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public class LatestFrameSlot {
+
+    /**
+     * 一帧JPEG数据，data 的长度可能大于 length
+     */
+    public static final class Frame {
+        private byte[] data = new byte[0];
+        private int length;
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        void set(byte[] source, int offset, int length) {
+            if (data.length < length) {
+                // 多留一些余量，避免帧大小小幅波动时反复扩容
+                data = new byte[length + length / 4];
+            }
+            System.arraycopy(source, offset, data, 0, length);
+            this.length = length;
+        }
+    }
+
+    private Frame pending;
+    private Frame free;
+    private boolean closed = false;
+    private long offeredFrames = 0;
+    private long droppedFrames = 0;
+
+    /**
+     * 写入一帧（数据被复制，调用返回后源缓冲区可以复用），覆盖尚未被取走的旧帧
+     */
+    public synchronized void offer(byte[] data, int offset, int length) {
+        if (closed) {
+            return;
+        }
+        offeredFrames++;
+        Frame target;
+        if (pending != null) {
+            target = pending;
+            droppedFrames++;
+        } else if (free != null) {
+            target = free;
+            free = null;
+        } else {
+            target = new Frame();
+        }
+        target.set(data, offset, length);
+        pending = target;
+        notifyAll();
+    }
+
+    /**
+     * 取走最新一帧，没有新帧时阻塞；consumed 为上次取走且已用完的帧，交还以便复用。关闭后返回null
+     */
+    public synchronized Frame take(Frame consumed) throws InterruptedException {
+        if (consumed != null) {
+            free = consumed;
+        }
+        while (pending == null && !closed) {
+            wait();
+        }
+        Frame frame = pending;
+        pending = null;
+        return frame;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        pending = null;
+        notifyAll();
+    }
+
+    public synchronized long getOfferedFrames() {
+        return offeredFrames;
+    }
+
+    /** 未被渲染就被覆盖的帧数 */
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
@@ -0,0 +1,301 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本机摄像头清单（内置和USB外接） - 启动时枚举一次并缓存每个摄像头的参数（朝向、分辨率、能力），
+ * 之后通过 CameraManager.AvailabilityCallback 跟踪插拔和占用，不再轮询。
+ * 摄像头以 LOCAL 类型记录合并到 {@link DeviceRepository}，访问测试只需查表。
+ * 参数在清单线程读取；合并到仓库后的 CameraInfo 与界面共享，只在主线程修改
+ */
+public final class LocalCameraInventory {
+
+    private static final String TAG = "LocalCameraInventory";
+
+    private static volatile LocalCameraInventory instance;
+
+    /**
+     * 一个本机摄像头的缓存参数
+     */
+    public static class LocalCamera {
+        private final String id;
+        private final int facing;
+        private final int sensorOrientation;
+        private final int hardwareLevel;
+        private final int[] capabilities;
+        // JPEG输出分辨率，按像素数从大到小排列
+        private final Size[] jpegSizes;
+        private final CameraInfo info;
+        private volatile boolean available = true;
+
+        LocalCamera(String id, int facing, int sensorOrientation, int hardwareLevel,
+                    int[] capabilities, Size[] jpegSizes, CameraInfo info) {
+            this.id = id;
+            this.facing = facing;
+            this.sensorOrientation = sensorOrientation;
+            this.hardwareLevel = hardwareLevel;
+            this.capabilities = capabilities;
+            this.jpegSizes = jpegSizes;
+            this.info = info;
+        }
+
+        public String getId() { return id; }
+        public int getFacing() { return facing; }
+        public int getSensorOrientation() { return sensorOrientation; }
+        public int getHardwareLevel() { return hardwareLevel; }
+        public Size[] getJpegSizes() { return jpegSizes; }
+        public CameraInfo getInfo() { return info; }
+
+        public boolean hasCapability(int capability) {
+            for (int value : capabilities) {
+                if (value == capability) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** 当前没有被其他应用占用且未断开 */
+        public boolean isAvailable() {
+            return available;
+        }
+
+        public Size getMaxJpegSize() {
+            return jpegSizes.length > 0 ? jpegSizes[0] : null;
+        }
+    }
+
+    private final Context context;
+    private final CameraManager cameraManager;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, LocalCamera> cameras = new ConcurrentHashMap<>();
+
+    private final CameraManager.AvailabilityCallback availabilityCallback = new CameraManager.AvailabilityCallback() {
+        @Override
+        public void onCameraAvailable(String cameraId) {
+            LocalCamera camera = cameras.get(cameraId);
+            if (camera == null) {
+                // 新接入的外接摄像头，只在这时读取一次参数
+                add(cameraId);
+            } else {
+                setAvailable(camera, true);
+            }
+        }
+
+        @Override
+        public void onCameraUnavailable(String cameraId) {
+            LocalCamera camera = cameras.get(cameraId);
+            if (camera != null) {
+                setAvailable(camera, false);
+            }
+        }
+    };
+
+    private LocalCameraInventory(Context context) {
+        this.context = context;
+        this.cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        HandlerThread thread = new HandlerThread("LocalCameras");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        if (cameraManager != null) {
+            // 注册后系统会为每个当前可用的摄像头回调一次；正被占用的摄像头不会回调，所以还要枚举一次
+            handler.post(this::enumerate);
+            cameraManager.registerAvailabilityCallback(availabilityCallback, handler);
+        }
+    }
+
+    /**
+     * 获取清单实例，首次调用时开始枚举并注册可用性回调，之后在整个进程内保持更新
+     */
+    public static LocalCameraInventory getInstance(Context context) {
+        LocalCameraInventory inventory = instance;
+        if (inventory == null) {
+            synchronized (LocalCameraInventory.class) {
+                inventory = instance;
+                if (inventory == null) {
+                    inventory = new LocalCameraInventory(context.getApplicationContext());
+                    instance = inventory;
+                }
+            }
+        }
+        return inventory;
+    }
+
+    /**
+     * 按摄像头id查找缓存的参数，未知的id返回null
+     */
+    public LocalCamera get(String cameraId) {
+        return cameraId != null ? cameras.get(cameraId) : null;
+    }
+
+    public Collection<LocalCamera> getCameras() {
+        return cameras.values();
+    }
+
+    /**
+     * 把已缓存的全部本机摄像头重新合并到设备仓库，仓库被清空（开始新一轮扫描）后在主线程调用
+     */
+    public void publish() {
+        boolean permission = hasCameraPermission();
+        for (LocalCamera camera : cameras.values()) {
+            camera.info.setHasPermission(permission);
+            DeviceRepository.getInstance().merge(camera.info);
+        }
+    }
+
+    private void enumerate() {
+        try {
+            for (String cameraId : cameraManager.getCameraIdList()) {
+                if (!cameras.containsKey(cameraId)) {
+                    add(cameraId);
+                }
+            }
+        } catch (CameraAccessException | RuntimeException e) {
+            Log.e(TAG, "枚举本机摄像头失败: " + e.getMessage());
+        }
+    }
+
+    // 在清单线程调用
+    private void add(String cameraId) {
+        CameraCharacteristics characteristics;
+        try {
+            characteristics = cameraManager.getCameraCharacteristics(cameraId);
+        } catch (CameraAccessException | RuntimeException e) {
+            Log.e(TAG, "读取摄像头 " + cameraId + " 参数失败: " + e.getMessage());
+            return;
+        }
+
+        Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
+        Integer orientation = characteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+        Integer level = characteristics.get(CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL);
+        int[] capabilities = characteristics.get(CameraCharacteristics.REQUEST_AVAILABLE_CAPABILITIES);
+        StreamConfigurationMap configurations = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        Size[] sizes = configurations != null ? configurations.getOutputSizes(ImageFormat.JPEG) : null;
+        sizes = sizes != null ? sizes.clone() : new Size[0];
+        Arrays.sort(sizes, (a, b) -> Long.compare((long) b.getWidth() * b.getHeight(), (long) a.getWidth() * a.getHeight()));
+
+        CameraInfo info = new CameraInfo();
+        info.setId(cameraId);
+        info.setType(CameraInfo.CameraType.LOCAL);
+        info.setManufacturer(Build.MANUFACTURER);
+        info.setModel(Build.MODEL);
+        info.setAccessible(true);
+        info.setHasPermission(hasCameraPermission());
+
+        LocalCamera camera = new LocalCamera(cameraId,
+                facing != null ? facing : CameraCharacteristics.LENS_FACING_EXTERNAL,
+                orientation != null ? orientation : 0,
+                level != null ? level : CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_LEGACY,
+                capabilities != null ? capabilities : new int[0],
+                sizes, info);
+        info.setName(facingName(camera.facing) + " (" + cameraId + ")");
+        info.setDescription(describe(camera));
+        // 先登记，避免枚举和可用性回调重复读取；info 在这之后只在主线程修改
+        cameras.put(cameraId, camera);
+        mainHandler.post(() -> DeviceRepository.getInstance().merge(info));
+    }
+
+    // 在清单线程调用
+    private void setAvailable(LocalCamera camera, boolean available) {
+        if (camera.available == available) {
+            return;
+        }
+        camera.available = available;
+        // 不可用表示被其他应用占用，外接摄像头拔出时也会回调不可用
+        String description = describe(camera);
+        mainHandler.post(() -> {
+            camera.info.setAccessible(available);
+            camera.info.setDescription(description);
+            DeviceRepository.getInstance().notifyChanged(camera.info);
+        });
+    }
+
+    private boolean hasCameraPermission() {
+        return ContextCompat.checkSelfPermission(context, android.Manifest.permission.CAMERA)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static String facingName(int facing) {
+        switch (facing) {
+            case CameraCharacteristics.LENS_FACING_FRONT:
+                return "前置摄像头";
+            case CameraCharacteristics.LENS_FACING_BACK:
+                return "后置摄像头";
+            default:
+                return "外接摄像头";
+        }
+    }
+
+    private static String describe(LocalCamera camera) {
+        StringBuilder description = new StringBuilder();
+        Size max = camera.getMaxJpegSize();
+        if (max != null) {
+            description.append(String.format(Locale.US, "最大分辨率 %dx%d（共%d种）",
+                    max.getWidth(), max.getHeight(), camera.jpegSizes.length));
+        }
+        description.append(description.length() > 0 ? "，" : "").append("硬件级别 ").append(levelName(camera.hardwareLevel));
+        List<String> features = new ArrayList<>();
+        if (camera.hasCapability(CameraCharacteristics.REQUEST_AVAILABLE_CAPABILITIES_MANUAL_SENSOR)) {
+            features.add("手动曝光");
+        }
+        if (camera.hasCapability(CameraCharacteristics.REQUEST_AVAILABLE_CAPABILITIES_RAW)) {
+            features.add("RAW");
+        }
+        if (camera.hasCapability(CameraCharacteristics.REQUEST_AVAILABLE_CAPABILITIES_BURST_CAPTURE)) {
+            features.add("连拍");
+        }
+        if (camera.hasCapability(CameraCharacteristics.REQUEST_AVAILABLE_CAPABILITIES_DEPTH_OUTPUT)) {
+            features.add("深度");
+        }
+        if (camera.hasCapability(CameraCharacteristics.REQUEST_AVAILABLE_CAPABILITIES_LOGICAL_MULTI_CAMERA)) {
+            features.add("多摄融合");
+        }
+        if (!features.isEmpty()) {
+            description.append("，支持 ").append(android.text.TextUtils.join("/", features));
+        }
+        if (!camera.available) {
+            description.append("（使用中或已断开）");
+        }
+        return description.toString();
+    }
+
+    private static String levelName(int level) {
+        switch (level) {
+            case CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_LEGACY:
+                return "LEGACY";
+            case CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_LIMITED:
+                return "LIMITED";
+            case CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_FULL:
+                return "FULL";
+            case CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_3:
+                return "LEVEL_3";
+            case CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_EXTERNAL:
+                return "EXTERNAL";
+            default:
+                return String.valueOf(level);
+        }
+    }
+}
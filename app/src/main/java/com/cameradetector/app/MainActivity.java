@@ -3,25 +3,51 @@ package com.cameradetector.app;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.format.DateFormat;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
-import android.widget.ListView;
+import android.widget.EditText;
 import android.widget.ProgressBar;
+import android.widget.RadioGroup;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
-public class MainActivity extends AppCompatActivity implements CameraDetector.OnCameraDetectedListener {
+public class MainActivity extends AppCompatActivity
+        implements CameraDetector.OnCameraDetectedListener, DeviceRepository.Observer {
+
+    private static final String TAG = "MainActivity";
 
     private static final int PERMISSION_REQUEST_CODE = 100;
+    private static final int EXPORT_REQUEST_CODE = 101;
+    private static final String UNKNOWN_NETWORK = "未知网络";
+    // 扫描结果合并后加入列表的间隔和每批最多的结果数
+    private static final long RESULT_BATCH_MS = 100;
+    private static final int RESULT_BATCH_SIZE = 64;
     private static final String[] REQUIRED_PERMISSIONS = {
             Manifest.permission.INTERNET,
             Manifest.permission.ACCESS_NETWORK_STATE,
@@ -30,39 +56,94 @@ public class MainActivity extends AppCompatActivity implements CameraDetector.On
     };
 
     private CameraDetector cameraDetector;
+    private LocalCameraInventory localCameras;
+    private BleCameraScanner bleScanner;
+    private ScanHistory history;
+    // 本次扫描所在的网络，历史记录按网络归并
+    private String historyNetwork;
+    private CachedScanResults cachedResults;
+    // 本次扫描所在网络的缓存键，扫描完成后按它保存结果
+    private NetworkResultCache.Key scanNetworkKey;
+    // 正在查找当前网络的缓存
+    private boolean restoringCache = false;
+    // 页面创建时间，统计启动到显示第一个可用列表的耗时
+    private long createdAtMs;
+    private boolean firstListReported = false;
+    // 正在合并一批扫描结果，批末统一刷新列表
+    private boolean mergingResults = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private DeviceRepository deviceRepository = DeviceRepository.getInstance();
     private List<CameraInfo> detectedCameras = new ArrayList<>();
+    private DeviceFilterIndex filterIndex = new DeviceFilterIndex();
+    private DeviceFilterIndex.Query filterQuery = new DeviceFilterIndex.Query();
     private CameraListAdapter cameraListAdapter;
     
     private Button btnScanCameras;
     private Button btnControlCameras;
+    private Button btnExport;
+    // 选择导出位置期间保存的导出选项
+    private ScanExporter.Format exportFormat = ScanExporter.Format.NDJSON;
+    private boolean exportProbes = true;
+    // 导出该网络的历史记录而不是当前列表
+    private String exportHistoryNetwork;
+    // 本页面提交的后台任务（导出），销毁时取消
+    private final AppExecutors.TaskGroup tasks = AppExecutors.getInstance().newGroup("Main");
+    private RadioGroup rgScanProfile;
     private ProgressBar progressBar;
     private TextView tvCameraCount;
     private TextView tvScanStatus;
     private TextView tvScanProgress;
-    private ListView lvCameraList;
+    private RecyclerView rvCameraList;
+    private EditText etSearch;
+    private Spinner spSort;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAtMs = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_main);
         
         initViews();
         setupListeners();
         
         cameraDetector = new CameraDetector(this);
+        // 本机摄像头在后台枚举，结果直接合并到设备仓库，不需要等扫描
+        localCameras = LocalCameraInventory.getInstance(this);
+        bleScanner = new BleCameraScanner(this);
+        history = ScanHistory.getInstance(this);
+        // 快照在io线程池读取，不阻塞界面
+        cachedResults = CachedScanResults.getInstance(this);
+        
+        // 返回时恢复仓库中已有的设备，之后由观察者回调增量更新
+        detectedCameras.addAll(deviceRepository.getDevices());
+        for (CameraInfo camera : detectedCameras) {
+            filterIndex.update(camera);
+        }
+        deviceRepository.addObserver(this);
+        refreshList();
     }
     
     private void initViews() {
         btnScanCameras = findViewById(R.id.btn_scan_cameras);
         btnControlCameras = findViewById(R.id.btn_control_cameras);
+        btnExport = findViewById(R.id.btn_export);
+        rgScanProfile = findViewById(R.id.rg_scan_profile);
         progressBar = findViewById(R.id.progress_bar);
         tvCameraCount = findViewById(R.id.tv_camera_count);
         tvScanStatus = findViewById(R.id.tv_scan_status);
         tvScanProgress = findViewById(R.id.tv_scan_progress);
-        lvCameraList = findViewById(R.id.lv_camera_list);
+        rvCameraList = findViewById(R.id.rv_camera_list);
+        
+        cameraListAdapter = new CameraListAdapter(this, this::openCameraDetail);
+        rvCameraList.setLayoutManager(new LinearLayoutManager(this));
+        rvCameraList.setAdapter(cameraListAdapter);
         
-        cameraListAdapter = new CameraListAdapter(this, detectedCameras);
-        lvCameraList.setAdapter(cameraListAdapter);
+        etSearch = findViewById(R.id.et_search);
+        spSort = findViewById(R.id.sp_sort);
+        ArrayAdapter<String> sortAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item,
+                new String[]{"按IP", "按厂商", "按置信度"});
+        sortAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spSort.setAdapter(sortAdapter);
         
         // 初始状态
         btnControlCameras.setEnabled(false);
@@ -80,16 +161,65 @@ public class MainActivity extends AppCompatActivity implements CameraDetector.On
             }
         });
         
+        // 长按扫描按钮开启/关闭扫描时间线追踪
+        btnScanCameras.setOnLongClickListener(v -> {
+            toggleScanTrace();
+            return true;
+        });
+        
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                updateFilter();
+            }
+        });
+        
+        spSort.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                updateFilter();
+            }
+            
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        
         btnControlCameras.setOnClickListener(v -> {
             if (!detectedCameras.isEmpty()) {
                 openCameraControl();
             }
         });
         
-        lvCameraList.setOnItemClickListener((parent, view, position, id) -> {
-            CameraInfo selectedCamera = detectedCameras.get(position);
-            openCameraDetail(selectedCamera);
+        // 长按控制按钮以网格同时查看当前列表中的网络摄像头
+        btnControlCameras.setOnLongClickListener(v -> {
+            openCameraGrid();
+            return true;
+        });
+        
+        btnExport.setOnClickListener(v -> showExportDialog());
+        
+        // 长按设备数量设置当前Wi-Fi的定期监控
+        tvCameraCount.setOnLongClickListener(v -> {
+            showMonitorDialog();
+            return true;
         });
+
+    }
+    
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // 启动或回到前台时，如果连上的是扫描过的网络，先显示上次的结果
+        restoreCachedResults();
     }
     
     private boolean checkPermissions() {
@@ -127,9 +257,30 @@ public class MainActivity extends AppCompatActivity implements CameraDetector.On
         }
     }
     
+    // 列表中还有缓存的设备时做验证扫描，否则清空后重新扫描
     private void startScan() {
-        detectedCameras.clear();
-        cameraListAdapter.notifyDataSetChanged();
+        boolean verify = false;
+        for (CameraInfo camera : detectedCameras) {
+            verify |= camera.isUnverified();
+        }
+        startScan(verify);
+    }
+    
+    /**
+     * @param verify 为true时保留列表中缓存的设备，优先探测它们，扫描结束时仍未再次发现的移除
+     */
+    private void startScan(boolean verify) {
+        if (verify) {
+            for (CameraInfo camera : detectedCameras) {
+                if (camera.isUnverified()) {
+                    cameraDetector.addKnownCamera(camera.getIpAddress());
+                }
+            }
+        } else {
+            deviceRepository.clear();
+            // 本机摄像头来自缓存清单，清空后立即重新加入
+            localCameras.publish();
+        }
         
         btnScanCameras.setEnabled(false);
         btnControlCameras.setEnabled(false);
@@ -138,32 +289,383 @@ public class MainActivity extends AppCompatActivity implements CameraDetector.On
         tvScanProgress.setVisibility(View.VISIBLE);
         tvScanStatus.setText("正在扫描...");
         tvScanProgress.setText("");
-        tvCameraCount.setText("检测到 0 个摄像头设备");
+        if (!verify) {
+            tvCameraCount.setText("检测到 0 个摄像头设备");
+        }
         
-        cameraDetector.startComprehensiveScan(this);
+        // 先识别当前网络再开始扫描，扫描结束时结果一定能按网络保存
+        scanNetworkKey = null;
+        cachedResults.lookup((key, snapshot) -> {
+            if (tasks.isCancelled()) {
+                return;
+            }
+            scanNetworkKey = key;
+            ScanProfile profile = getSelectedProfile();
+            String ssid = MonitorJobService.currentSsid(this);
+            historyNetwork = ssid != null ? ssid : UNKNOWN_NETWORK;
+            history.startScan(historyNetwork, profile);
+            cameraDetector.setProfile(profile);
+            subscribeResults();
+            cameraDetector.startComprehensiveScan(this);
+            // 蓝牙未开启时只扫描网络
+            bleScanner.start();
+        });
+    }
+    
+    /**
+     * 查找当前网络上次的扫描结果；列表中还没有网络设备时显示出来（标记为待确认），有权限时立即开始验证扫描
+     */
+    private void restoreCachedResults() {
+        if (restoringCache || !btnScanCameras.isEnabled() || hasNetworkDevices()) {
+            return;
+        }
+        restoringCache = true;
+        cachedResults.lookup((key, snapshot) -> {
+            restoringCache = false;
+            // 查找期间页面已销毁、开始了扫描或已有结果时不再显示缓存
+            if (tasks.isCancelled() || !btnScanCameras.isEnabled() || hasNetworkDevices()
+                    || snapshot == null || snapshot.size() == 0) {
+                return;
+            }
+            for (CameraInfo camera : snapshot.restore()) {
+                deviceRepository.merge(camera);
+            }
+            Log.i(TAG, "显示 " + key + " 的 " + snapshot.size() + " 个缓存设备，启动后 "
+                    + (SystemClock.elapsedRealtime() - createdAtMs) + " ms");
+            tvScanStatus.setVisibility(View.VISIBLE);
+            tvScanStatus.setText("上次扫描（" + DateFormat.format("MM-dd HH:mm", snapshot.savedAtMs) + "）发现的 "
+                    + snapshot.size() + " 个设备，等待确认");
+            if (checkPermissions()) {
+                startScan(true);
+            }
+        });
+    }
+    
+    private boolean hasNetworkDevices() {
+        for (CameraInfo camera : detectedCameras) {
+            if (camera.hasNetworkAddress()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private ScanProfile getSelectedProfile() {
+        int checkedId = rgScanProfile.getCheckedRadioButtonId();
+        if (checkedId == R.id.rb_profile_quick) {
+            return ScanProfile.QUICK;
+        } else if (checkedId == R.id.rb_profile_deep) {
+            return ScanProfile.DEEP;
+        }
+        return ScanProfile.STANDARD;
+    }
+    
+    private void showExportDialog() {
+        String network = historyNetwork != null ? historyNetwork : MonitorJobService.currentSsid(this);
+        String[] items = network != null
+                ? new String[]{"NDJSON（设备和探测结果）", "CSV（设备和探测结果）", "CSV（仅设备）", "NDJSON（" + network + " 的历史记录）"}
+                : new String[]{"NDJSON（设备和探测结果）", "CSV（设备和探测结果）", "CSV（仅设备）"};
+        new AlertDialog.Builder(this)
+                .setTitle("导出")
+                .setItems(items, (dialog, which) -> {
+                    exportFormat = which == 0 || which == 3 ? ScanExporter.Format.NDJSON : ScanExporter.Format.CSV;
+                    exportProbes = which != 2;
+                    exportHistoryNetwork = which == 3 ? network : null;
+                    // 由系统文件选择器决定保存位置（本地文件或网盘等）
+                    Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+                    intent.addCategory(Intent.CATEGORY_OPENABLE);
+                    intent.setType(exportFormat.mimeType);
+                    intent.putExtra(Intent.EXTRA_TITLE, "cameras-" + DateFormat.format("yyyyMMdd-HHmmss", System.currentTimeMillis())
+                            + "." + exportFormat.extension);
+                    startActivityForResult(intent, EXPORT_REQUEST_CODE);
+                })
+                .show();
+    }
+    
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == EXPORT_REQUEST_CODE && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            exportCameras(data.getData());
+        }
+    }
+    
+    // 导出列表中当前显示（经过搜索筛选）的设备，或某个网络的全部历史观测；
+    // 设备列表在这里（主线程）复制，扫描继续更新设备时不影响导出
+    private void exportCameras(Uri uri) {
+        ScanExporter.Source source = exportHistoryNetwork != null
+                ? history.exportSource(exportHistoryNetwork)
+                : ScanExporter.devices(filterIndex.query(filterQuery), exportProbes, System.currentTimeMillis());
+        ScanExporter.Format format = exportFormat;
+        btnExport.setEnabled(false);
+        tvScanProgress.setVisibility(View.VISIBLE);
+        boolean submitted = tasks.io(() -> {
+            try (OutputStream output = getContentResolver().openOutputStream(uri)) {
+                if (output == null) {
+                    throw new IOException("无法打开 " + uri);
+                }
+                long count = ScanExporter.export(source, format, null, output, (written, total) ->
+                        runOnUiThread(() -> tvScanProgress.setText("已导出 " + written + (total >= 0 ? "/" + total : "") + " 条")));
+                runOnUiThread(() -> {
+                    btnExport.setEnabled(true);
+                    Toast.makeText(this, "已导出 " + count + " 条记录", Toast.LENGTH_SHORT).show();
+                });
+            } catch (IOException e) {
+                runOnUiThread(() -> {
+                    btnExport.setEnabled(true);
+                    Toast.makeText(this, "导出失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+        if (!submitted) {
+            // 任务没有执行，数据源（可能是数据库游标）由这里关闭
+            source.close();
+            if (!tasks.isCancelled()) {
+                btnExport.setEnabled(true);
+                Toast.makeText(this, "后台任务繁忙，请稍后重试", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+    
+    private void showMonitorDialog() {
+        String trusted = MonitorJobService.getTrustedSsid(this);
+        String[] intervals = {"每15分钟", "每30分钟", "每60分钟"};
+        int[] minutes = {15, 30, 60};
+        String[] items = trusted != null
+                ? new String[]{intervals[0], intervals[1], intervals[2], "最近运行记录", "停止监控"}
+                : intervals;
+        new AlertDialog.Builder(this)
+                .setTitle(trusted != null
+                        ? "正在监控 " + trusted + "（每" + MonitorJobService.getIntervalMinutes(this) + "分钟）"
+                        : "定期监控当前Wi-Fi")
+                .setItems(items, (dialog, which) -> {
+                    if (which < minutes.length) {
+                        String ssid = MonitorJobService.schedule(this, minutes[which]);
+                        Toast.makeText(this, ssid != null ? "已开始监控 " + ssid : "未连接Wi-Fi，无法开启监控",
+                                Toast.LENGTH_SHORT).show();
+                    } else if (which == minutes.length) {
+                        showMonitorRuns();
+                    } else {
+                        MonitorJobService.cancel(this);
+                        Toast.makeText(this, "已停止监控", Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .show();
+    }
+    
+    private void showMonitorRuns() {
+        tasks.io(() -> {
+            List<MonitorState.Run> runs = MonitorJobService.loadRuns(this);
+            StringBuilder text = new StringBuilder();
+            for (MonitorState.Run run : runs) {
+                text.append(DateFormat.format("MM-dd HH:mm", run.startedMs)).append("  ").append(run).append('\n');
+            }
+            runOnUiThread(() -> {
+                // 页面已销毁时不能再显示对话框
+                if (tasks.isCancelled()) {
+                    return;
+                }
+                new AlertDialog.Builder(this)
+                        .setTitle("最近运行记录")
+                        .setMessage(runs.isEmpty() ? "还没有运行过" : text.toString())
+                        .setPositiveButton("确定", null)
+                        .show();
+            });
+        });
+    }
+    
+    private void toggleScanTrace() {
+        if (cameraDetector.getTracer() == null) {
+            cameraDetector.setTracer(new ScanTracer());
+            Toast.makeText(this, "已开启扫描追踪，扫描完成后导出trace文件", Toast.LENGTH_SHORT).show();
+        } else {
+            cameraDetector.setTracer(null);
+            Toast.makeText(this, "已关闭扫描追踪", Toast.LENGTH_SHORT).show();
+        }
+    }
+    
+    private void exportScanTrace(ScanTracer tracer) {
+        File file = new File(getExternalFilesDir("traces"), "scan-" + System.currentTimeMillis() + ".json");
+        boolean submitted = tasks.io(() -> {
+            try {
+                int events = tracer.exportChromeTrace(file);
+                runOnUiThread(() -> {
+                    if (!tasks.isCancelled()) {
+                        Toast.makeText(this, "已导出 " + events + " 个事件到 " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+                    }
+                });
+            } catch (IOException e) {
+                runOnUiThread(() -> {
+                    if (!tasks.isCancelled()) {
+                        Toast.makeText(this, "导出trace失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                });
+            }
+        });
+        if (!submitted && !tasks.isCancelled()) {
+            Toast.makeText(this, "后台任务繁忙，trace未导出", Toast.LENGTH_SHORT).show();
+        }
     }
     
     private void openCameraControl() {
         Intent intent = new Intent(this, CameraControlActivity.class);
-        intent.putParcelableArrayListExtra("cameras", new ArrayList<>(detectedCameras));
+        ArrayList<String> ids = new ArrayList<>(detectedCameras.size());
+        for (CameraInfo camera : detectedCameras) {
+            ids.add(camera.getId());
+        }
+        intent.putStringArrayListExtra("camera_ids", ids);
+        startActivity(intent);
+    }
+    
+    private void openCameraGrid() {
+        ArrayList<String> ids = new ArrayList<>();
+        for (CameraInfo camera : filterIndex.query(filterQuery)) {
+            if (camera.getType() == CameraInfo.CameraType.NETWORK && camera.getIpAddress() != null) {
+                ids.add(camera.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            Toast.makeText(this, "没有可显示的网络摄像头", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent intent = new Intent(this, CameraGridActivity.class);
+        intent.putStringArrayListExtra("camera_ids", ids);
         startActivity(intent);
     }
     
     private void openCameraDetail(CameraInfo camera) {
         Intent intent = new Intent(this, CameraControlActivity.class);
-        intent.putExtra("camera_info", camera);
+        intent.putExtra("camera_id", camera.getId());
         startActivity(intent);
     }
     
+    /**
+     * 订阅本轮扫描的结果流：结果每 RESULT_BATCH_MS 合并一批加入设备仓库，每批只刷新一次列表；
+     * 流在最后一批投递之后结束，扫描的收尾工作在此时进行
+     */
+    private void subscribeResults() {
+        cameraDetector.results()
+                .batch(RESULT_BATCH_SIZE)
+                .deliverOn(runnable -> mainHandler.postDelayed(runnable, RESULT_BATCH_MS))
+                .subscribe(new ScanStream.Subscriber<List<CameraInfo>>() {
+                    @Override
+                    public void onSubscribe(ScanStream.Subscription subscription) {
+                        subscription.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(List<CameraInfo> cameras) {
+                        if (!tasks.isCancelled()) {
+                            mergeResults(cameras);
+                        }
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        if (!tasks.isCancelled()) {
+                            finishScan();
+                        }
+                    }
+                });
+    }
+    
+    // 同一设备的多个端口合并为一行，列表由观察者回调更新
+    private void mergeResults(List<CameraInfo> cameras) {
+        mergingResults = true;
+        try {
+            for (CameraInfo camera : cameras) {
+                deviceRepository.merge(camera);
+            }
+        } finally {
+            mergingResults = false;
+        }
+        refreshList();
+    }
+    
     @Override
     public void onCameraDetected(CameraInfo cameraInfo) {
-        detectedCameras.add(cameraInfo);
-        cameraListAdapter.notifyDataSetChanged();
-        tvCameraCount.setText("检测到 " + detectedCameras.size() + " 个摄像头设备");
+        // 结果经 results() 流批量加入，见 subscribeResults
+    }
+    
+    @Override
+    public void onDeviceAdded(CameraInfo camera) {
+        detectedCameras.add(camera);
+        filterIndex.update(camera);
+        if (!camera.isUnverified()) {
+            history.record(camera);
+        }
+        refreshList();
+    }
+    
+    @Override
+    public void onDeviceChanged(CameraInfo camera) {
+        filterIndex.update(camera);
+        if (!camera.isUnverified()) {
+            history.record(camera);
+        }
+        refreshList();
+    }
+    
+    @Override
+    public void onDeviceRemoved(CameraInfo camera) {
+        detectedCameras.remove(camera);
+        filterIndex.remove(camera);
+        refreshList();
+    }
+    
+    @Override
+    public void onDevicesCleared() {
+        detectedCameras.clear();
+        filterIndex.clear();
+        refreshList();
+    }
+    
+    // 列表差异在后台计算，扫描中频繁调用也只重绑变化的行
+    private void updateFilter() {
+        DeviceFilterIndex.Sort[] sorts = DeviceFilterIndex.Sort.values();
+        int position = Math.max(0, Math.min(spSort.getSelectedItemPosition(), sorts.length - 1));
+        filterQuery = DeviceFilterIndex.Query.parse(etSearch.getText().toString(), sorts[position]);
+        refreshList();
+    }
+    
+    private void refreshList() {
+        if (mergingResults) {
+            return;
+        }
+        List<CameraInfo> visible = filterIndex.query(filterQuery);
+        cameraListAdapter.submitCameras(visible);
+        if (filterQuery.isEmpty()) {
+            tvCameraCount.setText("检测到 " + detectedCameras.size() + " 个摄像头设备");
+        } else {
+            tvCameraCount.setText("检测到 " + detectedCameras.size() + " 个摄像头设备，显示 " + visible.size() + " 个");
+        }
+        btnControlCameras.setEnabled(!detectedCameras.isEmpty() && btnScanCameras.isEnabled());
+        if (!firstListReported && hasNetworkDevices()) {
+            // 启动到第一个有网络摄像头的列表（缓存或扫描结果）的耗时
+            firstListReported = true;
+            Log.i(TAG, "首个可用列表: 启动后 " + (SystemClock.elapsedRealtime() - createdAtMs) + " ms，"
+                    + detectedCameras.size() + " 个设备");
+        }
     }
     
     @Override
     public void onScanComplete() {
+        // 收尾在结果流投递完最后一批后进行（见 subscribeResults），避免缓存设备在确认结果到达前被判为离线
+    }
+    
+    private void finishScan() {
+        bleScanner.stop();
+        // 验证扫描探测过却没有再次发现的缓存设备已不在网络上；因预算用尽没有探测到的保留待确认
+        ScanBudget budget = cameraDetector.getBudget();
+        boolean fullCoverage = budget.getCoveragePercent() == 100;
+        int expired = 0;
+        for (CameraInfo camera : deviceRepository.getDevices()) {
+            if (camera.isUnverified() && (fullCoverage || cameraDetector.wasProbed(camera.getIpAddress()))) {
+                deviceRepository.remove(camera);
+                expired++;
+            }
+        }
+        cachedResults.save(scanNetworkKey, detectedCameras);
         btnScanCameras.setEnabled(true);
         btnControlCameras.setEnabled(!detectedCameras.isEmpty());
         progressBar.setVisibility(View.GONE);
@@ -173,6 +675,16 @@ public class MainActivity extends AppCompatActivity implements CameraDetector.On
         } else {
             tvScanStatus.setText("扫描完成，发现 " + detectedCameras.size() + " 个摄像头");
         }
+        if (expired > 0) {
+            tvScanStatus.append("，" + expired + " 个上次的设备已不在线");
+        }
+        tvScanProgress.setText(budget.getSummary());
+        history.finishScan(budget);
+        
+        ScanTracer tracer = cameraDetector.getTracer();
+        if (tracer != null) {
+            exportScanTrace(tracer);
+        }
     }
     
     @Override
@@ -190,6 +702,12 @@ public class MainActivity extends AppCompatActivity implements CameraDetector.On
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        tasks.cancel();
+        mainHandler.removeCallbacksAndMessages(null);
+        deviceRepository.removeObserver(this);
+        if (bleScanner != null) {
+            bleScanner.stop();
+        }
         if (cameraDetector != null) {
             cameraDetector.destroy();
         }
@@ -0,0 +1,246 @@
+package com.cameradetector.app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * MJPEG流解析器 - 从 multipart/x-mixed-replace 响应中逐帧切出JPEG数据
+ * 有 Content-Length 时按长度读取，否则搜索下一个边界；没有边界参数时退化为按 SOI/EOI 标记切帧。
+ * 所有数据都在一个可复用的缓冲区中，帧数据在下次调用 nextFrame() 前有效，解析过程不分配新内存。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public class MjpegParser {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+
+    private static final byte[] JPEG_SOI = {(byte) 0xFF, (byte) 0xD8};
+    private static final byte[] JPEG_EOI = {(byte) 0xFF, (byte) 0xD9};
+    private static final byte[] LINE_FEED = {'\n'};
+
+    private final InputStream in;
+    // "--" + boundary，为null时按JPEG标记切帧
+    private final byte[] boundary;
+    private final int maxFrameSize;
+
+    private byte[] buffer;
+    private int pos;
+    private int limit;
+
+    private int frameOffset;
+    private int frameLength;
+
+    public MjpegParser(InputStream in, String boundary, int maxFrameSize) {
+        this.in = in;
+        this.boundary = boundary != null ? ("--" + boundary).getBytes(StandardCharsets.US_ASCII) : null;
+        this.maxFrameSize = maxFrameSize;
+        this.buffer = new byte[Math.min(INITIAL_CAPACITY, maxFrameSize + MAX_HEADER_LINE)];
+    }
+
+    /**
+     * 从Content-Type中取出边界，如 multipart/x-mixed-replace;boundary=--myboundary，不是multipart时返回null
+     */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.US).startsWith("multipart/")) {
+            return null;
+        }
+        for (String param : contentType.split(";")) {
+            param = param.trim();
+            if (param.toLowerCase(Locale.US).startsWith("boundary=")) {
+                String value = param.substring("boundary=".length()).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                // 部分摄像头声明的边界自带"--"，实际分隔行却不一定再加一次，去掉后按"--"+边界搜索两种写法都能匹配
+                while (value.startsWith("-")) {
+                    value = value.substring(1);
+                }
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取下一帧，返回帧长度；流结束返回-1。帧数据位于 getBuffer() 的 [getFrameOffset(), getFrameOffset() + 长度)
+     */
+    public int nextFrame() throws IOException {
+        while (true) {
+            int length = boundary != null ? nextPart() : nextJpeg();
+            if (length < 0) {
+                return -1;
+            }
+            if (length > 0) {
+                return length;
+            }
+        }
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getFrameOffset() {
+        return frameOffset;
+    }
+
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    private int nextPart() throws IOException {
+        int start = indexOf(boundary, 0);
+        if (start < 0) {
+            return -1;
+        }
+        pos += start + boundary.length;
+
+        // 边界行剩余部分，"--"表示流结束
+        String rest = readLine();
+        if (rest == null || rest.startsWith("--")) {
+            return -1;
+        }
+
+        int contentLength = -1;
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                try {
+                    contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+                } catch (NumberFormatException e) {
+                    contentLength = -1;
+                }
+            }
+        }
+        if (line == null) {
+            return -1;
+        }
+
+        int length;
+        if (contentLength >= 0) {
+            if (contentLength > maxFrameSize) {
+                throw new IOException("帧过大: " + contentLength);
+            }
+            if (!require(contentLength)) {
+                return -1;
+            }
+            length = contentLength;
+        } else {
+            // 没有长度时数据截止到下一个边界，边界前的换行不属于数据
+            int next = indexOf(boundary, 0);
+            if (next < 0) {
+                return -1;
+            }
+            length = next;
+            if (length > 0 && buffer[pos + length - 1] == '\n') {
+                length--;
+            }
+            if (length > 0 && buffer[pos + length - 1] == '\r') {
+                length--;
+            }
+        }
+
+        frameOffset = pos;
+        frameLength = length;
+        pos += contentLength >= 0 ? contentLength : length;
+        return length;
+    }
+
+    private int nextJpeg() throws IOException {
+        int start = indexOf(JPEG_SOI, 0);
+        if (start < 0) {
+            return -1;
+        }
+        pos += start;
+        int end = indexOf(JPEG_EOI, 2);
+        if (end < 0) {
+            return -1;
+        }
+        frameOffset = pos;
+        frameLength = end + 2;
+        pos += frameLength;
+        return frameLength;
+    }
+
+    /**
+     * 从 pos+from 起搜索pattern，返回相对pos的偏移，数据不足时继续读取；流结束返回-1
+     */
+    private int indexOf(byte[] pattern, int from) throws IOException {
+        int searched = from;
+        while (true) {
+            int last = limit - pos - pattern.length;
+            for (int i = searched; i <= last; i++) {
+                if (matches(pattern, pos + i)) {
+                    return i;
+                }
+            }
+            searched = Math.max(searched, last + 1);
+            if (!fill()) {
+                return -1;
+            }
+        }
+    }
+
+    private boolean matches(byte[] pattern, int offset) {
+        for (int j = 0; j < pattern.length; j++) {
+            if (buffer[offset + j] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean require(int length) throws IOException {
+        while (limit - pos < length) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 读取一行（头部为ASCII），去掉行尾的\r\n
+    private String readLine() throws IOException {
+        int end = indexOf(LINE_FEED, 0);
+        if (end < 0) {
+            return null;
+        }
+        if (end > MAX_HEADER_LINE) {
+            throw new IOException("头部行过长");
+        }
+        int length = end > 0 && buffer[pos + end - 1] == '\r' ? end - 1 : end;
+        String line = new String(buffer, pos, length, StandardCharsets.US_ASCII);
+        pos += end + 1;
+        return line;
+    }
+
+    /**
+     * 读入更多数据：先把未处理的数据移到缓冲区头部，仍然放不下时扩容，超过单帧上限则报错
+     */
+    private boolean fill() throws IOException {
+        if (limit == buffer.length) {
+            if (pos > 0) {
+                System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            } else {
+                int max = maxFrameSize + MAX_HEADER_LINE;
+                if (buffer.length >= max) {
+                    throw new IOException("帧超过上限 " + maxFrameSize + " 字节");
+                }
+                byte[] grown = new byte[(int) Math.min((long) buffer.length * 2, max)];
+                System.arraycopy(buffer, 0, grown, 0, limit);
+                buffer = grown;
+            }
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+}
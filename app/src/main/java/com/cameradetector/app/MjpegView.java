@@ -0,0 +1,320 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+
+/**
+ * 原生MJPEG播放视图 - 读流线程用 MjpegParser 切帧后放入 LatestFrameSlot，
+ * 渲染线程只解码最新一帧并直接画到Surface上；解码复用同一个Bitmap（inBitmap），并按视图尺寸降采样
+ */
+public class MjpegView extends SurfaceView implements SurfaceHolder.Callback {
+
+    private static final String TAG = "MjpegView";
+
+    private static final int CONNECT_TIMEOUT = 3000;
+    private static final int READ_TIMEOUT = 5000;
+    private static final int MAX_FRAME_SIZE = 4 * 1024 * 1024;
+
+    public interface Listener {
+        /** 第一帧已显示 */
+        void onStreamStarted();
+        /** 地址返回的不是MJPEG或JPEG，由调用方改用其他方式显示 */
+        void onNotMjpeg(String url);
+        void onStreamError(String message);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect destRect = new Rect();
+    private final Object surfaceLock = new Object();
+
+    private boolean surfaceReady = false;
+    private volatile int surfaceWidth;
+    private volatile int surfaceHeight;
+
+    private Listener listener;
+    private Session session;
+
+    public MjpegView(Context context) {
+        super(context);
+        getHolder().addCallback(this);
+    }
+
+    public MjpegView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        getHolder().addCallback(this);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 开始播放，替换正在播放的流；username 为空时不带认证
+     */
+    public void start(String url, String username, String password) {
+        stop();
+        session = new Session(url, username, password);
+        session.start();
+    }
+
+    public void stop() {
+        if (session != null) {
+            session.stop();
+            session = null;
+        }
+    }
+
+    public boolean isPlaying() {
+        return session != null;
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            surfaceReady = true;
+        }
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        surfaceWidth = width;
+        surfaceHeight = height;
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // 等渲染线程画完当前帧再返回，之后Surface不再可用
+        synchronized (surfaceLock) {
+            surfaceReady = false;
+        }
+    }
+
+    /**
+     * 在不小于目标尺寸的前提下取最大的2的幂降采样倍数
+     */
+    static int sampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sample = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return sample;
+        }
+        while (width / (sample * 2) >= targetWidth && height / (sample * 2) >= targetHeight) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    /**
+     * 一次播放：一个读流线程 + 一个渲染线程，停止后的回调不再投递
+     */
+    private final class Session {
+        private final String url;
+        private final String username;
+        private final String password;
+        private final LatestFrameSlot slot = new LatestFrameSlot();
+        private final BitmapFactory.Options options = new BitmapFactory.Options();
+
+        private volatile boolean running = true;
+        private volatile HttpURLConnection connection;
+        private Thread renderThread;
+
+        private Bitmap bitmap;
+        // 当前降采样倍数对应的Surface尺寸，变化时重新读取图像头部计算
+        private int decodedForWidth = -1;
+        private int decodedForHeight = -1;
+        private boolean started = false;
+
+        Session(String url, String username, String password) {
+            this.url = url;
+            this.username = username;
+            this.password = password;
+        }
+
+        void start() {
+            renderThread = new Thread(this::renderFrames, "MjpegRender");
+            new Thread(this::readStream, "MjpegReader").start();
+            renderThread.start();
+        }
+
+        void stop() {
+            running = false;
+            slot.close();
+            renderThread.interrupt();
+            // 断开连接以唤醒阻塞在read上的读流线程
+            HttpURLConnection current = connection;
+            if (current != null) {
+                current.disconnect();
+            }
+        }
+
+        private void readStream() {
+            try {
+                connection = (HttpURLConnection) new URL(url).openConnection();
+                if (username != null && !username.isEmpty()) {
+                    String auth = username + ":" + password;
+                    String encodedAuth = android.util.Base64.encodeToString(auth.getBytes(), android.util.Base64.NO_WRAP);
+                    connection.setRequestProperty("Authorization", "Basic " + encodedAuth);
+                }
+                connection.setConnectTimeout(CONNECT_TIMEOUT);
+                connection.setReadTimeout(READ_TIMEOUT);
+
+                int responseCode = connection.getResponseCode();
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    postError("HTTP " + responseCode);
+                    return;
+                }
+
+                String contentType = connection.getContentType();
+                String type = contentType != null ? contentType.toLowerCase(Locale.US) : "";
+                boolean jpeg = type.startsWith("image/jpeg");
+                if (!jpeg && !type.startsWith("multipart/")) {
+                    post(() -> listener.onNotMjpeg(url));
+                    return;
+                }
+
+                // 单张JPEG（快照地址）和缺少边界参数的multipart都按JPEG标记切帧
+                try (InputStream in = connection.getInputStream()) {
+                    MjpegParser parser = new MjpegParser(in, MjpegParser.boundaryOf(contentType), MAX_FRAME_SIZE);
+                    int length;
+                    while (running && (length = parser.nextFrame()) > 0) {
+                        slot.offer(parser.getBuffer(), parser.getFrameOffset(), length);
+                    }
+                }
+                if (running && !jpeg) {
+                    postError("视频流已结束");
+                }
+            } catch (IOException e) {
+                if (running) {
+                    Log.e(TAG, "读取MJPEG流失败: " + url, e);
+                    postError(e.getMessage());
+                }
+            } finally {
+                HttpURLConnection current = connection;
+                if (current != null) {
+                    current.disconnect();
+                }
+            }
+        }
+
+        private void renderFrames() {
+            LatestFrameSlot.Frame frame = null;
+            try {
+                while (running && (frame = slot.take(frame)) != null) {
+                    Bitmap decoded = decode(frame);
+                    if (decoded != null && draw(decoded) && !started) {
+                        started = true;
+                        post(() -> listener.onStreamStarted());
+                    }
+                }
+            } catch (InterruptedException e) {
+                // 停止播放
+            } finally {
+                if (bitmap != null) {
+                    bitmap.recycle();
+                    bitmap = null;
+                }
+                Log.d(TAG, "MJPEG播放结束，收到 " + slot.getOfferedFrames() + " 帧，丢弃 " + slot.getDroppedFrames() + " 帧");
+            }
+        }
+
+        private Bitmap decode(LatestFrameSlot.Frame frame) {
+            byte[] data = frame.getData();
+            int length = frame.getLength();
+            int width = surfaceWidth;
+            int height = surfaceHeight;
+            if (width != decodedForWidth || height != decodedForHeight || options.inSampleSize == 0) {
+                options.inJustDecodeBounds = true;
+                options.inBitmap = null;
+                BitmapFactory.decodeByteArray(data, 0, length, options);
+                if (options.outWidth <= 0 || options.outHeight <= 0) {
+                    return null;
+                }
+                options.inJustDecodeBounds = false;
+                options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+                options.inMutable = true;
+                options.inPreferredConfig = Bitmap.Config.RGB_565;
+                decodedForWidth = width;
+                decodedForHeight = height;
+            }
+
+            options.inBitmap = bitmap;
+            Bitmap decoded;
+            try {
+                decoded = BitmapFactory.decodeByteArray(data, 0, length, options);
+            } catch (IllegalArgumentException e) {
+                // 分辨率变化导致复用的Bitmap放不下，下一帧重新计算降采样并分配新的Bitmap
+                options.inBitmap = null;
+                options.inSampleSize = 0;
+                bitmap.recycle();
+                bitmap = null;
+                return null;
+            }
+            if (decoded != null && bitmap != null && decoded != bitmap) {
+                bitmap.recycle();
+            }
+            if (decoded != null) {
+                bitmap = decoded;
+            }
+            return decoded;
+        }
+
+        private boolean draw(Bitmap frameBitmap) {
+            synchronized (surfaceLock) {
+                if (!surfaceReady) {
+                    return false;
+                }
+                SurfaceHolder holder = getHolder();
+                Canvas canvas = holder.lockCanvas();
+                if (canvas == null) {
+                    return false;
+                }
+                try {
+                    // 保持宽高比居中显示
+                    int canvasWidth = canvas.getWidth();
+                    int canvasHeight = canvas.getHeight();
+                    float scale = Math.min((float) canvasWidth / frameBitmap.getWidth(),
+                            (float) canvasHeight / frameBitmap.getHeight());
+                    int drawWidth = Math.round(frameBitmap.getWidth() * scale);
+                    int drawHeight = Math.round(frameBitmap.getHeight() * scale);
+                    int left = (canvasWidth - drawWidth) / 2;
+                    int top = (canvasHeight - drawHeight) / 2;
+                    destRect.set(left, top, left + drawWidth, top + drawHeight);
+                    canvas.drawColor(Color.BLACK);
+                    canvas.drawBitmap(frameBitmap, null, destRect, paint);
+                } finally {
+                    holder.unlockCanvasAndPost(canvas);
+                }
+                return true;
+            }
+        }
+
+        private void postError(String message) {
+            post(() -> listener.onStreamError(message));
+        }
+
+        private void post(Runnable callback) {
+            mainHandler.post(() -> {
+                if (session == this && listener != null) {
+                    callback.run();
+                }
+            });
+        }
+    }
+}
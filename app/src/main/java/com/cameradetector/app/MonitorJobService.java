@@ -0,0 +1,292 @@
+package com.cameradetector.app;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 受信任网络的定期监控 - 由 JobScheduler 按间隔在连接不计流量的网络时唤醒（系统会与其他任务合并执行），
+ * 只有当前Wi-Fi是用户指定的网络时才用快速档位扫描一轮，结果交给 {@link MonitorState} 与上次比较，
+ * 出现新摄像头、已知摄像头开放新端口或厂商变化时发通知。
+ * 状态按网络保存在应用私有目录，之前确认过的摄像头在下一轮优先探测
+ */
+public class MonitorJobService extends JobService {
+
+    private static final String TAG = "MonitorJobService";
+
+    private static final int JOB_ID = 1047;
+    private static final String PREFS = "monitor";
+    private static final String KEY_SSID = "ssid";
+    private static final String KEY_INTERVAL = "interval_minutes";
+    private static final String CHANNEL_ID = "monitor";
+    private static final int NOTIFICATION_ID = 1047;
+    private static final String UNKNOWN_SSID = "<unknown ssid>";
+
+    // 系统允许的最短周期
+    public static final int MIN_INTERVAL_MINUTES = 15;
+
+    // 主线程写入；结果流的结束回调在后台线程读取
+    private volatile CameraDetector detector;
+
+    /**
+     * 开始监控当前连接的Wi-Fi，返回该网络的名称；没有连接Wi-Fi时返回null
+     */
+    public static String schedule(Context context, int intervalMinutes) {
+        String ssid = currentSsid(context);
+        if (ssid == null) {
+            return null;
+        }
+        int minutes = Math.max(MIN_INTERVAL_MINUTES, intervalMinutes);
+        prefs(context).edit()
+                .putString(KEY_SSID, ssid)
+                .putInt(KEY_INTERVAL, minutes)
+                .apply();
+
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID, new ComponentName(context, MonitorJobService.class))
+                .setPeriodic(minutes * 60 * 1000L)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setPersisted(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(true);
+        }
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        scheduler.schedule(builder.build());
+        return ssid;
+    }
+
+    public static void cancel(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        scheduler.cancel(JOB_ID);
+        prefs(context).edit().remove(KEY_SSID).apply();
+    }
+
+    /** 正在监控的网络名称，未开启监控时返回null */
+    public static String getTrustedSsid(Context context) {
+        return prefs(context).getString(KEY_SSID, null);
+    }
+
+    public static int getIntervalMinutes(Context context) {
+        return prefs(context).getInt(KEY_INTERVAL, MIN_INTERVAL_MINUTES);
+    }
+
+    /**
+     * 读取受信任网络的最近运行记录，从新到旧；在后台线程调用
+     */
+    public static List<MonitorState.Run> loadRuns(Context context) {
+        String ssid = getTrustedSsid(context);
+        if (ssid == null) {
+            return Collections.emptyList();
+        }
+        List<MonitorState.Run> runs = new ArrayList<>(loadState(context, ssid).getRuns());
+        Collections.reverse(runs);
+        return runs;
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        String trusted = getTrustedSsid(this);
+        if (trusted == null || !trusted.equals(currentSsid(this))) {
+            // 不在受信任的网络上，本次什么也不做
+            return false;
+        }
+
+        long startedMs = System.currentTimeMillis();
+        MonitorState.Scan scan = new MonitorState.Scan();
+        detector = new CameraDetector(this);
+        detector.setProfile(ScanProfile.QUICK);
+        CameraDetector active = detector;
+        try {
+            AppExecutors.getInstance().io().execute(() -> {
+                MonitorState state = loadState(this, trusted);
+                // 回到主线程开始扫描（扫描需要在主线程注册广播）
+                new Handler(Looper.getMainLooper()).post(() -> {
+                    if (detector != active) {
+                        return;
+                    }
+                    for (String address : state.getAddresses()) {
+                        active.addKnownCamera(address);
+                    }
+                    // 结果在后台线程汇总，结果流投递完最后一个结果后结束本轮
+                    active.results()
+                            // 摄像头热点没有局域网IP，不属于受信任网络上的设备
+                            .filter(CameraInfo::hasNetworkAddress)
+                            .deliverOn(AppExecutors.getInstance().cpu())
+                            .subscribe(new ScanStream.Subscriber<CameraInfo>() {
+                                @Override
+                                public void onSubscribe(ScanStream.Subscription subscription) {
+                                    subscription.request(Long.MAX_VALUE);
+                                }
+
+                                @Override
+                                public void onNext(CameraInfo camera) {
+                                    String key = camera.getMacAddress() != null
+                                            ? camera.getMacAddress().toUpperCase(Locale.US) : camera.getIpAddress();
+                                    scan.add(key, camera.getIpAddress(), camera.getManufacturer(), camera.getPort());
+                                    for (CameraInfo.Service service : camera.getServices()) {
+                                        scan.add(key, camera.getIpAddress(), null, service.port);
+                                    }
+                                }
+
+                                @Override
+                                public void onComplete() {
+                                    // onStopJob 停止扫描时流也会结束，此时放弃本轮
+                                    if (detector != active) {
+                                        return;
+                                    }
+                                    ScanBudget budget = active.getBudget();
+                                    new Handler(Looper.getMainLooper()).post(() -> {
+                                        active.destroy();
+                                        if (detector == active) {
+                                            detector = null;
+                                        }
+                                    });
+                                    try {
+                                        AppExecutors.getInstance().io().execute(() -> {
+                                            finishRun(trusted, state, scan, startedMs, budget);
+                                            jobFinished(params, false);
+                                        });
+                                    } catch (RejectedExecutionException e) {
+                                        // io线程池已满，本轮结果放弃，交给系统按退避策略重试
+                                        Log.e(TAG, "保存监控结果被拒绝: " + e.getMessage());
+                                        jobFinished(params, true);
+                                    }
+                                }
+                            });
+                    active.startComprehensiveScan(null);
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // io线程池已满：扫描还没开始，直接结束本次任务，下个周期再扫
+            Log.e(TAG, "监控任务被拒绝: " + e.getMessage());
+            active.destroy();
+            detector = null;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // 条件不再满足（例如断开了Wi-Fi），放弃本轮，下个周期再扫
+        if (detector != null) {
+            detector.destroy();
+            detector = null;
+        }
+        return false;
+    }
+
+    private void finishRun(String ssid, MonitorState state, MonitorState.Scan scan, long startedMs, ScanBudget budget) {
+        List<MonitorState.Change> changes = state.apply(scan, System.currentTimeMillis());
+        MonitorState.Run run = new MonitorState.Run(startedMs, budget.getElapsedMs(), budget.getProbes(),
+                budget.getBytes(), scan.size(), changes.size());
+        state.addRun(run);
+        Log.d(TAG, "监控 " + ssid + ": " + run);
+        saveState(this, ssid, state);
+        if (!changes.isEmpty()) {
+            notifyChanges(ssid, changes);
+        }
+    }
+
+    private void notifyChanges(String ssid, List<MonitorState.Change> changes) {
+        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "网络监控", NotificationManager.IMPORTANCE_DEFAULT));
+        }
+        StringBuilder text = new StringBuilder();
+        for (MonitorState.Change change : changes) {
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(change);
+        }
+        PendingIntent intent = PendingIntent.getActivity(this, 0, new Intent(this, MainActivity.class), 0);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(ssid + " 上的摄像头有变化")
+                .setContentText(changes.get(0).toString())
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(text))
+                .setContentIntent(intent)
+                .setAutoCancel(true);
+        manager.notify(NOTIFICATION_ID, builder.build());
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /** 当前连接的Wi-Fi名称，没有连接或无权读取时返回null */
+    static String currentSsid(Context context) {
+        WifiManager wifiManager = (WifiManager) context.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        WifiInfo wifiInfo = wifiManager != null ? wifiManager.getConnectionInfo() : null;
+        if (wifiInfo == null || wifiInfo.getSSID() == null || wifiInfo.getNetworkId() == -1) {
+            return null;
+        }
+        String ssid = wifiInfo.getSSID();
+        // 没有定位权限时系统返回 "<unknown ssid>"
+        return ssid.equals(UNKNOWN_SSID) ? null : ssid;
+    }
+
+    private static File stateFile(Context context, String ssid) {
+        File dir = new File(context.getFilesDir(), "monitor");
+        dir.mkdirs();
+        return new File(dir, String.format(Locale.US, "%08x.txt", ssid.hashCode()));
+    }
+
+    private static MonitorState loadState(Context context, String ssid) {
+        File file = stateFile(context, ssid);
+        if (!file.exists()) {
+            return new MonitorState();
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8")) {
+            return MonitorState.read(reader);
+        } catch (IOException e) {
+            Log.e(TAG, "读取监控状态失败: " + e.getMessage());
+            return new MonitorState();
+        }
+    }
+
+    // 先写临时文件再替换，写到一半被杀也不会损坏上次的状态
+    private static void saveState(Context context, String ssid, MonitorState state) {
+        File file = stateFile(context, ssid);
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8")) {
+            state.write(writer);
+        } catch (IOException e) {
+            Log.e(TAG, "保存监控状态失败: " + e.getMessage());
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "保存监控状态失败: 无法替换 " + file);
+        }
+    }
+}
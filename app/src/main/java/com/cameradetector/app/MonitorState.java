@@ -0,0 +1,383 @@
+package com.cameradetector.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 定期监控的已知设备状态 - 每个受信任网络一份，记录见过的摄像头（按MAC，没有MAC时按IP）、
+ * 厂商和出现过的端口，以及最近几次监控的开销。
+ * 邻居表偶尔查不到MAC，按键找不到时再按IP查找：一方按IP记录时视为同一设备，之后查到MAC时改按MAC记录。
+ * 每轮快速扫描的结果按键与已知状态比较（哈希查找，与设备数成线性），只报告：新出现的摄像头、
+ * 已知摄像头开放了从未见过的端口、已知摄像头识别出的厂商与之前不同。
+ * 端口按"出现过"累积、本轮没识别出厂商时沿用之前的，快速扫描偶尔漏掉的端口或厂商不会造成反复提醒；
+ * 本轮没扫到的设备保留，超过 FORGET_AFTER_MS 未出现才删除。
+ * 不依赖Android，可在JVM上验证
+ */
+public class MonitorState {
+
+    static final long FORGET_AFTER_MS = 30L * 24 * 60 * 60 * 1000;
+    // 保留最近的运行记录条数
+    static final int MAX_RUNS = 20;
+
+    private static final String HEADER = "camera-monitor 1";
+
+    /**
+     * 一个已知（或本轮扫到的）设备
+     */
+    public static class Device {
+        public final String key;
+        String ipAddress;
+        String vendor;
+        // 升序，无重复
+        int[] ports = new int[0];
+        long lastSeenMs;
+
+        Device(String key) {
+            this.key = key;
+        }
+
+        public String getIpAddress() { return ipAddress; }
+        public String getVendor() { return vendor; }
+        public int[] getPorts() { return ports.clone(); }
+        public long getLastSeenMs() { return lastSeenMs; }
+
+        public String getLabel() {
+            String host = ipAddress != null ? ipAddress : key;
+            return vendor != null ? vendor + " " + host : host;
+        }
+    }
+
+    /**
+     * 一项需要提醒的变化
+     */
+    public static class Change {
+        public enum Kind { NEW, PORTS, VENDOR }
+
+        public final Kind kind;
+        public final Device device;
+        // PORTS：新开放的端口
+        public final int[] openedPorts;
+        // VENDOR：之前识别的厂商
+        public final String previousVendor;
+
+        Change(Kind kind, Device device, int[] openedPorts, String previousVendor) {
+            this.kind = kind;
+            this.device = device;
+            this.openedPorts = openedPorts;
+            this.previousVendor = previousVendor;
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case NEW:
+                    return "新摄像头 " + device.getLabel() + " 端口 " + joinPorts(device.ports);
+                case PORTS:
+                    return device.getLabel() + " 新开放端口 " + joinPorts(openedPorts);
+                default:
+                    return (device.ipAddress != null ? device.ipAddress : device.key)
+                            + " 厂商由 " + previousVendor + " 变为 " + device.vendor;
+            }
+        }
+    }
+
+    /**
+     * 一次监控运行的开销
+     */
+    public static class Run {
+        public final long startedMs;
+        public final long elapsedMs;
+        public final int probes;
+        public final long bytes;
+        public final int devices;
+        public final int changes;
+
+        public Run(long startedMs, long elapsedMs, int probes, long bytes, int devices, int changes) {
+            this.startedMs = startedMs;
+            this.elapsedMs = elapsedMs;
+            this.probes = probes;
+            this.bytes = bytes;
+            this.devices = devices;
+            this.changes = changes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "耗时 %.1fs，探测 %d 次，%.1fKB，摄像头 %d，变化 %d",
+                    elapsedMs / 1000f, probes, bytes / 1024f, devices, changes);
+        }
+    }
+
+    /**
+     * 一轮扫描的结果，同一设备的多个端点按键合并
+     */
+    public static class Scan {
+        private final Map<String, Device> devices = new HashMap<>();
+
+        /**
+         * @param key 设备的MAC（大写），没有MAC时为IP
+         * @param port 端点端口，未知时为0
+         */
+        public void add(String key, String ipAddress, String vendor, int port) {
+            Device device = devices.get(key);
+            if (device == null) {
+                device = new Device(key);
+                devices.put(key, device);
+            }
+            if (ipAddress != null) {
+                device.ipAddress = ipAddress;
+            }
+            if (vendor != null && !vendor.isEmpty()) {
+                device.vendor = vendor;
+            }
+            if (port > 0) {
+                device.ports = union(device.ports, new int[]{port});
+            }
+        }
+
+        public int size() {
+            return devices.size();
+        }
+    }
+
+    private final Map<String, Device> devices = new HashMap<>();
+    private final List<Run> runs = new ArrayList<>();
+    // 还没有建立基线（第一次运行只记录，不提醒）
+    private boolean baseline = false;
+
+    /**
+     * 用一轮扫描的结果更新已知状态，返回需要提醒的变化；第一次运行只建立基线，返回空列表
+     */
+    public List<Change> apply(Scan scan, long nowMs) {
+        List<Change> changes = new ArrayList<>();
+        Map<String, Device> byIp = new HashMap<>();
+        for (Device device : devices.values()) {
+            if (device.ipAddress != null) {
+                byIp.put(device.ipAddress, device);
+            }
+        }
+        for (Device seen : scan.devices.values()) {
+            Device known = devices.get(seen.key);
+            if (known == null && seen.ipAddress != null) {
+                known = matchByIp(byIp.get(seen.ipAddress), seen);
+            }
+            if (known == null) {
+                seen.lastSeenMs = nowMs;
+                devices.put(seen.key, seen);
+                changes.add(new Change(Change.Kind.NEW, seen, null, null));
+                continue;
+            }
+            int[] opened = difference(seen.ports, known.ports);
+            if (opened.length > 0) {
+                known.ports = union(known.ports, opened);
+                changes.add(new Change(Change.Kind.PORTS, known, opened, null));
+            }
+            if (seen.vendor != null && !seen.vendor.equalsIgnoreCase(known.vendor)) {
+                String previous = known.vendor;
+                known.vendor = seen.vendor;
+                if (previous != null) {
+                    changes.add(new Change(Change.Kind.VENDOR, known, null, previous));
+                }
+            }
+            if (seen.ipAddress != null) {
+                known.ipAddress = seen.ipAddress;
+            }
+            known.lastSeenMs = nowMs;
+        }
+
+        Iterator<Device> iterator = devices.values().iterator();
+        while (iterator.hasNext()) {
+            if (nowMs - iterator.next().lastSeenMs > FORGET_AFTER_MS) {
+                iterator.remove();
+            }
+        }
+
+        if (!baseline) {
+            baseline = true;
+            return Collections.emptyList();
+        }
+        return changes;
+    }
+
+    // 同一IP上按IP记录的设备与按MAC记录的设备视为同一个；两个不同的MAC（IP被重新分配）不是
+    private Device matchByIp(Device known, Device seen) {
+        if (known == null) {
+            return null;
+        }
+        if (isMacKey(known.key)) {
+            return isMacKey(seen.key) ? null : known;
+        }
+        if (!isMacKey(seen.key)) {
+            return known;
+        }
+        // 之前没查到MAC，这次查到了：改按MAC记录
+        Device moved = new Device(seen.key);
+        moved.ipAddress = known.ipAddress;
+        moved.vendor = known.vendor;
+        moved.ports = known.ports;
+        moved.lastSeenMs = known.lastSeenMs;
+        devices.remove(known.key);
+        devices.put(moved.key, moved);
+        return moved;
+    }
+
+    // 形如 AA:BB:CC:DD:EE:FF
+    static boolean isMacKey(String key) {
+        if (key.length() != 17) {
+            return false;
+        }
+        for (int i = 2; i < 17; i += 3) {
+            if (key.charAt(i) != ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void addRun(Run run) {
+        runs.add(run);
+        if (runs.size() > MAX_RUNS) {
+            runs.remove(0);
+        }
+    }
+
+    /** 最近的运行记录，从旧到新 */
+    public List<Run> getRuns() {
+        return Collections.unmodifiableList(runs);
+    }
+
+    public Collection<Device> getDevices() {
+        return Collections.unmodifiableCollection(devices.values());
+    }
+
+    /** 已知摄像头的IP，用于下一轮扫描优先探测 */
+    public List<String> getAddresses() {
+        List<String> addresses = new ArrayList<>();
+        for (Device device : devices.values()) {
+            if (device.ipAddress != null) {
+                addresses.add(device.ipAddress);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * 写成每行一条记录的文本：D 设备，R 运行记录，字段以制表符分隔
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write(HEADER + "\n");
+        for (Device device : devices.values()) {
+            writer.write("D\t" + device.key + "\t" + field(device.ipAddress) + "\t" + field(device.vendor)
+                    + "\t" + joinPorts(device.ports) + "\t" + device.lastSeenMs + "\n");
+        }
+        for (Run run : runs) {
+            writer.write("R\t" + run.startedMs + "\t" + run.elapsedMs + "\t" + run.probes + "\t" + run.bytes
+                    + "\t" + run.devices + "\t" + run.changes + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * 读取 write 写出的状态；格式不认识时返回空状态（重新建立基线），无法解析的行跳过
+     */
+    public static MonitorState read(Reader reader) throws IOException {
+        MonitorState state = new MonitorState();
+        BufferedReader lines = new BufferedReader(reader);
+        if (!HEADER.equals(lines.readLine())) {
+            return state;
+        }
+        state.baseline = true;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            String[] fields = line.split("\t", -1);
+            try {
+                if (fields[0].equals("D") && fields.length == 6) {
+                    Device device = new Device(fields[1]);
+                    device.ipAddress = fields[2].isEmpty() ? null : fields[2];
+                    device.vendor = fields[3].isEmpty() ? null : fields[3];
+                    device.ports = parsePorts(fields[4]);
+                    device.lastSeenMs = Long.parseLong(fields[5]);
+                    state.devices.put(device.key, device);
+                } else if (fields[0].equals("R") && fields.length == 7) {
+                    state.addRun(new Run(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            Integer.parseInt(fields[3]), Long.parseLong(fields[4]),
+                            Integer.parseInt(fields[5]), Integer.parseInt(fields[6])));
+                }
+            } catch (NumberFormatException e) {
+                // 损坏的行不影响其他记录
+            }
+        }
+        return state;
+    }
+
+    // 字段中不能出现分隔符
+    private static String field(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    static String joinPorts(int[] ports) {
+        StringBuilder builder = new StringBuilder();
+        for (int port : ports) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(port);
+        }
+        return builder.toString();
+    }
+
+    private static int[] parsePorts(String text) {
+        if (text.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = text.split(",");
+        int[] ports = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ports[i] = Integer.parseInt(parts[i]);
+        }
+        Arrays.sort(ports);
+        return ports;
+    }
+
+    // 两个升序数组的并集
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[n++] = next;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // a 中有而 b 中没有的端口，两者均为升序
+    private static int[] difference(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        int n = 0;
+        for (int port : a) {
+            if (Arrays.binarySearch(b, port) < 0) {
+                result[n++] = port;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
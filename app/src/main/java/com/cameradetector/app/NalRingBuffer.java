@@ -0,0 +1,204 @@
+package com.cameradetector.app;
+
+import java.nio.ByteBuffer;
+
+/**
+ * NAL单元环形缓冲区 - 解包线程写入、解码线程取出，字节区和索引都在构造时一次分配。
+ * 每个单元以Annex-B起始码开头，在字节区中连续存放，可直接复制进解码器的输入缓冲区；
+ * 分片单元（FU-A/FU）通过 begin/append/commit 就地拼装。
+ * 写满时丢弃新单元并一直丢到下一个关键帧，避免把缺了参考帧的数据送进解码器。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public class NalRingBuffer {
+
+    /** 关键帧：IDR/IRAP 切片 */
+    public static final int FLAG_KEYFRAME = 1;
+    /** 参数集：SPS/PPS/VPS */
+    public static final int FLAG_CONFIG = 2;
+
+    private static final byte[] START_CODE = {0, 0, 0, 1};
+
+    /**
+     * 取出的单元信息，由调用方复用
+     */
+    public static final class Unit {
+        public long timestamp;
+        public int length;
+        public int flags;
+    }
+
+    private final byte[] data;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final long[] timestamps;
+    private final int[] unitFlags;
+
+    // 最早单元的索引和已提交的单元数
+    private int head = 0;
+    private int count = 0;
+    // 下一个单元在字节区中的起点
+    private int writePos = 0;
+
+    // 正在拼装的单元，pendingStart < 0 表示没有
+    private int pendingStart = -1;
+    private int pendingLength;
+    private long pendingTimestamp;
+    private int pendingFlags;
+
+    private boolean waitingForKeyframe = false;
+    private long droppedUnits = 0;
+
+    public NalRingBuffer(int capacityBytes, int maxUnits) {
+        data = new byte[capacityBytes];
+        offsets = new int[maxUnits];
+        lengths = new int[maxUnits];
+        timestamps = new long[maxUnits];
+        unitFlags = new int[maxUnits];
+    }
+
+    /**
+     * 写入一个完整的NAL单元（不含起始码），返回是否写入
+     */
+    public synchronized boolean write(long timestamp, int flags, byte[] source, int offset, int length) {
+        begin(timestamp, flags);
+        append(source, offset, length);
+        return commit();
+    }
+
+    /**
+     * 开始拼装一个NAL单元，之前未提交的单元被放弃
+     */
+    public synchronized void begin(long timestamp, int flags) {
+        pendingStart = -1;
+        if (waitingForKeyframe && (flags & (FLAG_KEYFRAME | FLAG_CONFIG)) == 0) {
+            droppedUnits++;
+            return;
+        }
+        if (count == offsets.length) {
+            overflow();
+            return;
+        }
+        waitingForKeyframe = false;
+        if (count == 0) {
+            writePos = 0;
+        }
+        pendingStart = writePos;
+        pendingLength = 0;
+        pendingTimestamp = timestamp;
+        pendingFlags = flags;
+        append(START_CODE, 0, START_CODE.length);
+    }
+
+    public synchronized void append(byte[] source, int offset, int length) {
+        if (pendingStart < 0) {
+            return;
+        }
+        if (!reserve(length)) {
+            overflow();
+            return;
+        }
+        System.arraycopy(source, offset, data, pendingStart + pendingLength, length);
+        pendingLength += length;
+    }
+
+    /**
+     * 提交正在拼装的单元，返回是否提交成功（拼装期间写满或被放弃时返回false）
+     */
+    public synchronized boolean commit() {
+        if (pendingStart < 0) {
+            return false;
+        }
+        int index = (head + count) % offsets.length;
+        offsets[index] = pendingStart;
+        lengths[index] = pendingLength;
+        timestamps[index] = pendingTimestamp;
+        unitFlags[index] = pendingFlags;
+        count++;
+        writePos = pendingStart + pendingLength;
+        pendingStart = -1;
+        notifyAll();
+        return true;
+    }
+
+    /** 放弃正在拼装的单元，如分片丢包 */
+    public synchronized void abort() {
+        pendingStart = -1;
+    }
+
+    /**
+     * 等待有单元可取，返回是否可取
+     */
+    public synchronized boolean await(long timeoutMs) throws InterruptedException {
+        if (count == 0) {
+            wait(timeoutMs);
+        }
+        return count > 0;
+    }
+
+    /**
+     * 取出最早的单元写入 target 当前位置，返回是否取到；target 放不下时丢弃该单元并返回false
+     */
+    public synchronized boolean take(ByteBuffer target, Unit unit) {
+        if (count == 0) {
+            return false;
+        }
+        int length = lengths[head];
+        boolean fits = target.remaining() >= length;
+        if (fits) {
+            target.put(data, offsets[head], length);
+            unit.timestamp = timestamps[head];
+            unit.length = length;
+            unit.flags = unitFlags[head];
+        } else {
+            droppedUnits++;
+        }
+        head = (head + 1) % offsets.length;
+        count--;
+        return fits;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized long getDroppedUnits() {
+        return droppedUnits;
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        count = 0;
+        writePos = 0;
+        pendingStart = -1;
+        waitingForKeyframe = false;
+    }
+
+    /**
+     * 保证正在拼装的单元还能追加 extra 字节；尾部放不下时把已拼装部分移到字节区头部
+     */
+    private boolean reserve(int extra) {
+        int needed = pendingLength + extra;
+        int readPos = count > 0 ? offsets[head] : -1;
+        if (readPos < 0 || readPos < pendingStart) {
+            // 已用区域没有回绕，可用到字节区末尾，放不下时回绕到头部，最多用到最早单元的起点
+            if (pendingStart + needed <= data.length) {
+                return true;
+            }
+            int limit = readPos < 0 ? data.length : readPos;
+            if (needed <= limit) {
+                System.arraycopy(data, pendingStart, data, 0, pendingLength);
+                pendingStart = 0;
+                return true;
+            }
+            return false;
+        }
+        // 已回绕，只能用到最早单元的起点
+        return pendingStart + needed <= readPos;
+    }
+
+    private void overflow() {
+        pendingStart = -1;
+        droppedUnits++;
+        waitingForKeyframe = true;
+    }
+}
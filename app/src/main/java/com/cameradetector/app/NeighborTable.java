@@ -0,0 +1,106 @@
+package com.cameradetector.app;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 邻居表（ARP缓存）读取器 - 用于解析局域网主机的MAC地址
+ * 优先读取 /proc/net/arp，不可读时（Android 10+）退回到 ip neigh 命令；
+ * 结果缓存在内存中，未命中时最多每 REFRESH_INTERVAL_MS 重新读取一次
+ */
+public class NeighborTable {
+
+    private static final String TAG = "NeighborTable";
+    private static final long REFRESH_INTERVAL_MS = 500;
+
+    private final Map<String, String> macByIp = new HashMap<>();
+    private long lastRefresh = 0;
+
+    /**
+     * 查询IP对应的MAC地址，查不到时返回null
+     */
+    public synchronized String getMacAddress(String ipAddress) {
+        String mac = macByIp.get(ipAddress);
+        if (mac == null && System.currentTimeMillis() - lastRefresh >= REFRESH_INTERVAL_MS) {
+            refresh();
+            mac = macByIp.get(ipAddress);
+        }
+        return mac;
+    }
+
+    public synchronized void clear() {
+        macByIp.clear();
+        lastRefresh = 0;
+    }
+
+    /**
+     * 清空缓存后重新读取一次邻居表，返回IP到MAC的副本；读取文件或执行命令，在后台线程调用
+     */
+    public synchronized Map<String, String> reload() {
+        macByIp.clear();
+        refresh();
+        return new HashMap<>(macByIp);
+    }
+
+    private void refresh() {
+        lastRefresh = System.currentTimeMillis();
+        if (!readProcArp()) {
+            readIpNeigh();
+        }
+    }
+
+    private boolean readProcArp() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/net/arp"))) {
+            // IP address  HW type  Flags  HW address  Mask  Device
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length >= 4 && !"0x0".equals(fields[2])) {
+                    put(fields[0], fields[3]);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void readIpNeigh() {
+        Process process = null;
+        try {
+            process = Runtime.getRuntime().exec(new String[]{"ip", "neigh", "show"});
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                // 192.168.1.64 dev wlan0 lladdr 28:57:be:12:34:56 REACHABLE
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.trim().split("\\s+");
+                    for (int i = 1; i < fields.length - 1; i++) {
+                        if ("lladdr".equals(fields[i])) {
+                            put(fields[0], fields[i + 1]);
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "无法读取邻居表: " + e.getMessage());
+        } finally {
+            if (process != null) {
+                process.destroy();
+            }
+        }
+    }
+
+    private void put(String ipAddress, String mac) {
+        if (mac.length() == 17 && !"00:00:00:00:00:00".equals(mac)) {
+            macByIp.put(ipAddress, mac.toLowerCase(Locale.US));
+        }
+    }
+}
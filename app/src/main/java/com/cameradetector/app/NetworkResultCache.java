@@ -0,0 +1,267 @@
+package com.cameradetector.app;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 按网络缓存的上次扫描结果 - 重新连上已知网络时先显示上次的设备列表，再由验证扫描逐个确认或移除。
+ * 网络由 BSSID/SSID 加子网标识：子网必须相同，BSSID或SSID任一相同即视为同一网络
+ * （同一个Mesh网络的多个接入点共用一份结果）。
+ * 只缓存网络摄像头的识别结果，不保存凭据；快照为紧凑的二进制格式，超过 MAX_NETWORKS 个网络时淘汰最久未更新的。
+ * 不依赖Android，可在JVM上验证
+ */
+public class NetworkResultCache {
+
+    private static final int MAGIC = 0x43524331;  // "CRC1"
+    static final int MAX_NETWORKS = 16;
+    static final int MAX_DEVICES = 512;
+    // 超过该时间未更新的网络不再显示缓存
+    static final long MAX_AGE_MS = 30L * 24 * 60 * 60 * 1000;
+
+    // 没有定位权限时系统返回的占位BSSID
+    private static final String UNKNOWN_BSSID = "02:00:00:00:00:00";
+
+    /**
+     * 网络标识
+     */
+    public static final class Key {
+        public final String ssid;
+        public final String bssid;
+        // 如 192.168.1.0/24
+        public final String subnet;
+
+        public Key(String ssid, String bssid, String subnet) {
+            this.ssid = ssid;
+            this.bssid = bssid == null || UNKNOWN_BSSID.equals(bssid) ? null : bssid.toLowerCase(Locale.US);
+            this.subnet = subnet;
+        }
+
+        /** 缺少子网，或SSID和BSSID都未知时不能作为缓存键 */
+        public boolean isValid() {
+            return subnet != null && (ssid != null || bssid != null);
+        }
+
+        boolean matches(Key other) {
+            return subnet != null && subnet.equals(other.subnet)
+                    && ((bssid != null && bssid.equals(other.bssid)) || (ssid != null && ssid.equals(other.ssid)));
+        }
+
+        @Override
+        public String toString() {
+            return (ssid != null ? ssid : bssid) + " " + subnet;
+        }
+    }
+
+    /**
+     * 一个网络的缓存结果
+     */
+    public static final class Snapshot {
+        public final Key key;
+        public final long savedAtMs;
+        final List<CameraInfo> devices;
+
+        Snapshot(Key key, long savedAtMs, List<CameraInfo> devices) {
+            this.key = key;
+            this.savedAtMs = savedAtMs;
+            this.devices = devices;
+        }
+
+        /**
+         * 为显示创建新的设备记录（标记为待确认），每次调用返回不同的对象
+         */
+        public List<CameraInfo> restore() {
+            List<CameraInfo> cameras = new ArrayList<>(devices.size());
+            for (CameraInfo device : devices) {
+                CameraInfo camera = copy(device);
+                camera.setUnverified(true);
+                cameras.add(camera);
+            }
+            return cameras;
+        }
+
+        public int size() {
+            return devices.size();
+        }
+    }
+
+    // 从新到旧
+    private final List<Snapshot> snapshots = new ArrayList<>();
+
+    /**
+     * 查找与该网络匹配的缓存，BSSID相同的优先；没有或已过期时返回null
+     */
+    public synchronized Snapshot get(Key key, long nowMs) {
+        if (key == null || !key.isValid()) {
+            return null;
+        }
+        Snapshot match = null;
+        for (Snapshot snapshot : snapshots) {
+            if (nowMs - snapshot.savedAtMs > MAX_AGE_MS || !snapshot.key.matches(key)) {
+                continue;
+            }
+            if (key.bssid != null && key.bssid.equals(snapshot.key.bssid)) {
+                return snapshot;
+            }
+            if (match == null) {
+                match = snapshot;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * 复制一轮扫描的结果，只保留网络摄像头；仍待确认的（本轮没有探测到的）缓存设备也保留，
+     * 在修改这些设备记录的线程（主线程）调用
+     */
+    public static Snapshot capture(Key key, List<CameraInfo> cameras, long nowMs) {
+        List<CameraInfo> devices = new ArrayList<>();
+        for (CameraInfo camera : cameras) {
+            if (camera.getType() == CameraInfo.CameraType.NETWORK && camera.getIpAddress() != null
+                    && devices.size() < MAX_DEVICES) {
+                devices.add(copy(camera));
+            }
+        }
+        return new Snapshot(key, nowMs, Collections.unmodifiableList(devices));
+    }
+
+    /**
+     * 替换同一网络的缓存
+     */
+    public synchronized void put(Snapshot snapshot) {
+        if (!snapshot.key.isValid()) {
+            return;
+        }
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (snapshots.get(i).key.matches(snapshot.key)) {
+                snapshots.remove(i);
+            }
+        }
+        snapshots.add(0, snapshot);
+        while (snapshots.size() > MAX_NETWORKS) {
+            snapshots.remove(snapshots.size() - 1);
+        }
+    }
+
+    public synchronized int size() {
+        return snapshots.size();
+    }
+
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(snapshots.size());
+        for (Snapshot snapshot : snapshots) {
+            writeString(out, snapshot.key.ssid);
+            writeString(out, snapshot.key.bssid);
+            writeString(out, snapshot.key.subnet);
+            out.writeLong(snapshot.savedAtMs);
+            out.writeShort(snapshot.devices.size());
+            for (CameraInfo device : snapshot.devices) {
+                writeString(out, device.getId());
+                writeString(out, device.getName());
+                writeString(out, device.getIpAddress());
+                out.writeShort(device.getPort());
+                writeString(out, device.getStreamPath());
+                writeString(out, device.getMacAddress());
+                writeString(out, device.getManufacturer());
+                writeString(out, device.getModel());
+                writeString(out, device.getDescription());
+                writeString(out, device.getNetworkInterface());
+                out.writeFloat(device.getConfidence());
+                out.writeByte((device.isAccessible() ? 1 : 0) | (device.hasPermission() ? 2 : 0));
+                List<CameraInfo.Service> services = device.getServices();
+                out.writeShort(services.size());
+                for (CameraInfo.Service service : services) {
+                    out.writeShort(service.port);
+                    writeString(out, service.path);
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取 write 写出的快照；格式不认识时返回空缓存
+     */
+    public static NetworkResultCache read(DataInput in) throws IOException {
+        NetworkResultCache cache = new NetworkResultCache();
+        if (in.readInt() != MAGIC) {
+            return cache;
+        }
+        int networks = in.readUnsignedShort();
+        for (int n = 0; n < networks; n++) {
+            Key key = new Key(readString(in), readString(in), readString(in));
+            long savedAtMs = in.readLong();
+            int count = in.readUnsignedShort();
+            List<CameraInfo> devices = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                CameraInfo device = new CameraInfo();
+                device.setType(CameraInfo.CameraType.NETWORK);
+                device.setId(readString(in));
+                device.setName(readString(in));
+                device.setIpAddress(readString(in));
+                device.setPort(in.readUnsignedShort());
+                device.setStreamPath(readString(in));
+                device.setMacAddress(readString(in));
+                device.setManufacturer(readString(in));
+                device.setModel(readString(in));
+                device.setDescription(readString(in));
+                device.setNetworkInterface(readString(in));
+                device.setConfidence(in.readFloat());
+                int flags = in.readUnsignedByte();
+                device.setAccessible((flags & 1) != 0);
+                device.setHasPermission((flags & 2) != 0);
+                int services = in.readUnsignedShort();
+                for (int s = 0; s < services; s++) {
+                    int port = in.readUnsignedShort();
+                    device.addService(port, readString(in));
+                }
+                devices.add(device);
+            }
+            if (cache.snapshots.size() < MAX_NETWORKS) {
+                cache.snapshots.add(new Snapshot(key, savedAtMs, Collections.unmodifiableList(devices)));
+            }
+        }
+        return cache;
+    }
+
+    // 只复制识别结果，不包括用户名、密码
+    private static CameraInfo copy(CameraInfo source) {
+        CameraInfo device = new CameraInfo();
+        device.setType(source.getType());
+        device.setId(source.getId());
+        device.setName(source.getName());
+        device.setIpAddress(source.getIpAddress());
+        device.setPort(source.getPort());
+        device.setStreamPath(source.getStreamPath());
+        device.setMacAddress(source.getMacAddress());
+        device.setManufacturer(source.getManufacturer());
+        device.setModel(source.getModel());
+        device.setDescription(source.getDescription());
+        device.setNetworkInterface(source.getNetworkInterface());
+        device.setConfidence(source.getConfidence());
+        device.setAccessible(source.isAccessible());
+        device.setHasPermission(source.hasPermission());
+        for (CameraInfo.Service service : source.getServices()) {
+            device.addService(service.port, service.path);
+        }
+        return device;
+    }
+
+    // null 与空字符串区分：先写一个标记字节
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
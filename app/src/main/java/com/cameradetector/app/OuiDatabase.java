@@ -0,0 +1,240 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 内嵌的OUI厂商数据库 - 根据MAC地址前24位识别设备厂商
+ * 数据来自 assets/oui.bin（由 src/main/oui/oui.csv 在构建时生成），首次使用时内存映射加载；
+ * 前缀保存在有序的 int[] 中二分查找，厂商名称共用一张表，查询过程不分配对象
+ */
+public final class OuiDatabase {
+
+    private static final String TAG = "OuiDatabase";
+    private static final String ASSET_NAME = "oui.bin";
+    private static final int MAGIC = 0x4F554931;  // "OUI1"
+
+    // 摄像头厂商（或其安防部门）的名称，规范化后整名匹配：同一集团的其他部门和名称中恰好包含
+    // 这些词的厂商（如 Panasonic 的家电、以 Axis 开头的其他公司）不算。
+    // 同时收录 oui.csv 中的简称和 IEEE 登记的全称，换成完整的 IEEE 列表后仍能识别
+    private static final Set<String> CAMERA_VENDORS = new HashSet<>(Arrays.asList(
+            "hikvision", "hangzhou hikvision digital technology",
+            "dahua", "zhejiang dahua technology",
+            "uniview", "zhejiang uniview technologies",
+            "axis communications",
+            "vivotek", "mobotix", "bosch security systems", "pelco",
+            "hanwha techwin", "samsung techwin",
+            "geovision", "avigilon", "arecont vision",
+            "milesight", "milesight technology",
+            "amcrest", "amcrest technologies",
+            "reolink", "shenzhen reolink technology",
+            "wyze", "wyze labs",
+            "foscam", "ezviz", "tiandy", "tiandy technologies", "kedacom", "infinova",
+            "panasonic i pro sensing solutions"
+    ));
+
+    // 规范化时去掉的结尾公司类型
+    private static final Set<String> COMPANY_SUFFIXES = new HashSet<>(Arrays.asList(
+            "co", "ltd", "limited", "inc", "corp", "corporation", "company", "llc", "ab", "ag", "bv", "gmbh", "sa"
+    ));
+
+    // 与 CameraDetector 中的中文厂商名保持一致，便于界面和品牌识别统一显示
+    private static final Map<String, String> DISPLAY_NAMES = new HashMap<String, String>() {{
+        put("Hikvision", "海康威视");
+        put("Dahua", "大华");
+        put("Uniview", "宇视");
+        put("Axis Communications", "安讯士");
+    }};
+
+    private static volatile OuiDatabase instance;
+
+    private final int[] prefixes;
+    private final short[] vendorIndexes;
+    private final String[] vendors;
+    private final boolean[] cameraVendors;
+
+    private OuiDatabase(int[] prefixes, short[] vendorIndexes, String[] vendors) {
+        this.prefixes = prefixes;
+        this.vendorIndexes = vendorIndexes;
+        this.vendors = vendors;
+        this.cameraVendors = new boolean[vendors.length];
+        for (int i = 0; i < vendors.length; i++) {
+            cameraVendors[i] = CAMERA_VENDORS.contains(normalizeVendor(vendors[i]));
+        }
+    }
+
+    /**
+     * 厂商名称规范化：转小写，标点换成空格，去掉结尾的公司类型，
+     * 如 "Axis Communications AB" 和 "Hangzhou Hikvision Digital Technology Co.,Ltd." 分别得到
+     * "axis communications" 和 "hangzhou hikvision digital technology"
+     */
+    static String normalizeVendor(String vendor) {
+        String[] words = vendor.toLowerCase(Locale.US).split("[^a-z0-9]+");
+        int end = words.length;
+        while (end > 0 && (words[end - 1].isEmpty() || COMPANY_SUFFIXES.contains(words[end - 1]))) {
+            end--;
+        }
+        StringBuilder normalized = new StringBuilder();
+        for (int i = 0; i < end; i++) {
+            if (words[i].isEmpty()) {
+                continue;
+            }
+            if (normalized.length() > 0) {
+                normalized.append(' ');
+            }
+            normalized.append(words[i]);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * 获取数据库实例，首次调用时从assets加载；加载失败时返回空库
+     */
+    public static OuiDatabase getInstance(Context context) {
+        OuiDatabase db = instance;
+        if (db == null) {
+            synchronized (OuiDatabase.class) {
+                db = instance;
+                if (db == null) {
+                    db = load(context.getApplicationContext());
+                    instance = db;
+                }
+            }
+        }
+        return db;
+    }
+
+    private static OuiDatabase load(Context context) {
+        long start = System.nanoTime();
+        try {
+            OuiDatabase db = parse(mapAsset(context));
+            Log.d(TAG, "加载OUI表: " + db.size() + " 条, " + db.vendors.length + " 个厂商, 耗时 "
+                    + (System.nanoTime() - start) / 1000 + "us");
+            return db;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "加载OUI表失败: " + e.getMessage());
+            return new OuiDatabase(new int[0], new short[0], new String[0]);
+        }
+    }
+
+    private static ByteBuffer mapAsset(Context context) throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(ASSET_NAME);
+             FileInputStream in = fd.createInputStream()) {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+        } catch (IOException e) {
+            // 资源被压缩时无法openFd，退回到普通读取
+            try (InputStream in = context.getAssets().open(ASSET_NAME)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return ByteBuffer.wrap(out.toByteArray());
+            }
+        }
+    }
+
+    static OuiDatabase parse(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("OUI表格式错误");
+        }
+        Charset utf8 = Charset.forName("UTF-8");
+        String[] vendors = new String[buffer.getInt()];
+        for (int i = 0; i < vendors.length; i++) {
+            byte[] name = new byte[buffer.getShort() & 0xffff];
+            buffer.get(name);
+            vendors[i] = new String(name, utf8).intern();
+        }
+        int count = buffer.getInt();
+        int[] prefixes = new int[count];
+        buffer.asIntBuffer().get(prefixes);
+        buffer.position(buffer.position() + count * 4);
+        short[] vendorIndexes = new short[count];
+        buffer.asShortBuffer().get(vendorIndexes);
+        return new OuiDatabase(prefixes, vendorIndexes, vendors);
+    }
+
+    /**
+     * 查找MAC地址对应的厂商序号
+     * @return 厂商序号，未收录或MAC格式无效时返回-1
+     */
+    public int lookup(CharSequence mac) {
+        int prefix = parsePrefix(mac);
+        if (prefix < 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(prefixes, prefix);
+        return index >= 0 ? vendorIndexes[index] : -1;
+    }
+
+    /**
+     * 查找MAC地址对应的厂商名称，未收录时返回null
+     */
+    public String getVendor(CharSequence mac) {
+        int vendor = lookup(mac);
+        return vendor >= 0 ? vendors[vendor] : null;
+    }
+
+    /**
+     * 返回适合界面显示的厂商名称（常见摄像头厂商使用中文名）
+     */
+    public String getDisplayVendor(CharSequence mac) {
+        String vendor = getVendor(mac);
+        if (vendor == null) {
+            return null;
+        }
+        String displayName = DISPLAY_NAMES.get(vendor);
+        return displayName != null ? displayName : vendor;
+    }
+
+    /**
+     * MAC地址是否属于摄像头厂商
+     */
+    public boolean isCameraVendor(CharSequence mac) {
+        int vendor = lookup(mac);
+        return vendor >= 0 && cameraVendors[vendor];
+    }
+
+    public int size() {
+        return prefixes.length;
+    }
+
+    /**
+     * 解析MAC地址的前3个字节，支持 aa:bb:cc、aa-bb-cc 和 aabbcc 形式
+     */
+    static int parsePrefix(CharSequence mac) {
+        if (mac == null) {
+            return -1;
+        }
+        int prefix = 0;
+        int digits = 0;
+        for (int i = 0; i < mac.length() && digits < 6; i++) {
+            char c = mac.charAt(i);
+            int value = Character.digit(c, 16);
+            if (value >= 0) {
+                prefix = (prefix << 4) | value;
+                digits++;
+            } else if (c != ':' && c != '-' && c != '.') {
+                return -1;
+            }
+        }
+        return digits == 6 ? prefix : -1;
+    }
+}
@@ -0,0 +1,196 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 页面哈希指纹索引 - 通过 favicon 的哈希值直接识别具体型号
+ * 同一型号在不同固件版本间通常返回相同的 /favicon.ico，
+ * 哈希值用 MurmurHash3 计算，与 Shodan 的 http.favicon.hash 算法一致，
+ * 可以直接导入公开的哈希列表；索引来自 assets/page_hashes.json，加载为开放寻址的 long 键哈希表。
+ * 登录页哈希在有实测数据之前不做，只收录 favicon
+ */
+public final class PageHashIndex {
+
+    private static final String TAG = "PageHashIndex";
+    private static final String ASSET_NAME = "page_hashes.json";
+
+    private static final long KIND_FAVICON = 1L << 32;
+
+    private static volatile PageHashIndex instance;
+
+    private final LongIntMap index;
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * 索引文件结构（Gson映射）
+     */
+    static class IndexFile {
+        List<Entry> favicon;
+    }
+
+    public static class Entry {
+        public int hash;
+        public String vendor;
+        public String model;
+    }
+
+    private PageHashIndex(IndexFile file) {
+        index = new LongIntMap(file.favicon != null ? file.favicon.size() : 0);
+        add(file.favicon, KIND_FAVICON);
+    }
+
+    private void add(List<Entry> list, long kind) {
+        if (list == null) {
+            return;
+        }
+        for (Entry entry : list) {
+            if (entry.model == null) {
+                continue;
+            }
+            index.put(kind | (entry.hash & 0xffffffffL), entries.size());
+            entries.add(entry);
+        }
+    }
+
+    public static PageHashIndex getInstance(Context context) {
+        PageHashIndex db = instance;
+        if (db == null) {
+            synchronized (PageHashIndex.class) {
+                db = instance;
+                if (db == null) {
+                    db = load(context.getApplicationContext());
+                    instance = db;
+                }
+            }
+        }
+        return db;
+    }
+
+    private static PageHashIndex load(Context context) {
+        try (Reader reader = new InputStreamReader(context.getAssets().open(ASSET_NAME), Charset.forName("UTF-8"))) {
+            PageHashIndex db = fromReader(reader);
+            Log.d(TAG, "加载页面哈希索引: " + db.entries.size() + " 条");
+            return db;
+        } catch (IOException | JsonParseException e) {
+            Log.e(TAG, "加载页面哈希索引失败: " + e.getMessage());
+            return new PageHashIndex(new IndexFile());
+        }
+    }
+
+    static PageHashIndex fromReader(Reader reader) {
+        IndexFile file = new Gson().fromJson(reader, IndexFile.class);
+        return new PageHashIndex(file != null ? file : new IndexFile());
+    }
+
+    /**
+     * 按 favicon 原始字节查找，未收录时返回null
+     */
+    public Entry findByFavicon(byte[] favicon, int length) {
+        return find(KIND_FAVICON, faviconHash(favicon, length));
+    }
+
+    private Entry find(long kind, int hash) {
+        int position = index.get(kind | (hash & 0xffffffffL));
+        return position >= 0 ? entries.get(position) : null;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * favicon哈希：对按MIME格式（每76字符换行）Base64编码后的内容计算 MurmurHash3，与Shodan一致
+     */
+    public static int faviconHash(byte[] data, int length) {
+        byte[] encoded = mimeBase64(data, length);
+        return murmur3(encoded, encoded.length, 0);
+    }
+
+    /**
+     * MurmurHash3 x86 32位版本
+     */
+    static int murmur3(byte[] data, int length, int seed) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int h1 = seed;
+        int blockEnd = length & ~3;
+
+        for (int i = 0; i < blockEnd; i += 4) {
+            int k1 = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8)
+                    | ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+            k1 *= c1;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+
+        int k1 = 0;
+        switch (length & 3) {
+            case 3:
+                k1 = (data[blockEnd + 2] & 0xff) << 16;
+                // fall through
+            case 2:
+                k1 |= (data[blockEnd + 1] & 0xff) << 8;
+                // fall through
+            case 1:
+                k1 |= data[blockEnd] & 0xff;
+                k1 *= c1;
+                k1 = Integer.rotateLeft(k1, 15);
+                k1 *= c2;
+                h1 ^= k1;
+                break;
+            default:
+                break;
+        }
+
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static final byte[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(Charset.forName("US-ASCII"));
+
+    // 与 Python base64.encodebytes 相同：每76个字符一个换行，末尾也有换行
+    private static byte[] mimeBase64(byte[] data, int length) {
+        int encodedLength = (length + 2) / 3 * 4;
+        byte[] out = new byte[encodedLength + (encodedLength + 75) / 76];
+        int o = 0;
+        int lineLength = 0;
+        for (int i = 0; i < length; i += 3) {
+            int b0 = data[i] & 0xff;
+            int b1 = i + 1 < length ? data[i + 1] & 0xff : 0;
+            int b2 = i + 2 < length ? data[i + 2] & 0xff : 0;
+            out[o++] = BASE64_ALPHABET[b0 >>> 2];
+            out[o++] = BASE64_ALPHABET[((b0 & 0x03) << 4) | (b1 >>> 4)];
+            out[o++] = i + 1 < length ? BASE64_ALPHABET[((b1 & 0x0f) << 2) | (b2 >>> 6)] : (byte) '=';
+            out[o++] = i + 2 < length ? BASE64_ALPHABET[b2 & 0x3f] : (byte) '=';
+            lineLength += 4;
+            if (lineLength == 76) {
+                out[o++] = '\n';
+                lineLength = 0;
+            }
+        }
+        if (lineLength > 0) {
+            out[o++] = '\n';
+        }
+        return out;
+    }
+}
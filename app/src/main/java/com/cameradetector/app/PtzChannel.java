@@ -0,0 +1,239 @@
+package com.cameradetector.app;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 单个摄像头的云台命令通道 - 命令在专用后台线程上按顺序发送，按钮只修改意图状态后立即返回。
+ * 发送前合并：未发出的移动只保留最新一个，与正在执行的移动相同的重复请求不再发送；
+ * 每次移动之后一定会跟一个 ptz_stop（松开按钮、超过最长移动时间或关闭通道时）。
+ * 记录从按下按钮到摄像头应答的延迟。
+ * 不依赖Android，传入 Transport 即可在JVM上测试
+ */
+public class PtzChannel {
+
+    public static final String STOP = "ptz_stop";
+
+    // 没有收到停止请求时移动的最长时间，防止松开事件丢失时云台一直转动
+    static final long DEFAULT_MAX_MOVE_MS = 5000;
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    /**
+     * 实际发送命令的方式，返回HTTP状态码
+     */
+    public interface Transport {
+        int send(String path) throws IOException;
+    }
+
+    /**
+     * 命令发送完成的回调，在通道线程上调用
+     */
+    public interface Listener {
+        void onCommandSent(String command, int status, long latencyMs);
+        void onCommandFailed(String command, IOException error);
+    }
+
+    private final Map<String, String> commands;
+    private final Transport transport;
+    private final long maxMoveMs;
+    private final Thread worker;
+    private volatile Listener listener;
+
+    private final Object lock = new Object();
+    // 以下状态由 lock 保护
+    private String requestedMove;
+    private long requestedAt;
+    private boolean stopRequested = false;
+    private long stopRequestedAt;
+    private String activeMove;
+    private long moveDeadline;
+    private boolean closed = false;
+
+    private long sentCommands = 0;
+    private long coalescedCommands = 0;
+    private long lastLatencyMs = -1;
+    private double averageLatencyMs = 0;
+    private long maxLatencyMs = 0;
+
+    public PtzChannel(String name, Map<String, String> commands, Transport transport) {
+        this(name, commands, transport, DEFAULT_MAX_MOVE_MS);
+    }
+
+    PtzChannel(String name, Map<String, String> commands, Transport transport, long maxMoveMs) {
+        this.commands = commands;
+        this.transport = transport;
+        this.maxMoveMs = maxMoveMs;
+        worker = new Thread(this::run, "Ptz-" + name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean supports(String command) {
+        return commands.containsKey(command);
+    }
+
+    /**
+     * 开始移动（ptz_left、zoom_in 等），不支持的命令返回false
+     */
+    public boolean move(String command) {
+        if (!commands.containsKey(command)) {
+            return false;
+        }
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+            if (requestedMove != null) {
+                // 上一个移动还没发出，被新的取代
+                coalescedCommands++;
+            }
+            requestedMove = command;
+            requestedAt = System.nanoTime();
+            // 最新的意图是继续移动，之前未发出的停止作废
+            stopRequested = false;
+            lock.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * 停止移动，没有正在进行的移动时忽略
+     */
+    public void stop() {
+        synchronized (lock) {
+            if (closed || (activeMove == null && requestedMove == null)) {
+                return;
+            }
+            stopRequested = true;
+            stopRequestedAt = System.nanoTime();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 关闭通道：还没发出的移动直接丢弃，正在移动时先发送停止，然后结束线程
+     */
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            requestedMove = null;
+            if (activeMove != null) {
+                stopRequested = true;
+                stopRequestedAt = System.nanoTime();
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            String command;
+            long requestTime;
+            synchronized (lock) {
+                while (true) {
+                    long now = System.nanoTime();
+                    if (requestedMove != null) {
+                        command = requestedMove;
+                        requestTime = requestedAt;
+                        requestedMove = null;
+                        moveDeadline = now + maxMoveMs * 1000000L;
+                        if (command.equals(activeMove)) {
+                            // 云台已经在按这个方向移动，只延长最长移动时间
+                            coalescedCommands++;
+                            continue;
+                        }
+                        activeMove = command;
+                        break;
+                    }
+                    boolean expired = activeMove != null && now - moveDeadline >= 0;
+                    if (stopRequested || expired) {
+                        stopRequested = false;
+                        if (activeMove == null) {
+                            continue;
+                        }
+                        activeMove = null;
+                        command = STOP;
+                        requestTime = expired ? now : stopRequestedAt;
+                        break;
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    try {
+                        if (activeMove != null) {
+                            long waitMs = (moveDeadline - now) / 1000000L;
+                            lock.wait(Math.max(1, waitMs));
+                        } else {
+                            lock.wait();
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            send(command, requestTime);
+        }
+    }
+
+    private void send(String command, long requestTime) {
+        String path = commands.get(command);
+        if (path == null) {
+            return;
+        }
+        Listener current = listener;
+        try {
+            int status = transport.send(path);
+            long latencyMs = (System.nanoTime() - requestTime) / 1000000L;
+            recordLatency(latencyMs);
+            if (current != null) {
+                current.onCommandSent(command, status, latencyMs);
+            }
+        } catch (IOException e) {
+            if (current != null) {
+                current.onCommandFailed(command, e);
+            }
+        }
+    }
+
+    private void recordLatency(long latencyMs) {
+        synchronized (lock) {
+            averageLatencyMs = sentCommands == 0 ? latencyMs
+                    : averageLatencyMs + (latencyMs - averageLatencyMs) * LATENCY_SMOOTHING;
+            sentCommands++;
+            lastLatencyMs = latencyMs;
+            maxLatencyMs = Math.max(maxLatencyMs, latencyMs);
+        }
+    }
+
+    public long getSentCommands() {
+        synchronized (lock) {
+            return sentCommands;
+        }
+    }
+
+    public long getCoalescedCommands() {
+        synchronized (lock) {
+            return coalescedCommands;
+        }
+    }
+
+    /** 按下按钮到收到应答的延迟统计 */
+    public String getLatencySummary() {
+        synchronized (lock) {
+            if (lastLatencyMs < 0) {
+                return "尚未发送命令";
+            }
+            return String.format(Locale.US, "延迟 %d ms（平均 %.0f，最大 %d）  已发送 %d  已合并 %d",
+                    lastLatencyMs, averageLatencyMs, maxLatencyMs, sentCommands, coalescedCommands);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.cameradetector.app;
+
+/**
+ * RTP视频解包 - 把 H.264（RFC 6184）或 H.265（RFC 7798）的RTP负载还原成NAL单元写入 NalRingBuffer。
+ * 支持单NAL包、聚合包（STAP-A / AP）和分片包（FU-A / FU）；分片中途丢包时放弃整个NAL单元。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public class RtpDepacketizer {
+
+    public enum Codec {
+        H264,
+        H265
+    }
+
+    private static final int RTP_HEADER_LENGTH = 12;
+
+    private static final int H264_STAP_A = 24;
+    private static final int H264_FU_A = 28;
+    private static final int H265_AP = 48;
+    private static final int H265_FU = 49;
+
+    private final Codec codec;
+    private final NalRingBuffer ring;
+    private final byte[] header = new byte[2];
+
+    private int lastSequence = -1;
+    private boolean fragmenting = false;
+    private long receivedPackets = 0;
+    private long lostPackets = 0;
+
+    public RtpDepacketizer(Codec codec, NalRingBuffer ring) {
+        this.codec = codec;
+        this.ring = ring;
+    }
+
+    /**
+     * 处理一个RTP包（不含TCP交织头），格式错误的包被忽略
+     */
+    public void onRtpPacket(byte[] packet, int offset, int length) {
+        if (length < RTP_HEADER_LENGTH || (packet[offset] & 0xC0) != 0x80) {
+            return;
+        }
+        int end = offset + length;
+        boolean padding = (packet[offset] & 0x20) != 0;
+        boolean extension = (packet[offset] & 0x10) != 0;
+        int csrcCount = packet[offset] & 0x0F;
+        int sequence = ((packet[offset + 2] & 0xFF) << 8) | (packet[offset + 3] & 0xFF);
+        long timestamp = ((long) (packet[offset + 4] & 0xFF) << 24) | ((packet[offset + 5] & 0xFF) << 16)
+                | ((packet[offset + 6] & 0xFF) << 8) | (packet[offset + 7] & 0xFF);
+
+        int payload = offset + RTP_HEADER_LENGTH + csrcCount * 4;
+        if (extension) {
+            if (payload + 4 > end) {
+                return;
+            }
+            int words = ((packet[payload + 2] & 0xFF) << 8) | (packet[payload + 3] & 0xFF);
+            payload += 4 + words * 4;
+        }
+        if (padding) {
+            end -= packet[end - 1] & 0xFF;
+        }
+        if (payload >= end) {
+            return;
+        }
+
+        receivedPackets++;
+        if (lastSequence >= 0 && sequence != ((lastSequence + 1) & 0xFFFF)) {
+            lostPackets += (sequence - lastSequence - 1) & 0xFFFF;
+            if (fragmenting) {
+                fragmenting = false;
+                ring.abort();
+            }
+        }
+        lastSequence = sequence;
+
+        if (codec == Codec.H264) {
+            depacketizeH264(packet, payload, end, timestamp);
+        } else {
+            depacketizeH265(packet, payload, end, timestamp);
+        }
+    }
+
+    public long getReceivedPackets() {
+        return receivedPackets;
+    }
+
+    public long getLostPackets() {
+        return lostPackets;
+    }
+
+    private void depacketizeH264(byte[] packet, int payload, int end, long timestamp) {
+        int type = packet[payload] & 0x1F;
+        if (type >= 1 && type < H264_STAP_A) {
+            ring.write(timestamp, h264Flags(type), packet, payload, end - payload);
+        } else if (type == H264_STAP_A) {
+            writeAggregated(packet, payload + 1, end, timestamp);
+        } else if (type == H264_FU_A && payload + 2 <= end) {
+            int fuHeader = packet[payload + 1] & 0xFF;
+            int nalType = fuHeader & 0x1F;
+            if ((fuHeader & 0x80) != 0) {
+                // 用FU indicator的F/NRI位和FU header的类型还原NAL头
+                header[0] = (byte) ((packet[payload] & 0xE0) | nalType);
+                ring.begin(timestamp, h264Flags(nalType));
+                ring.append(header, 0, 1);
+                fragmenting = true;
+            }
+            appendFragment(packet, payload + 2, end, (fuHeader & 0x40) != 0);
+        }
+        // STAP-B、MTAP、FU-B 只用于交错模式，摄像头不使用
+    }
+
+    private void depacketizeH265(byte[] packet, int payload, int end, long timestamp) {
+        if (payload + 2 > end) {
+            return;
+        }
+        int type = (packet[payload] >> 1) & 0x3F;
+        if (type < H265_AP) {
+            ring.write(timestamp, h265Flags(type), packet, payload, end - payload);
+        } else if (type == H265_AP) {
+            writeAggregated(packet, payload + 2, end, timestamp);
+        } else if (type == H265_FU && payload + 3 <= end) {
+            int fuHeader = packet[payload + 2] & 0xFF;
+            int nalType = fuHeader & 0x3F;
+            if ((fuHeader & 0x80) != 0) {
+                header[0] = (byte) ((packet[payload] & 0x81) | (nalType << 1));
+                header[1] = packet[payload + 1];
+                ring.begin(timestamp, h265Flags(nalType));
+                ring.append(header, 0, 2);
+                fragmenting = true;
+            }
+            appendFragment(packet, payload + 3, end, (fuHeader & 0x40) != 0);
+        }
+    }
+
+    // 聚合包：每个NAL单元前有16位长度（假定 sprop-max-don-diff=0，没有DON字段）
+    private void writeAggregated(byte[] packet, int position, int end, long timestamp) {
+        while (position + 2 <= end) {
+            int size = ((packet[position] & 0xFF) << 8) | (packet[position + 1] & 0xFF);
+            position += 2;
+            if (size == 0 || position + size > end) {
+                return;
+            }
+            int flags = codec == Codec.H264
+                    ? h264Flags(packet[position] & 0x1F)
+                    : h265Flags((packet[position] >> 1) & 0x3F);
+            ring.write(timestamp, flags, packet, position, size);
+            position += size;
+        }
+    }
+
+    private void appendFragment(byte[] packet, int position, int end, boolean last) {
+        if (!fragmenting) {
+            // 起始分片丢失
+            return;
+        }
+        ring.append(packet, position, end - position);
+        if (last) {
+            fragmenting = false;
+            ring.commit();
+        }
+    }
+
+    private static int h264Flags(int type) {
+        if (type == 5) {
+            return NalRingBuffer.FLAG_KEYFRAME;
+        }
+        return type == 7 || type == 8 ? NalRingBuffer.FLAG_CONFIG : 0;
+    }
+
+    private static int h265Flags(int type) {
+        // 16-23 为IRAP切片，32-34 为VPS/SPS/PPS
+        if (type >= 16 && type <= 23) {
+            return NalRingBuffer.FLAG_KEYFRAME;
+        }
+        return type >= 32 && type <= 34 ? NalRingBuffer.FLAG_CONFIG : 0;
+    }
+}
@@ -0,0 +1,509 @@
+package com.cameradetector.app;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RTSP客户端 - OPTIONS/DESCRIBE/SETUP/PLAY/TEARDOWN，RTP通过同一TCP连接交织传输（RFC 2326 10.12），
+ * 不需要额外的UDP端口，也能穿过只开放554端口的网络。支持Basic和Digest认证。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public class RtspClient implements Closeable {
+
+    private static final int DEFAULT_PORT = 554;
+    private static final String USER_AGENT = "CameraDetector";
+    // 会话未声明超时时按RTSP默认的60秒保活
+    private static final int DEFAULT_SESSION_TIMEOUT = 60;
+
+    /**
+     * 交织数据回调，在读取应答或 readPackets 的线程上调用；data 在回调返回后会被复用
+     */
+    public interface PacketListener {
+        void onInterleavedPacket(int channel, byte[] data, int offset, int length);
+    }
+
+    /**
+     * 服务器返回了非2xx状态
+     */
+    public static class StatusException extends IOException {
+        private final int status;
+
+        StatusException(String method, int status, String reason) {
+            super(method + " 失败: " + status + " " + reason);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * RTSP应答，头部名称统一为小写
+     */
+    public static class Response {
+        private final int status;
+        private final String reason;
+        private final Map<String, String> headers;
+        private final String body;
+
+        Response(int status, String reason, Map<String, String> headers, String body) {
+            this.status = status;
+            this.reason = reason;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getHeader(String name) {
+            return headers.get(name.toLowerCase(Locale.US));
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+
+    private final String url;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private int cseq = 0;
+    private String session;
+    private int sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+    private String contentBase;
+
+    // 认证质询，收到401后设置
+    private String realm;
+    private String nonce;
+    private String qop;
+    private String opaque;
+    private boolean digest;
+    private int nonceCount = 0;
+
+    private long lastKeepAlive;
+    private PacketListener packetListener;
+    // 交织包长度字段为16位，一个缓冲区即可容纳任意包
+    private final byte[] packet = new byte[65536];
+
+    public RtspClient(String url, String username, String password) throws IOException {
+        if (!url.regionMatches(true, 0, "rtsp://", 0, 7)) {
+            throw new IOException("不是RTSP地址: " + url);
+        }
+        int pathStart = url.indexOf('/', 7);
+        String authority = pathStart >= 0 ? url.substring(7, pathStart) : url.substring(7);
+        int at = authority.lastIndexOf('@');
+        String user = username;
+        String pass = password;
+        if (at >= 0) {
+            // 地址里带的凭据优先
+            String userInfo = authority.substring(0, at);
+            int colon = userInfo.indexOf(':');
+            user = colon >= 0 ? userInfo.substring(0, colon) : userInfo;
+            pass = colon >= 0 ? userInfo.substring(colon + 1) : "";
+            authority = authority.substring(at + 1);
+        }
+        // IPv6地址带方括号，如 [fe80::1%wlan0]:554
+        int portSeparator = authority.startsWith("[") ? authority.indexOf(':', authority.indexOf(']')) : authority.lastIndexOf(':');
+        String hostPart = portSeparator >= 0 ? authority.substring(0, portSeparator) : authority;
+        if (hostPart.startsWith("[") && hostPart.endsWith("]")) {
+            hostPart = hostPart.substring(1, hostPart.length() - 1);
+        }
+        try {
+            this.port = portSeparator >= 0 ? Integer.parseInt(authority.substring(portSeparator + 1)) : DEFAULT_PORT;
+        } catch (NumberFormatException e) {
+            throw new IOException("无效端口: " + url);
+        }
+        this.host = hostPart;
+        this.username = user;
+        this.password = pass;
+        // 请求行中不带凭据
+        this.url = at >= 0 ? "rtsp://" + (host.contains(":") ? "[" + host + "]" : host) + ":" + port
+                + (pathStart >= 0 ? url.substring(pathStart) : "") : url;
+    }
+
+    public void connect(int timeoutMs) throws IOException {
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), timeoutMs);
+        socket.setSoTimeout(timeoutMs);
+        socket.setTcpNoDelay(true);
+        in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+        out = socket.getOutputStream();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Response options() throws IOException {
+        return execute("OPTIONS", url, null);
+    }
+
+    /**
+     * 获取会话描述，并记录 Content-Base 作为相对 control 地址的基准
+     */
+    public SessionDescription describe() throws IOException {
+        Response response = execute("DESCRIBE", url, "Accept: application/sdp\r\n");
+        contentBase = response.getHeader("Content-Base");
+        if (contentBase == null) {
+            contentBase = response.getHeader("Content-Location");
+        }
+        if (contentBase == null) {
+            contentBase = url;
+        }
+        return SessionDescription.parse(response.getBody());
+    }
+
+    public String getContentBase() {
+        return contentBase;
+    }
+
+    /**
+     * 以TCP交织方式建立媒体流，RTP走 channel，RTCP走 channel+1
+     */
+    public void setup(String controlUrl, int channel) throws IOException {
+        Response response = execute("SETUP", controlUrl,
+                "Transport: RTP/AVP/TCP;unicast;interleaved=" + channel + "-" + (channel + 1) + "\r\n");
+        String sessionHeader = response.getHeader("Session");
+        if (sessionHeader == null) {
+            throw new IOException("SETUP 应答缺少 Session");
+        }
+        // Session: 12345678;timeout=60
+        String[] parts = sessionHeader.split(";");
+        session = parts[0].trim();
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i].trim();
+            if (part.startsWith("timeout=")) {
+                try {
+                    sessionTimeout = Integer.parseInt(part.substring("timeout=".length()).trim());
+                } catch (NumberFormatException e) {
+                    sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+                }
+            }
+        }
+    }
+
+    /**
+     * 设置交织数据回调，应在PLAY之前设置，服务器可能在PLAY应答之前就开始发包
+     */
+    public void setPacketListener(PacketListener listener) {
+        this.packetListener = listener;
+    }
+
+    public void play() throws IOException {
+        execute("PLAY", contentBase != null ? contentBase : url, "Range: npt=0.000-\r\n");
+        lastKeepAlive = System.currentTimeMillis();
+    }
+
+    /**
+     * 持续读取交织数据直到连接关闭；期间收到的RTSP应答（保活）被跳过，超过会话超时的一半时发送保活请求
+     */
+    public void readPackets() throws IOException {
+        while (true) {
+            int marker = in.read();
+            if (marker < 0) {
+                throw new EOFException("RTSP连接已关闭");
+            }
+            if (marker == '$') {
+                int channel = readByte();
+                int length = (readByte() << 8) | readByte();
+                readFully(packet, length);
+                if (packetListener != null) {
+                    packetListener.onInterleavedPacket(channel, packet, 0, length);
+                }
+            } else if (marker == 'R') {
+                readResponse('R');
+            }
+            // 其他字节无法识别，逐字节跳过直到重新同步
+
+            if (session != null && System.currentTimeMillis() - lastKeepAlive > sessionTimeout * 500L) {
+                lastKeepAlive = System.currentTimeMillis();
+                send("GET_PARAMETER", contentBase != null ? contentBase : url, null);
+            }
+        }
+    }
+
+    public void teardown() {
+        if (session == null || out == null) {
+            return;
+        }
+        try {
+            send("TEARDOWN", contentBase != null ? contentBase : url, null);
+        } catch (IOException e) {
+            // 连接已断开，服务器会在会话超时后自行清理
+        }
+        session = null;
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+
+    /**
+     * 发送请求并读取应答，401时按服务器质询认证后重试一次
+     */
+    private Response execute(String method, String requestUrl, String extraHeaders) throws IOException {
+        send(method, requestUrl, extraHeaders);
+        Response response = awaitResponse();
+        if (response.status == 401 && username != null && !username.isEmpty() && parseChallenge(response)) {
+            send(method, requestUrl, extraHeaders);
+            response = awaitResponse();
+        }
+        if (response.status < 200 || response.status >= 300) {
+            throw new StatusException(method, response.status, response.reason);
+        }
+        return response;
+    }
+
+    private void send(String method, String requestUrl, String extraHeaders) throws IOException {
+        StringBuilder request = new StringBuilder();
+        request.append(method).append(' ').append(requestUrl).append(" RTSP/1.0\r\n");
+        request.append("CSeq: ").append(++cseq).append("\r\n");
+        request.append("User-Agent: ").append(USER_AGENT).append("\r\n");
+        if (session != null) {
+            request.append("Session: ").append(session).append("\r\n");
+        }
+        String authorization = authorization(method, requestUrl);
+        if (authorization != null) {
+            request.append("Authorization: ").append(authorization).append("\r\n");
+        }
+        if (extraHeaders != null) {
+            request.append(extraHeaders);
+        }
+        request.append("\r\n");
+        out.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /**
+     * 等待下一个应答，之前到达的交织数据照常交给回调
+     */
+    private Response awaitResponse() throws IOException {
+        while (true) {
+            int b = readByte();
+            if (b == '$') {
+                int channel = readByte();
+                int length = (readByte() << 8) | readByte();
+                readFully(packet, length);
+                if (packetListener != null) {
+                    packetListener.onInterleavedPacket(channel, packet, 0, length);
+                }
+            } else if (b != '\r' && b != '\n') {
+                return readResponse(b);
+            }
+        }
+    }
+
+    /**
+     * 读取一个应答，firstByte 为调用方已经读走的首字节
+     */
+    private Response readResponse(int firstByte) throws IOException {
+        String statusLine = readLine(firstByte);
+        if (!statusLine.startsWith("RTSP/")) {
+            throw new IOException("无效的RTSP应答: " + statusLine);
+        }
+        String[] parts = statusLine.split(" ", 3);
+        int status;
+        try {
+            status = Integer.parseInt(parts[1]);
+        } catch (RuntimeException e) {
+            throw new IOException("无效的RTSP状态行: " + statusLine);
+        }
+        String reason = parts.length > 2 ? parts[2] : "";
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        String line;
+        while (!(line = readLine(in.read())).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.US);
+            String value = line.substring(colon + 1).trim();
+            // 同时提供Basic和Digest时优先Digest
+            if (!headers.containsKey(name) || (name.equals("www-authenticate") && value.startsWith("Digest"))) {
+                headers.put(name, value);
+            }
+        }
+
+        String body = "";
+        String contentLength = headers.get("content-length");
+        if (contentLength != null) {
+            int length;
+            try {
+                length = Integer.parseInt(contentLength);
+            } catch (NumberFormatException e) {
+                throw new IOException("无效的 Content-Length: " + contentLength);
+            }
+            byte[] bytes = new byte[length];
+            readFully(bytes, length);
+            body = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new Response(status, reason, headers, body);
+    }
+
+    private boolean parseChallenge(Response response) {
+        String challenge = response.getHeader("WWW-Authenticate");
+        if (challenge == null) {
+            return false;
+        }
+        // 已经用同一个nonce认证过仍然401，说明凭据错误
+        String previousNonce = nonce;
+        boolean wasAuthenticated = realm != null;
+        digest = challenge.regionMatches(true, 0, "Digest", 0, 6);
+        realm = parameter(challenge, "realm");
+        nonce = parameter(challenge, "nonce");
+        qop = parameter(challenge, "qop");
+        opaque = parameter(challenge, "opaque");
+        nonceCount = 0;
+        if (realm == null) {
+            realm = "";
+        }
+        return !wasAuthenticated || (digest && nonce != null && !nonce.equals(previousNonce));
+    }
+
+    private String authorization(String method, String requestUrl) {
+        if (realm == null || username == null) {
+            return null;
+        }
+        if (!digest) {
+            String credentials = username + ":" + (password != null ? password : "");
+            return "Basic " + base64(credentials.getBytes(StandardCharsets.UTF_8));
+        }
+        String ha1 = md5(username + ":" + realm + ":" + (password != null ? password : ""));
+        String ha2 = md5(method + ":" + requestUrl);
+        StringBuilder header = new StringBuilder("Digest username=\"").append(username)
+                .append("\", realm=\"").append(realm)
+                .append("\", nonce=\"").append(nonce)
+                .append("\", uri=\"").append(requestUrl).append('"');
+        if (qop != null && qop.contains("auth")) {
+            String nc = String.format(Locale.US, "%08x", ++nonceCount);
+            String cnonce = Long.toHexString(new SecureRandom().nextLong());
+            header.append(", qop=auth, nc=").append(nc).append(", cnonce=\"").append(cnonce).append('"');
+            header.append(", response=\"").append(md5(ha1 + ":" + nonce + ":" + nc + ":" + cnonce + ":auth:" + ha2)).append('"');
+        } else {
+            header.append(", response=\"").append(md5(ha1 + ":" + nonce + ":" + ha2)).append('"');
+        }
+        if (opaque != null) {
+            header.append(", opaque=\"").append(opaque).append('"');
+        }
+        return header.toString();
+    }
+
+    // realm="IP Camera", nonce="abc", qop="auth"
+    private static String parameter(String challenge, String name) {
+        int index = challenge.toLowerCase(Locale.US).indexOf(name + "=");
+        while (index > 0 && Character.isLetterOrDigit(challenge.charAt(index - 1))) {
+            index = challenge.toLowerCase(Locale.US).indexOf(name + "=", index + 1);
+        }
+        if (index < 0) {
+            return null;
+        }
+        int start = index + name.length() + 1;
+        if (start < challenge.length() && challenge.charAt(start) == '"') {
+            int end = challenge.indexOf('"', start + 1);
+            return end > start ? challenge.substring(start + 1, end) : challenge.substring(start + 1);
+        }
+        int end = challenge.indexOf(',', start);
+        return (end >= 0 ? challenge.substring(start, end) : challenge.substring(start)).trim();
+    }
+
+    private String readLine(int firstByte) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b = firstByte;
+        while (b >= 0 && b != '\n') {
+            if (b != '\r') {
+                line.write(b);
+            }
+            if (line.size() > 8192) {
+                throw new IOException("RTSP头部行过长");
+            }
+            b = in.read();
+        }
+        if (b < 0) {
+            throw new EOFException("RTSP连接已关闭");
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("RTSP连接已关闭");
+        }
+        return b;
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new EOFException("RTSP连接已关闭");
+            }
+            read += n;
+        }
+    }
+
+    private static String md5(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format(Locale.US, "%02x", b & 0xFF));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // android.util.Base64 在JVM上不可用，java.util.Base64 需要API 26，这里只需要编码Basic凭据
+    private static String base64(byte[] data) {
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder encoded = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int i = 0; i < data.length; i += 3) {
+            int chunk = (data[i] & 0xFF) << 16;
+            if (i + 1 < data.length) {
+                chunk |= (data[i + 1] & 0xFF) << 8;
+            }
+            if (i + 2 < data.length) {
+                chunk |= data[i + 2] & 0xFF;
+            }
+            encoded.append(alphabet.charAt((chunk >> 18) & 0x3F));
+            encoded.append(alphabet.charAt((chunk >> 12) & 0x3F));
+            encoded.append(i + 1 < data.length ? alphabet.charAt((chunk >> 6) & 0x3F) : '=');
+            encoded.append(i + 2 < data.length ? alphabet.charAt(chunk & 0x3F) : '=');
+        }
+        return encoded.toString();
+    }
+}
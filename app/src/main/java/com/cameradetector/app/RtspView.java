@@ -0,0 +1,289 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.util.Base64;
+import android.util.Log;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 原生RTSP播放视图 - 网络线程用 RtspClient 拉流、RtpDepacketizer 解包到 NalRingBuffer，
+ * 解码线程把NAL单元送入 MediaCodec 并直接渲染到本视图的Surface
+ */
+public class RtspView extends SurfaceView implements SurfaceHolder.Callback {
+
+    private static final String TAG = "RtspView";
+
+    private static final int CONNECT_TIMEOUT = 3000;
+    private static final int RTP_CHANNEL = 0;
+    private static final int RING_CAPACITY = 4 * 1024 * 1024;
+    private static final int RING_UNITS = 1024;
+    private static final long DEQUEUE_TIMEOUT_US = 10000;
+    // SDP通常不带分辨率，解码器会按SPS调整
+    private static final int DEFAULT_WIDTH = 1920;
+    private static final int DEFAULT_HEIGHT = 1080;
+    private static final byte[] START_CODE = {0, 0, 0, 1};
+
+    public interface Listener {
+        /** 第一帧已显示 */
+        void onStreamStarted();
+        void onStreamError(String message);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Object surfaceLock = new Object();
+    private boolean surfaceReady = false;
+
+    private Listener listener;
+    private Session session;
+
+    public RtspView(Context context) {
+        super(context);
+        getHolder().addCallback(this);
+    }
+
+    public RtspView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        getHolder().addCallback(this);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void start(String url, String username, String password) {
+        stop();
+        session = new Session(url, username, password);
+        session.start();
+    }
+
+    public void stop() {
+        if (session != null) {
+            session.stop();
+            session = null;
+        }
+    }
+
+    public boolean isPlaying() {
+        return session != null;
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            surfaceReady = true;
+            surfaceLock.notifyAll();
+        }
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            surfaceReady = false;
+        }
+        // 解码器输出到这个Surface，Surface销毁前必须停止
+        stop();
+    }
+
+    /**
+     * 一次播放：网络线程 + 解码线程，停止后的回调不再投递
+     */
+    private final class Session {
+        private final String url;
+        private final String username;
+        private final String password;
+        private final NalRingBuffer ring = new NalRingBuffer(RING_CAPACITY, RING_UNITS);
+
+        private volatile boolean running = true;
+        private volatile RtspClient client;
+        private volatile Thread decodeThread;
+
+        Session(String url, String username, String password) {
+            this.url = url;
+            this.username = username;
+            this.password = password;
+        }
+
+        void start() {
+            new Thread(this::receive, "RtspReceiver").start();
+        }
+
+        void stop() {
+            running = false;
+            RtspClient current = client;
+            if (current != null) {
+                // 关闭连接以唤醒阻塞在read上的网络线程，服务器在会话超时后自行清理
+                current.close();
+            }
+            if (decodeThread != null) {
+                decodeThread.interrupt();
+            }
+        }
+
+        private void receive() {
+            try (RtspClient rtsp = new RtspClient(url, username, password)) {
+                client = rtsp;
+                rtsp.connect(CONNECT_TIMEOUT);
+                SessionDescription description = rtsp.describe();
+                SessionDescription.Media video = description.getVideo();
+                if (video == null) {
+                    postError("没有可解码的视频流（仅支持H.264/H.265）");
+                    return;
+                }
+                rtsp.setup(description.resolveControl(video, rtsp.getContentBase()), RTP_CHANNEL);
+
+                RtpDepacketizer depacketizer = new RtpDepacketizer(
+                        video.isH264() ? RtpDepacketizer.Codec.H264 : RtpDepacketizer.Codec.H265, ring);
+                rtsp.setPacketListener((channel, data, offset, length) -> {
+                    if (channel == RTP_CHANNEL) {
+                        depacketizer.onRtpPacket(data, offset, length);
+                    }
+                });
+                decodeThread = new Thread(() -> decode(video), "RtspDecoder");
+                decodeThread.start();
+                rtsp.play();
+                rtsp.readPackets();
+            } catch (IOException e) {
+                if (running) {
+                    Log.e(TAG, "RTSP播放失败: " + url, e);
+                    postError(e.getMessage());
+                }
+            }
+        }
+
+        private void decode(SessionDescription.Media video) {
+            MediaCodec codec = null;
+            try {
+                synchronized (surfaceLock) {
+                    while (!surfaceReady && running) {
+                        surfaceLock.wait();
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                String mime = video.isH264() ? MediaFormat.MIMETYPE_VIDEO_AVC : MediaFormat.MIMETYPE_VIDEO_HEVC;
+                MediaFormat format = MediaFormat.createVideoFormat(mime, DEFAULT_WIDTH, DEFAULT_HEIGHT);
+                applyParameterSets(format, video);
+                codec = MediaCodec.createDecoderByType(mime);
+                codec.configure(format, getHolder().getSurface(), null, 0);
+                codec.start();
+
+                int clockRate = video.getClockRate() > 0 ? video.getClockRate() : 90000;
+                NalRingBuffer.Unit unit = new NalRingBuffer.Unit();
+                MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+                boolean started = false;
+                while (running) {
+                    if (ring.await(DEQUEUE_TIMEOUT_US / 1000)) {
+                        int inputIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+                        if (inputIndex >= 0) {
+                            ByteBuffer input = codec.getInputBuffer(inputIndex);
+                            input.clear();
+                            if (ring.take(input, unit)) {
+                                int flags = (unit.flags & NalRingBuffer.FLAG_CONFIG) != 0 ? MediaCodec.BUFFER_FLAG_CODEC_CONFIG
+                                        : (unit.flags & NalRingBuffer.FLAG_KEYFRAME) != 0 ? MediaCodec.BUFFER_FLAG_KEY_FRAME : 0;
+                                codec.queueInputBuffer(inputIndex, 0, unit.length, unit.timestamp * 1000000L / clockRate, flags);
+                            } else {
+                                codec.queueInputBuffer(inputIndex, 0, 0, 0, 0);
+                            }
+                        }
+                    }
+                    // 解码出的帧立即渲染，不按时间戳排队，延迟最低
+                    int outputIndex;
+                    while ((outputIndex = codec.dequeueOutputBuffer(info, 0)) >= 0 || outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                        if (outputIndex >= 0) {
+                            codec.releaseOutputBuffer(outputIndex, true);
+                            if (!started) {
+                                started = true;
+                                post(() -> listener.onStreamStarted());
+                            }
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // 停止播放
+            } catch (IOException | RuntimeException e) {
+                // MediaCodec 的错误都是运行时异常（IllegalStateException、CodecException）
+                if (running) {
+                    Log.e(TAG, "视频解码失败", e);
+                    postError("视频解码失败: " + e.getMessage());
+                }
+            } finally {
+                if (codec != null) {
+                    try {
+                        codec.stop();
+                    } catch (RuntimeException e) {
+                        // 解码器已处于错误状态
+                    }
+                    codec.release();
+                }
+                Log.d(TAG, "RTSP播放结束，丢弃 " + ring.getDroppedUnits() + " 个NAL单元");
+            }
+        }
+
+        /**
+         * SDP带参数集时作为解码器配置（csd-0/csd-1），否则解码器从码流中的SPS/PPS获取
+         */
+        private void applyParameterSets(MediaFormat format, SessionDescription.Media video) {
+            try {
+                if (video.isH264()) {
+                    String sets = video.getFormatParameter("sprop-parameter-sets");
+                    if (sets != null) {
+                        String[] parts = sets.split(",");
+                        format.setByteBuffer("csd-0", withStartCode(parts[0]));
+                        if (parts.length > 1) {
+                            format.setByteBuffer("csd-1", withStartCode(parts[1]));
+                        }
+                    }
+                } else {
+                    // H.265 的 VPS/SPS/PPS 拼在一起作为 csd-0
+                    ByteArrayOutputStream csd = new ByteArrayOutputStream();
+                    for (String name : new String[]{"sprop-vps", "sprop-sps", "sprop-pps"}) {
+                        String value = video.getFormatParameter(name);
+                        if (value == null) {
+                            return;
+                        }
+                        csd.write(START_CODE);
+                        csd.write(Base64.decode(value, Base64.DEFAULT));
+                    }
+                    format.setByteBuffer("csd-0", ByteBuffer.wrap(csd.toByteArray()));
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                Log.w(TAG, "SDP参数集无效，改用码流中的参数集: " + e.getMessage());
+            }
+        }
+
+        private ByteBuffer withStartCode(String base64) {
+            byte[] nal = Base64.decode(base64, Base64.DEFAULT);
+            ByteBuffer buffer = ByteBuffer.allocate(START_CODE.length + nal.length);
+            buffer.put(START_CODE).put(nal);
+            buffer.flip();
+            return buffer;
+        }
+
+        private void postError(String message) {
+            post(() -> listener.onStreamError(message));
+        }
+
+        private void post(Runnable callback) {
+            mainHandler.post(() -> {
+                if (session == this && listener != null) {
+                    callback.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.cameradetector.app;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单轮扫描的预算 - 探测次数、接收字节数和总时长，任一项用尽即结束扫描
+ * 由各个扫描线程并发扣减，记录最先用尽的那一项；结束时记录已扫描主机的覆盖率
+ */
+public class ScanBudget {
+
+    public enum Limit {
+        NONE(null),
+        PROBES("探测次数"),
+        BYTES("流量"),
+        TIME("时间");
+
+        public final String label;
+
+        Limit(String label) {
+            this.label = label;
+        }
+    }
+
+    private final ScanProfile profile;
+    private final long startTime;
+    private final long timeLimitMs;
+    private final AtomicInteger probes = new AtomicInteger(0);
+    private final AtomicLong bytes = new AtomicLong(0);
+    private final AtomicReference<Limit> exhausted = new AtomicReference<>(Limit.NONE);
+    private volatile long endTime = 0;
+    private volatile int scannedHosts = 0;
+    private volatile int totalHosts = 0;
+
+    public ScanBudget(ScanProfile profile) {
+        this(profile, 0);
+    }
+
+    /**
+     * @param deadlineMs 调用方要求的截止时间（毫秒），0表示只使用档位的时间预算
+     */
+    public ScanBudget(ScanProfile profile, long deadlineMs) {
+        this.profile = profile;
+        this.startTime = System.currentTimeMillis();
+        this.timeLimitMs = deadlineMs > 0 ? Math.min(deadlineMs, profile.maxTimeMs) : profile.maxTimeMs;
+    }
+
+    /**
+     * 申请一次探测，预算已用尽时返回false
+     */
+    public boolean tryProbe() {
+        if (exhausted.get() != Limit.NONE) {
+            return false;
+        }
+        if (checkDeadline()) {
+            return false;
+        }
+        if (probes.incrementAndGet() > profile.maxProbes) {
+            exhaust(Limit.PROBES);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 记录收到的字节数，超出预算后下一次 tryProbe 返回false
+     */
+    public void addBytes(long count) {
+        if (bytes.addAndGet(count) > profile.maxBytes) {
+            exhaust(Limit.BYTES);
+        }
+    }
+
+    /**
+     * 检查是否已到截止时间，到了则标记时间预算用尽
+     */
+    public boolean checkDeadline() {
+        if (System.currentTimeMillis() - startTime >= timeLimitMs) {
+            exhaust(Limit.TIME);
+            return true;
+        }
+        return false;
+    }
+
+    public long getTimeLimitMs() {
+        return timeLimitMs;
+    }
+
+    private void exhaust(Limit limit) {
+        exhausted.compareAndSet(Limit.NONE, limit);
+    }
+
+    public boolean isExhausted() {
+        return exhausted.get() != Limit.NONE;
+    }
+
+    /**
+     * 结束扫描的预算项，正常扫描完所有目标时为 NONE
+     */
+    public Limit getExhaustedLimit() {
+        return exhausted.get();
+    }
+
+    void finish(int scannedHosts, int totalHosts) {
+        if (endTime == 0) {
+            endTime = System.currentTimeMillis();
+            this.scannedHosts = scannedHosts;
+            this.totalHosts = totalHosts;
+        }
+    }
+
+    /**
+     * 结束时已完成的主机占全部目标的百分比
+     */
+    public int getCoveragePercent() {
+        return totalHosts > 0 ? (int) (100L * Math.min(scannedHosts, totalHosts) / totalHosts) : 100;
+    }
+
+    public ScanProfile getProfile() {
+        return profile;
+    }
+
+    public int getProbes() {
+        return Math.min(probes.get(), profile.maxProbes);
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getElapsedMs() {
+        return (endTime != 0 ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    /**
+     * 用于显示的预算使用情况
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder()
+                .append(profile.label).append("扫描: ")
+                .append(getProbes()).append("/").append(profile.maxProbes).append(" 次探测, ")
+                .append(getBytes() / 1024).append("/").append(profile.maxBytes / 1024).append(" KB, ")
+                .append(String.format(java.util.Locale.US, "%.1f", getElapsedMs() / 1000.0)).append(" 秒, ")
+                .append("覆盖 ").append(getCoveragePercent()).append("%");
+        Limit limit = getExhaustedLimit();
+        if (limit != Limit.NONE) {
+            summary.append("（").append(limit.label).append("预算用尽）");
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,393 @@
+package com.cameradetector.app;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 扫描结果导出 - 从 {@link Source} 逐条取记录，边取边写到输出流，支持 NDJSON（每行一个JSON对象，用Gson的 JsonWriter 写出）
+ * 和 CSV。写出时只复用一个 {@link Record}，历史记录逐行从游标读取，几十万条也不会整体载入内存。
+ * 记录分两种：设备（一行一个设备）和探测结果（设备上发现的一个端口/路径）。
+ * 在后台线程调用，线程被中断时停止导出并抛出 InterruptedIOException
+ */
+public class ScanExporter {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 每写出这么多条记录回调一次进度
+    static final int PROGRESS_INTERVAL = 1000;
+
+    private static final String[] CSV_COLUMNS = {
+            "kind", "time", "device_id", "name", "type", "ip", "mac", "vendor", "model",
+            "confidence", "status", "interface", "port", "path"
+    };
+
+    public enum Format {
+        NDJSON("ndjson", "application/x-ndjson"),
+        CSV("csv", "text/csv");
+
+        public final String extension;
+        public final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+    }
+
+    /**
+     * 一条导出记录，由数据源就地填充后立即写出
+     */
+    public static class Record {
+        public enum Kind { DEVICE, PROBE }
+
+        public Kind kind;
+        // 记录时间（毫秒），0表示未知
+        public long time;
+        public String deviceId;
+        public String name;
+        public CameraInfo.CameraType type;
+        public String ipAddress;
+        public String macAddress;
+        public String vendor;
+        public String model;
+        public float confidence;
+        public String status;
+        public String networkInterface;
+        // 探测结果的端口和路径；设备记录为设备的主端口，没有时为0
+        public int port;
+        public String path;
+
+        public void clear() {
+            kind = null;
+            time = 0;
+            deviceId = null;
+            name = null;
+            type = null;
+            ipAddress = null;
+            macAddress = null;
+            vendor = null;
+            model = null;
+            confidence = 0f;
+            status = null;
+            networkInterface = null;
+            port = 0;
+            path = null;
+        }
+
+        /** 按设备的当前状态填充，kind 为 DEVICE */
+        public void setDevice(CameraInfo camera, long time) {
+            clear();
+            kind = Kind.DEVICE;
+            this.time = time;
+            deviceId = camera.getId();
+            name = camera.getName();
+            type = camera.getType();
+            ipAddress = camera.getIpAddress();
+            macAddress = camera.getMacAddress();
+            vendor = camera.getManufacturer();
+            model = camera.getModel();
+            confidence = camera.getConfidence();
+            status = camera.getStatusString();
+            networkInterface = camera.getNetworkInterface();
+            port = camera.getPort();
+        }
+
+        /** 在设备记录的基础上改为该设备的一个探测结果 */
+        public void setProbe(int port, String path) {
+            kind = Kind.PROBE;
+            this.port = port;
+            this.path = path;
+        }
+
+        void copyFrom(Record other) {
+            kind = other.kind;
+            time = other.time;
+            deviceId = other.deviceId;
+            name = other.name;
+            type = other.type;
+            ipAddress = other.ipAddress;
+            macAddress = other.macAddress;
+            vendor = other.vendor;
+            model = other.model;
+            confidence = other.confidence;
+            status = other.status;
+            networkInterface = other.networkInterface;
+            port = other.port;
+            path = other.path;
+        }
+    }
+
+    /**
+     * 记录来源，可以是内存中的设备列表，也可以是数据库游标；export 结束（包括出错、取消）时关闭
+     */
+    public interface Source extends Closeable {
+        /** 填充下一条记录，没有更多记录时返回false */
+        boolean next(Record record) throws IOException;
+
+        /** 记录总数，未知时返回-1 */
+        long size();
+
+        /** 释放游标等资源，可重复调用 */
+        @Override
+        void close();
+    }
+
+    public interface Filter {
+        boolean accept(Record record);
+    }
+
+    public interface ProgressListener {
+        /**
+         * @param written 已写出的记录数
+         * @param total 数据源的记录总数（含被过滤掉的），未知时为-1
+         */
+        void onProgress(long written, long total);
+    }
+
+    /**
+     * 导出全部通过筛选的记录，返回写出的条数；数据源在返回或抛出异常前关闭，输出流由调用方关闭
+     * @param filter 可以为null
+     * @param listener 可以为null
+     */
+    public static long export(Source source, Format format, Filter filter, OutputStream output,
+                              ProgressListener listener) throws IOException {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8), BUFFER_SIZE);
+            RecordWriter recordWriter = format == Format.CSV ? new CsvWriter(writer) : new NdjsonWriter(writer);
+            Record record = new Record();
+            long total = source.size();
+            long read = 0;
+            long written = 0;
+            while (source.next(record)) {
+                if (++read % PROGRESS_INTERVAL == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("导出已取消");
+                    }
+                    if (listener != null) {
+                        listener.onProgress(written, total);
+                    }
+                }
+                if (filter == null || filter.accept(record)) {
+                    recordWriter.write(record);
+                    written++;
+                }
+            }
+            writer.flush();
+            if (listener != null) {
+                listener.onProgress(written, total);
+            }
+            return written;
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * 设备列表数据源：每个设备一条设备记录，紧接着它的各个探测结果。
+     * 设备的当前状态在调用线程（修改这些设备的主线程）复制，导出线程不再读取 CameraInfo
+     * @param includeProbes 为false时只输出设备记录
+     */
+    public static Source devices(List<CameraInfo> cameras, boolean includeProbes, long time) {
+        List<Record> records = new ArrayList<>(cameras.size());
+        for (CameraInfo camera : cameras) {
+            Record device = new Record();
+            device.setDevice(camera, time);
+            records.add(device);
+            if (includeProbes) {
+                for (CameraInfo.Service service : camera.getServices()) {
+                    Record probe = new Record();
+                    probe.setDevice(camera, time);
+                    probe.setProbe(service.port, service.path);
+                    records.add(probe);
+                }
+            }
+        }
+        return new Source() {
+            private int index = 0;
+
+            @Override
+            public boolean next(Record record) {
+                if (index >= records.size()) {
+                    return false;
+                }
+                record.copyFrom(records.get(index++));
+                return true;
+            }
+
+            @Override
+            public long size() {
+                return records.size();
+            }
+
+            @Override
+            public void close() {
+                // 内存中的列表，没有需要释放的资源
+            }
+        };
+    }
+
+    /** 只导出设备记录 */
+    public static Filter devicesOnly() {
+        return record -> record.kind == Record.Kind.DEVICE;
+    }
+
+    public static Filter minConfidence(float confidence) {
+        return record -> record.confidence >= confidence;
+    }
+
+    /** 只导出该时间（毫秒）之后的记录 */
+    public static Filter since(long timeMs) {
+        return record -> record.time >= timeMs;
+    }
+
+    public static Filter allOf(Filter... filters) {
+        return record -> {
+            for (Filter filter : filters) {
+                if (filter != null && !filter.accept(record)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private interface RecordWriter {
+        void write(Record record) throws IOException;
+    }
+
+    /**
+     * 同一个 JsonWriter 连续写多个顶层对象（lenient 模式），对象之间直接向底层 Writer 写换行
+     */
+    private static class NdjsonWriter implements RecordWriter {
+        private final Writer out;
+        private final JsonWriter json;
+
+        NdjsonWriter(Writer out) {
+            this.out = out;
+            this.json = new JsonWriter(out);
+            json.setLenient(true);
+            json.setSerializeNulls(false);
+        }
+
+        @Override
+        public void write(Record record) throws IOException {
+            json.beginObject();
+            json.name("kind").value(record.kind == Record.Kind.PROBE ? "probe" : "device");
+            if (record.time > 0) {
+                json.name("time").value(record.time);
+            }
+            json.name("device_id").value(record.deviceId);
+            json.name("name").value(record.name);
+            json.name("type").value(record.type != null ? record.type.name() : null);
+            json.name("ip").value(record.ipAddress);
+            json.name("mac").value(record.macAddress);
+            json.name("vendor").value(record.vendor);
+            json.name("model").value(record.model);
+            json.name("confidence").value(Float.valueOf(record.confidence));
+            json.name("status").value(record.status);
+            json.name("interface").value(record.networkInterface);
+            if (record.port > 0) {
+                json.name("port").value(record.port);
+            }
+            json.name("path").value(record.path);
+            json.endObject();
+            out.write('\n');
+        }
+    }
+
+    /**
+     * RFC 4180 CSV：含逗号、引号或换行的字段加引号，引号双写；开头写入BOM，表格软件按UTF-8打开中文不乱码。
+     * 名称、厂商等文本来自局域网设备，以公式字符开头的值前加单引号，表格软件不会把它当作公式执行
+     */
+    private static class CsvWriter implements RecordWriter {
+        private final Writer out;
+
+        CsvWriter(Writer out) throws IOException {
+            this.out = out;
+            out.write('\uFEFF');
+            for (int i = 0; i < CSV_COLUMNS.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(CSV_COLUMNS[i]);
+            }
+            out.write("\r\n");
+        }
+
+        @Override
+        public void write(Record record) throws IOException {
+            field(record.kind == Record.Kind.PROBE ? "probe" : "device");
+            out.write(',');
+            if (record.time > 0) {
+                out.write(Long.toString(record.time));
+            }
+            out.write(',');
+            field(record.deviceId);
+            out.write(',');
+            field(record.name);
+            out.write(',');
+            field(record.type != null ? record.type.name() : null);
+            out.write(',');
+            field(record.ipAddress);
+            out.write(',');
+            field(record.macAddress);
+            out.write(',');
+            field(record.vendor);
+            out.write(',');
+            field(record.model);
+            out.write(',');
+            out.write(String.format(Locale.US, "%.2f", record.confidence));
+            out.write(',');
+            field(record.status);
+            out.write(',');
+            field(record.networkInterface);
+            out.write(',');
+            if (record.port > 0) {
+                out.write(Integer.toString(record.port));
+            }
+            out.write(',');
+            field(record.path);
+            out.write("\r\n");
+        }
+
+        private void field(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (isFormula(value)) {
+                value = "'" + value;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        static boolean isFormula(String value) {
+            if (value.isEmpty()) {
+                return false;
+            }
+            char first = value.charAt(0);
+            return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+        }
+    }
+}
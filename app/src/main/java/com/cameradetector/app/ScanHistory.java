@@ -0,0 +1,263 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+/**
+ * 扫描历史 - {@link HistoryStore} 在Android上的实现：SQLite数据库开启WAL（写入不阻塞读取），
+ * 所有写入都在 "ScanHistory" 线程上进行。扫描过程中的结果只在内存中合并，
+ * 每 FLUSH_INTERVAL_MS 最多提交一个事务，存储写入不会拖慢扫描
+ */
+public class ScanHistory {
+
+    private static final String TAG = "ScanHistory";
+
+    private static final String DATABASE_NAME = "history.db";
+    // 批量写入间隔
+    static final long FLUSH_INTERVAL_MS = 2000;
+
+    private static volatile ScanHistory instance;
+
+    private final Handler handler;
+    private final OpenHelper helper;
+    private volatile HistoryStore store;
+    // 已安排了下一次flush；只在调用 record 的线程和写线程之间传递，由 this 保护
+    private boolean flushScheduled = false;
+
+    public static ScanHistory getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ScanHistory.class) {
+                if (instance == null) {
+                    instance = new ScanHistory(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ScanHistory(Context context) {
+        helper = new OpenHelper(context);
+        HandlerThread thread = new HandlerThread("ScanHistory");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        // 打开数据库（可能需要建表）也在写线程进行
+        handler.post(this::getStore);
+    }
+
+    /**
+     * 开始记录一轮扫描
+     * @param network 网络名称（Wi-Fi的SSID），同一网络的设备按此归并
+     */
+    public void startScan(String network, ScanProfile profile) {
+        long now = System.currentTimeMillis();
+        handler.post(() -> getStore().startScan(network, profile.name(), now));
+    }
+
+    /**
+     * 记录一个设备的当前状态，可在任意线程调用；只合并到内存，稍后批量写入
+     */
+    public void record(CameraInfo camera) {
+        HistoryStore.Observation observation = HistoryStore.Observation.of(camera, System.currentTimeMillis());
+        if (observation == null) {
+            return;
+        }
+        handler.post(() -> {
+            if (getStore().record(observation)) {
+                scheduleFlush();
+            }
+        });
+    }
+
+    /**
+     * 记录本轮扫描的结束时间和开销，并立即写入
+     */
+    public void finishScan(ScanBudget budget) {
+        long now = System.currentTimeMillis();
+        handler.post(() -> {
+            getStore().finishScan(now, budget.getProbes(), budget.getBytes());
+            flush();
+        });
+    }
+
+    /**
+     * 按时间顺序导出某个网络的全部观测，在后台线程调用
+     */
+    public ScanExporter.Source exportSource(String network) {
+        return getStore().exportSource(network);
+    }
+
+    private synchronized void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(this::flush, FLUSH_INTERVAL_MS);
+        }
+    }
+
+    // 在写线程执行
+    private void flush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        try {
+            int written = getStore().flush();
+            if (written > 0) {
+                Log.d(TAG, "写入 " + written + " 条观测");
+            }
+        } catch (RuntimeException e) {
+            // 数据库出错（例如存储空间不足）只丢失这一批历史，不影响扫描
+            Log.e(TAG, "写入扫描历史失败: " + e.getMessage());
+        }
+    }
+
+    private HistoryStore getStore() {
+        HistoryStore current = store;
+        if (current == null) {
+            synchronized (this) {
+                current = store;
+                if (current == null) {
+                    current = new HistoryStore(new AndroidDatabase(helper.getWritableDatabase()));
+                    store = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static class OpenHelper extends SQLiteOpenHelper {
+        OpenHelper(Context context) {
+            super(context, DATABASE_NAME, null, HistoryStore.VERSION);
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        @Override
+        public void onConfigure(SQLiteDatabase db) {
+            // WAL模式下 NORMAL 不会损坏数据库，最多丢失最后一个事务
+            db.execSQL("PRAGMA synchronous = NORMAL");
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            HistoryStore.createSchema(new AndroidDatabase(db));
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // 目前只有一个版本
+        }
+    }
+
+    /**
+     * SQLiteDatabase 到 {@link HistoryStore.Database} 的适配
+     */
+    private static class AndroidDatabase implements HistoryStore.Database {
+        private final SQLiteDatabase db;
+
+        AndroidDatabase(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        @Override
+        public void execute(String sql) {
+            db.execSQL(sql);
+        }
+
+        @Override
+        public HistoryStore.Statement prepare(String sql) {
+            SQLiteStatement statement = db.compileStatement(sql);
+            return new HistoryStore.Statement() {
+                @Override
+                public void bindString(int index, String value) {
+                    statement.bindString(index, value);
+                }
+
+                @Override
+                public void bindLong(int index, long value) {
+                    statement.bindLong(index, value);
+                }
+
+                @Override
+                public void bindDouble(int index, double value) {
+                    statement.bindDouble(index, value);
+                }
+
+                @Override
+                public void bindNull(int index) {
+                    statement.bindNull(index);
+                }
+
+                @Override
+                public long executeInsert() {
+                    return statement.executeInsert();
+                }
+
+                @Override
+                public int executeUpdateDelete() {
+                    return statement.executeUpdateDelete();
+                }
+
+                @Override
+                public void clearBindings() {
+                    statement.clearBindings();
+                }
+            };
+        }
+
+        @Override
+        public HistoryStore.Rows query(String sql, String... args) {
+            Cursor cursor = db.rawQuery(sql, args);
+            return new HistoryStore.Rows() {
+                @Override
+                public boolean next() {
+                    return cursor.moveToNext();
+                }
+
+                @Override
+                public String getString(int column) {
+                    return cursor.getString(column);
+                }
+
+                @Override
+                public long getLong(int column) {
+                    return cursor.getLong(column);
+                }
+
+                @Override
+                public double getDouble(int column) {
+                    return cursor.getDouble(column);
+                }
+
+                @Override
+                public boolean isNull(int column) {
+                    return cursor.isNull(column);
+                }
+
+                @Override
+                public void close() {
+                    cursor.close();
+                }
+            };
+        }
+
+        @Override
+        public void beginTransaction() {
+            // 非独占事务：WAL模式下写入期间其他连接仍可读取
+            db.beginTransactionNonExclusive();
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            db.setTransactionSuccessful();
+        }
+
+        @Override
+        public void endTransaction() {
+            db.endTransaction();
+        }
+    }
+}
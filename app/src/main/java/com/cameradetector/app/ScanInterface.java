@@ -0,0 +1,166 @@
+package com.cameradetector.app;
+
+import android.util.Log;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 可扫描的本机网络接口 - 每个接口上的一个IPv4地址对应一组扫描目标
+ * 包括Wi-Fi、以太网（USB网卡）和本机热点（客户端连接的子网），排除回环、VPN和点对点接口
+ * IPv6子网无法枚举，由 {@link Ipv6Discovery} 在 enumerateIpv6() 返回的接口上做组播发现
+ */
+public class ScanInterface {
+
+    private static final String TAG = "ScanInterface";
+
+    // 超过该范围的子网只扫描本机所在的 /24，避免一次扫描上万个地址
+    private static final int MIN_PREFIX_LENGTH = 24;
+
+    // VPN和蜂窝数据等接口名前缀
+    private static final String[] EXCLUDED_PREFIXES = {
+            "tun", "ppp", "ipsec", "rmnet", "ccmnet", "v4-", "dummy", "lo"
+    };
+
+    private final NetworkInterface networkInterface;
+    private final Inet4Address localAddress;
+    private final int prefixLength;
+
+    ScanInterface(NetworkInterface networkInterface, Inet4Address localAddress, int prefixLength) {
+        this.networkInterface = networkInterface;
+        this.localAddress = localAddress;
+        this.prefixLength = Math.max(prefixLength, MIN_PREFIX_LENGTH);
+    }
+
+    public String getName() {
+        return networkInterface.getName();
+    }
+
+    public NetworkInterface getNetworkInterface() {
+        return networkInterface;
+    }
+
+    public Inet4Address getLocalAddress() {
+        return localAddress;
+    }
+
+    public int getPrefixLength() {
+        return prefixLength;
+    }
+
+    /**
+     * 子网内除网络地址、广播地址和本机地址之外的全部主机
+     */
+    public List<String> getHosts() {
+        int address = toInt(localAddress);
+        int mask = prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+        int network = address & mask;
+        int hostCount = (1 << (32 - prefixLength)) - 2;
+
+        List<String> hosts = new ArrayList<>(Math.max(hostCount, 0));
+        for (int i = 1; i <= hostCount; i++) {
+            int host = network + i;
+            if (host != address) {
+                hosts.add(toString(host));
+            }
+        }
+        return hosts;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + " " + localAddress.getHostAddress() + "/" + prefixLength;
+    }
+
+    /**
+     * 枚举所有可扫描的接口，同一子网只保留一个
+     */
+    public static List<ScanInterface> enumerate() {
+        List<ScanInterface> result = new ArrayList<>();
+        Set<String> subnets = new HashSet<>();
+        try {
+            for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!isEligible(networkInterface)) {
+                    continue;
+                }
+                for (InterfaceAddress interfaceAddress : networkInterface.getInterfaceAddresses()) {
+                    InetAddress address = interfaceAddress.getAddress();
+                    if (!(address instanceof Inet4Address) || address.isLoopbackAddress()
+                            || address.isLinkLocalAddress()) {
+                        continue;
+                    }
+                    ScanInterface scanInterface = new ScanInterface(networkInterface, (Inet4Address) address,
+                            interfaceAddress.getNetworkPrefixLength());
+                    if (subnets.add(scanInterface.getSubnet())) {
+                        result.add(scanInterface);
+                    }
+                }
+            }
+        } catch (SocketException | NullPointerException e) {
+            Log.e(TAG, "枚举网络接口失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 枚举带有IPv6链路本地地址的可扫描接口，用于组播发现
+     */
+    public static List<NetworkInterface> enumerateIpv6() {
+        List<NetworkInterface> result = new ArrayList<>();
+        try {
+            for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!isEligible(networkInterface)) {
+                    continue;
+                }
+                for (InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+                    if (address instanceof Inet6Address && address.isLinkLocalAddress()) {
+                        result.add(networkInterface);
+                        break;
+                    }
+                }
+            }
+        } catch (SocketException | NullPointerException e) {
+            Log.e(TAG, "枚举IPv6网络接口失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static boolean isEligible(NetworkInterface networkInterface) throws SocketException {
+        if (!networkInterface.isUp() || networkInterface.isLoopback()
+                || networkInterface.isPointToPoint() || networkInterface.isVirtual()) {
+            return false;
+        }
+        String name = networkInterface.getName();
+        for (String prefix : EXCLUDED_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 接口所在子网，如 192.168.1.0/24 */
+    String getSubnet() {
+        int mask = -1 << (32 - prefixLength);
+        return toString(toInt(localAddress) & mask) + "/" + prefixLength;
+    }
+
+    private static int toInt(Inet4Address address) {
+        byte[] bytes = address.getAddress();
+        return ((bytes[0] & 0xff) << 24) | ((bytes[1] & 0xff) << 16) | ((bytes[2] & 0xff) << 8) | (bytes[3] & 0xff);
+    }
+
+    private static String toString(int address) {
+        return ((address >>> 24) & 0xff) + "." + ((address >>> 16) & 0xff) + "."
+                + ((address >>> 8) & 0xff) + "." + (address & 0xff);
+    }
+}
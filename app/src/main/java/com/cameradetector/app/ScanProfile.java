@@ -0,0 +1,114 @@
+package com.cameradetector.app;
+
+/**
+ * 扫描档位 - 决定探测的端口、路径、附加协议以及本轮扫描的预算
+ * 快速：只探测最常见的端口和路径，依靠MAC厂商和IPv6组播发现，几秒内完成
+ * 标准：全部常见端口，常用路径
+ * 深度：全部端口和路径，另外对RTSP端口发 OPTIONS、对HTTPS端口读取证书识别厂商
+ */
+public enum ScanProfile {
+
+    QUICK("快速",
+            new int[]{80, 554, 8000, 8080},
+            new String[]{"/", "/video.cgi", "/mjpg/video.mjpg", "/snapshot.cgi"},
+            250, 200,
+            3000, 512 * 1024L, 8 * 1000L,
+            false, false),
+
+    STANDARD("标准",
+            Ports.COMMON,
+            new String[]{
+                    "/", "/index.html", "/view.html", "/live.html", "/video.cgi",
+                    "/mjpg/video.mjpg", "/snapshot.cgi", "/axis-cgi/mjpg/video.cgi",
+                    "/videostream.cgi", "/cam/realmonitor", "/image.jpg", "/video.mjpg"
+            },
+            500, 300,
+            30000, 8 * 1024 * 1024L, 60 * 1000L,
+            false, false),
+
+    DEEP("深度",
+            Ports.DEEP,
+            Paths.ALL,
+            500, 300,
+            200000, 64 * 1024 * 1024L, 5 * 60 * 1000L,
+            true, true);
+
+    // 常见的摄像头端口
+    private static final class Ports {
+        static final int[] COMMON = {
+                80, 81, 82, 83, 88,
+                554, 555, 8000, 8080, 8081,
+                8082, 8083, 8084, 8085, 8086,
+                8554, 8555, 9000, 9001, 9002,
+                10554, 37777, 37778, 49152
+        };
+
+        static final int[] DEEP = {
+                80, 81, 82, 83, 88,
+                443, 554, 555, 5000, 7447,
+                8000, 8080, 8081, 8082, 8083,
+                8084, 8085, 8086, 8443, 8554,
+                8555, 9000, 9001, 9002, 10554,
+                37777, 37778, 49152
+        };
+    }
+
+    // 常见的摄像头URL路径
+    private static final class Paths {
+        static final String[] ALL = {
+                "/", "/index.html", "/view.html", "/viewer/live.html", "/live.html",
+                "/live/index.html", "/video.cgi", "/mjpg/video.mjpg",
+                "/cgi-bin/viewer/video.jpg", "/snapshot.cgi", "/axis-cgi/mjpg/video.cgi",
+                "/control/faststream.jpg", "/videostream.cgi", "/GetData.cgi",
+                "/live/av0", "/cam/realmonitor", "/webcam.jpg", "/camera.cgi",
+                "/video/mjpg.cgi", "/cgi-bin/camera", "/image.jpg", "/video.mjpg",
+                "/cgi-bin/mjpg/video.cgi", "/live/main", "/live/ch1/main"
+        };
+    }
+
+    // 深度扫描时按RTSP/TLS协议探测的端口
+    private static final int[] RTSP_PORTS = {554, 555, 7447, 8554, 8555, 10554};
+    private static final int[] TLS_PORTS = {443, 8443};
+
+    public final String label;
+    public final int[] ports;
+    public final String[] paths;
+    public final int reachTimeoutMs;
+    public final int connectTimeoutMs;
+    public final int maxProbes;
+    public final long maxBytes;
+    public final long maxTimeMs;
+    public final boolean probeRtsp;
+    public final boolean probeTls;
+
+    ScanProfile(String label, int[] ports, String[] paths, int reachTimeoutMs, int connectTimeoutMs,
+                int maxProbes, long maxBytes, long maxTimeMs, boolean probeRtsp, boolean probeTls) {
+        this.label = label;
+        this.ports = ports;
+        this.paths = paths;
+        this.reachTimeoutMs = reachTimeoutMs;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.maxProbes = maxProbes;
+        this.maxBytes = maxBytes;
+        this.maxTimeMs = maxTimeMs;
+        this.probeRtsp = probeRtsp;
+        this.probeTls = probeTls;
+    }
+
+    public boolean isRtspPort(int port) {
+        return probeRtsp && contains(RTSP_PORTS, port);
+    }
+
+    public boolean isTlsPort(int port) {
+        return probeTls && contains(TLS_PORTS, port);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
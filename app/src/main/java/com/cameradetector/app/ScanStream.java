@@ -0,0 +1,330 @@
+package com.cameradetector.app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 扫描结果流 - 按需拉取（类似 Reactive Streams 的 request(n)）的扫描结果订阅
+ * filter/map 在扫描线程上执行，只有通过的结果才进入订阅者的缓冲区；
+ * 结果在指定的 Executor 上投递，订阅者未请求时缓冲区写满后按溢出策略阻塞扫描线程或丢弃最旧结果。
+ * 每个订阅在本轮扫描结束（或停止扫描）并投递完缓冲区后收到 onComplete。
+ * batch 把缓冲区中积累的结果合并成一个列表投递，配合延迟执行的 executor 即为界面的定时批量刷新
+ *
+ * <pre>
+ * detector.results()
+ *         .filter(camera -> camera.getIpAddress() != null)
+ *         .batch(64)
+ *         .deliverOn(runnable -> handler.postDelayed(runnable, 100))
+ *         .subscribe(listUpdater);
+ * </pre>
+ */
+public final class ScanStream<T> {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    public interface Subscriber<T> {
+        /** 订阅建立，此后通过 subscription.request(n) 请求结果 */
+        void onSubscribe(Subscription subscription);
+        void onNext(T item);
+        void onComplete();
+    }
+
+    public interface Subscription {
+        /** 再请求n个结果，可多次调用累加 */
+        void request(long n);
+        void cancel();
+    }
+
+    public interface Filter<T> {
+        boolean accept(T item);
+    }
+
+    public interface Mapper<T, R> {
+        R apply(T item);
+    }
+
+    /**
+     * 缓冲区写满后的处理方式
+     */
+    public enum Overflow {
+        // 阻塞扫描线程直到订阅者取走结果，适合导出、持久化等不能丢结果的消费者
+        BLOCK,
+        // 丢弃最旧的结果，适合只关心最新结果的界面
+        DROP_OLDEST
+    }
+
+    private final Hub hub;
+    private final Mapper<CameraInfo, T> transform;
+    private final Executor executor;
+    private final int capacity;
+    private final Overflow overflow;
+    // 大于0时T为单个结果的列表，投递时最多合并这么多个结果
+    private final int maxBatch;
+
+    ScanStream(Hub hub, Mapper<CameraInfo, T> transform, Executor executor, int capacity, Overflow overflow,
+               int maxBatch) {
+        this.hub = hub;
+        this.transform = transform;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.maxBatch = maxBatch;
+    }
+
+    static ScanStream<CameraInfo> of(Hub hub, Executor executor) {
+        return new ScanStream<>(hub, item -> item, executor, DEFAULT_CAPACITY, Overflow.BLOCK, 0);
+    }
+
+    public ScanStream<T> filter(Filter<? super T> filter) {
+        Mapper<CameraInfo, T> upstream = transform;
+        return new ScanStream<>(hub, item -> {
+            T value = upstream.apply(item);
+            return value != null && filter.accept(value) ? value : null;
+        }, executor, capacity, overflow, maxBatch);
+    }
+
+    /**
+     * 转换结果，返回null的结果被丢弃
+     */
+    public <R> ScanStream<R> map(Mapper<? super T, ? extends R> mapper) {
+        Mapper<CameraInfo, T> upstream = transform;
+        return new ScanStream<>(hub, item -> {
+            T value = upstream.apply(item);
+            return value != null ? mapper.apply(value) : null;
+        }, executor, capacity, overflow, 0);
+    }
+
+    /**
+     * 合并投递：每次投递取出缓冲区中已有的结果（最多 maxItems 个）组成一个列表，request 按列表计数。
+     * 缓冲区容量仍按单个结果计算；应在 filter/map 之后调用
+     */
+    public ScanStream<List<T>> batch(int maxItems) {
+        if (maxItems <= 0) {
+            throw new IllegalArgumentException("maxItems must be positive: " + maxItems);
+        }
+        Mapper<CameraInfo, T> upstream = transform;
+        return new ScanStream<>(hub, item -> {
+            T value = upstream.apply(item);
+            return value != null ? Collections.singletonList(value) : null;
+        }, executor, capacity, overflow, maxItems);
+    }
+
+    /**
+     * 指定投递回调的线程，默认为主线程
+     */
+    public ScanStream<T> deliverOn(Executor executor) {
+        return new ScanStream<>(hub, transform, executor, capacity, overflow, maxBatch);
+    }
+
+    public ScanStream<T> buffer(int capacity, Overflow overflow) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        return new ScanStream<>(hub, transform, executor, capacity, overflow, maxBatch);
+    }
+
+    public Subscription subscribe(Subscriber<? super T> subscriber) {
+        Emitter<T> emitter = new Emitter<>(hub, transform, subscriber, executor, capacity, overflow, maxBatch);
+        hub.add(emitter);
+        // onSubscribe 也由串行的投递循环发出，多线程 executor 上不会与 onNext/onComplete 并发或晚于它们
+        emitter.schedule();
+        return emitter;
+    }
+
+    /**
+     * 扫描器一侧的分发点，向所有订阅广播结果
+     */
+    static class Hub {
+        private final CopyOnWriteArrayList<Emitter<?>> emitters = new CopyOnWriteArrayList<>();
+
+        void add(Emitter<?> emitter) {
+            emitters.add(emitter);
+        }
+
+        void remove(Emitter<?> emitter) {
+            emitters.remove(emitter);
+        }
+
+        boolean hasSubscribers() {
+            return !emitters.isEmpty();
+        }
+
+        /** 在扫描线程上调用，BLOCK 策略的订阅缓冲区满时会阻塞 */
+        void publish(CameraInfo camera) {
+            for (Emitter<?> emitter : emitters) {
+                emitter.offer(camera);
+            }
+        }
+
+        void complete() {
+            for (Emitter<?> emitter : emitters) {
+                emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * 单个订阅：有界缓冲区 + 请求计数，投递在 executor 上串行执行
+     */
+    static class Emitter<T> implements Subscription, Runnable {
+        private final Hub hub;
+        private final Mapper<CameraInfo, T> transform;
+        private final Subscriber<? super T> subscriber;
+        private final Executor executor;
+        private final int capacity;
+        private final Overflow overflow;
+        private final int maxBatch;
+
+        private final ArrayDeque<T> queue = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong(0);
+        private final AtomicInteger pending = new AtomicInteger(0);
+        private volatile boolean done = false;
+        private volatile boolean cancelled = false;
+        // 是否已投递 onSubscribe；只在 run 中访问，run 由 pending 计数串行化
+        private boolean subscribed = false;
+
+        Emitter(Hub hub, Mapper<CameraInfo, T> transform, Subscriber<? super T> subscriber,
+                Executor executor, int capacity, Overflow overflow, int maxBatch) {
+            this.hub = hub;
+            this.transform = transform;
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.capacity = capacity;
+            this.overflow = overflow;
+            this.maxBatch = maxBatch;
+        }
+
+        void offer(CameraInfo camera) {
+            if (cancelled || done) {
+                return;
+            }
+            T value = transform.apply(camera);
+            if (value == null) {
+                return;
+            }
+            synchronized (queue) {
+                while (queue.size() >= capacity && !cancelled) {
+                    if (overflow == Overflow.DROP_OLDEST) {
+                        queue.poll();
+                        continue;
+                    }
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        // 停止扫描时线程池中断扫描线程，放弃这个结果
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (cancelled) {
+                    return;
+                }
+                queue.add(value);
+            }
+            schedule();
+        }
+
+        void complete() {
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                throw new IllegalArgumentException("request must be positive: " + n);
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            hub.remove(this);
+            synchronized (queue) {
+                queue.clear();
+                queue.notifyAll();
+            }
+        }
+
+        void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        // 同一时刻只有一个投递任务在运行，期间的新请求和新结果由 pending 计数合并处理
+        @Override
+        public void run() {
+            int missed = 1;
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+            while (true) {
+                while (!cancelled && requested.get() > 0) {
+                    T value = poll();
+                    if (value == null) {
+                        break;
+                    }
+                    if (requested.get() != Long.MAX_VALUE) {
+                        requested.decrementAndGet();
+                    }
+                    subscriber.onNext(value);
+                }
+                if (!cancelled && done && isEmpty()) {
+                    cancelled = true;
+                    hub.remove(this);
+                    subscriber.onComplete();
+                    return;
+                }
+                missed = pending.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private T poll() {
+            synchronized (queue) {
+                T value = queue.poll();
+                if (value != null && maxBatch > 1 && !queue.isEmpty()) {
+                    value = merge(value);
+                }
+                if (value != null) {
+                    queue.notifyAll();
+                }
+                return value;
+            }
+        }
+
+        // 批量模式下队列元素都是单个结果的列表，合并其后已在队列中的结果；持有 queue 锁调用
+        @SuppressWarnings("unchecked")
+        private T merge(T first) {
+            List<Object> batch = new ArrayList<>(Math.min(maxBatch, queue.size() + 1));
+            batch.addAll((List<?>) first);
+            while (batch.size() < maxBatch && !queue.isEmpty()) {
+                batch.addAll((List<?>) queue.poll());
+            }
+            return (T) batch;
+        }
+
+        private boolean isEmpty() {
+            synchronized (queue) {
+                return queue.isEmpty();
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.cameradetector.app;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 扫描时间线追踪器 - 记录每个主机上各探测步骤的开始/结束事件
+ * 事件写入预分配的环形缓冲区，记录时不产生对象分配；扫描结束后可导出为
+ * Chrome/Perfetto 可识别的 JSON trace 文件（chrome://tracing 或 ui.perfetto.dev 打开）
+ */
+public class ScanTracer {
+
+    // 探测步骤名称（常量字符串，记录时只保存引用）
+    public static final String EVENT_HOST = "host";
+    public static final String EVENT_REACHABLE = "isReachable";
+    public static final String EVENT_PORT = "isPortOpen";
+    public static final String EVENT_URL = "isCameraUrl";
+    public static final String EVENT_MANUFACTURER = "detectManufacturer";
+    public static final String EVENT_FAVICON = "favicon";
+    public static final String EVENT_RTSP = "rtspOptions";
+    public static final String EVENT_TLS = "tlsCertificate";
+
+    private static final byte PHASE_BEGIN = 'B';
+    private static final byte PHASE_END = 'E';
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final int mask;
+    private final long[] timestamps;
+    private final long[] threadIds;
+    private final byte[] phases;
+    private final String[] names;
+    private final String[] hosts;
+    private final int[] ports;
+    private final String[] details;
+
+    private final AtomicLong cursor = new AtomicLong(0);
+    private final long originNanos;
+
+    public ScanTracer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 缓冲区事件数，向上取整为2的幂；写满后覆盖最旧的事件
+     */
+    public ScanTracer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.timestamps = new long[size];
+        this.threadIds = new long[size];
+        this.phases = new byte[size];
+        this.names = new String[size];
+        this.hosts = new String[size];
+        this.ports = new int[size];
+        this.details = new String[size];
+        this.originNanos = System.nanoTime();
+    }
+
+    public void begin(String name, String host, int port, String detail) {
+        record(PHASE_BEGIN, name, host, port, detail);
+    }
+
+    public void end(String name, String host, int port, String detail) {
+        record(PHASE_END, name, host, port, detail);
+    }
+
+    private void record(byte phase, String name, String host, int port, String detail) {
+        int slot = (int) (cursor.getAndIncrement() & mask);
+        timestamps[slot] = System.nanoTime();
+        threadIds[slot] = Thread.currentThread().getId();
+        phases[slot] = phase;
+        names[slot] = name;
+        hosts[slot] = host;
+        ports[slot] = port;
+        details[slot] = detail;
+    }
+
+    /**
+     * 清空已记录的事件，开始新一轮扫描前调用
+     */
+    public void reset() {
+        cursor.set(0);
+    }
+
+    /**
+     * 当前缓冲区中保留的事件数
+     */
+    public int size() {
+        return (int) Math.min(cursor.get(), mask + 1L);
+    }
+
+    /**
+     * 环形缓冲区是否已经覆盖过旧事件
+     */
+    public boolean hasOverflowed() {
+        return cursor.get() > mask + 1L;
+    }
+
+    /**
+     * 导出为Chrome trace格式 (JSON Object Format)，应在扫描结束后调用
+     */
+    public void exportChromeTrace(Writer out) throws IOException {
+        long end = cursor.get();
+        long start = Math.max(0, end - (mask + 1L));
+
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("displayTimeUnit").value("ms");
+        writer.name("traceEvents");
+        writer.beginArray();
+        for (long i = start; i < end; i++) {
+            int slot = (int) (i & mask);
+            writer.beginObject();
+            writer.name("name").value(eventName(slot));
+            writer.name("cat").value("scan");
+            writer.name("ph").value(phases[slot] == PHASE_BEGIN ? "B" : "E");
+            writer.name("ts").value((timestamps[slot] - originNanos) / 1000.0);
+            writer.name("pid").value(1);
+            writer.name("tid").value(threadIds[slot]);
+            if (phases[slot] == PHASE_BEGIN) {
+                writer.name("args");
+                writer.beginObject();
+                if (hosts[slot] != null) {
+                    writer.name("host").value(hosts[slot]);
+                }
+                if (ports[slot] > 0) {
+                    writer.name("port").value(ports[slot]);
+                }
+                if (details[slot] != null) {
+                    writer.name("detail").value(details[slot]);
+                }
+                writer.endObject();
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.name("otherData");
+        writer.beginObject();
+        writer.name("droppedEvents").value(start);
+        writer.endObject();
+        writer.endObject();
+        writer.flush();
+    }
+
+    /**
+     * 导出到文件，返回写入的事件数
+     */
+    public int exportChromeTrace(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("无法创建目录: " + parent);
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"))) {
+            exportChromeTrace(out);
+        }
+        return size();
+    }
+
+    // 事件名带上主机，便于在时间线上直接区分每个主机的探测
+    private String eventName(int slot) {
+        String host = hosts[slot];
+        if (host == null) {
+            return names[slot];
+        }
+        StringBuilder name = new StringBuilder(names[slot]).append(' ').append(host);
+        if (ports[slot] > 0) {
+            name.append(':').append(ports[slot]);
+        }
+        if (details[slot] != null) {
+            name.append(details[slot]);
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,178 @@
+package com.cameradetector.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SDP解析 - 只取RTSP播放需要的部分：媒体类型、负载类型、编码、时钟频率、control 和 fmtp 参数。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public class SessionDescription {
+
+    /**
+     * 一个 m= 媒体段
+     */
+    public static class Media {
+        private final String type;
+        private final int payloadType;
+        private String encoding;
+        private int clockRate;
+        private String control;
+        private final Map<String, String> formatParameters = new HashMap<>();
+
+        Media(String type, int payloadType) {
+            this.type = type;
+            this.payloadType = payloadType;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public int getPayloadType() {
+            return payloadType;
+        }
+
+        /** 大写编码名，如 H264、H265 */
+        public String getEncoding() {
+            return encoding;
+        }
+
+        public int getClockRate() {
+            return clockRate;
+        }
+
+        public String getControl() {
+            return control;
+        }
+
+        /** fmtp 参数，键为小写，如 sprop-parameter-sets */
+        public String getFormatParameter(String name) {
+            return formatParameters.get(name.toLowerCase(Locale.US));
+        }
+
+        public boolean isH264() {
+            return "H264".equals(encoding);
+        }
+
+        public boolean isH265() {
+            return "H265".equals(encoding) || "HEVC".equals(encoding);
+        }
+    }
+
+    private String control;
+    private final List<Media> media = new ArrayList<>();
+
+    public static SessionDescription parse(String sdp) {
+        SessionDescription description = new SessionDescription();
+        Media current = null;
+        for (String rawLine : sdp.split("\r?\n")) {
+            String line = rawLine.trim();
+            if (line.length() < 2 || line.charAt(1) != '=') {
+                continue;
+            }
+            String value = line.substring(2);
+            switch (line.charAt(0)) {
+                case 'm': {
+                    // m=video 0 RTP/AVP 96
+                    String[] fields = value.split("\\s+");
+                    int payloadType = -1;
+                    if (fields.length >= 4) {
+                        try {
+                            payloadType = Integer.parseInt(fields[3]);
+                        } catch (NumberFormatException e) {
+                            payloadType = -1;
+                        }
+                    }
+                    current = new Media(fields[0].toLowerCase(Locale.US), payloadType);
+                    description.media.add(current);
+                    break;
+                }
+                case 'a':
+                    if (value.startsWith("control:")) {
+                        String control = value.substring("control:".length()).trim();
+                        if (current != null) {
+                            current.control = control;
+                        } else {
+                            description.control = control;
+                        }
+                    } else if (current != null && value.startsWith("rtpmap:")) {
+                        parseRtpMap(current, value.substring("rtpmap:".length()));
+                    } else if (current != null && value.startsWith("fmtp:")) {
+                        parseFormatParameters(current, value.substring("fmtp:".length()));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return description;
+    }
+
+    // rtpmap:96 H264/90000
+    private static void parseRtpMap(Media media, String value) {
+        String[] fields = value.trim().split("\\s+", 2);
+        if (fields.length < 2 || !fields[0].equals(String.valueOf(media.payloadType))) {
+            return;
+        }
+        String[] encoding = fields[1].split("/");
+        media.encoding = encoding[0].toUpperCase(Locale.US);
+        if (encoding.length > 1) {
+            try {
+                media.clockRate = Integer.parseInt(encoding[1].trim());
+            } catch (NumberFormatException e) {
+                media.clockRate = 0;
+            }
+        }
+    }
+
+    // fmtp:96 packetization-mode=1;profile-level-id=42001f;sprop-parameter-sets=Z0IAH5WoFAFuQA==,aM48gA==
+    private static void parseFormatParameters(Media media, String value) {
+        String[] fields = value.trim().split("\\s+", 2);
+        if (fields.length < 2 || !fields[0].equals(String.valueOf(media.payloadType))) {
+            return;
+        }
+        for (String parameter : fields[1].split(";")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                // base64 值本身可能以"="结尾，只按第一个"="分割
+                media.formatParameters.put(parameter.substring(0, equals).trim().toLowerCase(Locale.US),
+                        parameter.substring(equals + 1).trim());
+            }
+        }
+    }
+
+    public List<Media> getMedia() {
+        return Collections.unmodifiableList(media);
+    }
+
+    /**
+     * 第一个可解码的视频流（H.264或H.265），没有时返回null
+     */
+    public Media getVideo() {
+        for (Media item : media) {
+            if ("video".equals(item.type) && (item.isH264() || item.isH265())) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 计算媒体的SETUP地址：绝对地址直接使用，相对地址拼接在 baseUrl（Content-Base）之后
+     */
+    public String resolveControl(Media item, String baseUrl) {
+        String mediaControl = item.control != null ? item.control : control;
+        if (mediaControl == null || mediaControl.equals("*")) {
+            return baseUrl;
+        }
+        if (mediaControl.regionMatches(true, 0, "rtsp://", 0, 7)) {
+            return mediaControl;
+        }
+        return baseUrl.endsWith("/") ? baseUrl + mediaControl : baseUrl + "/" + mediaControl;
+    }
+}
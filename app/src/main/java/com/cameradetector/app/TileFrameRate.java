@@ -0,0 +1,45 @@
+package com.cameradetector.app;
+
+/**
+ * 网格画面的帧率上限 - 小画面看不出高帧率，按画面短边分档；
+ * 所有可见画面共享一个按CPU核数估算的解码预算，画面越多每个越低；不可见的画面为0（暂停）。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public final class TileFrameRate {
+
+    // 每个核心每秒大约能解码的小尺寸JPEG帧数
+    static final int DECODE_FPS_PER_CORE = 30;
+    static final int MIN_FPS = 1;
+
+    private TileFrameRate() {
+    }
+
+    /**
+     * 计算一个画面的帧率上限
+     *
+     * @param visibleTiles 当前可见的画面数（含本画面）
+     */
+    public static int cap(int tileWidth, int tileHeight, boolean visible, int visibleTiles, int cores) {
+        if (!visible || tileWidth <= 0 || tileHeight <= 0) {
+            return 0;
+        }
+        int shortSide = Math.min(tileWidth, tileHeight);
+        int bySize;
+        if (shortSide >= 720) {
+            bySize = 25;
+        } else if (shortSide >= 480) {
+            bySize = 15;
+        } else if (shortSide >= 240) {
+            bySize = 10;
+        } else {
+            bySize = 5;
+        }
+        int budget = Math.max(1, cores) * DECODE_FPS_PER_CORE / Math.max(1, visibleTiles);
+        return Math.max(MIN_FPS, Math.min(bySize, budget));
+    }
+
+    /** 帧率上限对应的最小帧间隔（毫秒），上限为0时返回 Long.MAX_VALUE */
+    public static long intervalMs(int fpsCap) {
+        return fpsCap > 0 ? 1000L / fpsCap : Long.MAX_VALUE;
+    }
+}
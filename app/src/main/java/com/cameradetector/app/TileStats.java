@@ -0,0 +1,71 @@
+package com.cameradetector.app;
+
+import java.util.Locale;
+
+/**
+ * 单个网格画面的统计：显示帧率（每秒刷新）、丢帧数、平均解码耗时（指数移动平均）。
+ * 不依赖Android，可直接在JVM上测试
+ */
+public class TileStats {
+
+    private static final long WINDOW_MS = 1000;
+    private static final double DECODE_SMOOTHING = 0.2;
+
+    private long windowStart = -1;
+    private int windowFrames = 0;
+    private float fps = 0;
+    private long displayedFrames = 0;
+    private long droppedFrames = 0;
+    private double decodeMs = 0;
+
+    /** 记录一帧已解码显示 */
+    public synchronized void recordFrame(long nowMs, long decodeNanos) {
+        double ms = decodeNanos / 1000000.0;
+        decodeMs = displayedFrames == 0 ? ms : decodeMs + (ms - decodeMs) * DECODE_SMOOTHING;
+        displayedFrames++;
+        windowFrames++;
+        roll(nowMs);
+    }
+
+    /** 记录一帧被丢弃（超过帧率上限或被更新的帧覆盖） */
+    public synchronized void recordDropped() {
+        droppedFrames++;
+    }
+
+    /**
+     * 推进统计窗口，没有新帧时也应定期调用，使帧率降到0
+     */
+    public synchronized void roll(long nowMs) {
+        if (windowStart < 0) {
+            windowStart = nowMs;
+            return;
+        }
+        long elapsed = nowMs - windowStart;
+        if (elapsed >= WINDOW_MS) {
+            fps = windowFrames * 1000f / elapsed;
+            windowFrames = 0;
+            windowStart = nowMs;
+        }
+    }
+
+    public synchronized float getFps() {
+        return fps;
+    }
+
+    public synchronized long getDisplayedFrames() {
+        return displayedFrames;
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public synchronized double getAverageDecodeMs() {
+        return decodeMs;
+    }
+
+    /** 画面上叠加显示的一行统计 */
+    public synchronized String getSummary(int fpsCap) {
+        return String.format(Locale.US, "%.1f/%d fps  丢帧 %d  解码 %.1f ms", fps, fpsCap, droppedFrames, decodeMs);
+    }
+}
@@ -0,0 +1,311 @@
+package com.cameradetector.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Wi-Fi扫描结果分析 - 找出自己开热点（配网AP）而没有接入局域网的摄像头，这类设备局域网扫描永远发现不了。
+ * 依据：SSID命名规则（全部规则编译进一个 Aho-Corasick 匹配器，一次扫描SSID即可）、
+ * BSSID的OUI厂商、是否为开放网络；信道和信号强度随结果一起给出。
+ * 同一批扫描结果（按时间戳判断）只分析一次，系统限制扫描频率时重复读取不会重复计算。
+ * 不依赖Android，可在JVM上验证
+ */
+public class WifiApAnalyzer {
+
+    // 达到该置信度才作为候选设备
+    public static final float CANDIDATE_THRESHOLD = 0.5f;
+
+    // 开放网络本身不说明什么，只在已有其他证据时加强判断
+    private static final float OPEN_NETWORK_CONFIDENCE = 0.2f;
+    private static final float CAMERA_OUI_CONFIDENCE = 0.8f;
+
+    /**
+     * 查询BSSID所属的摄像头厂商，不是摄像头厂商时返回null
+     */
+    public interface VendorLookup {
+        String cameraVendor(String bssid);
+    }
+
+    /**
+     * 一条扫描结果（对应 android.net.wifi.ScanResult 的字段）
+     */
+    public static class Observation {
+        public final String bssid;
+        public final String ssid;
+        public final String capabilities;
+        public final int frequency;
+        public final int level;
+        // 系统最后一次看到该AP的时间（开机以来的微秒数）
+        public final long timestampMicros;
+
+        public Observation(String bssid, String ssid, String capabilities, int frequency, int level, long timestampMicros) {
+            this.bssid = bssid;
+            this.ssid = ssid;
+            this.capabilities = capabilities;
+            this.frequency = frequency;
+            this.level = level;
+            this.timestampMicros = timestampMicros;
+        }
+    }
+
+    /**
+     * 疑似摄像头热点
+     */
+    public static class Candidate {
+        public final String bssid;
+        public final String ssid;
+        public final String vendor;
+        public final float confidence;
+        public final List<String> evidence;
+        public final int channel;
+        public final int frequency;
+        public final int level;
+        public final boolean open;
+
+        Candidate(Observation observation, String vendor, float confidence, List<String> evidence, boolean open) {
+            this.bssid = observation.bssid;
+            this.ssid = observation.ssid;
+            this.vendor = vendor;
+            this.confidence = confidence;
+            this.evidence = evidence;
+            this.channel = channelOf(observation.frequency);
+            this.frequency = observation.frequency;
+            this.level = observation.level;
+            this.open = open;
+        }
+
+        public String getBand() {
+            return frequency >= 5925 ? "6GHz" : frequency >= 4900 ? "5GHz" : "2.4GHz";
+        }
+    }
+
+    /**
+     * SSID规则：关键词（大小写不敏感），anchored 表示必须出现在SSID开头
+     */
+    private static class Rule {
+        final String keyword;
+        final boolean anchored;
+        final String vendor;
+        final float confidence;
+
+        Rule(String keyword, boolean anchored, String vendor, float confidence) {
+            this.keyword = keyword;
+            this.anchored = anchored;
+            this.vendor = vendor;
+            this.confidence = confidence;
+        }
+    }
+
+    private static final Rule[] SSID_RULES = {
+        // 厂商配网热点
+        new Rule("hik-", true, "海康威视", 0.9f),
+        new Rule("hikvision", false, "海康威视", 0.8f),
+        new Rule("ezviz_", true, "萤石", 0.9f),
+        new Rule("dahua", false, "大华", 0.8f),
+        new Rule("imou", true, "乐橙", 0.7f),
+        new Rule("reolink", false, "Reolink", 0.7f),
+        new Rule("wyze_", true, "Wyze", 0.7f),
+        new Rule("esp32-cam", false, "Espressif", 0.9f),
+        // 行车记录仪
+        new Rule("70mai", true, "70迈", 0.8f),
+        new Rule("ddpai", true, "盯盯拍", 0.8f),
+        new Rule("viofo", true, "Viofo", 0.8f),
+        // 通用网络摄像头和微型摄像头的常见命名
+        new Rule("ipc-", true, null, 0.8f),
+        new Rule("ipc_", true, null, 0.8f),
+        new Rule("ipcam", false, null, 0.8f),
+        new Rule("ip-cam", false, null, 0.8f),
+        new Rule("wificam", false, null, 0.8f),
+        new Rule("wifi-cam", false, null, 0.8f),
+        new Rule("minicam", false, null, 0.8f),
+        new Rule("mini-cam", false, null, 0.8f),
+        new Rule("p2pcam", false, null, 0.8f),
+        new Rule("hdcam", false, null, 0.7f),
+        new Rule("spycam", false, null, 0.9f),
+        new Rule("dashcam", false, null, 0.7f),
+        // "camera" 在家用网络名中也很常见（如 "Camera Shop WiFi"），只在开头时计入且单独不足以成为候选
+        new Rule("camera", true, null, 0.4f),
+        new Rule("cam-", true, null, 0.6f),
+        new Rule("cam_", true, null, 0.6f),
+        new Rule("dvr", false, null, 0.4f),
+        // 涂鸦等IoT配网热点，也可能是插座灯泡
+        new Rule("smartlife-", true, null, 0.3f),
+    };
+
+    private final VendorLookup vendorLookup;
+    private final FingerprintEngine.KeywordMatcher matcher = new FingerprintEngine.KeywordMatcher();
+
+    // 按BSSID缓存的分析结果，SSID和加密方式不变时只更新信号
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long lastScanKey = Long.MIN_VALUE;
+    private List<Candidate> lastCandidates = Collections.emptyList();
+    private int analyzedScans = 0;
+    private int cachedScans = 0;
+
+    private static class Entry {
+        String ssid;
+        String capabilities;
+        // 与信号无关的分析结果，null表示不是候选
+        String vendor;
+        float confidence;
+        List<String> evidence;
+        boolean open;
+    }
+
+    public WifiApAnalyzer(VendorLookup vendorLookup) {
+        this.vendorLookup = vendorLookup;
+        for (int i = 0; i < SSID_RULES.length; i++) {
+            matcher.add(SSID_RULES[i].keyword, i);
+        }
+        matcher.build();
+    }
+
+    /**
+     * 分析一批扫描结果，返回按信号从强到弱排列的候选热点。
+     * 结果与上一次调用相同（同样的AP和时间戳）时直接返回缓存
+     * @param excludeBssid 当前已连接的AP，不参与分析，可以为null
+     */
+    public synchronized List<Candidate> analyze(List<Observation> observations, String excludeBssid) {
+        long scanKey = scanKey(observations) * 31 + (excludeBssid != null ? excludeBssid.toLowerCase(Locale.US).hashCode() : 0);
+        if (scanKey == lastScanKey) {
+            cachedScans++;
+            return lastCandidates;
+        }
+        analyzedScans++;
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (Observation observation : observations) {
+            if (observation.bssid == null || observation.bssid.equalsIgnoreCase(excludeBssid)) {
+                continue;
+            }
+            String key = observation.bssid.toLowerCase(Locale.US);
+            Entry entry = entries.get(key);
+            if (entry == null || !equals(entry.ssid, observation.ssid) || !equals(entry.capabilities, observation.capabilities)) {
+                entry = classify(observation);
+                entries.put(key, entry);
+            }
+            if (entry.evidence != null) {
+                candidates.add(new Candidate(observation, entry.vendor, entry.confidence, entry.evidence, entry.open));
+            }
+        }
+        Collections.sort(candidates, (a, b) -> Integer.compare(b.level, a.level));
+        lastScanKey = scanKey;
+        lastCandidates = Collections.unmodifiableList(candidates);
+        return lastCandidates;
+    }
+
+    public synchronized int getAnalyzedScans() {
+        return analyzedScans;
+    }
+
+    public synchronized int getCachedScans() {
+        return cachedScans;
+    }
+
+    private Entry classify(Observation observation) {
+        Entry entry = new Entry();
+        entry.ssid = observation.ssid;
+        entry.capabilities = observation.capabilities;
+        entry.open = isOpen(observation.capabilities);
+
+        List<String> evidence = new ArrayList<>();
+        float miss = 1f;
+        String vendor = null;
+        float vendorConfidence = 0f;
+
+        String ssid = observation.ssid != null ? observation.ssid : "";
+        if (!ssid.isEmpty()) {
+            FingerprintEngine.Hits hits = new FingerprintEngine.Hits(SSID_RULES.length);
+            matcher.match(ssid, hits);
+            String lower = ssid.toLowerCase(Locale.US);
+            for (int i = 0; i < SSID_RULES.length; i++) {
+                Rule rule = SSID_RULES[i];
+                if (hits.count(i) == 0 || (rule.anchored && !lower.startsWith(rule.keyword))) {
+                    continue;
+                }
+                miss *= 1f - rule.confidence;
+                evidence.add("SSID含" + rule.keyword);
+                if (rule.vendor != null && rule.confidence > vendorConfidence) {
+                    vendor = rule.vendor;
+                    vendorConfidence = rule.confidence;
+                }
+            }
+        }
+
+        // 本地管理地址（第一个字节第2位为1）是随机生成的，OUI没有意义
+        if (!isLocallyAdministered(observation.bssid)) {
+            String ouiVendor = vendorLookup != null ? vendorLookup.cameraVendor(observation.bssid) : null;
+            if (ouiVendor != null) {
+                miss *= 1f - CAMERA_OUI_CONFIDENCE;
+                evidence.add("OUI " + ouiVendor);
+                if (CAMERA_OUI_CONFIDENCE > vendorConfidence) {
+                    vendor = ouiVendor;
+                }
+            }
+        }
+
+        if (!evidence.isEmpty() && entry.open) {
+            miss *= 1f - OPEN_NETWORK_CONFIDENCE;
+            evidence.add("开放网络");
+        }
+
+        float confidence = 1f - miss;
+        if (confidence >= CANDIDATE_THRESHOLD) {
+            entry.vendor = vendor;
+            entry.confidence = confidence;
+            entry.evidence = evidence;
+        }
+        return entry;
+    }
+
+    /**
+     * Wi-Fi频率（MHz）转信道号，无法识别时返回0
+     */
+    static int channelOf(int frequency) {
+        if (frequency == 2484) {
+            return 14;
+        }
+        if (frequency >= 2412 && frequency < 2484) {
+            return (frequency - 2407) / 5;
+        }
+        if (frequency >= 5955 && frequency <= 7115) {
+            return (frequency - 5950) / 5;
+        }
+        if (frequency >= 4910 && frequency <= 5895) {
+            return (frequency - 5000) / 5;
+        }
+        return 0;
+    }
+
+    // 同一批结果的AP集合和各自的时间戳都相同
+    private static long scanKey(List<Observation> observations) {
+        long key = observations.size();
+        for (Observation observation : observations) {
+            long item = observation.timestampMicros * 31 + (observation.bssid != null ? observation.bssid.hashCode() : 0);
+            // 与顺序无关：系统返回的结果顺序不固定
+            key += item * 0x9E3779B97F4A7C15L ^ (item >>> 29);
+        }
+        return key;
+    }
+
+    private static boolean isOpen(String capabilities) {
+        if (capabilities == null) {
+            return false;
+        }
+        String upper = capabilities.toUpperCase(Locale.US);
+        return !upper.contains("WEP") && !upper.contains("WPA") && !upper.contains("SAE") && !upper.contains("OWE");
+    }
+
+    private static boolean isLocallyAdministered(String bssid) {
+        int prefix = OuiDatabase.parsePrefix(bssid);
+        return prefix >= 0 && (prefix >> 16 & 0x02) != 0;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,103 @@
+package com.cameradetector.app;
+
+import android.content.Context;
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 摄像头热点发现 - 读取系统的Wi-Fi扫描结果交给 {@link WifiApAnalyzer}，把疑似摄像头热点转成 NETWORK 类型的候选设备。
+ * 系统对主动扫描限频（前台2分钟4次），所以先使用系统已有的结果，再请求一次新扫描，
+ * 新结果到达（SCAN_RESULTS_AVAILABLE_ACTION）时再读取；同一批结果只分析一次
+ */
+public class WifiApScanner {
+
+    private static final String TAG = "WifiApScanner";
+
+    private final WifiManager wifiManager;
+    private final WifiApAnalyzer analyzer;
+    // 本轮扫描已经输出过的BSSID
+    private final Set<String> emitted = new HashSet<>();
+
+    public WifiApScanner(Context context) {
+        Context appContext = context.getApplicationContext();
+        wifiManager = (WifiManager) appContext.getSystemService(Context.WIFI_SERVICE);
+        OuiDatabase ouiDatabase = OuiDatabase.getInstance(appContext);
+        analyzer = new WifiApAnalyzer(bssid -> ouiDatabase.isCameraVendor(bssid) ? ouiDatabase.getDisplayVendor(bssid) : null);
+    }
+
+    /**
+     * 开始新一轮发现：清空已输出记录并请求一次扫描（被限频时系统直接忽略）
+     */
+    public synchronized void reset() {
+        emitted.clear();
+        if (wifiManager != null && wifiManager.isWifiEnabled()) {
+            try {
+                if (!wifiManager.startScan()) {
+                    Log.d(TAG, "Wi-Fi扫描被系统限频，使用已有结果");
+                }
+            } catch (SecurityException e) {
+                Log.w(TAG, "无法请求Wi-Fi扫描: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 分析当前的扫描结果，返回本轮尚未输出过的候选设备
+     */
+    public synchronized List<CameraInfo> poll() {
+        List<CameraInfo> cameras = new ArrayList<>();
+        if (wifiManager == null) {
+            return cameras;
+        }
+        List<ScanResult> results;
+        String connectedBssid = null;
+        try {
+            results = wifiManager.getScanResults();
+            WifiInfo wifiInfo = wifiManager.getConnectionInfo();
+            if (wifiInfo != null) {
+                connectedBssid = wifiInfo.getBSSID();
+            }
+        } catch (SecurityException e) {
+            Log.w(TAG, "无法读取Wi-Fi扫描结果: " + e.getMessage());
+            return cameras;
+        }
+        if (results == null || results.isEmpty()) {
+            return cameras;
+        }
+
+        List<WifiApAnalyzer.Observation> observations = new ArrayList<>(results.size());
+        for (ScanResult result : results) {
+            observations.add(new WifiApAnalyzer.Observation(result.BSSID, result.SSID, result.capabilities,
+                    result.frequency, result.level, result.timestamp));
+        }
+        for (WifiApAnalyzer.Candidate candidate : analyzer.analyze(observations, connectedBssid)) {
+            if (emitted.add(candidate.bssid.toLowerCase(Locale.US))) {
+                cameras.add(toCameraInfo(candidate));
+            }
+        }
+        return cameras;
+    }
+
+    private static CameraInfo toCameraInfo(WifiApAnalyzer.Candidate candidate) {
+        CameraInfo camera = new CameraInfo();
+        // 热点没有局域网IP，用BSSID作为id，按MAC与其他端点归并
+        camera.setId(candidate.bssid.toUpperCase(Locale.US));
+        camera.setType(CameraInfo.CameraType.NETWORK);
+        camera.setMacAddress(candidate.bssid.toUpperCase(Locale.US));
+        camera.setName("摄像头热点 " + candidate.ssid);
+        camera.setManufacturer(candidate.vendor);
+        camera.setConfidence(candidate.confidence);
+        camera.setDescription(String.format(Locale.US, "信号 %d dBm，信道 %d (%s)，依据: %s",
+                candidate.level, candidate.channel, candidate.getBand(),
+                android.text.TextUtils.join("、", candidate.evidence)));
+        return camera;
+    }
+}
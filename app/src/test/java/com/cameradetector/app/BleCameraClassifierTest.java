@@ -0,0 +1,109 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BleCameraClassifierTest {
+
+    // 录制的广播包（广播数据 + 扫描响应）
+    // GoPro HERO：Flags、服务0xFEA6、完整名称、厂商数据（公司ID 0x02F2）
+    static final String GOPRO_HERO = "020106 0303a6fe 0b09476f50726f2031323334 08fff202020b001234";
+    // 索尼微单：厂商数据类型字段 0x0003 表示相机
+    static final String SONY_ALPHA = "020106 0eff2d0103006400453122ab002160 0909494c43452d374d33";
+    // 索尼耳机：同一公司ID，类型字段不是相机
+    static final String SONY_HEADPHONES = "020106 0eff2d0104006400453122ab002160 0b0957482d31303030584d34";
+    // 小米智能插座：只有米家服务数据
+    static final String XIAOMI_PLUG = "020106 071695fe30205b05";
+    // 128位形式的GoPro服务UUID（蓝牙基础UUID）
+    static final String GOPRO_UUID128 = "020106 1107fb349b5f8000008000100000a6fe0000";
+
+    @Test
+    public void parsesRecordedAdvertisement() {
+        BleCameraClassifier.Advertisement ad = BleCameraClassifier.parse(hex(GOPRO_HERO));
+
+        assertEquals(0x06, ad.flags);
+        assertEquals("GoPro 1234", ad.name);
+        assertEquals(Arrays.asList(0xFEA6), ad.serviceUuids);
+        assertEquals(0x02F2, ad.companyId);
+        assertEquals(5, ad.manufacturerData.length);
+    }
+
+    @Test
+    public void combinesIndependentEvidence() {
+        BleCameraClassifier.Result result = classify(GOPRO_HERO, null);
+
+        assertTrue(result.isCamera());
+        assertEquals("GoPro", result.vendor);
+        assertEquals(1f - 0.1f * 0.1f * 0.1f, result.confidence, 1e-4f);
+        assertEquals(Arrays.asList("服务0xFEA6", "厂商ID 0x02F2", "名称含gopro"), result.evidence);
+    }
+
+    @Test
+    public void sonyCompanyIdNeedsCameraType() {
+        BleCameraClassifier.Result camera = classify(SONY_ALPHA, null);
+        assertTrue(camera.isCamera());
+        assertEquals("Sony", camera.vendor);
+        assertEquals(1f - 0.1f * 0.2f, camera.confidence, 1e-4f);
+
+        BleCameraClassifier.Result headphones = classify(SONY_HEADPHONES, null);
+        assertFalse(headphones.isCamera());
+        assertEquals(0.2f, headphones.confidence, 1e-4f);
+    }
+
+    @Test
+    public void smartHomeServiceAloneIsNotCamera() {
+        BleCameraClassifier.Result result = classify(XIAOMI_PLUG, null);
+
+        assertFalse(result.isCamera());
+        assertEquals("Xiaomi", result.vendor);
+    }
+
+    @Test
+    public void uuid128WithBaseIsAliased() {
+        BleCameraClassifier.Advertisement ad = BleCameraClassifier.parse(hex(GOPRO_UUID128));
+
+        assertEquals(Arrays.asList(0xFEA6), ad.serviceUuids);
+        assertTrue(BleCameraClassifier.classify(ad, null).isCamera());
+    }
+
+    @Test
+    public void advertisedNameWinsOverCachedName() {
+        // 广播包中没有名称时才使用系统缓存的设备名
+        BleCameraClassifier.Result cached = classify("020106", "Front Door Camera");
+        assertTrue(cached.isCamera());
+        assertNull(cached.vendor);
+        assertEquals(Arrays.asList("名称含camera", "名称含cam"), cached.evidence);
+
+        assertFalse(classify("020106 0509506c7567", "Front Door Camera").isCamera());
+    }
+
+    @Test
+    public void truncatedAndPaddedRecordsAreTolerated() {
+        // 名称结构声明5字节但只剩2字节
+        BleCameraClassifier.Advertisement truncated = BleCameraClassifier.parse(hex("020106 05094361"));
+        assertEquals(0x06, truncated.flags);
+        assertNull(truncated.name);
+
+        // 长度0之后是填充
+        BleCameraClassifier.Advertisement padded = BleCameraClassifier.parse(hex("020106 00 0509506c7567"));
+        assertNull(padded.name);
+
+        assertSame(BleCameraClassifier.NONE, classify("", null));
+        assertSame(BleCameraClassifier.NONE, BleCameraClassifier.classify(BleCameraClassifier.parse(null), null));
+    }
+
+    private static BleCameraClassifier.Result classify(String record, String deviceName) {
+        return BleCameraClassifier.classify(BleCameraClassifier.parse(hex(record)), deviceName);
+    }
+
+    static byte[] hex(String text) {
+        return RtpDepacketizerTest.hex(text);
+    }
+}
@@ -0,0 +1,107 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BleDeviceTableTest {
+
+    private static final String GOPRO = "D4:D9:19:8A:3C:01";
+    private static final long SECOND = 1_000_000_000L;
+
+    private final BleDeviceTable table = new BleDeviceTable();
+    private final byte[] goproRecord = BleCameraClassifierTest.hex(BleCameraClassifierTest.GOPRO_HERO);
+
+    @Test
+    public void sameAdvertisementIsClassifiedOnce() {
+        BleDeviceTable.Device first = table.update(GOPRO, null, -70, SECOND, goproRecord);
+        for (int i = 2; i <= 20; i++) {
+            // 批量上报中同一广播包会出现多次，每次都是新的数组
+            assertSame(first, table.update(GOPRO, null, -70, i * SECOND, goproRecord.clone()));
+        }
+
+        assertEquals(1, table.size());
+        assertEquals(20, first.getReports());
+        assertEquals(1, table.getClassifications());
+        assertEquals("GoPro 1234", first.getName());
+        assertTrue(first.isCamera());
+    }
+
+    @Test
+    public void changedAdvertisementIsReclassified() {
+        table.update(GOPRO, null, -70, SECOND, goproRecord);
+        BleDeviceTable.Device device = table.update(GOPRO, null, -70, 2 * SECOND,
+                BleCameraClassifierTest.hex(BleCameraClassifierTest.XIAOMI_PLUG));
+
+        assertEquals(2, table.getClassifications());
+        assertFalse(device.isCamera());
+        // 新的广播包没有名称，沿用系统缓存名（此处为null）
+        assertNull(device.getName());
+    }
+
+    @Test
+    public void addressCaseDoesNotSplitDevice() {
+        table.update(GOPRO, null, -70, SECOND, goproRecord);
+        table.update(GOPRO.toLowerCase(), null, -70, 2 * SECOND, goproRecord);
+
+        assertEquals(1, table.size());
+        assertNull(table.update("D4:D9:19:8A:3C", null, -70, SECOND, goproRecord));
+        assertNull(table.update("D4-D9-19-8A-3C-01", null, -70, SECOND, goproRecord));
+        assertEquals(0, BleDeviceTable.addressKey("D4:D9:19:8A:3C:0G"));
+        assertNotEquals(0, BleDeviceTable.addressKey("00:00:00:00:00:00"));
+    }
+
+    @Test
+    public void rssiIsSmoothedOverTime() {
+        BleDeviceTable.Device device = table.update(GOPRO, null, -80, SECOND, goproRecord);
+        assertEquals(-80f, device.getSmoothedRssi(), 1e-3f);
+
+        // 间隔一个时间常数，新读数权重 1-1/e
+        long dt = BleDeviceTable.RSSI_TIME_CONSTANT_MS * 1_000_000L;
+        table.update(GOPRO, null, -60, SECOND + dt, goproRecord);
+        assertEquals(-80f + 20f * (1f - (float) Math.exp(-1)), device.getSmoothedRssi(), 1e-3f);
+        assertEquals(-60, device.getLastRssi());
+
+        // 同一批中时间戳相同的读数仍有最小权重
+        float before = device.getSmoothedRssi();
+        table.update(GOPRO, null, -40, SECOND + dt, goproRecord);
+        assertEquals(before + 0.1f * (-40 - before), device.getSmoothedRssi(), 1e-3f);
+
+        // 乱序的旧结果不会让最后出现时间倒退
+        table.update(GOPRO, null, -40, SECOND, goproRecord);
+        assertEquals(SECOND + dt, device.getLastSeenNanos());
+    }
+
+    @Test
+    public void reportsOnlyCamerasAndSignificantChanges() {
+        BleDeviceTable.Device plug = table.update("A4:C1:38:00:00:01", null, -50, SECOND,
+                BleCameraClassifierTest.hex(BleCameraClassifierTest.XIAOMI_PLUG));
+        assertFalse(table.shouldReport(plug));
+
+        BleDeviceTable.Device camera = table.update(GOPRO, null, -70, SECOND, goproRecord);
+        assertTrue(table.shouldReport(camera));
+        assertFalse(table.shouldReport(camera));
+
+        // 平滑后变化不到 RSSI_REPORT_STEP 不重新上报
+        table.update(GOPRO, null, -72, SECOND, goproRecord);
+        assertFalse(table.shouldReport(camera));
+
+        table.update(GOPRO, null, -90, 10 * SECOND, goproRecord);
+        assertTrue(table.shouldReport(camera));
+    }
+
+    @Test
+    public void clearForgetsDevices() {
+        table.update(GOPRO, null, -70, SECOND, goproRecord);
+        table.clear();
+
+        assertEquals(0, table.size());
+        assertEquals(0, table.getClassifications());
+        assertEquals(1, table.update(GOPRO, null, -70, SECOND, goproRecord).getReports());
+    }
+}
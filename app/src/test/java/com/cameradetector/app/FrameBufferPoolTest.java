@@ -0,0 +1,62 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 缓冲取整、复用最小可用缓冲和池满时的取舍
+ */
+public class FrameBufferPoolTest {
+
+    private static final int KB64 = 64 * 1024;
+
+    @Test
+    public void buffersAreRoundedAndReused() {
+        FrameBufferPool pool = new FrameBufferPool(4 * KB64);
+        byte[] buffer = pool.acquire(1000);
+        assertEquals(KB64, buffer.length);
+        assertEquals(KB64 * 2, pool.acquire(KB64 + 1).length);
+        assertEquals(2, pool.getAllocations());
+
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire(KB64));
+        assertEquals(2, pool.getAllocations());
+    }
+
+    @Test
+    public void acquireTakesSmallestThatFits() {
+        FrameBufferPool pool = new FrameBufferPool(8 * KB64);
+        byte[] large = pool.acquire(3 * KB64);
+        byte[] medium = pool.acquire(2 * KB64);
+        byte[] small = pool.acquire(KB64);
+        pool.release(large);
+        pool.release(small);
+        pool.release(medium);
+
+        assertSame(medium, pool.acquire(KB64 + 1));
+        assertSame(small, pool.acquire(10));
+        assertSame(large, pool.acquire(10));
+        assertEquals(3, pool.getAllocations());
+    }
+
+    @Test
+    public void fullPoolKeepsLargerBuffers() {
+        FrameBufferPool pool = new FrameBufferPool(2 * KB64);
+        byte[] small = pool.acquire(1);
+        byte[] large = pool.acquire(2 * KB64);
+        pool.release(small);
+        // 放不下时丢弃更小的缓冲
+        pool.release(large);
+        assertSame(large, pool.acquire(1));
+
+        pool.release(large);
+        // 池已被更大的缓冲占满，归还的小缓冲被丢弃
+        pool.release(small);
+        assertSame(large, pool.acquire(1));
+        assertNotSame(small, pool.acquire(1));
+        assertEquals(3, pool.getAllocations());
+    }
+}
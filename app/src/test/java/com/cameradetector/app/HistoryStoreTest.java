@@ -0,0 +1,281 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class HistoryStoreTest {
+
+    private final FakeDatabase db = new FakeDatabase();
+    private final HistoryStore store = new HistoryStore(db);
+
+    @Test
+    public void recordsFromManyThreadsAreWrittenInOneTransaction() throws InterruptedException {
+        store.startScan("HomeWiFi", "QUICK", 1000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    store.record(HistoryStore.Observation.of(camera(i % 50, 554), 2000 + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(50, store.flush());
+        assertEquals(1, db.transactions);
+        assertEquals(1, store.getFlushes());
+        assertEquals(50, db.executions("INSERT OR REPLACE INTO observations"));
+        // 语句只在构造时编译
+        assertEquals(8, db.prepared);
+    }
+
+    @Test
+    public void flushWritesOnlyChangesSinceLastFlush() {
+        store.startScan("HomeWiFi", "QUICK", 1000);
+        for (int i = 0; i < 10; i++) {
+            store.record(HistoryStore.Observation.of(camera(i, 80), 2000));
+        }
+        assertEquals(10, store.flush());
+
+        // 没有变化时不开事务
+        assertEquals(0, store.flush());
+        assertEquals(1, db.transactions);
+
+        store.record(HistoryStore.Observation.of(camera(3, 554), 3000));
+        store.finishScan(4000, 120, 65536);
+        assertEquals(1, store.flush());
+        assertEquals(2, db.transactions);
+        assertEquals(1, db.executions("UPDATE scans"));
+        // 已知设备的id在进程内缓存，不再插入
+        assertEquals(10, db.executions("INSERT OR IGNORE INTO devices"));
+        assertEquals(11, store.getWrittenObservations());
+    }
+
+    @Test
+    public void unfinishedScanIsWrittenAfterNextStarts() {
+        store.startScan("HomeWiFi", "QUICK", 1000);
+        store.record(HistoryStore.Observation.of(camera(1, 80), 2000));
+        store.startScan("HomeWiFi", "DEEP", 5000);
+        store.record(HistoryStore.Observation.of(camera(1, 80), 6000));
+
+        assertEquals(2, store.flush());
+        assertEquals(2, db.executions("INSERT INTO scans"));
+        assertEquals(1, db.transactions);
+        assertEquals(1, db.executions("INSERT OR IGNORE INTO networks"));
+    }
+
+    @Test
+    public void recordWithoutScanIsIgnored() {
+        assertFalse(store.record(HistoryStore.Observation.of(camera(1, 80), 2000)));
+        assertEquals(0, store.flush());
+    }
+
+    @Test
+    public void exportClosesCursorWhenFinished() throws IOException {
+        db.rows = observationRows(3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long count = ScanExporter.export(store.exportSource("HomeWiFi"), ScanExporter.Format.NDJSON, null, output, null);
+
+        // 每次观测一条设备记录，加上两个端口各一条探测记录
+        assertEquals(9, count);
+        assertEquals(1, db.closedCursors);
+        assertEquals(9, new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n").length);
+    }
+
+    @Test
+    public void exportClosesCursorOnWriteFailure() {
+        db.rows = observationRows(100_000);
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("存储空间不足");
+            }
+        };
+        try {
+            ScanExporter.export(store.exportSource("HomeWiFi"), ScanExporter.Format.CSV, null, failing, null);
+            fail("写入失败应抛出异常");
+        } catch (IOException expected) {
+            assertEquals(1, db.closedCursors);
+        }
+    }
+
+    @Test
+    public void exportClosesCursorOnCancel() throws IOException {
+        db.rows = observationRows(ScanExporter.PROGRESS_INTERVAL * 2);
+        Thread.currentThread().interrupt();
+        try {
+            ScanExporter.export(store.exportSource("HomeWiFi"), ScanExporter.Format.NDJSON, null,
+                    new ByteArrayOutputStream(), null);
+            fail("线程中断时应停止导出");
+        } catch (InterruptedIOException expected) {
+            assertEquals(1, db.closedCursors);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private static CameraInfo camera(int index, int port) {
+        CameraInfo camera = new CameraInfo();
+        camera.setId("192.168.1." + (10 + index));
+        camera.setType(CameraInfo.CameraType.NETWORK);
+        camera.setIpAddress("192.168.1." + (10 + index));
+        camera.setManufacturer("Hikvision");
+        camera.setConfidence(0.9f);
+        camera.setPort(port);
+        return camera;
+    }
+
+    // QUERY_OBSERVATIONS 的列：seen_at, device_key, name, type, ip, mac, vendor, model, confidence, ports
+    private static List<Object[]> observationRows(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{1000L + i, "AA:BB:CC:00:00:01", "Camera, \"front\"", "NETWORK", "192.168.1.10",
+                    "AA:BB:CC:00:00:01", "Hikvision", null, 0.9, "80,554"});
+        }
+        return rows;
+    }
+
+    /**
+     * 只记录语句执行和事务的假数据库；插入总是成功并返回递增的rowid
+     */
+    private static class FakeDatabase implements HistoryStore.Database {
+        int prepared = 0;
+        int transactions = 0;
+        int closedCursors = 0;
+        List<Object[]> rows = new ArrayList<>();
+        private final Map<String, Integer> executions = new HashMap<>();
+        private long nextRowId = 1;
+        private boolean inTransaction = false;
+
+        synchronized int executions(String prefix) {
+            int count = 0;
+            for (Map.Entry<String, Integer> entry : executions.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    count += entry.getValue();
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void execute(String sql) {
+        }
+
+        @Override
+        public HistoryStore.Statement prepare(String sql) {
+            prepared++;
+            return new HistoryStore.Statement() {
+                @Override
+                public void bindString(int index, String value) {
+                }
+
+                @Override
+                public void bindLong(int index, long value) {
+                }
+
+                @Override
+                public void bindDouble(int index, double value) {
+                }
+
+                @Override
+                public void bindNull(int index) {
+                }
+
+                @Override
+                public long executeInsert() {
+                    count(sql);
+                    return nextRowId++;
+                }
+
+                @Override
+                public int executeUpdateDelete() {
+                    count(sql);
+                    // 端点都是新的，让调用方走插入
+                    return sql.startsWith("UPDATE endpoints") ? 0 : 1;
+                }
+
+                @Override
+                public void clearBindings() {
+                }
+            };
+        }
+
+        private synchronized void count(String sql) {
+            if (!inTransaction) {
+                throw new IllegalStateException("写入不在事务中: " + sql);
+            }
+            Integer current = executions.get(sql);
+            executions.put(sql, current == null ? 1 : current + 1);
+        }
+
+        @Override
+        public HistoryStore.Rows query(String sql, String... args) {
+            return new HistoryStore.Rows() {
+                private int index = -1;
+
+                @Override
+                public boolean next() {
+                    return ++index < rows.size();
+                }
+
+                @Override
+                public String getString(int column) {
+                    Object value = rows.get(index)[column];
+                    return value != null ? value.toString() : null;
+                }
+
+                @Override
+                public long getLong(int column) {
+                    return ((Number) rows.get(index)[column]).longValue();
+                }
+
+                @Override
+                public double getDouble(int column) {
+                    return ((Number) rows.get(index)[column]).doubleValue();
+                }
+
+                @Override
+                public boolean isNull(int column) {
+                    return rows.get(index)[column] == null;
+                }
+
+                @Override
+                public void close() {
+                    closedCursors++;
+                }
+            };
+        }
+
+        @Override
+        public synchronized void beginTransaction() {
+            inTransaction = true;
+            transactions++;
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+        }
+
+        @Override
+        public synchronized void endTransaction() {
+            inTransaction = false;
+        }
+    }
+}
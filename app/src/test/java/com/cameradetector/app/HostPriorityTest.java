@@ -0,0 +1,107 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 主机先验打分，以及扫描池按分数从高到低、同分按提交顺序取任务
+ */
+public class HostPriorityTest {
+
+    private static final String HIKVISION_MAC = "28:57:be:12:34:56";
+    private static final String TPLINK_MAC = "50:c7:bf:00:00:01";
+
+    @Test
+    public void scoresCombinePriors() throws IOException {
+        OuiDatabase oui = database("2857BE", "Hikvision", "50C7BF", "TP-Link");
+        HostPriority priority = new HostPriority();
+        priority.recordCamera("192.168.1.10");
+        priority.recordRtspOpen("192.168.1.10");
+        priority.recordRtspOpen("192.168.1.11");
+
+        assertEquals(0, priority.score("192.168.1.99", null, false, oui));
+        assertEquals(HostPriority.NEIGHBOR, priority.score("192.168.1.20", TPLINK_MAC, false, oui));
+        assertEquals(HostPriority.NEIGHBOR + HostPriority.CAMERA_OUI,
+                priority.score("192.168.1.21", HIKVISION_MAC, false, oui));
+        assertEquals(HostPriority.DISCOVERY_HIT, priority.score("fe80::1%wlan0", null, true, oui));
+        assertEquals(HostPriority.RTSP_OPEN, priority.score("192.168.1.11", null, false, oui));
+        assertEquals(HostPriority.PREVIOUS_CAMERA + HostPriority.RTSP_OPEN,
+                priority.score("192.168.1.10", null, false, oui));
+    }
+
+    @Test
+    public void previousCameraOutranksCameraOui() throws IOException {
+        OuiDatabase oui = database("2857BE", "Hikvision");
+        HostPriority priority = new HostPriority();
+        priority.recordCamera("192.168.1.10");
+        assertTrue(priority.score("192.168.1.10", null, false, oui)
+                > priority.score("192.168.1.21", HIKVISION_MAC, true, oui));
+    }
+
+    @Test
+    public void queueRunsHighestScoreFirstThenSubmissionOrder() {
+        PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
+        List<String> order = new ArrayList<>();
+        Map<String, Integer> tasks = new LinkedHashMap<>();
+        tasks.put("plain-1", 0);
+        tasks.put("neighbor", HostPriority.NEIGHBOR);
+        tasks.put("plain-2", 0);
+        tasks.put("camera", HostPriority.PREVIOUS_CAMERA);
+        tasks.put("discovery", HostPriority.SYSTEM);
+        tasks.put("plain-3", 0);
+        for (Map.Entry<String, Integer> entry : tasks.entrySet()) {
+            String name = entry.getKey();
+            queue.add(HostPriority.task(entry.getValue(), () -> order.add(name)));
+        }
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            task.run();
+        }
+        assertEquals("[discovery, camera, neighbor, plain-1, plain-2, plain-3]", order.toString());
+    }
+
+    /**
+     * 按 oui.bin 的格式构造OUI表：前缀(6位十六进制)和厂商名称交替给出
+     */
+    static OuiDatabase database(String... entries) throws IOException {
+        TreeMap<Integer, String> byPrefix = new TreeMap<>();
+        List<String> vendors = new ArrayList<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            byPrefix.put(Integer.parseInt(entries[i], 16), entries[i + 1]);
+            if (!vendors.contains(entries[i + 1])) {
+                vendors.add(entries[i + 1]);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x4F554931);
+        out.writeInt(vendors.size());
+        for (String vendor : vendors) {
+            byte[] name = vendor.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+        }
+        out.writeInt(byPrefix.size());
+        for (int prefix : byPrefix.keySet()) {
+            out.writeInt(prefix);
+        }
+        for (String vendor : byPrefix.values()) {
+            out.writeShort(vendors.indexOf(vendor));
+        }
+        return OuiDatabase.parse(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+}
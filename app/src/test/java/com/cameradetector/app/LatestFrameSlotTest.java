@@ -0,0 +1,91 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LatestFrameSlotTest {
+
+    private final LatestFrameSlot slot = new LatestFrameSlot();
+
+    @Test
+    public void newerFrameOverwritesPendingOne() throws InterruptedException {
+        slot.offer(new byte[]{1, 1, 1}, 0, 3);
+        slot.offer(new byte[]{9, 2, 2, 9}, 1, 2);
+
+        LatestFrameSlot.Frame frame = slot.take(null);
+        assertEquals(2, frame.getLength());
+        assertEquals(2, frame.getData()[0]);
+        assertEquals(2, slot.getOfferedFrames());
+        assertEquals(1, slot.getDroppedFrames());
+    }
+
+    @Test
+    public void dataIsCopiedOnOffer() throws InterruptedException {
+        byte[] source = {5, 6, 7};
+        slot.offer(source, 0, source.length);
+        source[0] = 0;
+
+        assertEquals(5, slot.take(null).getData()[0]);
+    }
+
+    @Test
+    public void twoBuffersAlternate() throws InterruptedException {
+        slot.offer(new byte[]{1}, 0, 1);
+        LatestFrameSlot.Frame first = slot.take(null);
+        slot.offer(new byte[]{2}, 0, 1);
+        LatestFrameSlot.Frame second = slot.take(first);
+        assertNotSame(first, second);
+
+        // 交还的帧缓冲被复用，不再分配
+        LatestFrameSlot.Frame held = second;
+        for (int i = 3; i < 100; i++) {
+            slot.offer(new byte[]{(byte) i}, 0, 1);
+            held = slot.take(held);
+            assertSame(i % 2 == 1 ? first : second, held);
+            assertEquals(i, held.getData()[0]);
+        }
+        assertEquals(0, slot.getDroppedFrames());
+    }
+
+    @Test
+    public void slowConsumerOnlySeesLatest() throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            slot.offer(new byte[]{(byte) i}, 0, 1);
+        }
+
+        assertEquals(49, slot.take(null).getData()[0]);
+        assertEquals(49, slot.getDroppedFrames());
+    }
+
+    @Test
+    public void closeWakesBlockedConsumer() throws InterruptedException {
+        AtomicReference<LatestFrameSlot.Frame> taken = new AtomicReference<>(new LatestFrameSlot.Frame());
+        CountDownLatch done = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            try {
+                taken.set(slot.take(null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        consumer.start();
+        slot.close();
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertNull(taken.get());
+        // 关闭后写入被忽略
+        slot.offer(new byte[]{1}, 0, 1);
+        assertEquals(0, slot.getOfferedFrames());
+        assertNull(slot.take(null));
+    }
+}
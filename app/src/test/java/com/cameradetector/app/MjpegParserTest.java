@@ -0,0 +1,187 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MjpegParserTest {
+
+    // 两帧最小的"JPEG"，第二帧数据中恰好含有边界字符串
+    private static final byte[] FRAME_1 = jpeg("frame-1");
+    private static final byte[] FRAME_2 = jpeg("--myboundary inside data");
+
+    @Test
+    public void readsPartsByContentLength() throws IOException {
+        byte[] stream = concat(
+                part("--myboundary", FRAME_1, true),
+                part("--myboundary", FRAME_2, true),
+                ascii("--myboundary--\r\n"));
+        MjpegParser parser = new MjpegParser(new Trickle(stream, 7), "myboundary", 1024);
+
+        assertFrame(parser, FRAME_1);
+        // 按长度读取，数据中的边界字符串不会截断帧
+        assertFrame(parser, FRAME_2);
+        assertEquals(-1, parser.nextFrame());
+    }
+
+    @Test
+    public void readsPartsDelimitedByBoundary() throws IOException {
+        byte[] stream = concat(
+                part("--myboundary", FRAME_1, false),
+                part("--myboundary", jpeg("frame-2"), false),
+                ascii("--myboundary\r\n"));
+        MjpegParser parser = new MjpegParser(new Trickle(stream, 5), "myboundary", 1024);
+
+        // 边界前的 \r\n 不属于帧数据
+        assertFrame(parser, FRAME_1);
+        assertFrame(parser, jpeg("frame-2"));
+        assertEquals(-1, parser.nextFrame());
+    }
+
+    @Test
+    public void boundaryParameterIsNormalized() throws IOException {
+        assertEquals("myboundary", MjpegParser.boundaryOf("multipart/x-mixed-replace;boundary=myboundary"));
+        assertEquals("myboundary", MjpegParser.boundaryOf("multipart/x-mixed-replace; boundary=\"myboundary\""));
+        assertEquals("myboundary", MjpegParser.boundaryOf("Multipart/X-Mixed-Replace; Boundary=--myboundary"));
+        assertNull(MjpegParser.boundaryOf("image/jpeg"));
+        assertNull(MjpegParser.boundaryOf("multipart/x-mixed-replace; boundary=\"--\""));
+        assertNull(MjpegParser.boundaryOf(null));
+
+        // 声明 "--myboundary" 的摄像头，分隔行有的写 "----myboundary"，有的只写 "--myboundary"
+        String boundary = MjpegParser.boundaryOf("multipart/x-mixed-replace;boundary=--myboundary");
+        byte[] stream = concat(
+                part("----myboundary", FRAME_1, true),
+                part("--myboundary", FRAME_2, true));
+        MjpegParser parser = new MjpegParser(new Trickle(stream, 3), boundary, 1024);
+        assertFrame(parser, FRAME_1);
+        assertFrame(parser, FRAME_2);
+        assertEquals(-1, parser.nextFrame());
+    }
+
+    @Test
+    public void fallsBackToJpegMarkersWithoutBoundary() throws IOException {
+        byte[] stream = concat(ascii("HTTP garbage\r\n"), FRAME_1, ascii("\r\n\r\n"), FRAME_2, new byte[]{(byte) 0xFF, (byte) 0xD8, 1, 2});
+        MjpegParser parser = new MjpegParser(new Trickle(stream, 4), null, 1024);
+
+        assertFrame(parser, FRAME_1);
+        assertFrame(parser, FRAME_2);
+        // 最后一帧没有EOI，不完整
+        assertEquals(-1, parser.nextFrame());
+    }
+
+    @Test
+    public void rejectsDeclaredLengthOverLimit() {
+        byte[] big = jpeg(repeat('x', 200));
+        MjpegParser parser = new MjpegParser(new Trickle(part("--myboundary", big, true), 64), "myboundary", 100);
+        try {
+            parser.nextFrame();
+            fail("超过上限的Content-Length应报错");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("帧过大"));
+        }
+    }
+
+    @Test
+    public void rejectsUnboundedPartOverLimit() {
+        // 没有长度也没有下一个边界：缓冲区增长到上限后报错，而不是无限读取
+        byte[] stream = concat(ascii("--myboundary\r\n\r\n"), new byte[64 * 1024]);
+        MjpegParser parser = new MjpegParser(new Trickle(stream, 4096), "myboundary", 1024);
+        try {
+            parser.nextFrame();
+            fail("超过上限的帧应报错");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("上限"));
+        }
+    }
+
+    @Test
+    public void bufferIsReusedAcrossFrames() throws IOException {
+        byte[] stream = new byte[0];
+        for (int i = 0; i < 200; i++) {
+            stream = concat(stream, part("--myboundary", jpeg("frame-" + i), true));
+        }
+        MjpegParser parser = new MjpegParser(new Trickle(stream, 1000), "myboundary", 1024);
+        byte[] buffer = parser.getBuffer();
+        for (int i = 0; i < 200; i++) {
+            assertFrame(parser, jpeg("frame-" + i));
+        }
+        assertEquals(-1, parser.nextFrame());
+        assertTrue(buffer == parser.getBuffer());
+    }
+
+    private static void assertFrame(MjpegParser parser, byte[] expected) throws IOException {
+        int length = parser.nextFrame();
+        assertEquals(expected.length, length);
+        assertEquals(length, parser.getFrameLength());
+        assertArrayEquals(expected, Arrays.copyOfRange(parser.getBuffer(),
+                parser.getFrameOffset(), parser.getFrameOffset() + length));
+    }
+
+    private static byte[] part(String separator, byte[] frame, boolean withLength) {
+        String headers = separator + "\r\nContent-Type: image/jpeg\r\n"
+                + (withLength ? "Content-Length: " + frame.length + "\r\n" : "") + "\r\n";
+        return concat(ascii(headers), frame, ascii("\r\n"));
+    }
+
+    private static byte[] jpeg(String payload) {
+        return concat(new byte[]{(byte) 0xFF, (byte) 0xD8}, ascii(payload), new byte[]{(byte) 0xFF, (byte) 0xD9});
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 每次最多返回 chunk 字节，模拟网络上分段到达的数据
+     */
+    private static class Trickle extends InputStream {
+        private final byte[] data;
+        private final int chunk;
+        private int pos = 0;
+
+        Trickle(byte[] data, int chunk) {
+            this.data = data;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length ? data[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(len, chunk), data.length - pos);
+            System.arraycopy(data, pos, b, off, count);
+            pos += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 监控状态的基线、变化判定、按IP兜底匹配、过期删除和持久化
+ */
+public class MonitorStateTest {
+
+    private static final String MAC = "28:57:BE:12:34:56";
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long T0 = 1700000000000L;
+
+    @Test
+    public void firstRunOnlyBuildsBaseline() {
+        MonitorState state = new MonitorState();
+        assertTrue(state.apply(scan(MAC, "192.168.1.64", "Hikvision", 80, 554), T0).isEmpty());
+        assertEquals(1, state.getDevices().size());
+
+        List<MonitorState.Change> changes = state.apply(scan("AA:BB:CC:00:00:01", "192.168.1.65", null, 80), T0 + 1);
+        assertEquals(1, changes.size());
+        assertEquals(MonitorState.Change.Kind.NEW, changes.get(0).kind);
+        assertEquals("新摄像头 192.168.1.65 端口 80", changes.get(0).toString());
+    }
+
+    @Test
+    public void reportsNewPortsAndVendorChangesOnly() {
+        MonitorState state = baseline();
+        // 本轮漏掉了554、没有识别出厂商：不提醒
+        assertTrue(state.apply(scan(MAC, "192.168.1.64", null, 80), T0 + 1).isEmpty());
+
+        List<MonitorState.Change> changes = state.apply(scan(MAC, "192.168.1.64", "Dahua", 80, 8000), T0 + 2);
+        assertEquals(2, changes.size());
+        assertEquals(MonitorState.Change.Kind.PORTS, changes.get(0).kind);
+        assertArrayEquals(new int[]{8000}, changes.get(0).openedPorts);
+        assertEquals(MonitorState.Change.Kind.VENDOR, changes.get(1).kind);
+        assertEquals("Hikvision", changes.get(1).previousVendor);
+
+        MonitorState.Device device = state.getDevices().iterator().next();
+        assertArrayEquals(new int[]{80, 554, 8000}, device.getPorts());
+        assertEquals("Dahua", device.getVendor());
+    }
+
+    @Test
+    public void missingMacFallsBackToKnownIp() {
+        MonitorState state = baseline();
+        // 邻居表这次没查到MAC，设备按IP上报
+        assertTrue(state.apply(scan("192.168.1.64", "192.168.1.64", "Hikvision", 554), T0 + 1).isEmpty());
+        assertEquals(1, state.getDevices().size());
+        assertEquals(MAC, state.getDevices().iterator().next().key);
+    }
+
+    @Test
+    public void ipKeyedDeviceMovesToMacWhenFound() {
+        MonitorState state = new MonitorState();
+        state.apply(scan("192.168.1.64", "192.168.1.64", null, 554), T0);
+        assertTrue(state.apply(scan(MAC, "192.168.1.64", "Hikvision", 554), T0 + 1).isEmpty());
+        assertEquals(1, state.getDevices().size());
+        MonitorState.Device device = state.getDevices().iterator().next();
+        assertEquals(MAC, device.key);
+        assertEquals("Hikvision", device.getVendor());
+    }
+
+    @Test
+    public void reassignedIpWithDifferentMacIsNew() {
+        MonitorState state = baseline();
+        List<MonitorState.Change> changes = state.apply(scan("AA:BB:CC:00:00:01", "192.168.1.64", null, 80), T0 + 1);
+        assertEquals(1, changes.size());
+        assertEquals(MonitorState.Change.Kind.NEW, changes.get(0).kind);
+        assertEquals(2, state.getDevices().size());
+    }
+
+    @Test
+    public void devicesAreForgottenAfterThirtyDays() {
+        MonitorState state = baseline();
+        state.apply(new MonitorState.Scan(), T0 + 29 * DAY);
+        assertEquals(1, state.getDevices().size());
+        state.apply(new MonitorState.Scan(), T0 + 31 * DAY);
+        assertTrue(state.getDevices().isEmpty());
+    }
+
+    @Test
+    public void writeAndReadRoundTrip() throws IOException {
+        MonitorState state = baseline();
+        for (int i = 0; i < MonitorState.MAX_RUNS + 3; i++) {
+            state.addRun(new MonitorState.Run(T0 + i, 1500, 40, 2048, 1, 0));
+        }
+        StringWriter out = new StringWriter();
+        state.write(out);
+
+        MonitorState restored = MonitorState.read(new StringReader(out.toString()));
+        assertEquals(MonitorState.MAX_RUNS, restored.getRuns().size());
+        assertEquals(T0 + 3, restored.getRuns().get(0).startedMs);
+        MonitorState.Device device = restored.getDevices().iterator().next();
+        assertEquals(MAC, device.key);
+        assertEquals("192.168.1.64", device.getIpAddress());
+        assertArrayEquals(new int[]{80, 554}, device.getPorts());
+        assertEquals(T0, device.getLastSeenMs());
+        // 读回的状态已有基线，之后的新设备会提醒
+        assertFalse(restored.apply(scan("AA:BB:CC:00:00:01", "192.168.1.65", null, 80), T0 + 1).isEmpty());
+    }
+
+    @Test
+    public void unknownHeaderResetsAndBadLinesAreSkipped() throws IOException {
+        MonitorState empty = MonitorState.read(new StringReader("camera-monitor 0\nD\tx\t\t\t\t0\n"));
+        assertTrue(empty.getDevices().isEmpty());
+        assertTrue(empty.apply(scan(MAC, "192.168.1.64", null, 80), T0).isEmpty());
+
+        MonitorState state = MonitorState.read(new StringReader("camera-monitor 1\n"
+                + "D\t" + MAC + "\t192.168.1.64\t\t80,x\t" + T0 + "\n"
+                + "D\tAA:BB:CC:00:00:01\t\tAxis\t\t" + T0 + "\n"));
+        assertEquals(1, state.getDevices().size());
+        MonitorState.Device device = state.getDevices().iterator().next();
+        assertNull(device.getIpAddress());
+        assertEquals("Axis", device.getVendor());
+    }
+
+    private static MonitorState baseline() {
+        MonitorState state = new MonitorState();
+        state.apply(scan(MAC, "192.168.1.64", "Hikvision", 80, 554), T0);
+        return state;
+    }
+
+    private static MonitorState.Scan scan(String key, String ip, String vendor, int... ports) {
+        MonitorState.Scan scan = new MonitorState.Scan();
+        for (int port : ports) {
+            scan.add(key, ip, vendor, port);
+        }
+        return scan;
+    }
+}
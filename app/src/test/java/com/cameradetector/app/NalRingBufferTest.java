@@ -0,0 +1,93 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NalRingBufferTest {
+
+    private final NalRingBuffer.Unit unit = new NalRingBuffer.Unit();
+
+    @Test
+    public void overflowWaitsForNextKeyframe() {
+        NalRingBuffer ring = new NalRingBuffer(1024, 2);
+        assertTrue(ring.write(1, NalRingBuffer.FLAG_KEYFRAME, new byte[]{0x65, 1}, 0, 2));
+        assertTrue(ring.write(2, 0, new byte[]{0x41, 2}, 0, 2));
+
+        // 索引已满：这一帧和之后的非关键帧都被丢弃
+        assertFalse(ring.write(3, 0, new byte[]{0x41, 3}, 0, 2));
+        drain(ring);
+        assertFalse(ring.write(4, 0, new byte[]{0x41, 4}, 0, 2));
+        assertEquals(0, ring.size());
+
+        assertTrue(ring.write(5, NalRingBuffer.FLAG_CONFIG, new byte[]{0x67, 5}, 0, 2));
+        assertTrue(ring.write(6, 0, new byte[]{0x41, 6}, 0, 2));
+        assertEquals(2, ring.getDroppedUnits());
+    }
+
+    @Test
+    public void byteOverflowDuringFragmentAbortsUnit() {
+        NalRingBuffer ring = new NalRingBuffer(32, 8);
+        ring.begin(1, NalRingBuffer.FLAG_KEYFRAME);
+        ring.append(new byte[20], 0, 20);
+        ring.append(new byte[20], 0, 20);
+
+        assertFalse(ring.commit());
+        assertEquals(0, ring.size());
+        assertFalse(ring.write(2, 0, new byte[4], 0, 4));
+        assertTrue(ring.write(3, NalRingBuffer.FLAG_KEYFRAME, new byte[4], 0, 4));
+    }
+
+    @Test
+    public void wrapsAroundWithoutCorruptingUnits() {
+        NalRingBuffer ring = new NalRingBuffer(128, 16);
+        ByteBuffer target = ByteBuffer.allocate(64);
+        for (int i = 0; i < 200; i++) {
+            byte[] nal = new byte[10 + i % 7];
+            for (int j = 0; j < nal.length; j++) {
+                nal[j] = (byte) (i + j);
+            }
+            assertTrue("第" + i + "个单元", ring.write(i, 0, nal, 0, nal.length));
+            // 保持几个单元积压，写入位置反复回绕到最早单元之前
+            if (ring.size() > 3) {
+                takeAndCheck(ring, target);
+            }
+        }
+        while (ring.size() > 0) {
+            takeAndCheck(ring, target);
+        }
+        assertEquals(0, ring.getDroppedUnits());
+    }
+
+    @Test
+    public void takeDropsUnitThatDoesNotFit() {
+        NalRingBuffer ring = new NalRingBuffer(1024, 4);
+        ring.write(1, 0, new byte[100], 0, 100);
+
+        assertFalse(ring.take(ByteBuffer.allocate(50), unit));
+        assertEquals(0, ring.size());
+        assertEquals(1, ring.getDroppedUnits());
+    }
+
+    private void takeAndCheck(NalRingBuffer ring, ByteBuffer target) {
+        target.clear();
+        assertTrue(ring.take(target, unit));
+        int length = 10 + (int) unit.timestamp % 7;
+        assertEquals(4 + length, unit.length);
+        assertEquals(1, target.get(3));
+        for (int j = 0; j < length; j++) {
+            assertEquals((byte) (unit.timestamp + j), target.get(4 + j));
+        }
+    }
+
+    private void drain(NalRingBuffer ring) {
+        ByteBuffer target = ByteBuffer.allocate(1024);
+        while (ring.take(target, unit)) {
+            target.clear();
+        }
+    }
+}
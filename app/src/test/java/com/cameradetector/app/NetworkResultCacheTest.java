@@ -0,0 +1,158 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 网络键的匹配规则、快照内容、淘汰和二进制读写
+ */
+public class NetworkResultCacheTest {
+
+    private static final long NOW = 1700000000000L;
+    private static final NetworkResultCache.Key HOME =
+            new NetworkResultCache.Key("Home", "AA:BB:CC:DD:EE:01", "192.168.1.0/24");
+
+    @Test
+    public void keyMatchesOnSubnetPlusSsidOrBssid() {
+        // 同一Mesh网络的另一个接入点
+        assertTrue(HOME.matches(new NetworkResultCache.Key("Home", "aa:bb:cc:dd:ee:02", "192.168.1.0/24")));
+        // SSID改名但仍是同一个路由器，BSSID比较不区分大小写
+        assertTrue(HOME.matches(new NetworkResultCache.Key("Home-5G", "aa:bb:cc:dd:ee:01", "192.168.1.0/24")));
+        // 同名网络但子网不同
+        assertFalse(HOME.matches(new NetworkResultCache.Key("Home", "AA:BB:CC:DD:EE:01", "10.0.0.0/24")));
+        assertFalse(HOME.matches(new NetworkResultCache.Key("Cafe", "11:22:33:44:55:66", "192.168.1.0/24")));
+    }
+
+    @Test
+    public void placeholderBssidIsIgnored() {
+        NetworkResultCache.Key key = new NetworkResultCache.Key(null, "02:00:00:00:00:00", "192.168.1.0/24");
+        assertNull(key.bssid);
+        assertFalse(key.isValid());
+        assertFalse(new NetworkResultCache.Key("Home", null, null).isValid());
+    }
+
+    @Test
+    public void captureKeepsNetworkCamerasWithoutCredentials() {
+        CameraInfo camera = camera("192.168.1.64");
+        camera.setUsername("admin");
+        camera.setPassword("12345");
+        camera.setUnverified(true);
+        CameraInfo hotspot = new CameraInfo();
+        hotspot.setType(CameraInfo.CameraType.NETWORK);
+        CameraInfo ble = new CameraInfo();
+        ble.setType(CameraInfo.CameraType.BLUETOOTH);
+        ble.setIpAddress("unused");
+
+        NetworkResultCache.Snapshot snapshot = NetworkResultCache.capture(HOME, Arrays.asList(camera, hotspot, ble), NOW);
+        assertEquals(1, snapshot.size());
+        List<CameraInfo> restored = snapshot.restore();
+        CameraInfo copy = restored.get(0);
+        assertNotSame(camera, copy);
+        assertTrue(copy.isUnverified());
+        assertNull(copy.getUsername());
+        assertNull(copy.getPassword());
+        assertEquals("[80, 554/Streaming/Channels/101]", copy.getServices().toString());
+        // 每次恢复都是新对象
+        assertNotSame(copy, snapshot.restore().get(0));
+    }
+
+    @Test
+    public void getPrefersSameBssidAndSkipsExpired() {
+        NetworkResultCache cache = new NetworkResultCache();
+        // 两份互不匹配的缓存：查询键的SSID与前者相同、BSSID与后者相同
+        NetworkResultCache.Key router = new NetworkResultCache.Key("Guest", "aa:bb:cc:dd:ee:02", "192.168.1.0/24");
+        cache.put(NetworkResultCache.capture(router, Collections.singletonList(camera("192.168.1.64")), NOW));
+        cache.put(NetworkResultCache.capture(HOME, Collections.singletonList(camera("192.168.1.64")), NOW + 1));
+        assertEquals(2, cache.size());
+
+        NetworkResultCache.Key query = new NetworkResultCache.Key("Home", "aa:bb:cc:dd:ee:02", "192.168.1.0/24");
+        assertSame(router, cache.get(query, NOW + 1).key);
+        assertSame(HOME, cache.get(new NetworkResultCache.Key("Home", null, "192.168.1.0/24"), NOW + 1).key);
+        assertNull(cache.get(HOME, NOW + 1 + NetworkResultCache.MAX_AGE_MS + 1));
+        assertNull(cache.get(new NetworkResultCache.Key(null, null, "192.168.1.0/24"), NOW));
+    }
+
+    @Test
+    public void putReplacesSameNetworkAndEvictsOldest() {
+        NetworkResultCache cache = new NetworkResultCache();
+        cache.put(NetworkResultCache.capture(HOME, Collections.singletonList(camera("192.168.1.64")), NOW));
+        cache.put(NetworkResultCache.capture(HOME, Arrays.asList(camera("192.168.1.64"), camera("192.168.1.65")), NOW + 1));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.get(HOME, NOW + 1).size());
+
+        for (int i = 0; i < NetworkResultCache.MAX_NETWORKS; i++) {
+            NetworkResultCache.Key key = new NetworkResultCache.Key("Net" + i, null, "10.0." + i + ".0/24");
+            cache.put(NetworkResultCache.capture(key, Collections.<CameraInfo>emptyList(), NOW + 2 + i));
+        }
+        assertEquals(NetworkResultCache.MAX_NETWORKS, cache.size());
+        // 最久未更新的HOME被淘汰
+        assertNull(cache.get(HOME, NOW + 100));
+        assertNotNull(cache.get(new NetworkResultCache.Key("Net0", null, "10.0.0.0/24"), NOW + 100));
+    }
+
+    @Test
+    public void writeAndReadRoundTrip() throws IOException {
+        NetworkResultCache cache = new NetworkResultCache();
+        CameraInfo camera = camera("fe80::1%wlan0");
+        camera.setStreamPath(null);
+        camera.setModel("");
+        cache.put(NetworkResultCache.capture(HOME, Collections.singletonList(camera), NOW));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        cache.write(new DataOutputStream(bytes));
+        NetworkResultCache restored = NetworkResultCache.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        NetworkResultCache.Snapshot snapshot = restored.get(HOME, NOW);
+        assertEquals(NOW, snapshot.savedAtMs);
+        CameraInfo copy = snapshot.restore().get(0);
+        assertEquals("fe80::1%wlan0", copy.getIpAddress());
+        assertEquals(554, copy.getPort());
+        assertNull(copy.getStreamPath());
+        // null 和空字符串分开保存
+        assertEquals("", copy.getModel());
+        assertEquals("Hikvision", copy.getManufacturer());
+        assertEquals(0.9f, copy.getConfidence(), 0f);
+        assertTrue(copy.isAccessible());
+        assertFalse(copy.hasPermission());
+        assertEquals(2, copy.getServices().size());
+    }
+
+    @Test
+    public void unknownFormatReadsAsEmpty() throws IOException {
+        NetworkResultCache cache = NetworkResultCache.read(
+                new DataInputStream(new ByteArrayInputStream(new byte[]{0, 0, 0, 1})));
+        assertEquals(0, cache.size());
+    }
+
+    private static CameraInfo camera(String ip) {
+        CameraInfo camera = new CameraInfo();
+        camera.setId(ip + ":554");
+        camera.setType(CameraInfo.CameraType.NETWORK);
+        camera.setIpAddress(ip);
+        camera.setPort(554);
+        camera.setStreamPath("/Streaming/Channels/101");
+        camera.setManufacturer("Hikvision");
+        camera.setConfidence(0.9f);
+        camera.setAccessible(true);
+        camera.addService(80, null);
+        camera.addService(554, "/Streaming/Channels/101");
+        return camera;
+    }
+}
@@ -0,0 +1,54 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 前缀查找和摄像头厂商的整名匹配
+ */
+public class OuiDatabaseTest {
+
+    @Test
+    public void lookupAcceptsCommonMacFormats() throws IOException {
+        OuiDatabase db = HostPriorityTest.database("2857BE", "Hikvision", "ACCC8E", "Axis Communications");
+        assertEquals("Hikvision", db.getVendor("28:57:be:12:34:56"));
+        assertEquals("Hikvision", db.getVendor("28-57-BE-12-34-56"));
+        assertEquals("安讯士", db.getDisplayVendor("accc8e123456"));
+        assertNull(db.getVendor("00:11:22:33:44:55"));
+        assertNull(db.getVendor("not a mac"));
+    }
+
+    @Test
+    public void cameraVendorsMatchWholeNames() throws IOException {
+        OuiDatabase db = HostPriorityTest.database(
+                "2857BE", "Hangzhou Hikvision Digital Technology Co.,Ltd.",
+                "ACCC8E", "Axis Communications AB",
+                "000000", "Panasonic",
+                "000001", "Panasonic i-PRO Sensing Solutions Co., Ltd.",
+                "000002", "Axis Tec Ltd",
+                "000003", "Bosch Security Systems");
+        assertTrue(db.isCameraVendor("28:57:BE:00:00:01"));
+        assertTrue(db.isCameraVendor("AC:CC:8E:00:00:01"));
+        assertTrue(db.isCameraVendor("00:00:01:00:00:01"));
+        assertTrue(db.isCameraVendor("00:00:03:00:00:01"));
+        // 集团的其他部门、名称恰好包含关键词的厂商不算
+        assertFalse(db.isCameraVendor("00:00:00:00:00:01"));
+        assertFalse(db.isCameraVendor("00:00:02:00:00:01"));
+        assertFalse(db.isCameraVendor("00:11:22:00:00:01"));
+    }
+
+    @Test
+    public void normalizeDropsPunctuationAndCompanySuffixes() {
+        assertEquals("zhejiang dahua technology", OuiDatabase.normalizeVendor("Zhejiang Dahua Technology Co., Ltd."));
+        assertEquals("axis communications", OuiDatabase.normalizeVendor("  AXIS Communications AB "));
+        assertEquals("panasonic i pro sensing solutions",
+                OuiDatabase.normalizeVendor("Panasonic i-PRO Sensing Solutions Co., Ltd."));
+        assertEquals("", OuiDatabase.normalizeVendor("Inc."));
+    }
+}
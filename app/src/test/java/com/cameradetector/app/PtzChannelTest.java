@@ -0,0 +1,154 @@
+package com.cameradetector.app;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用记录路径的假 Transport 验证命令合并、移动后必有停止、最长移动时间和关闭
+ */
+public class PtzChannelTest {
+
+    private static final Map<String, String> COMMANDS = new HashMap<>();
+
+    static {
+        for (String command : new String[]{"ptz_left", "ptz_right", "ptz_up", PtzChannel.STOP}) {
+            COMMANDS.put(command, "/" + command);
+        }
+    }
+
+    private final FakeTransport transport = new FakeTransport();
+    private PtzChannel channel;
+
+    @After
+    public void tearDown() {
+        transport.release();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void unsentMovesCoalesceToTheLatest() throws Exception {
+        channel = new PtzChannel("test", COMMANDS, transport);
+        transport.block();
+        assertTrue(channel.move("ptz_left"));
+        assertEquals("/ptz_left", transport.next());
+
+        // 第一个命令还在发送时连续按下两个方向，只发最后一个
+        channel.move("ptz_right");
+        channel.move("ptz_up");
+        transport.release();
+        assertEquals("/ptz_up", transport.next());
+
+        // 与正在执行的移动相同，不再发送
+        channel.move("ptz_up");
+        channel.stop();
+        assertEquals("/" + PtzChannel.STOP, transport.next());
+        assertNull(transport.poll());
+        assertEquals(3, channel.getSentCommands());
+        assertEquals(2, channel.getCoalescedCommands());
+    }
+
+    @Test
+    public void unsupportedCommandIsRejected() {
+        channel = new PtzChannel("test", COMMANDS, transport);
+        assertFalse(channel.move("zoom_in"));
+        channel.stop();
+        assertNull(transport.poll());
+    }
+
+    @Test
+    public void moveStopsAfterMaxMoveTime() throws Exception {
+        channel = new PtzChannel("test", COMMANDS, transport, 50);
+        channel.move("ptz_left");
+        assertEquals("/ptz_left", transport.next());
+        // 没有调用 stop，超时后自动停止
+        assertEquals("/" + PtzChannel.STOP, transport.next());
+        assertNull(transport.poll());
+    }
+
+    @Test
+    public void closeStopsActiveMove() throws Exception {
+        channel = new PtzChannel("test", COMMANDS, transport);
+        channel.move("ptz_left");
+        assertEquals("/ptz_left", transport.next());
+        channel.close();
+        assertEquals("/" + PtzChannel.STOP, transport.next());
+        assertFalse(channel.move("ptz_right"));
+        assertNull(transport.poll());
+    }
+
+    @Test
+    public void closeDropsUnsentMove() throws Exception {
+        channel = new PtzChannel("test", COMMANDS, transport);
+        transport.block();
+        channel.move("ptz_left");
+        assertEquals("/ptz_left", transport.next());
+        // 离开页面时还有一个没发出的移动：不能再发出，只停止正在进行的移动
+        channel.move("ptz_right");
+        channel.close();
+        transport.release();
+        assertEquals("/" + PtzChannel.STOP, transport.next());
+        assertNull(transport.poll());
+    }
+
+    @Test
+    public void closeWhileIdleSendsNothing() {
+        channel = new PtzChannel("test", COMMANDS, transport);
+        channel.close();
+        assertNull(transport.poll());
+    }
+
+    private static class FakeTransport implements PtzChannel.Transport {
+        private final LinkedBlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        // 之后的命令在发送中停住，直到 release
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public int send(String path) throws IOException {
+            sent.add(path);
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return 200;
+        }
+
+        String next() throws InterruptedException {
+            String path = sent.poll(2, TimeUnit.SECONDS);
+            if (path == null) {
+                throw new AssertionError("没有发送命令");
+            }
+            return path;
+        }
+
+        String poll() {
+            try {
+                return sent.poll(150, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.cameradetector.app;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RtpDepacketizerTest {
+
+    // 海康摄像头 H.264 流中抓到的包（RTP头 + 负载），SSRC 0x1a2b3c4d，负载类型96
+    static final String STAP_A_SPS_PPS =
+            "80600064 00015f90 1a2b3c4d 18 000a 6742001f95a814016e40 0004 68ce3c80";
+    static final String FU_A_IDR_START = "80600065 00015f90 1a2b3c4d 7c 85 88840021";
+    static final String FU_A_IDR_MIDDLE = "80600066 00015f90 1a2b3c4d 7c 05 fa5b7c11";
+    static final String FU_A_IDR_END = "80e00067 00015f90 1a2b3c4d 7c 45 30c0ffee";
+    static final String SINGLE_P_SLICE = "80e00068 000164f6 1a2b3c4d 41 9a0224";
+
+    private NalRingBuffer ring;
+    private RtpDepacketizer depacketizer;
+    private final NalRingBuffer.Unit unit = new NalRingBuffer.Unit();
+    private final ByteBuffer target = ByteBuffer.allocate(4096);
+
+    @Before
+    public void setUp() {
+        ring = new NalRingBuffer(64 * 1024, 64);
+        depacketizer = new RtpDepacketizer(RtpDepacketizer.Codec.H264, ring);
+    }
+
+    @Test
+    public void stapASplitsParameterSets() {
+        feed(STAP_A_SPS_PPS);
+
+        assertEquals(2, ring.size());
+        assertArrayEquals(hex("00000001 6742001f95a814016e40"), take());
+        assertEquals(NalRingBuffer.FLAG_CONFIG, unit.flags);
+        assertEquals(90000, unit.timestamp);
+        assertArrayEquals(hex("00000001 68ce3c80"), take());
+        assertEquals(NalRingBuffer.FLAG_CONFIG, unit.flags);
+    }
+
+    @Test
+    public void fuAReassemblesKeyframe() {
+        feed(FU_A_IDR_START);
+        feed(FU_A_IDR_MIDDLE);
+        assertEquals("分片未结束前不可取", 0, ring.size());
+        feed(FU_A_IDR_END);
+
+        assertEquals(1, ring.size());
+        // NAL头由FU indicator的NRI(0x60)和FU header的类型(5)还原为0x65
+        assertArrayEquals(hex("00000001 65 88840021 fa5b7c11 30c0ffee"), take());
+        assertEquals(NalRingBuffer.FLAG_KEYFRAME, unit.flags);
+    }
+
+    @Test
+    public void lostFragmentDropsWholeUnit() {
+        feed(FU_A_IDR_START);
+        feed(FU_A_IDR_END);  // 中间分片丢失
+        feed(SINGLE_P_SLICE);
+
+        assertEquals(1, depacketizer.getLostPackets());
+        assertEquals(1, ring.size());
+        assertArrayEquals(hex("00000001 419a0224"), take());
+        assertEquals(0, unit.flags);
+    }
+
+    @Test
+    public void lostStartFragmentIsIgnored() {
+        feed(FU_A_IDR_MIDDLE);
+        feed(FU_A_IDR_END);
+
+        assertEquals(0, ring.size());
+        assertEquals(2, depacketizer.getReceivedPackets());
+    }
+
+    @Test
+    public void sequenceWrapIsNotLoss() {
+        feed("8060ffff 00000000 1a2b3c4d 41 01");
+        feed("80600000 00000000 1a2b3c4d 41 02");
+
+        assertEquals(0, depacketizer.getLostPackets());
+        assertEquals(2, ring.size());
+    }
+
+    @Test
+    public void malformedPacketsAreIgnored() {
+        feed("4060 0064");                            // 太短
+        feed("40600064 00015f90 1a2b3c4d 41 9a");     // 版本不是2
+        feed("90600064 00015f90 1a2b3c4d 0000 0010"); // 扩展头长度超出包
+
+        assertEquals(0, ring.size());
+        assertEquals(0, depacketizer.getReceivedPackets());
+    }
+
+    @Test
+    public void h265FuReassemblesIrap() {
+        depacketizer = new RtpDepacketizer(RtpDepacketizer.Codec.H265, ring);
+        // FU: 负载头 type 49 (0x62 0x01)，FU头 start + type 19 (IDR_W_RADL)
+        feed("80600001 00000000 1a2b3c4d 6201 93 af01");
+        feed("80e00002 00000000 1a2b3c4d 6201 53 b002");
+
+        assertArrayEquals(hex("00000001 2601 af01 b002"), take());
+        assertEquals(NalRingBuffer.FLAG_KEYFRAME, unit.flags);
+    }
+
+    private void feed(String packet) {
+        byte[] bytes = hex(packet);
+        depacketizer.onRtpPacket(bytes, 0, bytes.length);
+    }
+
+    private byte[] take() {
+        target.clear();
+        assertTrue(ring.take(target, unit));
+        byte[] bytes = new byte[target.position()];
+        target.flip();
+        target.get(bytes);
+        assertFalse(bytes.length == 0);
+        return bytes;
+    }
+
+    static byte[] hex(String text) {
+        String digits = text.replace(" ", "");
+        byte[] bytes = new byte[digits.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(digits.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,271 @@
+package com.cameradetector.app;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 用本地脚本服务器回放一次完整的摄像头会话：Digest认证、DESCRIBE/SETUP/PLAY，
+ * 之后交织发送抓包得到的RTP包，经 RtpDepacketizer 还原到 NalRingBuffer
+ */
+public class RtspClientTest {
+
+    private static final String REALM = "IP Camera(C1234)";
+    private static final String NONCE = "4e3a8c2f9b7d";
+    private static final String SDP = "v=0\r\n"
+            + "o=- 1 1 IN IP4 127.0.0.1\r\n"
+            + "s=Media Presentation\r\n"
+            + "a=control:*\r\n"
+            + "m=video 0 RTP/AVP 96\r\n"
+            + "a=rtpmap:96 H264/90000\r\n"
+            + "a=fmtp:96 profile-level-id=42001f;packetization-mode=1;sprop-parameter-sets=Z0IAH5WoFAFuQA==,aM48gA==\r\n"
+            + "a=control:trackID=1\r\n"
+            + "m=audio 0 RTP/AVP 8\r\n"
+            + "a=rtpmap:8 PCMA/8000\r\n"
+            + "a=control:trackID=2\r\n";
+
+    private ServerSocket server;
+    private Thread serverThread;
+    private final List<String> requests = new ArrayList<>();
+    private volatile Throwable serverError;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        if (serverThread != null) {
+            serverThread.join(2000);
+        }
+        if (serverError != null) {
+            throw new AssertionError("脚本服务器出错", serverError);
+        }
+    }
+
+    @Test
+    public void replaysAuthenticatedSession() throws Exception {
+        serve("12345");
+        RtspClient client = new RtspClient(url(), "admin", "12345");
+        NalRingBuffer ring = new NalRingBuffer(64 * 1024, 64);
+        RtpDepacketizer depacketizer = new RtpDepacketizer(RtpDepacketizer.Codec.H264, ring);
+        try {
+            client.connect(2000);
+            client.options();
+            SessionDescription sdp = client.describe();
+            SessionDescription.Media video = sdp.getVideo();
+            assertNotNull(video);
+            assertTrue(video.isH264());
+            assertEquals(90000, video.getClockRate());
+            assertEquals("Z0IAH5WoFAFuQA==,aM48gA==", video.getFormatParameter("sprop-parameter-sets"));
+
+            String control = sdp.resolveControl(video, client.getContentBase());
+            assertEquals(url() + "/trackID=1", control);
+            client.setup(control, 0);
+            client.setPacketListener((channel, data, offset, length) -> {
+                if (channel == 0) {
+                    depacketizer.onRtpPacket(data, offset, length);
+                }
+            });
+            client.play();
+            client.readPackets();
+            fail("服务器关闭连接后应抛出EOFException");
+        } catch (EOFException expected) {
+            // 回放结束
+        } finally {
+            client.close();
+        }
+
+        // OPTIONS 先收到401，之后每个请求都带Digest认证
+        assertEquals(5, requests.size());
+        assertTrue(requests.get(0).startsWith("OPTIONS "));
+        assertTrue(requests.get(3).contains("Transport: RTP/AVP/TCP;unicast;interleaved=0-1"));
+        assertTrue(requests.get(4).startsWith("PLAY ") && requests.get(4).contains("Session: 66334873"));
+
+        assertEquals(0, depacketizer.getLostPackets());
+        assertEquals(4, ring.size());
+        NalRingBuffer.Unit unit = new NalRingBuffer.Unit();
+        ByteBuffer target = ByteBuffer.allocate(4096);
+        int[] expectedFlags = {NalRingBuffer.FLAG_CONFIG, NalRingBuffer.FLAG_CONFIG, NalRingBuffer.FLAG_KEYFRAME, 0};
+        for (int expected : expectedFlags) {
+            target.clear();
+            assertTrue(ring.take(target, unit));
+            assertEquals(expected, unit.flags);
+        }
+        assertArrayEquals(RtpDepacketizerTest.hex("00000001 419a0224"),
+                java.util.Arrays.copyOf(target.array(), target.position()));
+    }
+
+    @Test
+    public void wrongPasswordFailsAfterOneRetry() throws Exception {
+        serve("12345");
+        RtspClient client = new RtspClient(url(), "admin", "wrong");
+        try {
+            client.connect(2000);
+            client.options();
+            fail("密码错误应失败");
+        } catch (RtspClient.StatusException e) {
+            assertEquals(401, e.getStatus());
+        } finally {
+            client.close();
+        }
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void credentialsInUrlAreNotSentInRequestLine() throws Exception {
+        RtspClient client = new RtspClient("rtsp://admin:12345@[fe80::1%25wlan0]:8554/Streaming/Channels/101",
+                null, null);
+        assertEquals("rtsp://[fe80::1%25wlan0]:8554/Streaming/Channels/101", client.getUrl());
+    }
+
+    private String url() {
+        return "rtsp://127.0.0.1:" + server.getLocalPort() + "/Streaming/Channels/101";
+    }
+
+    private void serve(String password) {
+        serverThread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                String request;
+                while ((request = readRequest(in)) != null) {
+                    synchronized (requests) {
+                        requests.add(request);
+                    }
+                    String method = request.substring(0, request.indexOf(' '));
+                    String cseq = header(request, "CSeq");
+                    if (!authorized(request, method, password)) {
+                        write(out, "RTSP/1.0 401 Unauthorized\r\nCSeq: " + cseq + "\r\n"
+                                + "WWW-Authenticate: Basic realm=\"" + REALM + "\"\r\n"
+                                + "WWW-Authenticate: Digest realm=\"" + REALM + "\", nonce=\"" + NONCE
+                                + "\", qop=\"auth\"\r\n\r\n");
+                        continue;
+                    }
+                    switch (method) {
+                        case "OPTIONS":
+                            write(out, "RTSP/1.0 200 OK\r\nCSeq: " + cseq
+                                    + "\r\nPublic: OPTIONS, DESCRIBE, SETUP, PLAY, TEARDOWN, GET_PARAMETER\r\n\r\n");
+                            break;
+                        case "DESCRIBE":
+                            byte[] body = SDP.getBytes(StandardCharsets.UTF_8);
+                            write(out, "RTSP/1.0 200 OK\r\nCSeq: " + cseq + "\r\nContent-Base: " + url() + "/\r\n"
+                                    + "Content-Type: application/sdp\r\nContent-Length: " + body.length + "\r\n\r\n" + SDP);
+                            break;
+                        case "SETUP":
+                            write(out, "RTSP/1.0 200 OK\r\nCSeq: " + cseq
+                                    + "\r\nTransport: RTP/AVP/TCP;unicast;interleaved=0-1\r\nSession: 66334873;timeout=60\r\n\r\n");
+                            break;
+                        case "PLAY":
+                            // 部分摄像头在PLAY应答之前就开始发包
+                            interleave(out, 0, RtpDepacketizerTest.STAP_A_SPS_PPS);
+                            write(out, "RTSP/1.0 200 OK\r\nCSeq: " + cseq + "\r\nSession: 66334873\r\n\r\n");
+                            interleave(out, 1, "80c80006 1a2b3c4d");  // RTCP SR，不属于视频通道
+                            interleave(out, 0, RtpDepacketizerTest.FU_A_IDR_START);
+                            interleave(out, 0, RtpDepacketizerTest.FU_A_IDR_MIDDLE);
+                            interleave(out, 0, RtpDepacketizerTest.FU_A_IDR_END);
+                            interleave(out, 0, RtpDepacketizerTest.SINGLE_P_SLICE);
+                            return;
+                        default:
+                            write(out, "RTSP/1.0 405 Method Not Allowed\r\nCSeq: " + cseq + "\r\n\r\n");
+                    }
+                }
+            } catch (Throwable e) {
+                if (!server.isClosed()) {
+                    serverError = e;
+                }
+            }
+        });
+        serverThread.start();
+    }
+
+    // 按RFC 2617校验Digest应答
+    private boolean authorized(String request, String method, String password) throws Exception {
+        String authorization = header(request, "Authorization");
+        if (authorization == null || !authorization.startsWith("Digest ")) {
+            return false;
+        }
+        String uri = field(authorization, "uri");
+        String nc = field(authorization, "nc");
+        String cnonce = field(authorization, "cnonce");
+        assertEquals(REALM, field(authorization, "realm"));
+        assertEquals(NONCE, field(authorization, "nonce"));
+        assertEquals("auth", field(authorization, "qop"));
+        String ha1 = md5("admin:" + REALM + ":" + password);
+        String ha2 = md5(method + ":" + uri);
+        return md5(ha1 + ":" + NONCE + ":" + nc + ":" + cnonce + ":auth:" + ha2).equals(field(authorization, "response"));
+    }
+
+    private static String readRequest(InputStream in) throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        int matched = 0;
+        int b;
+        while (matched < 4 && (b = in.read()) >= 0) {
+            request.write(b);
+            matched = (b == '\r' || b == '\n') ? matched + 1 : 0;
+        }
+        return matched < 4 ? null : new String(request.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static String header(String request, String name) {
+        for (String line : request.split("\r\n")) {
+            if (line.regionMatches(true, 0, name + ":", 0, name.length() + 1)) {
+                return line.substring(name.length() + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    private static String field(String authorization, String name) {
+        Matcher matcher = Pattern.compile("\\b" + name + "=(\"([^\"]*)\"|([^,\\s]*))").matcher(authorization);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void interleave(OutputStream out, int channel, String packet) throws IOException {
+        byte[] bytes = RtpDepacketizerTest.hex(packet);
+        out.write(new byte[]{'$', (byte) channel, (byte) (bytes.length >> 8), (byte) bytes.length});
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static String md5(String value) throws Exception {
+        byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(String.format(Locale.US, "%02x", b & 0xFF));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 预算各项的用尽判定和结束时的覆盖率
+ */
+public class ScanBudgetTest {
+
+    @Test
+    public void probesRunOutAtProfileLimit() {
+        ScanBudget budget = new ScanBudget(ScanProfile.QUICK);
+        for (int i = 0; i < ScanProfile.QUICK.maxProbes; i++) {
+            assertTrue(budget.tryProbe());
+        }
+        assertFalse(budget.tryProbe());
+        assertEquals(ScanBudget.Limit.PROBES, budget.getExhaustedLimit());
+        assertEquals(ScanProfile.QUICK.maxProbes, budget.getProbes());
+    }
+
+    @Test
+    public void firstExhaustedLimitIsKept() {
+        ScanBudget budget = new ScanBudget(ScanProfile.QUICK);
+        budget.addBytes(ScanProfile.QUICK.maxBytes + 1);
+        assertTrue(budget.isExhausted());
+        assertFalse(budget.tryProbe());
+        assertEquals(ScanBudget.Limit.BYTES, budget.getExhaustedLimit());
+        assertTrue(budget.getSummary().endsWith("（流量预算用尽）"));
+    }
+
+    @Test
+    public void deadlineIsCappedByProfile() throws InterruptedException {
+        assertEquals(ScanProfile.QUICK.maxTimeMs, new ScanBudget(ScanProfile.QUICK, 60 * 60 * 1000L).getTimeLimitMs());
+        ScanBudget budget = new ScanBudget(ScanProfile.STANDARD, 1);
+        Thread.sleep(5);
+        assertFalse(budget.tryProbe());
+        assertEquals(ScanBudget.Limit.TIME, budget.getExhaustedLimit());
+    }
+
+    @Test
+    public void coverageIsRecordedOnceAtFinish() {
+        ScanBudget budget = new ScanBudget(ScanProfile.STANDARD);
+        assertEquals(100, budget.getCoveragePercent());
+        budget.finish(127, 254);
+        assertEquals(50, budget.getCoveragePercent());
+        // 结束后的进度不再改变覆盖率
+        budget.finish(254, 254);
+        assertEquals(50, budget.getCoveragePercent());
+        assertTrue(budget.getSummary().contains("覆盖 50%"));
+        assertEquals(ScanBudget.Limit.NONE, budget.getExhaustedLimit());
+    }
+
+    @Test
+    public void coverageNeverExceedsHundredPercent() {
+        ScanBudget budget = new ScanBudget(ScanProfile.STANDARD);
+        // IPv6发现的主机在总数加入前就可能已完成
+        budget.finish(260, 254);
+        assertEquals(100, budget.getCoveragePercent());
+    }
+}
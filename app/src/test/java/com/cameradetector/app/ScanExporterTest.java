@@ -0,0 +1,225 @@
+package com.cameradetector.app;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * CSV的引号转义、公式字符处理和BOM，NDJSON的逐行分隔，以及数据源在各种结束方式下都被关闭
+ */
+public class ScanExporterTest {
+
+    private static final long TIME = 1700000000000L;
+
+    @Test
+    public void csvStartsWithBomAndHeader() throws IOException {
+        byte[] bytes = exportBytes(ScanExporter.devices(Collections.<CameraInfo>emptyList(), true, TIME),
+                ScanExporter.Format.CSV);
+        // UTF-8 编码的 U+FEFF
+        assertEquals((byte) 0xEF, bytes[0]);
+        assertEquals((byte) 0xBB, bytes[1]);
+        assertEquals((byte) 0xBF, bytes[2]);
+        assertEquals("kind,time,device_id,name,type,ip,mac,vendor,model,confidence,status,interface,port,path\r\n",
+                new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void csvQuotesFieldsWithSeparatorsQuotesAndNewlines() throws IOException {
+        CameraInfo camera = camera("cam-1", "前门, \"室外\"", "192.168.1.20");
+        camera.setModel("DS-2CD\r\n2042");
+        String[] lines = csvLines(Collections.singletonList(camera), false);
+
+        assertEquals(2, lines.length);
+        assertEquals("device," + TIME + ",cam-1,\"前门, \"\"室外\"\"\",NETWORK,192.168.1.20,,Hikvision,"
+                + "\"DS-2CD\r\n2042\",0.85,不可访问,wlan0,554,", lines[1]);
+    }
+
+    @Test
+    public void csvNeutralizesFormulaPrefixes() throws IOException {
+        CameraInfo camera = camera("cam-1", "=HYPERLINK(\"http://x\",\"点击\")", "192.168.1.20");
+        camera.setManufacturer("+cmd|' /C calc'!A0");
+        camera.setModel("@SUM(1)");
+        String[] lines = csvLines(Collections.singletonList(camera), false);
+
+        assertEquals("device," + TIME + ",cam-1,\"'=HYPERLINK(\"\"http://x\"\",\"\"点击\"\")\",NETWORK,192.168.1.20,,"
+                + "'+cmd|' /C calc'!A0,'@SUM(1),0.85,不可访问,wlan0,554,", lines[1]);
+    }
+
+    @Test
+    public void deviceSourceCopiesStateWhenCreated() throws IOException {
+        CameraInfo camera = camera("cam-1", "前门", "192.168.1.20");
+        ScanExporter.Source source = ScanExporter.devices(Collections.singletonList(camera), true, TIME);
+        // 导出线程开始前设备又被扫描更新
+        camera.setName("-改名");
+        camera.addService(80, "/");
+
+        assertEquals(1, source.size());
+        String text = new String(exportBytes(source, ScanExporter.Format.NDJSON), StandardCharsets.UTF_8);
+        assertEquals(1, text.split("\n").length);
+        assertEquals("前门", new JsonParser().parse(text.trim()).getAsJsonObject().get("name").getAsString());
+    }
+
+    @Test
+    public void csvWritesOneRowPerProbe() throws IOException {
+        CameraInfo camera = camera("cam-1", "前门", "192.168.1.20");
+        camera.addService(80, "/");
+        camera.addService(554, "/Streaming/Channels/101");
+        String[] lines = csvLines(Collections.singletonList(camera), true);
+
+        assertEquals(4, lines.length);
+        assertTrue(lines[1].startsWith("device,"));
+        assertTrue(lines[2].startsWith("probe,") && lines[2].endsWith(",80,/"));
+        assertTrue(lines[3].startsWith("probe,") && lines[3].endsWith(",554,/Streaming/Channels/101"));
+    }
+
+    @Test
+    public void ndjsonWritesOneObjectPerLine() throws IOException {
+        List<CameraInfo> cameras = new ArrayList<>();
+        CameraInfo first = camera("cam-1", "含\n换行的名称", "192.168.1.20");
+        first.addService(554, "/live");
+        cameras.add(first);
+        cameras.add(camera("cam-2", "后门", "fe80::1%wlan0"));
+
+        String text = new String(exportBytes(ScanExporter.devices(cameras, true, TIME), ScanExporter.Format.NDJSON),
+                StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"));
+        String[] lines = text.substring(0, text.length() - 1).split("\n", -1);
+        assertEquals(3, lines.length);
+
+        JsonObject device = new JsonParser().parse(lines[0]).getAsJsonObject();
+        assertEquals("device", device.get("kind").getAsString());
+        assertEquals(TIME, device.get("time").getAsLong());
+        assertEquals("含\n换行的名称", device.get("name").getAsString());
+        assertEquals(0.85f, device.get("confidence").getAsFloat(), 0.0001f);
+        // 空字段不输出
+        assertFalse(device.has("mac"));
+        assertFalse(device.has("path"));
+
+        JsonObject probe = new JsonParser().parse(lines[1]).getAsJsonObject();
+        assertEquals("probe", probe.get("kind").getAsString());
+        assertEquals(554, probe.get("port").getAsInt());
+        assertEquals("/live", probe.get("path").getAsString());
+
+        assertEquals("fe80::1%wlan0", new JsonParser().parse(lines[2]).getAsJsonObject().get("ip").getAsString());
+    }
+
+    @Test
+    public void filtersApplyButProgressCountsAllRecords() throws IOException {
+        CameraInfo camera = camera("cam-1", "前门", "192.168.1.20");
+        camera.addService(80, "/");
+        long[] progress = new long[2];
+        long written = ScanExporter.export(ScanExporter.devices(Collections.singletonList(camera), true, TIME),
+                ScanExporter.Format.NDJSON, ScanExporter.devicesOnly(), new ByteArrayOutputStream(),
+                (count, total) -> {
+                    progress[0] = count;
+                    progress[1] = total;
+                });
+        assertEquals(1, written);
+        assertEquals(1, progress[0]);
+        assertEquals(2, progress[1]);
+    }
+
+    @Test
+    public void sourceIsClosedWhenWriteFails() {
+        CountingSource source = new CountingSource(ScanExporter.devices(
+                Collections.singletonList(camera("cam-1", "前门", "192.168.1.20")), false, TIME));
+        try {
+            ScanExporter.export(source, ScanExporter.Format.CSV, null, new java.io.OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("磁盘已满");
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    throw new IOException("磁盘已满");
+                }
+            }, null);
+            fail("写出失败应抛出IOException");
+        } catch (IOException expected) {
+            // 写出失败
+        }
+        assertEquals(1, source.closed);
+    }
+
+    private static CameraInfo camera(String id, String name, String ip) {
+        CameraInfo camera = new CameraInfo();
+        camera.setId(id);
+        camera.setName(name);
+        camera.setType(CameraInfo.CameraType.NETWORK);
+        camera.setIpAddress(ip);
+        camera.setPort(554);
+        camera.setManufacturer("Hikvision");
+        camera.setConfidence(0.85f);
+        camera.setNetworkInterface("wlan0");
+        return camera;
+    }
+
+    private static String[] csvLines(List<CameraInfo> cameras, boolean includeProbes) throws IOException {
+        byte[] bytes = exportBytes(ScanExporter.devices(cameras, includeProbes, TIME), ScanExporter.Format.CSV);
+        String text = new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\r\n"));
+        // 按记录分隔：引号内的CRLF属于字段内容
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (!quoted && c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                lines.add(line.toString());
+                line.setLength(0);
+                i++;
+            } else {
+                line.append(c);
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    private static byte[] exportBytes(ScanExporter.Source source, ScanExporter.Format format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ScanExporter.export(source, format, null, output, null);
+        return output.toByteArray();
+    }
+
+    private static class CountingSource implements ScanExporter.Source {
+        private final ScanExporter.Source delegate;
+        int closed = 0;
+
+        CountingSource(ScanExporter.Source delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean next(ScanExporter.Record record) throws IOException {
+            return delegate.next(record);
+        }
+
+        @Override
+        public long size() {
+            return delegate.size();
+        }
+
+        @Override
+        public void close() {
+            closed++;
+            delegate.close();
+        }
+    }
+}
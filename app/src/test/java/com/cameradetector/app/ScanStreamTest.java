@@ -0,0 +1,225 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanStreamTest {
+
+    // 手动执行的投递队列，模拟延迟执行的界面线程
+    private final ArrayDeque<Runnable> posted = new ArrayDeque<>();
+    private final Executor deferred = posted::add;
+    private final ScanStream.Hub hub = new ScanStream.Hub();
+
+    @Test
+    public void batchMergesResultsQueuedBetweenDeliveries() {
+        Recorder<List<String>> recorder = new Recorder<>(Long.MAX_VALUE);
+        ScanStream.of(hub, deferred).map(CameraInfo::getIpAddress).batch(3).subscribe(recorder);
+        runPosted();
+
+        for (int i = 1; i <= 5; i++) {
+            hub.publish(camera("10.0.0." + i));
+        }
+        // 五个结果只安排了一次投递，按每批3个拆成两批
+        assertEquals(1, posted.size());
+        runPosted();
+        assertEquals(Arrays.asList(Arrays.asList("10.0.0.1", "10.0.0.2", "10.0.0.3"),
+                Arrays.asList("10.0.0.4", "10.0.0.5")), recorder.items);
+
+        hub.publish(camera("10.0.0.6"));
+        hub.complete();
+        runPosted();
+        assertEquals(Arrays.asList("10.0.0.6"), recorder.items.get(2));
+        assertTrue(recorder.completed);
+        assertFalse(hub.hasSubscribers());
+    }
+
+    @Test
+    public void requestCountsBatches() {
+        Recorder<List<String>> recorder = new Recorder<>(1);
+        ScanStream.of(hub, deferred).map(CameraInfo::getIpAddress).batch(2).subscribe(recorder);
+        runPosted();
+
+        for (int i = 1; i <= 4; i++) {
+            hub.publish(camera("10.0.0." + i));
+        }
+        hub.complete();
+        runPosted();
+        assertEquals(1, recorder.items.size());
+        assertFalse(recorder.completed);
+
+        recorder.subscription.request(1);
+        runPosted();
+        assertEquals(Arrays.asList("10.0.0.3", "10.0.0.4"), recorder.items.get(1));
+        assertTrue(recorder.completed);
+    }
+
+    @Test
+    public void filterAppliesBeforeBatching() {
+        Recorder<List<CameraInfo>> recorder = new Recorder<>(Long.MAX_VALUE);
+        ScanStream.of(hub, deferred)
+                .filter(camera -> camera.getIpAddress() != null)
+                .batch(10)
+                .subscribe(recorder);
+        hub.publish(camera("10.0.0.1"));
+        hub.publish(camera(null));
+        hub.publish(camera("10.0.0.2"));
+        runPosted();
+
+        assertEquals(1, recorder.items.size());
+        assertEquals(2, recorder.items.get(0).size());
+    }
+
+    @Test
+    public void dropOldestKeepsNewestResults() {
+        Recorder<String> recorder = new Recorder<>(Long.MAX_VALUE);
+        ScanStream.of(hub, deferred).map(CameraInfo::getIpAddress)
+                .buffer(2, ScanStream.Overflow.DROP_OLDEST)
+                .subscribe(recorder);
+        runPosted();
+        for (int i = 1; i <= 5; i++) {
+            hub.publish(camera("10.0.0." + i));
+        }
+        runPosted();
+
+        assertEquals(Arrays.asList("10.0.0.4", "10.0.0.5"), recorder.items);
+    }
+
+    @Test
+    public void onSubscribeIsDeliveredByTheSerializedDrain() {
+        List<String> events = new ArrayList<>();
+        ScanStream.of(hub, deferred).map(CameraInfo::getIpAddress).subscribe(new ScanStream.Subscriber<String>() {
+            @Override
+            public void onSubscribe(ScanStream.Subscription subscription) {
+                events.add("subscribe");
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(String item) {
+                events.add(item);
+            }
+
+            @Override
+            public void onComplete() {
+                events.add("complete");
+            }
+        });
+        // 投递任务执行前结果和结束都已到达：多线程 executor 上也只有一个投递任务，onSubscribe 仍然最先
+        hub.publish(camera("10.0.0.1"));
+        hub.complete();
+        assertEquals(1, posted.size());
+        runPosted();
+        assertEquals(Arrays.asList("subscribe", "10.0.0.1", "complete"), events);
+    }
+
+    @Test
+    public void callbacksNeverOverlapOnThreadPool() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicBoolean inCallback = new AtomicBoolean(false);
+        AtomicBoolean overlapped = new AtomicBoolean(false);
+        AtomicBoolean subscribedFirst = new AtomicBoolean(true);
+        AtomicInteger received = new AtomicInteger(0);
+        CountDownLatch completed = new CountDownLatch(1);
+        try {
+            ScanStream.of(hub, pool).subscribe(new ScanStream.Subscriber<CameraInfo>() {
+                private volatile boolean subscribed = false;
+
+                @Override
+                public void onSubscribe(ScanStream.Subscription subscription) {
+                    enter();
+                    subscribed = true;
+                    subscription.request(Long.MAX_VALUE);
+                    inCallback.set(false);
+                }
+
+                @Override
+                public void onNext(CameraInfo item) {
+                    enter();
+                    received.incrementAndGet();
+                    inCallback.set(false);
+                }
+
+                @Override
+                public void onComplete() {
+                    enter();
+                    inCallback.set(false);
+                    completed.countDown();
+                }
+
+                private void enter() {
+                    if (!inCallback.compareAndSet(false, true)) {
+                        overlapped.set(true);
+                    }
+                    if (!subscribed && received.get() > 0) {
+                        subscribedFirst.set(false);
+                    }
+                }
+            });
+            for (int i = 0; i < 200; i++) {
+                hub.publish(camera("10.0.0." + (i % 250)));
+            }
+            hub.complete();
+            assertTrue(completed.await(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertFalse(overlapped.get());
+        assertTrue(subscribedFirst.get());
+        assertEquals(200, received.get());
+    }
+
+    private void runPosted() {
+        Runnable task;
+        while ((task = posted.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static CameraInfo camera(String ipAddress) {
+        CameraInfo camera = new CameraInfo();
+        camera.setIpAddress(ipAddress);
+        return camera;
+    }
+
+    private static class Recorder<T> implements ScanStream.Subscriber<T> {
+        final List<T> items = new ArrayList<>();
+        final long initialRequest;
+        ScanStream.Subscription subscription;
+        boolean completed = false;
+
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(ScanStream.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
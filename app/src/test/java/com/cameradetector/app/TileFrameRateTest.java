@@ -0,0 +1,37 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 按画面尺寸分档、共享解码预算和暂停
+ */
+public class TileFrameRateTest {
+
+    @Test
+    public void capFollowsShortSide() {
+        assertEquals(25, TileFrameRate.cap(1280, 720, true, 1, 8));
+        assertEquals(15, TileFrameRate.cap(480, 800, true, 1, 8));
+        assertEquals(10, TileFrameRate.cap(320, 240, true, 1, 8));
+        assertEquals(5, TileFrameRate.cap(200, 150, true, 1, 8));
+    }
+
+    @Test
+    public void visibleTilesShareDecodeBudget() {
+        // 2核共60帧/秒，16个画面每个最多3帧
+        assertEquals(3, TileFrameRate.cap(1280, 720, true, 16, 2));
+        // 预算再少也不低于 MIN_FPS
+        assertEquals(TileFrameRate.MIN_FPS, TileFrameRate.cap(1280, 720, true, 100, 1));
+        // 核数和画面数异常时按1计
+        assertEquals(25, TileFrameRate.cap(1280, 720, true, 0, 0));
+    }
+
+    @Test
+    public void hiddenOrEmptyTileIsPaused() {
+        assertEquals(0, TileFrameRate.cap(1280, 720, false, 1, 8));
+        assertEquals(0, TileFrameRate.cap(0, 720, true, 1, 8));
+        assertEquals(Long.MAX_VALUE, TileFrameRate.intervalMs(0));
+        assertEquals(40, TileFrameRate.intervalMs(25));
+    }
+}
@@ -0,0 +1,50 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 帧率窗口、丢帧计数和解码耗时的平滑
+ */
+public class TileStatsTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void fpsIsComputedPerWindowAndFallsToZero() {
+        TileStats stats = new TileStats();
+        stats.roll(0);
+        for (int i = 1; i <= 10; i++) {
+            stats.recordFrame(i * 100, 5 * MS);
+        }
+        // 第10帧正好满1秒
+        assertEquals(10f, stats.getFps(), 0.001f);
+        assertEquals(10, stats.getDisplayedFrames());
+
+        // 没有新帧，定期 roll 后降到0
+        stats.roll(1500);
+        assertEquals(10f, stats.getFps(), 0.001f);
+        stats.roll(2000);
+        assertEquals(0f, stats.getFps(), 0.001f);
+    }
+
+    @Test
+    public void decodeTimeIsSmoothed() {
+        TileStats stats = new TileStats();
+        stats.recordFrame(0, 10 * MS);
+        assertEquals(10.0, stats.getAverageDecodeMs(), 0.0001);
+        stats.recordFrame(10, 20 * MS);
+        assertEquals(12.0, stats.getAverageDecodeMs(), 0.0001);
+    }
+
+    @Test
+    public void summaryShowsDroppedFrames() {
+        TileStats stats = new TileStats();
+        stats.recordDropped();
+        stats.recordDropped();
+        stats.recordFrame(0, 3 * MS);
+        assertEquals(2, stats.getDroppedFrames());
+        assertEquals("0.0/15 fps  丢帧 2  解码 3.0 ms", stats.getSummary(15));
+    }
+}
@@ -0,0 +1,61 @@
+package com.cameradetector.app;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WifiApAnalyzerTest {
+
+    private static final String WPA2 = "[WPA2-PSK-CCMP][RSN-PSK-CCMP][ESS]";
+    private static final String OPEN = "[ESS]";
+
+    private final WifiApAnalyzer analyzer = new WifiApAnalyzer(
+            bssid -> bssid.startsWith("c0:56:e3") ? "海康威视" : null);
+    // 信号依次减弱，候选按信号排序后保持参数顺序
+    private int level = -40;
+
+    @Test
+    public void cameraWordAloneIsNotCandidate() {
+        List<WifiApAnalyzer.Candidate> candidates = analyze(
+                ap("00:11:22:33:44:01", "Camera Shop WiFi", WPA2),
+                ap("00:11:22:33:44:02", "MyCamera", WPA2),
+                ap("00:11:22:33:44:03", "CAMERA-5G", WPA2));
+
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test
+    public void cameraPrefixNeedsSupportingEvidence() {
+        List<WifiApAnalyzer.Candidate> candidates = analyze(
+                ap("00:11:22:33:44:01", "camera_8a3c01", OPEN),
+                ap("c0:56:e3:00:00:02", "Camera-Setup", WPA2),
+                ap("00:11:22:33:44:03", "MyCamera", OPEN));
+
+        assertEquals(2, candidates.size());
+        assertEquals("camera_8a3c01", candidates.get(0).ssid);
+        assertEquals(Arrays.asList("SSID含camera", "开放网络"), candidates.get(0).evidence);
+        assertEquals("海康威视", candidates.get(1).vendor);
+    }
+
+    @Test
+    public void vendorSetupApIsCandidate() {
+        List<WifiApAnalyzer.Candidate> candidates = analyze(ap("00:11:22:33:44:01", "HIK-E12345678", WPA2));
+
+        assertEquals(1, candidates.size());
+        assertEquals("海康威视", candidates.get(0).vendor);
+        assertTrue(candidates.get(0).confidence >= WifiApAnalyzer.CANDIDATE_THRESHOLD);
+    }
+
+    private List<WifiApAnalyzer.Candidate> analyze(WifiApAnalyzer.Observation... observations) {
+        return analyzer.analyze(Arrays.asList(observations), null);
+    }
+
+    private WifiApAnalyzer.Observation ap(String bssid, String ssid, String capabilities) {
+        level -= 5;
+        return new WifiApAnalyzer.Observation(bssid, ssid, capabilities, 2437, level, 1000);
+    }
+}